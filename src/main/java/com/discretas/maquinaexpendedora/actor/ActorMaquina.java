@@ -0,0 +1,159 @@
+package com.discretas.maquinaexpendedora.actor;
+
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import lombok.Getter;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Actor que serializa todos los accesos a una máquina expendedora.
+ * Los comandos se encolan en un buzón y un único escritor lógico los ejecuta por lotes,
+ * por lo que la máquina nunca es modificada por dos hilos a la vez y no necesita bloqueos.
+ * El escritor solo ocupa un hilo (virtual) mientras hay comandos pendientes, lo que permite
+ * mantener muchas máquinas por núcleo.
+ * <p>
+ * Cuando la máquina se traslada a otro nodo el actor se cierra en el mismo comando que copia su estado:
+ * los comandos posteriores, aunque se hayan encolado antes, fallan con {@link MaquinaNoDisponibleException}
+ * en lugar de modificar una copia que ya no se envía.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public class ActorMaquina {
+
+    /**
+     * Máquina gobernada por este actor
+     */
+    @Getter
+    private final MaquinaExpendedora maquina;
+
+    /**
+     * Buzón de comandos pendientes
+     */
+    private final Queue<Comando<?>> buzon = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Indica si hay un escritor programado o en ejecución
+     */
+    private final AtomicBoolean programado = new AtomicBoolean(false);
+
+    private final Executor ejecutor;
+
+    private final int tamanyoLote;
+
+    /**
+     * Indica que la máquina se entregó a otro nodo. Se activa en el escritor, junto con la copia
+     */
+    private volatile boolean trasladada;
+
+    /**
+     * Constructor del actor
+     * @param maquina Máquina gobernada por el actor
+     * @param ejecutor Ejecutor compartido donde corren los escritores
+     * @param tamanyoLote Número máximo de comandos procesados por turno
+     */
+    public ActorMaquina(MaquinaExpendedora maquina, Executor ejecutor, int tamanyoLote) {
+        this.maquina = maquina;
+        this.ejecutor = ejecutor;
+        this.tamanyoLote = tamanyoLote;
+    }
+
+    /**
+     * Encola un comando sobre la máquina
+     * @param operacion Operación a ejecutar con acceso exclusivo a la máquina
+     * @return Futuro que se completa con el resultado de la operación
+     */
+    public <T> CompletableFuture<T> enviar(Function<MaquinaExpendedora, T> operacion) {
+        if (trasladada) {
+            return CompletableFuture.failedFuture(new MaquinaNoDisponibleException(maquina.getId()));
+        }
+        Comando<T> comando = new Comando<>(operacion, new CompletableFuture<>());
+        buzon.offer(comando);
+        programar();
+        return comando.resultado();
+    }
+
+    /**
+     * Encola un comando y espera su resultado
+     * @param operacion Operación a ejecutar con acceso exclusivo a la máquina
+     * @return Resultado de la operación
+     */
+    public <T> T ejecutar(Function<MaquinaExpendedora, T> operacion) {
+        return enviar(operacion).join();
+    }
+
+    /**
+     * Copia la máquina para trasladarla y cierra el actor en el mismo comando, de modo que ningún comando
+     * posterior modifique la máquina después de la copia
+     * @param copia Operación que copia la máquina, o devuelve null si no puede trasladarse
+     * @return Futuro con la copia, o null si la máquina no se trasladó y el actor sigue abierto
+     */
+    public <T> CompletableFuture<T> trasladar(Function<MaquinaExpendedora, T> copia) {
+        return enviar(m -> {
+            T resultado = copia.apply(m);
+            trasladada = resultado != null;
+            return resultado;
+        });
+    }
+
+    /**
+     * Vuelve a abrir un actor cuyo traslado no pudo completarse
+     */
+    public void reabrir() {
+        trasladada = false;
+    }
+
+    /**
+     * Programa un escritor si no hay uno activo
+     */
+    private void programar() {
+        if (programado.compareAndSet(false, true)) {
+            ejecutor.execute(this::procesarLote);
+        }
+    }
+
+    /**
+     * Ejecuta hasta un lote de comandos y, si quedan pendientes, cede el turno reprogramándose
+     */
+    private void procesarLote() {
+        int procesados = 0;
+        Comando<?> comando;
+        while (procesados < tamanyoLote && (comando = buzon.poll()) != null) {
+            if (trasladada) {
+                comando.rechazar(maquina.getId());
+            } else {
+                comando.ejecutar(maquina);
+            }
+            procesados++;
+        }
+
+        programado.set(false);
+        if (!buzon.isEmpty()) {
+            programar();
+        }
+    }
+
+    /**
+     * Comando encolado junto al futuro de su resultado
+     */
+    private record Comando<T>(Function<MaquinaExpendedora, T> operacion, CompletableFuture<T> resultado) {
+
+        void ejecutar(MaquinaExpendedora maquina) {
+            try {
+                resultado.complete(operacion.apply(maquina));
+            } catch (Throwable e) {
+                resultado.completeExceptionally(e);
+            }
+        }
+
+        void rechazar(String idMaquina) {
+            resultado.completeExceptionally(new MaquinaNoDisponibleException(idMaquina));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.discretas.maquinaexpendedora.actor;
+
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Registro de las máquinas de la flota, cada una gobernada por su propio {@link ActorMaquina}.
+ * Todos los actores comparten un ejecutor de hilos virtuales.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Component
+public class FlotaMaquinas {
+
+    private final Map<String, ActorMaquina> actores = new ConcurrentHashMap<>();
+
+    private final Executor ejecutor;
+
+    private final int tamanyoLote;
+
+    private final ActorMaquina principal;
+
+    /**
+     * Indica si una máquina pertenece a este nodo; sin clúster todas le pertenecen
+     */
+    private volatile Predicate<String> pertenencia = idMaquina -> true;
+
+    /**
+     * Constructor de la flota
+     * @param maquinaPrincipal Máquina principal expuesta por la API
+     * @param tamanyoLote Número máximo de comandos que procesa cada actor por turno
+     */
+    @Autowired
+    public FlotaMaquinas(MaquinaExpendedora maquinaPrincipal,
+                         @Value("${maquina.actor.tamanyo-lote:64}") int tamanyoLote) {
+        this(maquinaPrincipal, tamanyoLote, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Constructor de la flota con un ejecutor propio para los actores. Con un ejecutor que corre las tareas
+     * en el hilo del llamador, todo el trabajo de una operación queda en ese hilo y puede medirse.
+     * @param maquinaPrincipal Máquina principal expuesta por la API
+     * @param tamanyoLote Número máximo de comandos que procesa cada actor por turno
+     * @param ejecutor Ejecutor donde corren los escritores de los actores
+     */
+    public FlotaMaquinas(MaquinaExpendedora maquinaPrincipal, int tamanyoLote, Executor ejecutor) {
+        this.tamanyoLote = tamanyoLote;
+        this.ejecutor = ejecutor;
+        this.principal = registrar(maquinaPrincipal);
+    }
+
+    /**
+     * Registra una máquina en la flota
+     * @param maquina Máquina a registrar
+     * @return Actor que gobierna la máquina
+     */
+    public ActorMaquina registrar(MaquinaExpendedora maquina) {
+        return actores.computeIfAbsent(maquina.getId(), id -> new ActorMaquina(maquina, ejecutor, tamanyoLote));
+    }
+
+    /**
+     * Obtiene el actor de una máquina
+     * @param idMaquina Identificador de la máquina
+     * @return Actor de la máquina o null si no está registrada
+     */
+    public ActorMaquina obtener(String idMaquina) {
+        return actores.get(idMaquina);
+    }
+
+    /**
+     * Retira una máquina de la flota, por ejemplo al trasladarla a otro nodo. La máquina principal no se retira.
+     * Los comandos ya encolados en su actor se siguen ejecutando.
+     * @param idMaquina Identificador de la máquina
+     * @return Actor retirado, o null si no estaba registrada o es la principal
+     */
+    public ActorMaquina retirar(String idMaquina) {
+        if (principal.getMaquina().getId().equals(idMaquina)) {
+            return null;
+        }
+        return actores.remove(idMaquina);
+    }
+
+    /**
+     * Devuelve a la flota un actor retirado, por ejemplo cuando su traslado no pudo completarse
+     * @param actor Actor retirado con {@link #retirar(String)}
+     */
+    public void restituir(ActorMaquina actor) {
+        actores.putIfAbsent(actor.getMaquina().getId(), actor);
+    }
+
+    /**
+     * Indica si una máquina pertenece a este nodo. La máquina principal siempre le pertenece.
+     * @param idMaquina Identificador de la máquina
+     * @return true si la máquina debe gobernarse en este nodo
+     */
+    public boolean esPropia(String idMaquina) {
+        return principal.getMaquina().getId().equals(idMaquina) || pertenencia.test(idMaquina);
+    }
+
+    /**
+     * Establece el criterio con el que se decide qué máquinas pertenecen a este nodo
+     * @param pertenencia Criterio de pertenencia por identificador de máquina
+     */
+    public void setPertenencia(Predicate<String> pertenencia) {
+        this.pertenencia = pertenencia;
+    }
+
+    /**
+     * Obtiene el actor de la máquina principal
+     * @return Actor de la máquina principal
+     */
+    public ActorMaquina getPrincipal() {
+        return principal;
+    }
+
+    /**
+     * Obtiene todos los actores registrados
+     * @return Colección de actores de la flota
+     */
+    public Collection<ActorMaquina> getActores() {
+        return actores.values();
+    }
+
+    /**
+     * Detiene el ejecutor compartido de los actores
+     */
+    @PreDestroy
+    public void detener() {
+        if (ejecutor instanceof ExecutorService servicio) {
+            servicio.shutdown();
+        }
+    }
+}
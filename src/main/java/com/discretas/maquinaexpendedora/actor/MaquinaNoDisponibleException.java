@@ -0,0 +1,22 @@
+package com.discretas.maquinaexpendedora.actor;
+
+import lombok.Getter;
+
+/**
+ * Indica que la máquina pedida en la solicitud dejó de estar en este nodo después de enrutarla,
+ * por ejemplo porque el clúster la trasladó a otro nodo, o que su actor ya entregó la máquina y no acepta
+ * más comandos. Se responde 503 con Retry-After: al reintentar, el enrutador envía la solicitud al nuevo dueño.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Getter
+public class MaquinaNoDisponibleException extends IllegalStateException {
+
+    private final String idMaquina;
+
+    public MaquinaNoDisponibleException(String idMaquina) {
+        super("La máquina " + idMaquina + " ya no está disponible en este nodo");
+        this.idMaquina = idMaquina;
+    }
+}
@@ -0,0 +1,195 @@
+package com.discretas.maquinaexpendedora.admision;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.cluster.SecretoCluster;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Control de admisión delante de la capa de servicios.
+ * Aplica cubetas de tokens por cliente y por máquina, y un límite de concurrencia con prioridad:
+ * las operaciones de compra (POST) tienen cupo propio y un límite de concurrencia mayor que las
+ * lecturas del tablero (GET), que son las primeras en rechazarse bajo sobrecarga.
+ * Las solicitudes rechazadas reciben 429 con la cabecera Retry-After.
+ * <p>
+ * El cliente se identifica por su usuario autenticado o, si no lo hay, por su dirección remota; las cabeceras
+ * que envía el cliente no se usan, porque bastaría con rotarlas para obtener una cubeta llena en cada solicitud.
+ * Solo se limita por máquina a las máquinas de este nodo, y un token solo se gasta si la solicitud se admite.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class ControlAdmision implements HandlerInterceptor {
+
+    private static final String ATRIBUTO_ADMITIDA = ControlAdmision.class.getName() + ".admitida";
+
+    private static final int MAX_CUBETAS = 10_000;
+
+    private final TablaCubetas cubetasCompraCliente;
+
+    private final TablaCubetas cubetasLecturaCliente;
+
+    private final TablaCubetas cubetasMaquina;
+
+    private final AtomicInteger solicitudesEnCurso = new AtomicInteger();
+
+    private final ObjectMapper objectMapper;
+
+    private final FlotaMaquinas flota;
+
+    private final SecretoCluster secretoCluster;
+
+    private final boolean habilitada;
+
+    private final int concurrenciaLecturas;
+
+    private final int concurrenciaCompras;
+
+    /**
+     * Constructor del control de admisión
+     */
+    public ControlAdmision(ObjectMapper objectMapper,
+                           FlotaMaquinas flota,
+                           SecretoCluster secretoCluster,
+                           @Value("${maquina.admision.habilitada:true}") boolean habilitada,
+                           @Value("${maquina.admision.cliente.compras-por-segundo:20}") double comprasPorSegundoCliente,
+                           @Value("${maquina.admision.cliente.rafaga-compras:40}") int rafagaComprasCliente,
+                           @Value("${maquina.admision.cliente.lecturas-por-segundo:10}") double lecturasPorSegundoCliente,
+                           @Value("${maquina.admision.cliente.rafaga-lecturas:20}") int rafagaLecturasCliente,
+                           @Value("${maquina.admision.maquina.compras-por-segundo:50}") double comprasPorSegundoMaquina,
+                           @Value("${maquina.admision.maquina.rafaga-compras:100}") int rafagaComprasMaquina,
+                           @Value("${maquina.admision.concurrencia.lecturas:64}") int concurrenciaLecturas,
+                           @Value("${maquina.admision.concurrencia.compras:200}") int concurrenciaCompras) {
+        this.objectMapper = objectMapper;
+        this.flota = flota;
+        this.secretoCluster = secretoCluster;
+        this.habilitada = habilitada;
+        this.cubetasCompraCliente = new TablaCubetas(MAX_CUBETAS, comprasPorSegundoCliente, rafagaComprasCliente);
+        this.cubetasLecturaCliente = new TablaCubetas(MAX_CUBETAS, lecturasPorSegundoCliente, rafagaLecturasCliente);
+        this.cubetasMaquina = new TablaCubetas(MAX_CUBETAS, comprasPorSegundoMaquina, rafagaComprasMaquina);
+        this.concurrenciaLecturas = concurrenciaLecturas;
+        this.concurrenciaCompras = concurrenciaCompras;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!habilitada || request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+
+        boolean esCompra = !HttpMethod.GET.matches(request.getMethod());
+        String cliente = identificarCliente(request);
+        long ahora = System.nanoTime();
+
+        CubetaTokens cubetaCliente = esCompra
+                ? cubetasCompraCliente.obtener(cliente, ahora)
+                : cubetasLecturaCliente.obtener(cliente, ahora);
+        long espera = cubetaCliente.intentarConsumir(ahora);
+        if (espera > 0) {
+            rechazar(response, espera);
+            return false;
+        }
+
+        String maquina = esCompra ? identificarMaquina(request) : null;
+        CubetaTokens cubetaMaquina = maquina != null ? cubetasMaquina.obtener(maquina, ahora) : null;
+        if (cubetaMaquina != null) {
+            espera = cubetaMaquina.intentarConsumir(ahora);
+            if (espera > 0) {
+                cubetaCliente.devolver();
+                rechazar(response, espera);
+                return false;
+            }
+        }
+
+        int limite = esCompra ? concurrenciaCompras : concurrenciaLecturas;
+        if (solicitudesEnCurso.incrementAndGet() > limite) {
+            solicitudesEnCurso.decrementAndGet();
+            cubetaCliente.devolver();
+            if (cubetaMaquina != null) {
+                cubetaMaquina.devolver();
+            }
+            rechazar(response, TimeUnit.SECONDS.toNanos(1));
+            return false;
+        }
+        request.setAttribute(ATRIBUTO_ADMITIDA, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ATRIBUTO_ADMITIDA) != null) {
+            request.removeAttribute(ATRIBUTO_ADMITIDA);
+            solicitudesEnCurso.decrementAndGet();
+        }
+    }
+
+    /**
+     * Responde con 429 y el tiempo de espera sugerido
+     */
+    private void rechazar(HttpServletResponse response, long esperaNanos) throws IOException {
+        long segundos = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        ApiResponseDTO<Void> cuerpo = new ApiResponseDTO<>();
+        cuerpo.LimitedOperation();
+
+        response.setStatus(cuerpo.getStatus());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(segundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), cuerpo);
+    }
+
+    /**
+     * Identifica al cliente por su usuario autenticado o por su dirección remota. En una solicitud reenviada
+     * por otro nodo del clúster, autenticada con el secreto del clúster, se usa el cliente original que ese nodo indica.
+     */
+    private String identificarCliente(HttpServletRequest request) {
+        if (secretoCluster.esReenviada(request)) {
+            String original = request.getHeader(Constants.Global.CLIENT_ID_HEADER);
+            if (original != null && !original.isBlank()) {
+                return original;
+            }
+        }
+        return clienteDirecto(request);
+    }
+
+    /**
+     * Identifica al cliente conectado directamente a este nodo por su usuario autenticado o su dirección remota
+     * @param request Solicitud en curso
+     * @return Identidad del cliente para las cubetas de tokens
+     */
+    public static String clienteDirecto(HttpServletRequest request) {
+        Principal usuario = request.getUserPrincipal();
+        return usuario != null ? "usuario:" + usuario.getName() : request.getRemoteAddr();
+    }
+
+    /**
+     * Identifica la máquina de una compra si es de este nodo. Las máquinas de otro nodo se limitan en su dueño
+     * y los identificadores desconocidos se rechazan en el enrutador, así que no crean cubetas aquí.
+     * @return Identificador de la máquina, o null si no se limita en este nodo
+     */
+    private String identificarMaquina(HttpServletRequest request) {
+        String maquina = request.getHeader(Constants.Global.MACHINE_ID_HEADER);
+        if (maquina == null || maquina.isBlank()) {
+            return Constants.Maquina.MAQUINA_ID_DEFAULT;
+        }
+        return flota.obtener(maquina) != null ? maquina : null;
+    }
+}
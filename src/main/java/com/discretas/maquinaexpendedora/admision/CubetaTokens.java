@@ -0,0 +1,87 @@
+package com.discretas.maquinaexpendedora.admision;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cubeta de tokens sin bloqueos.
+ * Se implementa con el algoritmo GCRA (equivalente a una cubeta de tokens): todo el estado es
+ * el "tiempo teórico de llegada" de la siguiente solicitud, guardado en un único {@link AtomicLong}
+ * que se actualiza con CAS.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public class CubetaTokens {
+
+    /**
+     * Cota del intervalo y de la tolerancia, muy por debajo del desbordamiento de {@link System#nanoTime()}
+     */
+    private static final long MAX_NANOS = Long.MAX_VALUE / 8;
+
+    /**
+     * Nanosegundos que tarda en recargarse un token
+     */
+    private final long intervaloNanos;
+
+    /**
+     * Tolerancia de ráfaga en nanosegundos
+     */
+    private final long toleranciaNanos;
+
+    /**
+     * Tiempo teórico de llegada de la siguiente solicitud
+     */
+    private final AtomicLong tiempoTeorico;
+
+    /**
+     * Constructor de la cubeta
+     * @param tokensPorSegundo Tasa de recarga de tokens
+     * @param rafaga Número máximo de tokens acumulables
+     * @throws IllegalArgumentException Si la tasa no es positiva
+     */
+    public CubetaTokens(double tokensPorSegundo, int rafaga) {
+        if (!(tokensPorSegundo > 0)) {
+            throw new IllegalArgumentException("La tasa de la cubeta debe ser positiva: " + tokensPorSegundo);
+        }
+        // Se acotan el intervalo y la tolerancia para que sumarlos a nanoTime no desborde con tasas muy bajas
+        this.intervaloNanos = Math.max(1, Math.min(MAX_NANOS, (long) (TimeUnit.SECONDS.toNanos(1) / tokensPorSegundo)));
+        this.toleranciaNanos = Math.min(MAX_NANOS, (long) ((double) intervaloNanos * Math.max(0, rafaga - 1)));
+        this.tiempoTeorico = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Intenta consumir un token
+     * @param ahora Instante actual en nanosegundos ({@link System#nanoTime()})
+     * @return 0 si se concedió el token, o los nanosegundos a esperar antes de reintentar
+     */
+    public long intentarConsumir(long ahora) {
+        while (true) {
+            long actual = tiempoTeorico.get();
+            long base = Math.max(actual, ahora);
+            long espera = base - ahora - toleranciaNanos;
+            if (espera > 0) {
+                return espera;
+            }
+            if (tiempoTeorico.compareAndSet(actual, base + intervaloNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Devuelve un token concedido a una solicitud que finalmente se rechazó por otro límite
+     */
+    public void devolver() {
+        tiempoTeorico.addAndGet(-intervaloNanos);
+    }
+
+    /**
+     * Indica si la cubeta está llena, es decir, equivale a una recién creada
+     * @param ahora Instante actual en nanosegundos
+     * @return true si la cubeta no tiene consumo pendiente
+     */
+    public boolean estaLlena(long ahora) {
+        return tiempoTeorico.get() <= ahora;
+    }
+}
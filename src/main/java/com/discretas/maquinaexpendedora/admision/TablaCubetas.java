@@ -0,0 +1,116 @@
+package com.discretas.maquinaexpendedora.admision;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tabla acotada de cubetas de tokens por clave.
+ * Al llegar a su capacidad, una clave nueva recorre unas pocas claves en orden de llegada (reloj de segunda
+ * oportunidad) y reemplaza a la primera cuya cubeta esté llena, que equivale a una recién creada. Si ninguna
+ * puede descartarse, la clave nueva comparte una cubeta de desbordamiento con las demás claves sin cupo,
+ * de modo que la tabla nunca crece por encima de su capacidad ni la admisión recorre la tabla completa.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+class TablaCubetas {
+
+    /**
+     * Claves revisadas como máximo para liberar una posición
+     */
+    private static final int MAX_REVISIONES = 8;
+
+    private final Map<String, CubetaTokens> cubetas = new ConcurrentHashMap<>();
+
+    /**
+     * Claves en orden de llegada, recorridas como las manecillas de un reloj
+     */
+    private final Queue<String> reloj = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Posiciones ocupadas o reservadas de la tabla
+     */
+    private final AtomicInteger ocupadas = new AtomicInteger();
+
+    private final int capacidad;
+
+    private final double tasa;
+
+    private final int rafaga;
+
+    /**
+     * Cubeta compartida por las claves que no caben en la tabla
+     */
+    private final CubetaTokens desbordamiento;
+
+    /**
+     * Constructor de la tabla
+     * @param capacidad Número máximo de claves con cubeta propia
+     * @param tasa Tasa de recarga de las cubetas
+     * @param rafaga Ráfaga de las cubetas
+     */
+    TablaCubetas(int capacidad, double tasa, int rafaga) {
+        this.capacidad = capacidad;
+        this.tasa = tasa;
+        this.rafaga = rafaga;
+        this.desbordamiento = new CubetaTokens(tasa, rafaga);
+    }
+
+    /**
+     * Obtiene la cubeta de una clave, creándola si hay espacio o liberando una cubeta llena
+     * @param clave Clave del cliente o de la máquina
+     * @param ahora Instante actual en nanosegundos
+     * @return Cubeta propia de la clave, o la de desbordamiento si la tabla está llena
+     */
+    CubetaTokens obtener(String clave, long ahora) {
+        CubetaTokens cubeta = cubetas.get(clave);
+        if (cubeta != null) {
+            return cubeta;
+        }
+        if (ocupadas.incrementAndGet() > capacidad) {
+            ocupadas.decrementAndGet();
+            if (!liberar(ahora)) {
+                return desbordamiento;
+            }
+        }
+        CubetaTokens nueva = new CubetaTokens(tasa, rafaga);
+        CubetaTokens existente = cubetas.putIfAbsent(clave, nueva);
+        if (existente != null) {
+            ocupadas.decrementAndGet();
+            return existente;
+        }
+        reloj.offer(clave);
+        return nueva;
+    }
+
+    /**
+     * Descarta la primera cubeta llena entre las siguientes claves del reloj; las demás vuelven al final.
+     * La posición liberada pasa directamente a quien la solicitó.
+     * @return true si se liberó una posición
+     */
+    private boolean liberar(long ahora) {
+        for (int i = 0; i < MAX_REVISIONES; i++) {
+            String candidata = reloj.poll();
+            if (candidata == null) {
+                return false;
+            }
+            CubetaTokens cubeta = cubetas.get(candidata);
+            if (cubeta.estaLlena(ahora) && cubetas.remove(candidata, cubeta)) {
+                return true;
+            }
+            reloj.offer(candidata);
+        }
+        return false;
+    }
+
+    /**
+     * Obtiene el número de claves con cubeta propia
+     * @return Claves en la tabla
+     */
+    int tamanyo() {
+        return cubetas.size();
+    }
+}
@@ -0,0 +1,257 @@
+package com.discretas.maquinaexpendedora.cache;
+
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Caché de respuestas para solicitudes con clave de idempotencia.
+ * Un reintento con la misma clave y ruta se responde con la respuesta original sin volver
+ * a ejecutar la operación; si trae otros parámetros se rechaza con 422 en lugar de ejecutarse de nuevo.
+ * La caché está acotada en tamaño (desalojo CLOCK) y en tiempo (TTL); una entrada cuya operación sigue
+ * en curso nunca se desaloja, y si todas lo están la clave nueva se rechaza con 503.
+ * Las consultas son O(1) y no toman bloqueos, solo las inserciones de claves nuevas.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Component
+public class CacheIdempotencia {
+
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    /**
+     * Ranuras circulares recorridas por la manecilla del algoritmo CLOCK
+     */
+    private final Entrada[] ranuras;
+
+    private final ReentrantLock bloqueoInsercion = new ReentrantLock();
+
+    private final long ttlNanos;
+
+    private int manecilla;
+
+    /**
+     * Constructor de la caché
+     * @param capacidad Número máximo de claves almacenadas
+     * @param ttlSegundos Tiempo de vida de cada respuesta en segundos
+     */
+    public CacheIdempotencia(@Value("${maquina.idempotencia.capacidad:10000}") int capacidad,
+                             @Value("${maquina.idempotencia.ttl-segundos:300}") long ttlSegundos) {
+        this.ranuras = new Entrada[capacidad];
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSegundos);
+    }
+
+    /**
+     * Ejecuta una operación sin parámetros propios una sola vez por clave de idempotencia
+     * @see #resolver(String, Supplier, Supplier, Supplier)
+     */
+    public ResponseEntity<?> resolver(String clave, String ruta, Supplier<ResponseEntity<?>> operacion) {
+        return resolver(clave, () -> ruta, () -> "", operacion);
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por clave de idempotencia.
+     * Si otra solicitud con la misma clave está en curso, espera su resultado.
+     * Las respuestas de error del servidor (5xx) no se conservan para permitir el reintento.
+     * La ruta y los parámetros solo se construyen si la solicitud trae clave.
+     * @param clave Clave de idempotencia enviada por el cliente, null para no usar la caché
+     * @param ruta Ruta de la operación sin sus parámetros, para que la misma clave no colisione entre endpoints
+     * @param parametros Parámetros de la operación; la misma clave con otros parámetros se rechaza
+     * @param operacion Operación a ejecutar
+     * @return Respuesta original de la operación, 422 si la clave se usó con otros parámetros
+     * o 503 si la caché está llena de operaciones en curso
+     */
+    public ResponseEntity<?> resolver(String clave, Supplier<String> ruta, Supplier<String> parametros,
+                                      Supplier<ResponseEntity<?>> operacion) {
+        if (clave == null || clave.isBlank()) {
+            return operacion.get();
+        }
+
+        Entrada nueva = new Entrada(ruta.get() + '|' + clave, parametros.get(), System.nanoTime() + ttlNanos);
+        Entrada vigente = reservar(nueva);
+        if (vigente != nueva) {
+            return vigente == null || !vigente.parametros.equals(nueva.parametros) ? rechazar(vigente) : vigente.respuesta.join();
+        }
+
+        try {
+            ResponseEntity<?> respuesta = operacion.get();
+            completar(nueva, respuesta, null);
+            return respuesta;
+        } catch (RuntimeException e) {
+            completar(nueva, null, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Variante asíncrona de {@link #resolver(String, String, Supplier)}
+     * @see #resolverAsync(String, Supplier, Supplier, Supplier)
+     */
+    public CompletableFuture<ResponseEntity<?>> resolverAsync(String clave, String ruta,
+                                                              Supplier<CompletableFuture<ResponseEntity<?>>> operacion) {
+        return resolverAsync(clave, () -> ruta, () -> "", operacion);
+    }
+
+    /**
+     * Variante asíncrona de {@link #resolver(String, Supplier, Supplier, Supplier)}: ni la operación ni los reintentos
+     * concurrentes con la misma clave bloquean al llamador mientras la respuesta original está en curso.
+     * @param clave Clave de idempotencia enviada por el cliente, null para no usar la caché
+     * @param ruta Ruta de la operación sin sus parámetros, para que la misma clave no colisione entre endpoints
+     * @param parametros Parámetros de la operación; la misma clave con otros parámetros se rechaza
+     * @param operacion Operación asíncrona a ejecutar
+     * @return Futuro con la respuesta original de la operación, 422 si la clave se usó con otros parámetros
+     * o 503 si la caché está llena de operaciones en curso
+     */
+    public CompletableFuture<ResponseEntity<?>> resolverAsync(String clave, Supplier<String> ruta, Supplier<String> parametros,
+                                                              Supplier<CompletableFuture<ResponseEntity<?>>> operacion) {
+        if (clave == null || clave.isBlank()) {
+            return operacion.get();
+        }
+
+        Entrada nueva = new Entrada(ruta.get() + '|' + clave, parametros.get(), System.nanoTime() + ttlNanos);
+        Entrada vigente = reservar(nueva);
+        if (vigente != nueva) {
+            return vigente == null || !vigente.parametros.equals(nueva.parametros)
+                    ? CompletableFuture.completedFuture(rechazar(vigente)) : vigente.respuesta;
+        }
+
+        CompletableFuture<ResponseEntity<?>> resultado;
+        try {
+            resultado = operacion.get();
+        } catch (RuntimeException e) {
+            resultado = CompletableFuture.failedFuture(e);
+        }
+        resultado.whenComplete((respuesta, error) -> completar(nueva, respuesta, error));
+        return nueva.respuesta;
+    }
+
+    /**
+     * Devuelve la entrada vigente de la clave, o registra la nueva si no hay ninguna
+     * @return La entrada vigente; si es la nueva, el llamador debe ejecutar la operación y completarla.
+     * null si no hay espacio porque todas las entradas están en curso.
+     */
+    private Entrada reservar(Entrada nueva) {
+        Entrada existente = entradas.get(nueva.llave);
+        if (existente != null && !existente.expirada(System.nanoTime())) {
+            existente.referenciada = true;
+            return existente;
+        }
+
+        Entrada ganadora = insertar(nueva, existente);
+        if (ganadora != null && ganadora != nueva) {
+            ganadora.referenciada = true;
+        }
+        return ganadora;
+    }
+
+    /**
+     * Respuesta para una clave que no puede usarse: reutilizada con otros parámetros, o sin espacio en la caché
+     * @param vigente Entrada registrada con la clave, null si no hubo espacio
+     */
+    private static ResponseEntity<?> rechazar(Entrada vigente) {
+        ApiResponseDTO<Void> response = new ApiResponseDTO<>();
+        if (vigente == null) {
+            response.BusyOperation(null);
+        } else {
+            response.ReusedKeyOperation();
+        }
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+
+    /**
+     * Completa una entrada; los errores y las respuestas 5xx no se conservan para permitir el reintento
+     */
+    private void completar(Entrada entrada, ResponseEntity<?> respuesta, Throwable error) {
+        if (error != null || respuesta.getStatusCode().is5xxServerError()) {
+            entradas.remove(entrada.llave, entrada);
+        }
+        if (error != null) {
+            entrada.respuesta.completeExceptionally(error);
+        } else {
+            entrada.respuesta.complete(respuesta);
+        }
+    }
+
+    /**
+     * Inserta una entrada, desalojando con CLOCK si no hay espacio. Solo se desalojan entradas terminadas:
+     * desalojar una en curso permitiría que un reintento ejecutara la operación por segunda vez.
+     * @return La entrada que quedó asociada a la clave (la nueva, o una concurrente que ganó),
+     * o null si todas las ranuras tienen operaciones en curso
+     */
+    private Entrada insertar(Entrada nueva, Entrada expirada) {
+        bloqueoInsercion.lock();
+        try {
+            Entrada actual = entradas.get(nueva.llave);
+            if (actual != null && actual != expirada) {
+                return actual;
+            }
+            if (expirada != null) {
+                entradas.remove(expirada.llave, expirada);
+            }
+
+            long ahora = System.nanoTime();
+            boolean libre = false;
+            // Dos vueltas: la primera puede solo limpiar las marcas de referencia
+            for (int revisadas = 0; revisadas < 2 * ranuras.length; revisadas++) {
+                Entrada candidata = ranuras[manecilla];
+                if (candidata == null || entradas.get(candidata.llave) != candidata || candidata.expirada(ahora)
+                        || !candidata.referenciada && candidata.respuesta.isDone()) {
+                    libre = true;
+                    break;
+                }
+                candidata.referenciada = false;
+                manecilla = (manecilla + 1) % ranuras.length;
+            }
+            if (!libre) {
+                return null;
+            }
+
+            Entrada victima = ranuras[manecilla];
+            if (victima != null) {
+                entradas.remove(victima.llave, victima);
+            }
+            ranuras[manecilla] = nueva;
+            manecilla = (manecilla + 1) % ranuras.length;
+            entradas.put(nueva.llave, nueva);
+            return nueva;
+        } finally {
+            bloqueoInsercion.unlock();
+        }
+    }
+
+    /**
+     * Entrada de la caché con la respuesta (posiblemente aún en curso) de una operación
+     */
+    private static final class Entrada {
+
+        private final String llave;
+
+        private final String parametros;
+
+        private final long expiraEn;
+
+        private final CompletableFuture<ResponseEntity<?>> respuesta = new CompletableFuture<>();
+
+        private volatile boolean referenciada;
+
+        private Entrada(String llave, String parametros, long expiraEn) {
+            this.llave = llave;
+            this.parametros = parametros;
+            this.expiraEn = expiraEn;
+        }
+
+        private boolean expirada(long ahora) {
+            return respuesta.isDone() && ahora - expiraEn > 0;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.discretas.maquinaexpendedora.cache;
+
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caché de respuestas ya serializadas para los endpoints de lectura.
+ * Cada respuesta se guarda como bytes JSON (y opcionalmente comprimidos con gzip) asociados a la
+ * versión de datos de la máquina con que se generó. Mientras la versión no cambie, las lecturas
+ * devuelven los mismos bytes sin volver a construir ni serializar la respuesta; cualquier cambio
+ * de estado incrementa la versión e invalida implícitamente todas las entradas.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheRespuestas {
+
+    private final Map<String, RespuestaSerializada> entradas = new ConcurrentHashMap<>();
+
+    /**
+     * Generaciones en curso por clave, para que solo una solicitud genere cada versión
+     */
+    private final Map<String, Generacion> enCurso = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Obtiene la respuesta serializada de una clave para la versión indicada.
+     * Solo un hilo por clave genera la respuesta cuando la versión cambió; los demás esperan y la reutilizan.
+     * Las respuestas que no son exitosas se devuelven serializadas pero no se conservan.
+     * @param clave Clave de la respuesta (normalmente la ruta del endpoint)
+     * @param version Versión actual de los datos de la máquina
+     * @param generador Genera la respuesta cuando la entrada no está vigente
+     * @return Respuesta serializada vigente
+     */
+    public RespuestaSerializada obtener(String clave, long version, Supplier<? extends ApiResponseDTO<?>> generador) {
+        return obtenerAsync(clave, version, () -> CompletableFuture.completedFuture(generador.get())).join();
+    }
+
+    /**
+     * Obtiene la respuesta serializada de una clave sin bloquear al llamador.
+     * Si la entrada vigente existe se devuelve un futuro completado. Si no, solo la primera solicitud
+     * genera la respuesta y las concurrentes reciben el mismo futuro; la generación ocurre fuera de
+     * cualquier bloqueo, por lo que puede esperar al actor de la máquina sin retener hilos portadores.
+     * @param clave Clave de la respuesta (normalmente la ruta del endpoint)
+     * @param version Versión actual de los datos de la máquina
+     * @param generador Genera de forma asíncrona la respuesta cuando la entrada no está vigente
+     * @return Futuro con la respuesta serializada vigente
+     */
+    public CompletableFuture<RespuestaSerializada> obtenerAsync(String clave, long version,
+                                                               Supplier<? extends CompletableFuture<? extends ApiResponseDTO<?>>> generador) {
+        RespuestaSerializada actual = entradas.get(clave);
+        if (actual != null && actual.getVersion() >= version) {
+            return CompletableFuture.completedFuture(actual);
+        }
+
+        Generacion nueva = new Generacion(version, new CompletableFuture<>());
+        Generacion vigente = enCurso.compute(clave, (k, existente) ->
+                existente != null && existente.version() >= version ? existente : nueva);
+        if (vigente != nueva) {
+            return vigente.respuesta();
+        }
+
+        CompletableFuture<? extends ApiResponseDTO<?>> generada;
+        try {
+            generada = generador.get();
+        } catch (RuntimeException e) {
+            generada = CompletableFuture.failedFuture(e);
+        }
+        generada.whenComplete((respuesta, error) -> {
+            try {
+                if (error != null) {
+                    nueva.respuesta().completeExceptionally(error);
+                    return;
+                }
+                RespuestaSerializada serializada = new RespuestaSerializada(version, respuesta.getStatus(), serializar(respuesta));
+                if (respuesta.isSuccess()) {
+                    entradas.merge(clave, serializada, (existente, reciente) ->
+                            existente.getVersion() >= reciente.getVersion() ? existente : reciente);
+                }
+                nueva.respuesta().complete(serializada);
+            } catch (RuntimeException e) {
+                nueva.respuesta().completeExceptionally(e);
+            } finally {
+                enCurso.remove(clave, nueva);
+            }
+        });
+        return nueva.respuesta();
+    }
+
+    private byte[] serializar(Object objeto) {
+        try {
+            return objectMapper.writeValueAsBytes(objeto);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generación en curso de una versión de la respuesta
+     */
+    private record Generacion(long version, CompletableFuture<RespuestaSerializada> respuesta) {
+    }
+
+    /**
+     * Respuesta serializada asociada a una versión de datos
+     */
+    public static final class RespuestaSerializada {
+
+        @Getter
+        private final long version;
+
+        @Getter
+        private final int status;
+
+        @Getter
+        private final byte[] json;
+
+        private volatile byte[] gzip;
+
+        private RespuestaSerializada(long version, int status, byte[] json) {
+            this.version = version;
+            this.status = status;
+            this.json = json;
+        }
+
+        /**
+         * Obtiene el contenido comprimido con gzip, calculándolo una sola vez
+         * @return Bytes JSON comprimidos
+         */
+        public byte[] getGzip() {
+            byte[] comprimido = gzip;
+            if (comprimido == null) {
+                ByteArrayOutputStream salida = new ByteArrayOutputStream(json.length / 2 + 32);
+                try (GZIPOutputStream compresor = new GZIPOutputStream(salida)) {
+                    compresor.write(json);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                comprimido = salida.toByteArray();
+                gzip = comprimido;
+            }
+            return comprimido;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.discretas.maquinaexpendedora.catalogo;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.events.BusEventos;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ResourceUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carga el catálogo de productos y el planograma de la flota desde archivos CSV.
+ * <ul>
+ *     <li>Catálogo: {@code sku;nombre;precio;descripcion}</li>
+ *     <li>Planograma: {@code idMaquina;region;casilla;sku;stock}, una fila por casilla de cada máquina</li>
+ * </ul>
+ * <p>
+ * Los archivos se mapean en memoria y se procesan en trozos paralelos. Los textos que se repiten
+ * (nombres, descripciones, regiones, casillas e identificadores de máquina) se deduplican durante la carga,
+ * de modo que todas las casillas con el mismo producto comparten las mismas cadenas. Las filas inválidas
+ * se descartan y se informan en el log.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class CargadorCatalogo {
+
+    private static final int CAMPOS_CATALOGO = 4;
+
+    private static final int CAMPOS_PLANOGRAMA = 5;
+
+    private final String rutaCatalogo;
+
+    private final String rutaPlanograma;
+
+    private final ResourceLoader cargadorRecursos;
+
+    private final FlotaMaquinas flota;
+
+    private final BusEventos busEventos;
+
+    private final GestorCatalogo gestorCatalogo;
+
+    private final double dineroInicial;
+
+    /**
+     * Constructor del cargador
+     * @param rutaCatalogo Ruta del archivo del catálogo o URL de recurso (classpath:, file:), vacía para no cargarlo
+     * @param rutaPlanograma Ruta del archivo del planograma o URL de recurso (classpath:, file:), vacía para no cargarlo
+     * @param dineroInicial Dinero para cambio con el que arrancan las máquinas nuevas
+     */
+    public CargadorCatalogo(@Value("${maquina.catalogo.productos:}") String rutaCatalogo,
+                            @Value("${maquina.catalogo.planograma:}") String rutaPlanograma,
+                            ResourceLoader cargadorRecursos,
+                            FlotaMaquinas flota,
+                            BusEventos busEventos,
+                            GestorCatalogo gestorCatalogo,
+                            @Value("${maquina.dinero-inicial:50000}") double dineroInicial) {
+        this.rutaCatalogo = rutaCatalogo;
+        this.rutaPlanograma = rutaPlanograma;
+        this.cargadorRecursos = cargadorRecursos;
+        this.flota = flota;
+        this.busEventos = busEventos;
+        this.gestorCatalogo = gestorCatalogo;
+        this.dineroInicial = dineroInicial;
+    }
+
+    /**
+     * Carga el catálogo y el planograma configurados en la flota.
+     * Si alguno no puede leerse se arranca sin inventario.
+     * @return Número de máquinas cargadas
+     */
+    public int cargar() {
+        if (rutaCatalogo.isBlank() || rutaPlanograma.isBlank()) {
+            return 0;
+        }
+        long inicio = System.nanoTime();
+        try {
+            Map<String, ProductoCatalogo> catalogo = leerCatalogo(recurso(rutaCatalogo));
+            Planograma planograma = leerPlanograma(recurso(rutaPlanograma), catalogo);
+            int maquinas = aplicar(planograma);
+            gestorCatalogo.establecer(catalogo);
+            log.info("Catálogo cargado: {} productos, {} máquinas, {} casillas en {} ms", catalogo.size(), maquinas,
+                    planograma.casillas(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            return maquinas;
+        } catch (IOException | RuntimeException e) {
+            log.error("No se pudo cargar el catálogo {} y el planograma {}", rutaCatalogo, rutaPlanograma, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Vuelve a leer el catálogo configurado y lo publica en caliente. Los precios y nombres cambian
+     * en las máquinas sin reiniciar; el planograma no se vuelve a leer.
+     * @return Futuro con el resultado de la publicación
+     * @throws IOException Si el catálogo no puede leerse
+     */
+    public CompletableFuture<GestorCatalogo.PublicacionCatalogo> recargarCatalogo() throws IOException {
+        if (rutaCatalogo.isBlank()) {
+            throw new IOException("No hay un catálogo configurado");
+        }
+        return gestorCatalogo.publicar(leerCatalogo(recurso(rutaCatalogo)).values());
+    }
+
+    /**
+     * Lee el catálogo de productos
+     * @param recurso Archivo del catálogo
+     * @return Productos por SKU
+     * @throws IOException Si el archivo no puede leerse
+     */
+    public Map<String, ProductoCatalogo> leerCatalogo(Resource recurso) throws IOException {
+        Map<String, String> textos = new ConcurrentHashMap<>();
+        List<Parcial<ProductoCatalogo>> parciales = LectorCsv.procesarEnParalelo(abrir(recurso), lector -> {
+            Parcial<ProductoCatalogo> parcial = new Parcial<>();
+            while (lector.siguienteLinea()) {
+                try {
+                    if (lector.getCampos() != CAMPOS_CATALOGO) {
+                        throw new IllegalArgumentException("se esperaban " + CAMPOS_CATALOGO + " campos");
+                    }
+                    ProductoCatalogo producto = new ProductoCatalogo(internar(textos, lector.texto(0)),
+                            internar(textos, lector.texto(1)), lector.decimal(2), internar(textos, lector.texto(3)));
+                    if (producto.sku().isEmpty() || producto.precio() < 0) {
+                        throw new IllegalArgumentException("SKU vacío o precio negativo");
+                    }
+                    parcial.filas.put(producto.sku(), producto);
+                } catch (IllegalArgumentException e) {
+                    parcial.descartar(lector, e);
+                }
+            }
+            return parcial;
+        });
+
+        Map<String, ProductoCatalogo> catalogo = new HashMap<>();
+        int invalidas = 0;
+        for (Parcial<ProductoCatalogo> parcial : parciales) {
+            catalogo.putAll(parcial.filas);
+            invalidas += parcial.invalidas;
+        }
+        informarInvalidas(recurso, parciales, invalidas);
+        return catalogo;
+    }
+
+    /**
+     * Lee el planograma de la flota. Las casillas con un SKU que no está en el catálogo se descartan;
+     * si una casilla aparece varias veces, prevalece la última fila.
+     * @param recurso Archivo del planograma
+     * @param catalogo Productos por SKU
+     * @return Planograma por máquina
+     * @throws IOException Si el archivo no puede leerse
+     */
+    public Planograma leerPlanograma(Resource recurso, Map<String, ProductoCatalogo> catalogo) throws IOException {
+        Map<String, String> textos = new ConcurrentHashMap<>();
+        List<Parcial<MaquinaPlanograma>> parciales = LectorCsv.procesarEnParalelo(abrir(recurso), lector -> {
+            Parcial<MaquinaPlanograma> parcial = new Parcial<>();
+            while (lector.siguienteLinea()) {
+                try {
+                    if (lector.getCampos() != CAMPOS_PLANOGRAMA) {
+                        throw new IllegalArgumentException("se esperaban " + CAMPOS_PLANOGRAMA + " campos");
+                    }
+                    String idMaquina = internar(textos, lector.texto(0));
+                    String casilla = internar(textos, lector.texto(2));
+                    ProductoCatalogo producto = catalogo.get(lector.texto(3));
+                    if (idMaquina.isEmpty() || casilla.isEmpty() || producto == null) {
+                        throw new IllegalArgumentException("máquina o casilla vacía, o SKU fuera del catálogo");
+                    }
+                    int stock = lector.entero(4);
+                    MaquinaPlanograma maquina = parcial.filas.get(idMaquina);
+                    if (maquina == null) {
+                        maquina = new MaquinaPlanograma(internar(textos, lector.texto(1)), new LinkedHashMap<>());
+                        parcial.filas.put(idMaquina, maquina);
+                    }
+                    maquina.casillas().put(casilla, producto.enCasilla(casilla, stock));
+                } catch (IllegalArgumentException e) {
+                    parcial.descartar(lector, e);
+                }
+            }
+            return parcial;
+        });
+
+        Map<String, MaquinaPlanograma> maquinas = new LinkedHashMap<>();
+        int invalidas = 0;
+        for (Parcial<MaquinaPlanograma> parcial : parciales) {
+            // Una máquina puede quedar repartida entre dos trozos contiguos
+            parcial.filas.forEach((id, maquina) -> maquinas.merge(id, maquina, (anterior, siguiente) -> {
+                anterior.casillas().putAll(siguiente.casillas());
+                return anterior;
+            }));
+            invalidas += parcial.invalidas;
+        }
+        informarInvalidas(recurso, parciales, invalidas);
+
+        long casillas = 0;
+        for (MaquinaPlanograma maquina : maquinas.values()) {
+            casillas += maquina.casillas().size();
+        }
+        return new Planograma(maquinas, casillas, invalidas);
+    }
+
+    /**
+     * Carga el inventario de cada máquina del planograma. Las máquinas que ya están en la flota
+     * se actualizan a través de su actor; las demás se crean y se registran. En un clúster solo
+     * se cargan las máquinas que pertenecen a este nodo.
+     * @param planograma Planograma a aplicar
+     * @return Número de máquinas cargadas
+     */
+    public int aplicar(Planograma planograma) {
+        AtomicInteger cargadas = new AtomicInteger();
+        planograma.maquinas().forEach((id, contenido) -> {
+            if (!flota.esPropia(id)) {
+                return;
+            }
+            cargadas.incrementAndGet();
+            ActorMaquina actor = flota.obtener(id);
+            if (actor != null) {
+                actor.ejecutar(maquina -> {
+                    maquina.setRegion(contenido.region());
+                    maquina.inicializarInventario(contenido.casillas());
+                    return null;
+                });
+                return;
+            }
+            MaquinaExpendedora maquina = new MaquinaExpendedora(busEventos, dineroInicial);
+            maquina.setId(id);
+            maquina.setRegion(contenido.region());
+            maquina.inicializarInventario(contenido.casillas());
+            flota.registrar(maquina);
+        });
+        return cargadas.get();
+    }
+
+    private Resource recurso(String ubicacion) {
+        return ResourceUtils.isUrl(ubicacion) ? cargadorRecursos.getResource(ubicacion) : new FileSystemResource(ubicacion);
+    }
+
+    private static ByteBuffer abrir(Resource recurso) throws IOException {
+        if (recurso.isFile()) {
+            return LectorCsv.mapear(recurso.getFile().toPath());
+        }
+        try (InputStream entrada = recurso.getInputStream()) {
+            return LectorCsv.leer(entrada);
+        }
+    }
+
+    private static String internar(Map<String, String> textos, String texto) {
+        String existente = textos.putIfAbsent(texto, texto);
+        return existente != null ? existente : texto;
+    }
+
+    private static void informarInvalidas(Resource recurso, List<? extends Parcial<?>> parciales, int invalidas) {
+        if (invalidas == 0) {
+            return;
+        }
+        String primerError = "";
+        for (Parcial<?> parcial : parciales) {
+            if (parcial.primerError != null) {
+                primerError = parcial.primerError;
+                break;
+            }
+        }
+        log.warn("{}: {} filas inválidas descartadas, la primera {}", recurso.getDescription(), invalidas, primerError);
+    }
+
+    /**
+     * Producto del catálogo, sin casilla ni stock
+     */
+    public record ProductoCatalogo(String sku, String nombre, double precio, String descripcion) {
+
+        /**
+         * Crea el producto que ocupa una casilla de una máquina. El nombre y la descripción se comparten.
+         * @param casilla Código de la casilla
+         * @param stock Unidades en la casilla
+         * @return Producto de la casilla
+         */
+        public Producto enCasilla(String casilla, int stock) {
+            return new Producto(casilla, nombre, precio, stock, descripcion, sku);
+        }
+    }
+
+    /**
+     * Contenido de una máquina en el planograma
+     */
+    public record MaquinaPlanograma(String region, Map<String, Producto> casillas) {
+    }
+
+    /**
+     * Planograma de la flota
+     * @param maquinas Contenido por identificador de máquina
+     * @param casillas Número total de casillas
+     * @param filasInvalidas Filas descartadas
+     */
+    public record Planograma(Map<String, MaquinaPlanograma> maquinas, long casillas, int filasInvalidas) {
+    }
+
+    /**
+     * Resultado de procesar un trozo del archivo
+     */
+    private static final class Parcial<T> {
+        private final Map<String, T> filas = new LinkedHashMap<>();
+        private int invalidas;
+        private String primerError;
+
+        private void descartar(LectorCsv lector, IllegalArgumentException e) {
+            if (invalidas++ == 0) {
+                primerError = "en el byte " + lector.getPosicionLinea() + ": " + e.getMessage();
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.discretas.maquinaexpendedora.catalogo;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.catalogo.CargadorCatalogo.ProductoCatalogo;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantiene la versión vigente del catálogo de productos y publica versiones nuevas en caliente.
+ * <p>
+ * Cada versión se construye y se valida aparte, y se publica reemplazando de forma atómica la referencia
+ * a la versión vigente. Luego cada máquina actualiza el nombre, el precio y la descripción de sus casillas
+ * con un comando de su actor, intercalado entre las compras sin detenerlas. Las transacciones en curso
+ * conservan el precio con el que se seleccionó el producto.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class GestorCatalogo {
+
+    private final FlotaMaquinas flota;
+
+    private final AtomicReference<VersionCatalogo> vigente = new AtomicReference<>(new VersionCatalogo(0, Map.of()));
+
+    /**
+     * Constructor del gestor
+     * @param flota Flota cuyas máquinas reciben cada versión publicada
+     */
+    public GestorCatalogo(FlotaMaquinas flota) {
+        this.flota = flota;
+    }
+
+    /**
+     * Obtiene la versión vigente del catálogo
+     * @return Versión vigente, con número 0 si aún no se ha cargado ninguna
+     */
+    public VersionCatalogo getVigente() {
+        return vigente.get();
+    }
+
+    /**
+     * Establece la versión vigente sin propagarla a las máquinas.
+     * Se usa en la carga inicial, cuando las casillas ya se crearon con los datos del catálogo.
+     * @param productos Productos por SKU
+     * @return Versión establecida
+     */
+    public synchronized VersionCatalogo establecer(Map<String, ProductoCatalogo> productos) {
+        VersionCatalogo version = new VersionCatalogo(vigente.get().version() + 1, Map.copyOf(productos));
+        vigente.set(version);
+        return version;
+    }
+
+    /**
+     * Valida y publica una versión nueva del catálogo. La versión se rechaza si algún producto es inválido,
+     * si hay SKUs repetidos o si falta algún SKU asignado a casillas de la flota.
+     * @param productos Productos de la versión nueva
+     * @return Futuro con el resultado, que se completa cuando todas las máquinas aplicaron la versión
+     */
+    public CompletableFuture<PublicacionCatalogo> publicar(Collection<ProductoCatalogo> productos) {
+        Map<String, ProductoCatalogo> porSku = new HashMap<>();
+        List<String> errores = validar(productos, porSku);
+        return skusEnUso().thenCompose(enUso -> {
+            for (String sku : enUso) {
+                if (!porSku.containsKey(sku)) {
+                    errores.add("El SKU " + sku + " está asignado en la flota y falta en el catálogo");
+                }
+            }
+            if (!errores.isEmpty()) {
+                PublicacionCatalogo rechazada = new PublicacionCatalogo();
+                rechazada.setVersion(vigente.get().version());
+                rechazada.setErrores(errores);
+                return CompletableFuture.completedFuture(rechazada);
+            }
+            return intercambiar(Map.copyOf(porSku));
+        });
+    }
+
+    /**
+     * Reemplaza la versión vigente y la envía a cada máquina. Las versiones se envían en orden
+     * a todos los actores, así que ninguna máquina aplica una versión antigua después de una nueva.
+     */
+    private synchronized CompletableFuture<PublicacionCatalogo> intercambiar(Map<String, ProductoCatalogo> productos) {
+        long inicio = System.nanoTime();
+        VersionCatalogo version = new VersionCatalogo(vigente.get().version() + 1, productos);
+        vigente.set(version);
+        List<CompletableFuture<Integer>> pendientes = new ArrayList<>();
+        for (ActorMaquina actor : flota.getActores()) {
+            pendientes.add(actor.enviar(maquina -> aplicar(maquina, version)));
+        }
+        long publicacionMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio);
+
+        return CompletableFuture.allOf(pendientes.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            long casillas = 0;
+            for (CompletableFuture<Integer> pendiente : pendientes) {
+                casillas += pendiente.join();
+            }
+            PublicacionCatalogo publicacion = new PublicacionCatalogo();
+            publicacion.setPublicada(true);
+            publicacion.setVersion(version.version());
+            publicacion.setProductos(productos.size());
+            publicacion.setMaquinas(pendientes.size());
+            publicacion.setCasillasActualizadas(casillas);
+            publicacion.setPublicacionMicros(publicacionMicros);
+            publicacion.setPropagacionMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            log.info("Catálogo versión {} publicado: {} casillas de {} máquinas actualizadas en {} ms", version.version(),
+                    casillas, pendientes.size(), publicacion.getPropagacionMs());
+            return publicacion;
+        });
+    }
+
+    /**
+     * Aplica una versión del catálogo a las casillas de una máquina. Debe ejecutarse dentro del actor de la máquina.
+     * @return Número de casillas que cambiaron
+     */
+    private static int aplicar(MaquinaExpendedora maquina, VersionCatalogo version) {
+        int actualizadas = 0;
+        for (Producto producto : maquina.getInventario().values()) {
+            ProductoCatalogo datos = producto.getSku() != null ? version.productos().get(producto.getSku()) : null;
+            if (datos != null && (datos.precio() != producto.getPrecio() || !datos.nombre().equals(producto.getNombre())
+                    || !datos.descripcion().equals(producto.getDescripcion()))) {
+                maquina.actualizarProducto(producto.getCodigo(), datos.nombre(), datos.precio(), datos.descripcion());
+                actualizadas++;
+            }
+        }
+        return actualizadas;
+    }
+
+    /**
+     * Obtiene los SKUs asignados a alguna casilla de la flota, copiándolos en cada actor
+     */
+    private CompletableFuture<Set<String>> skusEnUso() {
+        List<CompletableFuture<List<String>>> pendientes = new ArrayList<>();
+        for (ActorMaquina actor : flota.getActores()) {
+            pendientes.add(actor.enviar(maquina -> {
+                List<String> skus = new ArrayList<>(maquina.getInventario().size());
+                for (Producto producto : maquina.getInventario().values()) {
+                    if (producto.getSku() != null) {
+                        skus.add(producto.getSku());
+                    }
+                }
+                return skus;
+            }));
+        }
+        return CompletableFuture.allOf(pendientes.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            Set<String> enUso = new HashSet<>();
+            for (CompletableFuture<List<String>> pendiente : pendientes) {
+                enUso.addAll(pendiente.join());
+            }
+            return enUso;
+        });
+    }
+
+    private static List<String> validar(Collection<ProductoCatalogo> productos, Map<String, ProductoCatalogo> porSku) {
+        List<String> errores = new ArrayList<>();
+        if (productos == null) {
+            errores.add("El catálogo es obligatorio");
+            return errores;
+        }
+        for (ProductoCatalogo producto : productos) {
+            if (producto == null || producto.sku() == null || producto.sku().isBlank()) {
+                errores.add("Hay un producto sin SKU");
+            } else if (producto.nombre() == null || producto.nombre().isBlank() || producto.descripcion() == null) {
+                errores.add("El producto " + producto.sku() + " no tiene nombre o descripción");
+            } else if (!(producto.precio() > 0) || Double.isInfinite(producto.precio())) {
+                errores.add("El producto " + producto.sku() + " tiene un precio inválido: " + producto.precio());
+            } else if (porSku.putIfAbsent(producto.sku(), producto) != null) {
+                errores.add("El SKU " + producto.sku() + " está repetido");
+            }
+        }
+        return errores;
+    }
+
+    /**
+     * Versión inmutable del catálogo
+     * @param version Número de la versión, creciente desde 1
+     * @param productos Productos por SKU
+     */
+    public record VersionCatalogo(long version, Map<String, ProductoCatalogo> productos) {
+    }
+
+    /**
+     * Resultado de publicar una versión del catálogo
+     */
+    @Data
+    public static class PublicacionCatalogo {
+        /**
+         * Indica si la versión se publicó; si no, los errores explican el rechazo
+         */
+        private boolean publicada;
+        /**
+         * Versión publicada, o la vigente si se rechazó
+         */
+        private long version;
+        private int productos;
+        private int maquinas;
+        private long casillasActualizadas;
+        /**
+         * Tiempo hasta reemplazar la versión vigente y encolarla en todas las máquinas
+         */
+        private long publicacionMicros;
+        /**
+         * Tiempo hasta que todas las máquinas aplicaron la versión
+         */
+        private long propagacionMs;
+        private List<String> errores = List.of();
+    }
+}
@@ -0,0 +1,225 @@
+package com.discretas.maquinaexpendedora.catalogo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Lector de archivos CSV separados por punto y coma, con una línea de encabezado y sin comillas.
+ * Recorre un trozo del contenido directamente sobre los bytes: solo crea cadenas para los campos
+ * de texto que se piden y los números se convierten sin pasar por cadenas.
+ * <p>
+ * El contenido se divide en trozos que terminan en un salto de línea y cada trozo se procesa
+ * en paralelo con su propio lector. Esta clase no es segura para uso concurrente.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public final class LectorCsv {
+
+    public static final byte SEPARADOR = ';';
+
+    /**
+     * Tamaño mínimo de un trozo; los archivos pequeños se procesan en un solo hilo
+     */
+    private static final int TAMANYO_MINIMO_TROZO = 1 << 20;
+
+    private static final int MAXIMO_CAMPOS = 16;
+
+    private final ByteBuffer contenido;
+
+    private final int fin;
+
+    private int posicion;
+
+    private final int[] inicios = new int[MAXIMO_CAMPOS];
+
+    private final int[] finales = new int[MAXIMO_CAMPOS];
+
+    private int campos;
+
+    private byte[] temporal = new byte[128];
+
+    /**
+     * Constructor de un lector sobre un trozo del contenido
+     * @param contenido Contenido completo del archivo
+     * @param inicio Posición del primer byte del trozo, al comienzo de una línea
+     * @param fin Posición siguiente al último byte del trozo
+     */
+    public LectorCsv(ByteBuffer contenido, int inicio, int fin) {
+        this.contenido = contenido;
+        this.posicion = inicio;
+        this.fin = fin;
+    }
+
+    /**
+     * Abre un archivo mapeándolo en memoria
+     * @param ruta Ruta del archivo
+     * @return Contenido del archivo
+     * @throws IOException Si no puede leerse o supera los 2 GB que admite un mapeo
+     */
+    public static ByteBuffer mapear(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IOException("El archivo " + ruta + " supera el tamaño máximo de 2 GB");
+            }
+            return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+    }
+
+    /**
+     * Lee un flujo completo en memoria, para recursos que no son archivos (por ejemplo, dentro del jar)
+     * @param entrada Flujo de entrada
+     * @return Contenido del flujo
+     * @throws IOException Si ocurre un error de lectura
+     */
+    public static ByteBuffer leer(InputStream entrada) throws IOException {
+        return ByteBuffer.wrap(entrada.readAllBytes());
+    }
+
+    /**
+     * Procesa el contenido en trozos paralelos, omitiendo la línea de encabezado
+     * @param contenido Contenido del archivo
+     * @param procesador Función que recorre un trozo con su lector y devuelve su resultado parcial
+     * @return Resultados parciales en el orden de los trozos en el archivo
+     */
+    public static <R> List<R> procesarEnParalelo(ByteBuffer contenido, Function<LectorCsv, R> procesador) {
+        int inicio = finDeLinea(contenido, 0);
+        int tamanyo = contenido.limit() - inicio;
+        int partes = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4, tamanyo / TAMANYO_MINIMO_TROZO));
+
+        int[] limites = new int[partes + 1];
+        limites[0] = inicio;
+        limites[partes] = contenido.limit();
+        for (int i = 1; i < partes; i++) {
+            limites[i] = Math.max(limites[i - 1], finDeLinea(contenido, inicio + (int) ((long) tamanyo * i / partes)));
+        }
+
+        IntStream trozos = IntStream.range(0, partes);
+        if (partes > 1) {
+            trozos = trozos.parallel();
+        }
+        return trozos.mapToObj(i -> procesador.apply(new LectorCsv(contenido, limites[i], limites[i + 1]))).toList();
+    }
+
+    /**
+     * Avanza a la siguiente línea con contenido y separa sus campos
+     * @return true si hay una línea, false si el trozo terminó
+     */
+    public boolean siguienteLinea() {
+        while (posicion < fin) {
+            campos = 0;
+            inicios[0] = posicion;
+            int actual = posicion;
+            while (actual < fin) {
+                byte caracter = contenido.get(actual);
+                if (caracter == '\n') {
+                    break;
+                }
+                if (caracter == SEPARADOR && campos < MAXIMO_CAMPOS - 1) {
+                    finales[campos++] = actual;
+                    inicios[campos] = actual + 1;
+                }
+                actual++;
+            }
+            int finLinea = actual > posicion && contenido.get(actual - 1) == '\r' ? actual - 1 : actual;
+            finales[campos] = Math.max(finLinea, inicios[campos]);
+            campos++;
+            boolean vacia = finLinea == posicion;
+            posicion = actual + 1;
+            if (!vacia) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Obtiene el número de campos de la línea actual
+     * @return Número de campos
+     */
+    public int getCampos() {
+        return campos;
+    }
+
+    /**
+     * Obtiene un campo de texto de la línea actual, sin espacios en los extremos
+     * @param campo Índice del campo
+     * @return Texto del campo
+     */
+    public String texto(int campo) {
+        int inicio = inicios[campo];
+        int finCampo = finales[campo];
+        while (inicio < finCampo && contenido.get(inicio) == ' ') {
+            inicio++;
+        }
+        while (finCampo > inicio && contenido.get(finCampo - 1) == ' ') {
+            finCampo--;
+        }
+        int longitud = finCampo - inicio;
+        if (longitud > temporal.length) {
+            temporal = new byte[Math.max(longitud, temporal.length * 2)];
+        }
+        contenido.get(inicio, temporal, 0, longitud);
+        return new String(temporal, 0, longitud, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Obtiene un campo entero no negativo de la línea actual
+     * @param campo Índice del campo
+     * @return Valor del campo
+     * @throws NumberFormatException Si el campo no es un número entero no negativo
+     */
+    public int entero(int campo) {
+        long valor = 0;
+        int digitos = 0;
+        for (int i = inicios[campo]; i < finales[campo]; i++) {
+            byte caracter = contenido.get(i);
+            if (caracter == ' ') {
+                continue;
+            }
+            if (caracter < '0' || caracter > '9' || ++digitos > 10) {
+                throw new NumberFormatException("Valor entero inválido: " + texto(campo));
+            }
+            valor = valor * 10 + (caracter - '0');
+        }
+        if (digitos == 0 || valor > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Valor entero inválido: " + texto(campo));
+        }
+        return (int) valor;
+    }
+
+    /**
+     * Obtiene un campo decimal de la línea actual
+     * @param campo Índice del campo
+     * @return Valor del campo
+     * @throws NumberFormatException Si el campo no es un número
+     */
+    public double decimal(int campo) {
+        return Double.parseDouble(texto(campo));
+    }
+
+    /**
+     * Obtiene la posición en bytes donde comienza la línea actual, para informar errores
+     * @return Posición de la línea en el archivo
+     */
+    public int getPosicionLinea() {
+        return inicios[0];
+    }
+
+    private static int finDeLinea(ByteBuffer contenido, int desde) {
+        int posicion = desde;
+        while (posicion < contenido.limit() && contenido.get(posicion) != '\n') {
+            posicion++;
+        }
+        return Math.min(posicion + 1, contenido.limit());
+    }
+}
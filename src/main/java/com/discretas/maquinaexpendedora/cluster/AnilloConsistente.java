@@ -0,0 +1,140 @@
+package com.discretas.maquinaexpendedora.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Anillo de hash consistente que reparte las máquinas entre los nodos del clúster.
+ * Cada nodo ocupa varias posiciones virtuales en el anillo y una máquina pertenece al nodo
+ * de la primera posición igual o posterior al hash de su identificador. Al agregar o retirar
+ * un nodo solo cambian de dueño las máquinas de las posiciones afectadas.
+ * El anillo es inmutable: los cambios de membresía crean un anillo nuevo.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public final class AnilloConsistente {
+
+    private static final long FNV_BASE = 0xCBF29CE484222325L;
+
+    private static final long FNV_PRIMO = 0x100000001B3L;
+
+    /**
+     * URL base de cada nodo, por identificador
+     */
+    private final Map<String, String> nodos;
+
+    private final int virtuales;
+
+    /**
+     * Posiciones del anillo ordenadas, con el nodo de cada una en el mismo índice
+     */
+    private final long[] posiciones;
+
+    private final String[] duenyos;
+
+    /**
+     * Constructor del anillo
+     * @param nodos URL base de cada nodo, por identificador
+     * @param virtuales Número de posiciones de cada nodo en el anillo
+     */
+    public AnilloConsistente(Map<String, String> nodos, int virtuales) {
+        if (virtuales <= 0) {
+            throw new IllegalArgumentException("El número de nodos virtuales debe ser positivo: " + virtuales);
+        }
+        this.nodos = Collections.unmodifiableMap(new LinkedHashMap<>(nodos));
+        this.virtuales = virtuales;
+
+        long[][] entradas = new long[nodos.size() * virtuales][];
+        String[] ids = nodos.keySet().toArray(String[]::new);
+        int indice = 0;
+        for (int n = 0; n < ids.length; n++) {
+            for (int v = 0; v < virtuales; v++) {
+                entradas[indice++] = new long[]{hash(ids[n] + '#' + v), n};
+            }
+        }
+        // Ante posiciones repetidas gana el nodo de menor identificador, para que todos los nodos coincidan
+        Arrays.sort(entradas, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : ids[(int) a[1]].compareTo(ids[(int) b[1]]));
+        this.posiciones = new long[entradas.length];
+        this.duenyos = new String[entradas.length];
+        for (int i = 0; i < entradas.length; i++) {
+            posiciones[i] = entradas[i][0];
+            duenyos[i] = ids[(int) entradas[i][1]];
+        }
+    }
+
+    /**
+     * Obtiene el nodo dueño de una clave
+     * @param clave Identificador de la máquina
+     * @return Identificador del nodo, o null si el anillo no tiene nodos
+     */
+    public String propietario(String clave) {
+        if (posiciones.length == 0) {
+            return null;
+        }
+        int indice = Arrays.binarySearch(posiciones, hash(clave));
+        if (indice < 0) {
+            indice = -indice - 1;
+        }
+        return duenyos[indice == posiciones.length ? 0 : indice];
+    }
+
+    /**
+     * Crea un anillo con un nodo agregado o con su URL actualizada
+     * @param idNodo Identificador del nodo
+     * @param url URL base del nodo
+     * @return Anillo nuevo
+     */
+    public AnilloConsistente conNodo(String idNodo, String url) {
+        Map<String, String> nuevos = new LinkedHashMap<>(nodos);
+        nuevos.put(idNodo, url);
+        return new AnilloConsistente(nuevos, virtuales);
+    }
+
+    /**
+     * Crea un anillo sin un nodo
+     * @param idNodo Identificador del nodo a retirar
+     * @return Anillo nuevo
+     */
+    public AnilloConsistente sinNodo(String idNodo) {
+        Map<String, String> nuevos = new LinkedHashMap<>(nodos);
+        nuevos.remove(idNodo);
+        return new AnilloConsistente(nuevos, virtuales);
+    }
+
+    /**
+     * Obtiene la URL base de un nodo
+     * @param idNodo Identificador del nodo
+     * @return URL base, o null si el nodo no está en el anillo
+     */
+    public String url(String idNodo) {
+        return nodos.get(idNodo);
+    }
+
+    /**
+     * Obtiene los nodos del anillo
+     * @return URL base de cada nodo, por identificador
+     */
+    public Map<String, String> getNodos() {
+        return nodos;
+    }
+
+    /**
+     * Hash de 64 bits de una clave: FNV-1a sobre sus bytes UTF-8 con una mezcla final,
+     * para que identificadores consecutivos queden repartidos por todo el anillo
+     * @param clave Clave a resumir
+     * @return Hash de la clave
+     */
+    static long hash(String clave) {
+        long hash = FNV_BASE;
+        for (byte b : clave.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIMO;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,169 @@
+package com.discretas.maquinaexpendedora.cluster;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.admision.ControlAdmision;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Enrutamiento de las solicitudes a la máquina indicada en la cabecera {@code X-Maquina-Id}.
+ * Si la máquina pertenece a otro nodo del clúster, la solicitud se reenvía a su dueño y su respuesta
+ * se devuelve tal cual; si es local, los servicios operan sobre ella. Sin la cabecera se usa la máquina
+ * principal del nodo. Una solicitud reenviada no se vuelve a reenviar, aunque los nodos aún no coincidan
+ * en la membresía del clúster; solo se considera reenviada si trae el {@link SecretoCluster}.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class EnrutadorCluster implements HandlerInterceptor {
+
+    private static final String ATRIBUTO_MAQUINA = EnrutadorCluster.class.getName() + ".maquina";
+
+    /**
+     * Cabeceras de la solicitud que se copian al reenviarla
+     */
+    private static final List<String> CABECERAS_REENVIADAS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT,
+            HttpHeaders.ACCEPT_ENCODING, HttpHeaders.IF_NONE_MATCH, Constants.Global.IDEMPOTENCY_KEY_HEADER,
+            Constants.Global.MACHINE_ID_HEADER);
+
+    /**
+     * Cabeceras de la respuesta del dueño que se copian a la respuesta al cliente
+     */
+    private static final List<String> CABECERAS_RESPUESTA = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.ETAG, HttpHeaders.RETRY_AFTER, HttpHeaders.VARY);
+
+    private final GestorCluster gestorCluster;
+
+    private final FlotaMaquinas flota;
+
+    private final ObjectMapper objectMapper;
+
+    private final SecretoCluster secreto;
+
+    private final RestClient cliente;
+
+    /**
+     * Constructor del enrutador
+     * @param timeoutReenvioMs Tiempo máximo de una solicitud reenviada, incluidas las esperas de dispensación
+     */
+    public EnrutadorCluster(GestorCluster gestorCluster,
+                            FlotaMaquinas flota,
+                            ObjectMapper objectMapper,
+                            SecretoCluster secreto,
+                            @Value("${maquina.cluster.timeout-reenvio-ms:30000}") long timeoutReenvioMs) {
+        this.gestorCluster = gestorCluster;
+        this.flota = flota;
+        this.objectMapper = objectMapper;
+        this.secreto = secreto;
+        this.cliente = secreto.crearCliente(Math.min(timeoutReenvioMs, 2_000), timeoutReenvioMs);
+    }
+
+    /**
+     * Obtiene la máquina local indicada en la solicitud en curso
+     * @return Identificador de la máquina, o null si la solicitud no indica una o no hay solicitud en curso
+     */
+    public static String maquinaSolicitada() {
+        RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+        return atributos != null ? (String) atributos.getAttribute(ATRIBUTO_MAQUINA, RequestAttributes.SCOPE_REQUEST) : null;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        String idMaquina = request.getHeader(Constants.Global.MACHINE_ID_HEADER);
+        if (request.getDispatcherType() != DispatcherType.REQUEST || idMaquina == null || idMaquina.isBlank()) {
+            return true;
+        }
+
+        String url = gestorCluster.urlPropietario(idMaquina);
+        // Sin el secreto, la cabecera de reenvío no cuenta: la solicitud se trata como la de un cliente más
+        if (url != null && !secreto.esReenviada(request)) {
+            reenviar(request, response, url);
+            return false;
+        }
+        if (flota.obtener(idMaquina) == null) {
+            ApiResponseDTO<Void> cuerpo = new ApiResponseDTO<>();
+            if (gestorCluster.esperaTraslado(idMaquina)) {
+                // El anillo ya la asigna a este nodo pero su dueño anterior aún no la entregó
+                cuerpo.BusyOperation(null);
+                response.setHeader(HttpHeaders.RETRY_AFTER, Constants.Global.RETRY_AFTER_SECONDS);
+            } else {
+                cuerpo.NotFoundOperation();
+            }
+            escribir(response, cuerpo);
+            return false;
+        }
+        request.setAttribute(ATRIBUTO_MAQUINA, idMaquina);
+        return true;
+    }
+
+    /**
+     * Reenvía la solicitud al nodo dueño de la máquina y copia su respuesta.
+     * El cliente original se identifica en el dueño para que el control de admisión no lo confunda con este nodo.
+     */
+    private void reenviar(HttpServletRequest request, HttpServletResponse response, String url) throws IOException {
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        String consulta = request.getQueryString();
+        byte[] cuerpo = request.getInputStream().readAllBytes();
+        String cliente = ControlAdmision.clienteDirecto(request);
+
+        RestClient.RequestBodySpec solicitud = this.cliente.method(HttpMethod.valueOf(request.getMethod()))
+                .uri(URI.create(url + ruta + (consulta != null ? "?" + consulta : "")))
+                .header(Constants.Global.CLUSTER_FORWARDED_HEADER, gestorCluster.getIdNodo())
+                .header(Constants.Global.CLIENT_ID_HEADER, cliente);
+        for (String cabecera : CABECERAS_REENVIADAS) {
+            String valor = request.getHeader(cabecera);
+            if (valor != null) {
+                solicitud.header(cabecera, valor);
+            }
+        }
+        if (cuerpo.length > 0) {
+            solicitud.body(cuerpo);
+        }
+
+        try {
+            solicitud.exchange((peticion, respuesta) -> {
+                response.setStatus(respuesta.getStatusCode().value());
+                for (String cabecera : CABECERAS_RESPUESTA) {
+                    String valor = respuesta.getHeaders().getFirst(cabecera);
+                    if (valor != null) {
+                        response.setHeader(cabecera, valor);
+                    }
+                }
+                respuesta.getBody().transferTo(response.getOutputStream());
+                return null;
+            });
+        } catch (RestClientException e) {
+            log.warn("No se pudo reenviar {} {} a {}: {}", request.getMethod(), ruta, url, e.getMessage());
+            ApiResponseDTO<Void> error = new ApiResponseDTO<>();
+            error.BusyOperation(null);
+            escribir(response, error);
+        }
+    }
+
+    private void escribir(HttpServletResponse response, ApiResponseDTO<?> cuerpo) throws IOException {
+        response.setStatus(cuerpo.getStatus());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), cuerpo);
+    }
+}
@@ -0,0 +1,495 @@
+package com.discretas.maquinaexpendedora.cluster;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.events.BusEventos;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.persistencia.InstantaneaBinaria;
+import com.discretas.maquinaexpendedora.persistencia.InstantaneaBinaria.InstantaneaMaquina;
+import com.discretas.maquinaexpendedora.precios.MotorPromociones;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reparto de las máquinas de la flota entre varios nodos mediante un {@link AnilloConsistente}.
+ * <p>
+ * Cada nodo gobierna solo las máquinas que el anillo le asigna; las solicitudes para las demás se
+ * reenvían a su dueño. Cuando un nodo entra o sale del clúster, cada nodo traslada a su nuevo dueño
+ * las máquinas que dejaron de pertenecerle, con su estado completo en el formato de las instantáneas.
+ * Las máquinas con una dispensación en curso se trasladan cuando termina. La máquina principal de
+ * cada nodo es local y no participa del reparto. Sin identificador de nodo el clúster está deshabilitado.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class GestorCluster {
+
+    @Getter
+    private final String idNodo;
+
+    @Getter
+    private final boolean habilitado;
+
+    private final long reintentoMs;
+
+    private final FlotaMaquinas flota;
+
+    private final BusEventos busEventos;
+
+    private final MotorPromociones motorPromociones;
+
+    /**
+     * Cliente HTTP con el que se llama a los demás nodos
+     */
+    private final RestClient cliente;
+
+    /**
+     * Ejecutor de los rebalanceos; con un solo hilo dos rebalanceos nunca se solapan
+     */
+    private final ScheduledExecutorService rebalanceador = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("rebalanceo-cluster").factory());
+
+    private final AtomicBoolean rebalanceoProgramado = new AtomicBoolean();
+
+    private final AtomicLong maquinasEnviadas = new AtomicLong();
+
+    private final AtomicLong maquinasRecibidas = new AtomicLong();
+
+    /**
+     * Última versión de cada máquina trasladada desde este nodo. Si la máquina vuelve, su versión
+     * continúa desde ahí para que la caché de respuestas no sirva el estado anterior al traslado.
+     */
+    private final Map<String, Long> versionesTrasladadas = new ConcurrentHashMap<>();
+
+    private volatile AnilloConsistente anillo;
+
+    /**
+     * Constructor del gestor
+     * @param idNodo Identificador de este nodo, vacío para deshabilitar el clúster
+     * @param nodos Nodos iniciales como {@code id=url} separados por comas; la URL incluye el contexto de la aplicación
+     * @param virtuales Número de posiciones de cada nodo en el anillo
+     * @param timeoutMs Tiempo máximo de las llamadas entre nodos
+     * @param reintentoMs Espera antes de reintentar el traslado de las máquinas que no pudieron moverse
+     * @param secreto Secreto compartido con los demás nodos; es obligatorio con el clúster habilitado
+     */
+    public GestorCluster(@Value("${maquina.cluster.nodo-id:}") String idNodo,
+                         @Value("${maquina.cluster.nodos:}") String nodos,
+                         @Value("${maquina.cluster.nodos-virtuales:128}") int virtuales,
+                         @Value("${maquina.cluster.timeout-ms:2000}") long timeoutMs,
+                         @Value("${maquina.cluster.reintento-ms:1000}") long reintentoMs,
+                         FlotaMaquinas flota,
+                         BusEventos busEventos,
+                         MotorPromociones motorPromociones,
+                         SecretoCluster secreto) {
+        this.idNodo = idNodo.trim();
+        this.habilitado = !this.idNodo.isEmpty();
+        this.reintentoMs = reintentoMs;
+        this.flota = flota;
+        this.busEventos = busEventos;
+        this.motorPromociones = motorPromociones;
+
+        this.cliente = secreto.crearCliente(timeoutMs, timeoutMs);
+
+        if (habilitado && !secreto.isConfigurado()) {
+            throw new IllegalStateException("El clúster habilitado requiere maquina.cluster.secreto");
+        }
+        Map<String, String> iniciales = leerNodos(nodos);
+        if (habilitado && !iniciales.containsKey(this.idNodo)) {
+            throw new IllegalStateException("El nodo " + this.idNodo + " no está en maquina.cluster.nodos");
+        }
+        this.anillo = new AnilloConsistente(iniciales, virtuales);
+        if (habilitado) {
+            flota.setPertenencia(this::esLocal);
+            log.info("Clúster habilitado: nodo {} con {} nodos", this.idNodo, iniciales.size());
+        }
+    }
+
+    /**
+     * Indica si una máquina pertenece a este nodo
+     * @param idMaquina Identificador de la máquina
+     * @return true si el clúster está deshabilitado o el anillo asigna la máquina a este nodo
+     */
+    public boolean esLocal(String idMaquina) {
+        return !habilitado || idNodo.equals(anillo.propietario(idMaquina));
+    }
+
+    /**
+     * Indica si una máquina que no está en la flota puede estar llegando a este nodo: el clúster está habilitado
+     * y el anillo ya la asigna a este nodo, pero su dueño anterior aún no la entregó
+     * @param idMaquina Identificador de la máquina
+     * @return true si la máquina debería llegar a este nodo por un traslado
+     */
+    public boolean esperaTraslado(String idMaquina) {
+        return habilitado && idNodo.equals(anillo.propietario(idMaquina));
+    }
+
+    /**
+     * Obtiene la URL base del nodo dueño de una máquina que no pertenece a este nodo
+     * @param idMaquina Identificador de la máquina
+     * @return URL base del dueño, o null si la máquina es local
+     */
+    public String urlPropietario(String idMaquina) {
+        if (!habilitado || flota.esPropia(idMaquina)) {
+            return null;
+        }
+        AnilloConsistente vigente = anillo;
+        String propietario = vigente.propietario(idMaquina);
+        return propietario == null || propietario.equals(idNodo) ? null : vigente.url(propietario);
+    }
+
+    /**
+     * Consulta a los nodos conocidos su vista del clúster y agrega al anillo los nodos que falten.
+     * Se llama al arrancar, antes de cargar el planograma, para no cargar máquinas de nodos que no estaban configurados.
+     * @return Número de nodos agregados
+     */
+    public int descubrir() {
+        if (!habilitado) {
+            return 0;
+        }
+        // Se consulta fuera del monitor: esperar una llamada con el monitor tomado fijaría el hilo virtual a su portador
+        Map<String, String> conocidos = new LinkedHashMap<>();
+        for (Map.Entry<String, String> nodo : anillo.getNodos().entrySet()) {
+            if (nodo.getKey().equals(idNodo)) {
+                continue;
+            }
+            try {
+                ApiResponseDTO<EstadoCluster> respuesta = cliente.get()
+                        .uri(nodo.getValue() + Constants.Global.API_BASE_PATH + Constants.Cluster.CLUSTER_SERVICE_PATH)
+                        .retrieve()
+                        .body(new ParameterizedTypeReference<ApiResponseDTO<EstadoCluster>>() {});
+                if (respuesta != null && respuesta.getData() != null) {
+                    respuesta.getData().getNodos().forEach(conocidos::putIfAbsent);
+                }
+            } catch (RestClientException e) {
+                log.warn("No se pudo consultar el clúster en {}: {}", nodo.getValue(), e.getMessage());
+            }
+        }
+
+        int agregados = 0;
+        synchronized (this) {
+            for (Map.Entry<String, String> conocido : conocidos.entrySet()) {
+                if (anillo.url(conocido.getKey()) == null) {
+                    anillo = anillo.conNodo(conocido.getKey(), conocido.getValue());
+                    agregados++;
+                }
+            }
+        }
+        return agregados;
+    }
+
+    /**
+     * Anuncia este nodo a los demás nodos conocidos, que lo agregan a su anillo y le trasladan sus máquinas
+     * @return Número de nodos que aceptaron el anuncio
+     */
+    public int anunciar() {
+        if (!habilitado) {
+            return 0;
+        }
+        AnilloConsistente vigente = anillo;
+        int aceptados = 0;
+        for (Map.Entry<String, String> nodo : vigente.getNodos().entrySet()) {
+            if (!nodo.getKey().equals(idNodo) && notificarUnion(nodo.getValue(), idNodo, vigente.url(idNodo))) {
+                aceptados++;
+            }
+        }
+        return aceptados;
+    }
+
+    /**
+     * Agrega un nodo al anillo o actualiza su URL, y traslada al nodo las máquinas que ahora le pertenecen
+     * @param id Identificador del nodo
+     * @param url URL base del nodo
+     * @param propagar true para avisar a los demás nodos conocidos
+     * @return true si el anillo cambió
+     */
+    public boolean unirNodo(String id, String url, boolean propagar) {
+        AnilloConsistente anterior;
+        synchronized (this) {
+            if (!habilitado || url.equals(anillo.url(id))) {
+                return false;
+            }
+            anterior = anillo;
+            anillo = anterior.conNodo(id, url);
+        }
+        log.info("Nodo {} agregado al clúster en {}", id, url);
+        // Se avisa fuera del monitor: esperar una llamada con el monitor tomado fijaría el hilo virtual a su portador
+        if (propagar) {
+            for (Map.Entry<String, String> nodo : anterior.getNodos().entrySet()) {
+                if (!nodo.getKey().equals(idNodo) && !nodo.getKey().equals(id)) {
+                    notificarUnion(nodo.getValue(), id, url);
+                }
+            }
+        }
+        programarRebalanceo(0);
+        return true;
+    }
+
+    /**
+     * Retira un nodo del anillo. Si es este nodo, avisa a los demás y les traslada todas sus máquinas.
+     * Las máquinas de un nodo que se retira sin avisar no se recuperan hasta que vuelva con su instantánea.
+     * @param id Identificador del nodo
+     * @param propagar true para avisar a los demás nodos conocidos
+     * @return true si el anillo cambió
+     */
+    public boolean retirarNodo(String id, boolean propagar) {
+        AnilloConsistente anterior;
+        synchronized (this) {
+            if (!habilitado || anillo.url(id) == null) {
+                return false;
+            }
+            anterior = anillo;
+            anillo = anterior.sinNodo(id);
+        }
+        log.info("Nodo {} retirado del clúster", id);
+        if (propagar || id.equals(idNodo)) {
+            for (Map.Entry<String, String> nodo : anterior.getNodos().entrySet()) {
+                if (!nodo.getKey().equals(idNodo) && !nodo.getKey().equals(id)) {
+                    notificarRetiro(nodo.getValue(), id);
+                }
+            }
+        }
+        programarRebalanceo(0);
+        return true;
+    }
+
+    /**
+     * Registra las máquinas trasladadas desde otro nodo; si alguna ya existe, su estado se reemplaza
+     * @param datos Máquinas serializadas con {@link InstantaneaBinaria#serializarMaquinas(List)}
+     * @return Número de máquinas recibidas
+     * @throws IOException Si los datos no tienen el formato esperado
+     */
+    public int recibirMaquinas(byte[] datos) throws IOException {
+        int recibidas = incorporarMaquinas(InstantaneaBinaria.deserializarMaquinas(datos));
+        maquinasRecibidas.addAndGet(recibidas);
+        return recibidas;
+    }
+
+    /**
+     * Incorpora a la flota el estado de varias máquinas: las ya registradas se sobrescriben y las demás se registran.
+     * Lo usan los traslados entre nodos y la promoción de una réplica de respaldo.
+     * @param maquinas Estado de las máquinas
+     * @return Número de máquinas incorporadas
+     */
+    public int incorporarMaquinas(List<InstantaneaMaquina> maquinas) {
+        for (InstantaneaMaquina instantanea : maquinas) {
+            ActorMaquina actor = flota.obtener(instantanea.id());
+            if (actor != null) {
+                actor.ejecutar(maquina -> {
+                    instantanea.restaurarEn(maquina);
+                    return null;
+                });
+            } else {
+                MaquinaExpendedora maquina = new MaquinaExpendedora(busEventos);
+                instantanea.restaurarEn(maquina);
+                Long anterior = versionesTrasladadas.remove(instantanea.id());
+                if (anterior != null) {
+                    maquina.setVersion(Math.max(maquina.getVersion(), anterior + 1));
+                }
+                flota.registrar(maquina);
+            }
+        }
+        if (!maquinas.isEmpty()) {
+            // Las tablas de precios no viajan con la máquina; se compilan para el inventario recibido
+            motorPromociones.recompilar();
+        }
+        return maquinas.size();
+    }
+
+    /**
+     * Programa un rebalanceo, salvo que ya haya uno pendiente
+     * @param esperaMs Espera antes de ejecutarlo
+     */
+    private void programarRebalanceo(long esperaMs) {
+        if (rebalanceoProgramado.compareAndSet(false, true)) {
+            rebalanceador.schedule(this::rebalancear, esperaMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Traslada a su dueño cada máquina que ya no pertenece a este nodo, agrupadas por nodo de destino.
+     * Si alguna no pudo trasladarse, se reintenta más tarde.
+     * @return Número de máquinas trasladadas
+     */
+    int rebalancear() {
+        rebalanceoProgramado.set(false);
+        AnilloConsistente vigente = anillo;
+        Map<String, List<ActorMaquina>> porDestino = new HashMap<>();
+        for (ActorMaquina actor : flota.getActores()) {
+            String idMaquina = actor.getMaquina().getId();
+            if (flota.esPropia(idMaquina)) {
+                continue;
+            }
+            String destino = vigente.propietario(idMaquina);
+            if (destino != null && !destino.equals(idNodo)) {
+                porDestino.computeIfAbsent(destino, d -> new ArrayList<>()).add(actor);
+            }
+        }
+
+        int trasladadas = 0;
+        boolean pendientes = false;
+        for (Map.Entry<String, List<ActorMaquina>> destino : porDestino.entrySet()) {
+            int enviadas = trasladar(vigente.url(destino.getKey()), destino.getValue());
+            trasladadas += enviadas;
+            pendientes |= enviadas < destino.getValue().size();
+        }
+        if (trasladadas > 0) {
+            log.info("Rebalanceo del clúster: {} máquinas trasladadas", trasladadas);
+        }
+        if (pendientes) {
+            programarRebalanceo(reintentoMs);
+        }
+        return trasladadas;
+    }
+
+    /**
+     * Retira las máquinas de la flota, copia su estado y lo envía al nodo de destino.
+     * Las que tienen una dispensación en curso, o todas si el envío falla, vuelven a la flota.
+     */
+    private int trasladar(String url, List<ActorMaquina> actores) {
+        List<ActorMaquina> retiradas = new ArrayList<>(actores.size());
+        List<InstantaneaMaquina> copias = new ArrayList<>(actores.size());
+        for (ActorMaquina actor : actores) {
+            if (flota.retirar(actor.getMaquina().getId()) == null) {
+                continue;
+            }
+            // Los comandos encolados antes del retiro se ejecutan antes de la copia; los que lleguen después
+            // se rechazan para que el cliente reintente en el nuevo dueño
+            InstantaneaMaquina copia = actor.trasladar(m -> m.getTicketDispensacion() != null ? null : InstantaneaMaquina.tomar(m)).join();
+            if (copia == null) {
+                flota.restituir(actor);
+                continue;
+            }
+            retiradas.add(actor);
+            copias.add(copia);
+        }
+        if (copias.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            cliente.post()
+                    .uri(url + Constants.Global.API_BASE_PATH + Constants.Cluster.CLUSTER_SERVICE_PATH
+                            + Constants.Cluster.CLUSTER_SERVICE_PATH_MACHINES)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(InstantaneaBinaria.serializarMaquinas(copias))
+                    .retrieve()
+                    .toBodilessEntity();
+            for (ActorMaquina actor : retiradas) {
+                versionesTrasladadas.put(actor.getMaquina().getId(), actor.getMaquina().getVersion());
+            }
+            maquinasEnviadas.addAndGet(copias.size());
+            return copias.size();
+        } catch (IOException | RestClientException e) {
+            log.warn("No se pudieron trasladar {} máquinas a {}: {}", copias.size(), url, e.getMessage());
+            for (ActorMaquina actor : retiradas) {
+                actor.reabrir();
+                flota.restituir(actor);
+            }
+            return 0;
+        }
+    }
+
+    private boolean notificarUnion(String urlDestino, String id, String url) {
+        try {
+            cliente.put()
+                    .uri(urlDestino + Constants.Global.API_BASE_PATH + Constants.Cluster.CLUSTER_SERVICE_PATH
+                            + Constants.Cluster.CLUSTER_SERVICE_PATH_NODE + "?url={url}", id, url)
+                    .header(Constants.Global.CLUSTER_FORWARDED_HEADER, idNodo)
+                    .retrieve()
+                    .toBodilessEntity();
+            return true;
+        } catch (RestClientException e) {
+            log.warn("No se pudo anunciar el nodo {} a {}: {}", id, urlDestino, e.getMessage());
+            return false;
+        }
+    }
+
+    private void notificarRetiro(String urlDestino, String id) {
+        try {
+            cliente.delete()
+                    .uri(urlDestino + Constants.Global.API_BASE_PATH + Constants.Cluster.CLUSTER_SERVICE_PATH
+                            + Constants.Cluster.CLUSTER_SERVICE_PATH_NODE, id)
+                    .header(Constants.Global.CLUSTER_FORWARDED_HEADER, idNodo)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (RestClientException e) {
+            log.warn("No se pudo avisar a {} del retiro del nodo {}: {}", urlDestino, id, e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene el estado del clúster visto desde este nodo
+     * @return Estado del clúster
+     */
+    public EstadoCluster obtenerEstado() {
+        int locales = 0;
+        for (ActorMaquina actor : flota.getActores()) {
+            if (actor != flota.getPrincipal()) {
+                locales++;
+            }
+        }
+        return new EstadoCluster(habilitado, idNodo, anillo.getNodos(), locales, maquinasEnviadas.get(), maquinasRecibidas.get());
+    }
+
+    /**
+     * Detiene el ejecutor de los rebalanceos
+     */
+    @PreDestroy
+    public void detener() {
+        rebalanceador.shutdownNow();
+    }
+
+    private static Map<String, String> leerNodos(String nodos) {
+        Map<String, String> resultado = new LinkedHashMap<>();
+        for (String nodo : nodos.split(",")) {
+            int separador = nodo.indexOf('=');
+            if (separador > 0) {
+                resultado.put(nodo.substring(0, separador).trim(), nodo.substring(separador + 1).trim());
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Estado del clúster visto desde un nodo
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EstadoCluster {
+        private boolean habilitado;
+        private String idNodo;
+        private Map<String, String> nodos;
+        private int maquinasLocales;
+        private long maquinasEnviadas;
+        private long maquinasRecibidas;
+    }
+}
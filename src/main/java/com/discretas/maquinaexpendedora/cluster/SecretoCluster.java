@@ -0,0 +1,113 @@
+package com.discretas.maquinaexpendedora.cluster;
+
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+
+/**
+ * Secreto compartido por los nodos del clúster y de la replicación.
+ * <p>
+ * Los nodos lo envían en la cabecera {@code X-Cluster-Secreto} en cada llamada entre ellos. Las rutas internas
+ * del clúster y de la replicación solo se atienden con el secreto, y una solicitud solo se considera reenviada
+ * por otro nodo, con la identidad del cliente original que este indica, si trae el secreto. Sin secreto
+ * configurado las rutas internas se rechazan siempre, de modo que el clúster y la replicación exigen configurarlo.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class SecretoCluster implements HandlerInterceptor {
+
+    private final byte[] secreto;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructor del secreto
+     * @param secreto Secreto compartido por los nodos, vacío si este nodo no participa en un clúster ni en una replicación
+     */
+    public SecretoCluster(@Value("${maquina.cluster.secreto:}") String secreto, ObjectMapper objectMapper) {
+        this.secreto = secreto.isBlank() ? null : secreto.trim().getBytes(StandardCharsets.UTF_8);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Indica si hay un secreto configurado
+     */
+    public boolean isConfigurado() {
+        return secreto != null;
+    }
+
+    /**
+     * Indica si la solicitud trae el secreto del clúster. La comparación tarda lo mismo con cualquier valor.
+     * @param request Solicitud en curso
+     * @return true si el secreto está configurado y la solicitud lo trae
+     */
+    public boolean autentica(HttpServletRequest request) {
+        String recibido = request.getHeader(Constants.Global.CLUSTER_SECRET_HEADER);
+        return secreto != null && recibido != null
+                && MessageDigest.isEqual(secreto, recibido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Indica si la solicitud la reenvió otro nodo del clúster: trae la cabecera de reenvío y el secreto
+     * @param request Solicitud en curso
+     * @return true si la solicitud viene de otro nodo
+     */
+    public boolean esReenviada(HttpServletRequest request) {
+        return request.getHeader(Constants.Global.CLUSTER_FORWARDED_HEADER) != null && autentica(request);
+    }
+
+    /**
+     * Crea un cliente HTTP para llamar a los demás nodos que envía el secreto en cada solicitud
+     * @param timeoutConexionMs Tiempo máximo para conectar
+     * @param timeoutLecturaMs Tiempo máximo de espera de la respuesta
+     * @return Cliente HTTP
+     */
+    public RestClient crearCliente(long timeoutConexionMs, long timeoutLecturaMs) {
+        JdkClientHttpRequestFactory fabrica = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutConexionMs))
+                .build());
+        fabrica.setReadTimeout(Duration.ofMillis(timeoutLecturaMs));
+        RestClient.Builder builder = RestClient.builder().requestFactory(fabrica);
+        if (secreto != null) {
+            builder.defaultHeader(Constants.Global.CLUSTER_SECRET_HEADER, new String(secreto, StandardCharsets.UTF_8));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Rechaza con 403 las solicitudes a las rutas internas que no traen el secreto
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (autentica(request)) {
+            return true;
+        }
+        log.warn("Solicitud interna sin el secreto del clúster rechazada: {} {} desde {}",
+                request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
+        ApiResponseDTO<Void> cuerpo = new ApiResponseDTO<>();
+        cuerpo.ForbiddenOperation();
+        response.setStatus(cuerpo.getStatus());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), cuerpo);
+        return false;
+    }
+}
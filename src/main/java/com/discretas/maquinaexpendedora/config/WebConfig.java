@@ -0,0 +1,61 @@
+package com.discretas.maquinaexpendedora.config;
+
+import com.discretas.maquinaexpendedora.admision.ControlAdmision;
+import com.discretas.maquinaexpendedora.cluster.EnrutadorCluster;
+import com.discretas.maquinaexpendedora.cluster.SecretoCluster;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuración de Spring MVC de la aplicación.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ControlAdmision controlAdmision;
+
+    private final EnrutadorCluster enrutadorCluster;
+
+    private final SecretoCluster secretoCluster;
+
+    /**
+     * Registra el control de admisión y el enrutamiento del clúster delante de la API.
+     * Las suscripciones a eventos y alertas y las esperas de dispensación son conexiones de larga duración y no se cuentan,
+     * y el tráfico interno del clúster y de la replicación tampoco: solo lo atienden los nodos con el secreto del clúster.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(secretoCluster)
+                .addPathPatterns(
+                        Constants.Global.API_BASE_PATH + Constants.Cluster.CLUSTER_SERVICE_PATH + "/**",
+                        Constants.Global.API_BASE_PATH + Constants.Cluster.CLUSTER_SERVICE_PATH,
+                        Constants.Global.API_BASE_PATH + Constants.Replicacion.REPLICATION_SERVICE_PATH + "/**");
+
+        registry.addInterceptor(controlAdmision)
+                .addPathPatterns(Constants.Global.API_BASE_PATH + "/**")
+                .excludePathPatterns(
+                        Constants.Global.API_BASE_PATH + Constants.Cluster.CLUSTER_SERVICE_PATH + "/**",
+                        Constants.Global.API_BASE_PATH + Constants.Replicacion.REPLICATION_SERVICE_PATH + "/**",
+                        Constants.Global.API_BASE_PATH + "/*" + Constants.Maquina.MAQUINA_SERVICE_PATH_EVENTS,
+                        Constants.Global.API_BASE_PATH + Constants.Flota.FLOTA_SERVICE_PATH + Constants.Flota.FLOTA_SERVICE_PATH_ALERTS_EVENTS,
+                        Constants.Global.API_BASE_PATH + "/*" + Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE_RESULT);
+
+        // Después de la admisión, las solicitudes para máquinas de otro nodo se reenvían a su dueño.
+        // Las suscripciones a eventos, la flota y el catálogo son del nodo y no se reenvían.
+        registry.addInterceptor(enrutadorCluster)
+                .addPathPatterns(Constants.Global.API_BASE_PATH + "/**")
+                .excludePathPatterns(
+                        Constants.Global.API_BASE_PATH + Constants.Cluster.CLUSTER_SERVICE_PATH + "/**",
+                        Constants.Global.API_BASE_PATH + Constants.Replicacion.REPLICATION_SERVICE_PATH + "/**",
+                        Constants.Global.API_BASE_PATH + Constants.Flota.FLOTA_SERVICE_PATH + "/**",
+                        Constants.Global.API_BASE_PATH + Constants.Catalogo.CATALOGO_SERVICE_PATH + "/**",
+                        Constants.Global.API_BASE_PATH + "/*" + Constants.Maquina.MAQUINA_SERVICE_PATH_EVENTS);
+    }
+}
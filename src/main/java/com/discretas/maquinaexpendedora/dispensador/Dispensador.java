@@ -0,0 +1,23 @@
+package com.discretas.maquinaexpendedora.dispensador;
+
+import com.discretas.maquinaexpendedora.models.TicketDispensacion;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interfaz que define el hardware encargado de entregar físicamente los productos.
+ * La operación es asíncrona: ningún hilo debe quedar bloqueado esperando al hardware.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public interface Dispensador {
+
+    /**
+     * Solicita la entrega de un producto
+     * @param ticket Ticket de la dispensación
+     * @return Futuro que se completa con true si el producto fue entregado o false si el hardware falló
+     * @throws java.util.concurrent.RejectedExecutionException Si el dispensador no admite más solicitudes
+     */
+    CompletableFuture<Boolean> dispensar(TicketDispensacion ticket);
+}
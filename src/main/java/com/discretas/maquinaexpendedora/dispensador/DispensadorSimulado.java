@@ -0,0 +1,83 @@
+package com.discretas.maquinaexpendedora.dispensador;
+
+import com.discretas.maquinaexpendedora.models.TicketDispensacion;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispensador simulado con latencia y tasa de fallos configurables.
+ * Las entregas se completan mediante un temporizador, sin ocupar un hilo por solicitud,
+ * y el número de solicitudes en curso está acotado para aplicar contrapresión.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class DispensadorSimulado implements Dispensador {
+
+    private final ScheduledExecutorService temporizador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread hilo = new Thread(r, "dispensador-simulado");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    private final AtomicInteger enCurso = new AtomicInteger();
+
+    private final long latenciaMs;
+
+    private final double tasaFallos;
+
+    private final int capacidad;
+
+    /**
+     * Constructor del dispensador simulado
+     * @param latenciaMs Tiempo que tarda cada entrega en milisegundos
+     * @param tasaFallos Probabilidad (0 a 1) de que una entrega falle
+     * @param capacidad Número máximo de entregas en curso
+     */
+    public DispensadorSimulado(@Value("${maquina.dispensador.latencia-ms:800}") long latenciaMs,
+                               @Value("${maquina.dispensador.tasa-fallos:0.0}") double tasaFallos,
+                               @Value("${maquina.dispensador.capacidad:32}") int capacidad) {
+        this.latenciaMs = latenciaMs;
+        this.tasaFallos = tasaFallos;
+        this.capacidad = capacidad;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dispensar(TicketDispensacion ticket) {
+        if (enCurso.incrementAndGet() > capacidad) {
+            enCurso.decrementAndGet();
+            throw new RejectedExecutionException("Dispensador sin capacidad disponible");
+        }
+
+        CompletableFuture<Boolean> resultado = new CompletableFuture<>();
+        temporizador.schedule(() -> {
+            enCurso.decrementAndGet();
+            boolean exito = ThreadLocalRandom.current().nextDouble() >= tasaFallos;
+            if (!exito) {
+                log.warn("Falla simulada al dispensar el ticket {}", ticket.getId());
+            }
+            resultado.complete(exito);
+        }, latenciaMs, TimeUnit.MILLISECONDS);
+        return resultado;
+    }
+
+    /**
+     * Detiene el temporizador del dispensador
+     */
+    @PreDestroy
+    public void detener() {
+        temporizador.shutdownNow();
+    }
+}
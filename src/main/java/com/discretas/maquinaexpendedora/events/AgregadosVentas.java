@@ -0,0 +1,118 @@
+package com.discretas.maquinaexpendedora.events;
+
+import lombok.Data;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consumidor que mantiene agregados de ventas de todas las máquinas del nodo a partir de los eventos del bus:
+ * unidades vendidas y recaudo por producto, cancelaciones e incidentes sin cambio.
+ * Todos los accesos se sincronizan sobre el consumidor: el hilo del bus es el único que escribe y las
+ * consultas, poco frecuentes, no compiten con él.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Component
+public class AgregadosVentas implements ConsumidorEventos {
+
+    private final Map<String, VentasProducto> ventasPorProducto = new HashMap<>();
+
+    private long transaccionesCompletadas;
+
+    private long transaccionesCanceladas;
+
+    private long incidentesSinCambio;
+
+    /**
+     * Secuencia del último evento incluido en los agregados
+     */
+    private long ultimaSecuencia = -1;
+
+    @Override
+    public synchronized void procesar(EventoMaquina evento, boolean finDeLote) {
+        ultimaSecuencia = Math.max(ultimaSecuencia, evento.getSecuencia());
+        switch (evento.getTipo()) {
+            case PRODUCTO_DISPENSADO -> {
+                transaccionesCompletadas++;
+                if (evento.getCodigoProducto() != null) {
+                    VentasProducto ventas = ventasPorProducto.computeIfAbsent(evento.getCodigoProducto(), c -> new VentasProducto());
+                    ventas.unidades++;
+                    ventas.recaudo += evento.getMonto() - evento.getCambio();
+                }
+            }
+            case ARTICULO_DISPENSADO -> {
+                // Producto de un carrito: su recaudo es su precio; el cambio se liquida al terminar el carrito
+                VentasProducto ventas = ventasPorProducto.computeIfAbsent(evento.getCodigoProducto(), c -> new VentasProducto());
+                ventas.unidades++;
+                ventas.recaudo += evento.getMonto();
+            }
+            case TRANSACCION_CANCELADA -> transaccionesCanceladas++;
+            case SIN_CAMBIO -> incidentesSinCambio++;
+            default -> {
+                // Los demás eventos no afectan los agregados
+            }
+        }
+    }
+
+    /**
+     * Obtiene un resumen de los agregados acumulados
+     * @return Resumen con los totales, las ventas por producto y la secuencia del último evento incluido
+     */
+    public synchronized ResumenVentas obtenerResumen() {
+        ResumenVentas resumen = new ResumenVentas();
+        resumen.setUltimaSecuencia(ultimaSecuencia);
+        resumen.setTransaccionesCompletadas(transaccionesCompletadas);
+        resumen.setTransaccionesCanceladas(transaccionesCanceladas);
+        resumen.setIncidentesSinCambio(incidentesSinCambio);
+        ventasPorProducto.forEach((codigo, ventas) -> {
+            VentasProducto copia = new VentasProducto();
+            copia.unidades = ventas.unidades;
+            copia.recaudo = ventas.recaudo;
+            resumen.getVentasPorProducto().put(codigo, copia);
+        });
+        return resumen;
+    }
+
+    /**
+     * Reemplaza los agregados por los de un resumen guardado, al recuperar el estado desde una instantánea
+     * @param resumen Resumen a restaurar
+     */
+    public synchronized void restaurar(ResumenVentas resumen) {
+        ultimaSecuencia = resumen.getUltimaSecuencia();
+        transaccionesCompletadas = resumen.getTransaccionesCompletadas();
+        transaccionesCanceladas = resumen.getTransaccionesCanceladas();
+        incidentesSinCambio = resumen.getIncidentesSinCambio();
+        ventasPorProducto.clear();
+        resumen.getVentasPorProducto().forEach((codigo, ventas) -> {
+            VentasProducto copia = new VentasProducto();
+            copia.unidades = ventas.unidades;
+            copia.recaudo = ventas.recaudo;
+            ventasPorProducto.put(codigo, copia);
+        });
+    }
+
+    /**
+     * Ventas acumuladas de un producto
+     */
+    @Data
+    public static class VentasProducto {
+        private long unidades;
+        private double recaudo;
+    }
+
+    /**
+     * Resumen de los agregados de ventas de la flota
+     */
+    @Data
+    public static class ResumenVentas {
+        private long ultimaSecuencia;
+        private long transaccionesCompletadas;
+        private long transaccionesCanceladas;
+        private long incidentesSinCambio;
+        private Map<String, VentasProducto> ventasPorProducto = new TreeMap<>();
+    }
+}
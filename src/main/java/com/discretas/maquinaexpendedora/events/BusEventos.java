@@ -0,0 +1,257 @@
+package com.discretas.maquinaexpendedora.events;
+
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bus de eventos de dominio basado en un buffer circular preasignado.
+ * Los productores escriben sobre instancias de {@link EventoMaquina} ya creadas (sin asignar memoria)
+ * y un único hilo consumidor entrega los eventos por lotes a todos los {@link ConsumidorEventos}
+ * registrados, desacoplando la latencia de la compra del trabajo posterior.
+ * <p>
+ * Los productores son los actores de las máquinas. Cada uno reserva su secuencia con una comparación atómica,
+ * sin un bloqueo compartido, y marca su posición como publicada al terminar de escribirla. La publicación nunca
+ * falla ni espera: si el anillo está lleno o el bus detenido el evento se descarta y se cuenta, de modo que
+ * un consumidor lento no detiene a las máquinas ni deja una transición de estado aplicada a medias.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class BusEventos implements SmartLifecycle {
+
+    /**
+     * Buffer circular con los eventos preasignados
+     */
+    private final EventoMaquina[] anillo;
+
+    /**
+     * Máscara para calcular la posición de una secuencia dentro del anillo
+     */
+    private final int mascara;
+
+    /**
+     * Secuencia escrita en cada posición del anillo; el consumidor solo entrega una secuencia cuando su posición la contiene
+     */
+    private final AtomicLongArray publicados;
+
+    /**
+     * Última secuencia reservada por los productores
+     */
+    private final AtomicLong reservado = new AtomicLong(-1);
+
+    /**
+     * Última secuencia procesada por los consumidores
+     */
+    private final AtomicLong consumido = new AtomicLong(-1);
+
+    /**
+     * Eventos descartados por encontrar el anillo lleno o el bus detenido
+     */
+    private final LongAdder descartados = new LongAdder();
+
+    private final ObjectProvider<ConsumidorEventos> proveedorConsumidores;
+
+    private List<ConsumidorEventos> consumidores = List.of();
+
+    private volatile Thread hiloConsumidor;
+
+    private volatile boolean activo;
+
+    /**
+     * Constructor del bus
+     * @param capacidad Capacidad del anillo, se redondea a la siguiente potencia de dos
+     * @param proveedorConsumidores Proveedor de los consumidores registrados en el contexto
+     */
+    public BusEventos(@Value("${maquina.eventos.capacidad:1024}") int capacidad,
+                      ObjectProvider<ConsumidorEventos> proveedorConsumidores) {
+        int tamanyo = Integer.highestOneBit(Math.max(2, capacidad - 1)) << 1;
+        this.anillo = new EventoMaquina[tamanyo];
+        for (int i = 0; i < tamanyo; i++) {
+            anillo[i] = new EventoMaquina();
+        }
+        this.mascara = tamanyo - 1;
+        this.publicados = new AtomicLongArray(tamanyo);
+        for (int i = 0; i < tamanyo; i++) {
+            publicados.set(i, Long.MIN_VALUE);
+        }
+        this.proveedorConsumidores = proveedorConsumidores;
+    }
+
+    /**
+     * Publica un evento en el bus. Si el anillo está lleno o el bus detenido el evento se descarta.
+     * @param tipo Tipo del evento
+     * @param idMaquina Identificador de la máquina que emite el evento
+     * @param region Región de la máquina que emite el evento
+     * @param transaccion Transacción asociada (puede ser null)
+     * @param monto Monto asociado al evento
+     * @return Secuencia asignada al evento, o -1 si se descartó
+     */
+    public long publicar(TipoEvento tipo, String idMaquina, String region, Transaccion transaccion, double monto) {
+        return publicar(tipo, idMaquina, region, transaccion, transaccion != null ? transaccion.getProducto() : null, monto);
+    }
+
+    /**
+     * Publica un evento de un producto concreto de la transacción, como una línea de un carrito
+     * @param tipo Tipo del evento
+     * @param idMaquina Identificador de la máquina que emite el evento
+     * @param region Región de la máquina que emite el evento
+     * @param transaccion Transacción asociada (puede ser null)
+     * @param producto Producto del evento (puede ser null)
+     * @param monto Monto asociado al evento
+     * @return Secuencia asignada al evento, o -1 si se descartó
+     */
+    public long publicar(TipoEvento tipo, String idMaquina, String region, Transaccion transaccion,
+                         Producto producto, double monto) {
+        long secuencia = reservar();
+        if (secuencia < 0) {
+            descartados.increment();
+            log.debug("Se descarta el evento {} de la máquina {}: bus lleno o detenido", tipo, idMaquina);
+            return -1;
+        }
+        escribir(secuencia, tipo, idMaquina, region, transaccion, producto, monto);
+        publicados.setRelease((int) (secuencia & mascara), secuencia);
+        LockSupport.unpark(hiloConsumidor);
+        return secuencia;
+    }
+
+    /**
+     * Reserva la siguiente secuencia si el bus está activo y su posición ya fue consumida
+     * @return Secuencia reservada, o -1 si no hay espacio o el bus está detenido
+     */
+    private long reservar() {
+        while (activo) {
+            long actual = reservado.get();
+            long secuencia = actual + 1;
+            if (secuencia - consumido.get() > mascara) {
+                return -1;
+            }
+            if (reservado.compareAndSet(actual, secuencia)) {
+                return secuencia;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Escribe el evento sobre la instancia preasignada de su posición en el anillo
+     */
+    private void escribir(long secuencia, TipoEvento tipo, String idMaquina, String region, Transaccion transaccion,
+                          Producto producto, double monto) {
+        EventoMaquina evento = anillo[(int) (secuencia & mascara)];
+        evento.setSecuencia(secuencia);
+        evento.setTimestamp(System.currentTimeMillis());
+        evento.setTipo(tipo);
+        evento.setIdMaquina(idMaquina);
+        evento.setRegion(region);
+        evento.setIdTransaccion(transaccion != null ? transaccion.getId() : null);
+        evento.setCodigoProducto(producto != null ? producto.getCodigo() : null);
+        evento.setMonto(monto);
+        evento.setCambio(transaccion != null ? transaccion.getCambio() : 0.0);
+        evento.setStockRestante(producto != null ? producto.getStock() : 0);
+    }
+
+    /**
+     * Continúa la numeración a partir de la última secuencia de una ejecución anterior,
+     * para que las secuencias del diario no se repitan entre reinicios. Debe llamarse antes de iniciar el bus.
+     * @param ultimaSecuencia Última secuencia emitida antes del reinicio
+     */
+    public void continuarDesde(long ultimaSecuencia) {
+        if (activo) {
+            throw new IllegalStateException("El bus ya está iniciado");
+        }
+        if (ultimaSecuencia > reservado.get()) {
+            reservado.set(ultimaSecuencia);
+            consumido.set(ultimaSecuencia);
+        }
+    }
+
+    /**
+     * Obtiene la última secuencia asignada a un evento
+     * @return Secuencia del último evento publicado, -1 si no hay eventos
+     */
+    public long getUltimaSecuencia() {
+        return reservado.get();
+    }
+
+    /**
+     * Obtiene el número de eventos descartados por encontrar el anillo lleno o el bus detenido
+     * @return Eventos descartados desde el arranque
+     */
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    /**
+     * Ciclo del hilo consumidor: toma todos los eventos disponibles y los entrega como un lote
+     */
+    private void consumir() {
+        while (activo || consumido.get() < reservado.get()) {
+            long siguiente = consumido.get() + 1;
+            long disponible = siguiente - 1;
+            while (disponible < reservado.get() && publicados.getAcquire((int) ((disponible + 1) & mascara)) == disponible + 1) {
+                disponible++;
+            }
+
+            if (siguiente > disponible) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+
+            for (long secuencia = siguiente; secuencia <= disponible; secuencia++) {
+                EventoMaquina evento = anillo[(int) (secuencia & mascara)];
+                boolean finDeLote = secuencia == disponible;
+                for (ConsumidorEventos consumidor : consumidores) {
+                    try {
+                        consumidor.procesar(evento, finDeLote);
+                    } catch (Exception e) {
+                        log.error("Error procesando evento {} en {}", secuencia, consumidor.getClass().getSimpleName(), e);
+                    }
+                }
+            }
+            consumido.set(disponible);
+        }
+    }
+
+    @Override
+    public void start() {
+        consumidores = proveedorConsumidores.orderedStream().toList();
+        activo = true;
+        hiloConsumidor = new Thread(this::consumir, "bus-eventos");
+        hiloConsumidor.setDaemon(true);
+        hiloConsumidor.start();
+    }
+
+    @Override
+    public void stop() {
+        activo = false;
+        Thread hilo = hiloConsumidor;
+        if (hilo != null) {
+            LockSupport.unpark(hilo);
+            try {
+                hilo.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return activo;
+    }
+}
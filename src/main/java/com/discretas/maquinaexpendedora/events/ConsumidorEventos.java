@@ -0,0 +1,18 @@
+package com.discretas.maquinaexpendedora.events;
+
+/**
+ * Interfaz que define un consumidor de eventos del {@link BusEventos}.
+ * Los consumidores se ejecutan fuera del hilo de la petición, en el hilo del bus.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public interface ConsumidorEventos {
+
+    /**
+     * Procesa un evento del bus
+     * @param evento Evento a procesar (instancia reutilizada, no debe conservarse)
+     * @param finDeLote true si es el último evento disponible del lote actual
+     */
+    void procesar(EventoMaquina evento, boolean finDeLote);
+}
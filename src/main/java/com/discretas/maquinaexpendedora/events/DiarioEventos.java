@@ -0,0 +1,166 @@
+package com.discretas.maquinaexpendedora.events;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Consumidor que registra todos los eventos en un diario de solo escritura al final.
+ * Las líneas se escriben en un buffer y se vuelcan a disco una vez por lote,
+ * lo que permite reproducir posteriormente la secuencia completa de eventos.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class DiarioEventos implements ConsumidorEventos {
+
+    private static final char SEPARADOR = ';';
+
+    /**
+     * Ruta del archivo del diario
+     */
+    private final Path ruta;
+
+    private final StringBuilder linea = new StringBuilder(128);
+
+    private FileChannel canal;
+
+    private BufferedWriter escritor;
+
+    /**
+     * Último punto del diario volcado a disco
+     */
+    private volatile PuntoDiario confirmado = PuntoDiario.INICIO;
+
+    /**
+     * Constructor del diario
+     * @param ruta Ruta del archivo del diario, vacía para deshabilitarlo
+     */
+    public DiarioEventos(@Value("${maquina.diario.ruta:}") String ruta) {
+        this.ruta = ruta.isBlank() ? null : Path.of(ruta);
+    }
+
+    @Override
+    public void procesar(EventoMaquina evento, boolean finDeLote) {
+        if (ruta == null) {
+            return;
+        }
+        try {
+            if (escritor == null) {
+                Files.createDirectories(ruta.toAbsolutePath().getParent());
+                canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                escritor = new BufferedWriter(Channels.newWriter(canal, StandardCharsets.UTF_8));
+            }
+
+            linea.setLength(0);
+            linea.append(evento.getSecuencia()).append(SEPARADOR)
+                    .append(evento.getTimestamp()).append(SEPARADOR)
+                    .append(evento.getTipo()).append(SEPARADOR)
+                    .append(evento.getIdMaquina()).append(SEPARADOR)
+                    .append(evento.getIdTransaccion()).append(SEPARADOR)
+                    .append(evento.getCodigoProducto()).append(SEPARADOR)
+                    .append(evento.getMonto()).append(SEPARADOR)
+                    .append(evento.getCambio());
+            escritor.append(linea).append('\n');
+
+            if (finDeLote) {
+                escritor.flush();
+                confirmado = new PuntoDiario(canal.size(), evento.getSecuencia());
+            }
+        } catch (IOException e) {
+            log.error("Error escribiendo en el diario de eventos {}", ruta, e);
+        }
+    }
+
+    /**
+     * Obtiene la ruta del archivo del diario
+     * @return Ruta del diario, o null si está deshabilitado
+     */
+    public Path getRuta() {
+        return ruta;
+    }
+
+    /**
+     * Obtiene el último punto del diario volcado a disco. Todos los eventos con secuencia
+     * menor o igual a la del punto están escritos antes de su posición.
+     * @return Posición en bytes y secuencia del último volcado
+     */
+    public PuntoDiario getConfirmado() {
+        return confirmado;
+    }
+
+    /**
+     * Toma como punto confirmado el final actual del archivo, al reanudar tras un reinicio
+     * @param ultimaSecuencia Última secuencia escrita en el diario antes del reinicio
+     * @throws IOException Si no puede consultarse el tamaño del archivo
+     */
+    public void reanudar(long ultimaSecuencia) throws IOException {
+        if (ruta != null && Files.exists(ruta)) {
+            confirmado = new PuntoDiario(Files.size(ruta), ultimaSecuencia);
+        }
+    }
+
+    /**
+     * Reproduce los eventos registrados en un diario, en el orden en que fueron emitidos
+     * @param ruta Ruta del archivo del diario
+     * @param consumidor Consumidor que recibe cada evento (instancia reutilizada)
+     * @throws IOException Si el archivo no puede leerse
+     */
+    public static void reproducir(Path ruta, Consumer<EventoMaquina> consumidor) throws IOException {
+        reproducir(ruta, 0, consumidor);
+    }
+
+    /**
+     * Reproduce los eventos registrados en un diario a partir de una posición
+     * @param ruta Ruta del archivo del diario
+     * @param posicion Posición en bytes desde la que se lee; debe ser el inicio de una línea
+     * @param consumidor Consumidor que recibe cada evento (instancia reutilizada)
+     * @throws IOException Si el archivo no puede leerse
+     */
+    public static void reproducir(Path ruta, long posicion, Consumer<EventoMaquina> consumidor) throws IOException {
+        EventoMaquina evento = new EventoMaquina();
+        try (FileChannel lectura = FileChannel.open(ruta, StandardOpenOption.READ);
+             BufferedReader lector = new BufferedReader(Channels.newReader(lectura.position(posicion), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                if (linea.isBlank()) {
+                    continue;
+                }
+                String[] campos = linea.split(String.valueOf(SEPARADOR), -1);
+                evento.setSecuencia(Long.parseLong(campos[0]));
+                evento.setTimestamp(Long.parseLong(campos[1]));
+                evento.setTipo(TipoEvento.valueOf(campos[2]));
+                evento.setIdMaquina(valorONulo(campos[3]));
+                evento.setIdTransaccion(valorONulo(campos[4]));
+                evento.setCodigoProducto(valorONulo(campos[5]));
+                evento.setMonto(Double.parseDouble(campos[6]));
+                evento.setCambio(Double.parseDouble(campos[7]));
+                consumidor.accept(evento);
+            }
+        }
+    }
+
+    private static String valorONulo(String campo) {
+        return "null".equals(campo) ? null : campo;
+    }
+
+    /**
+     * Punto del diario: posición en bytes tras un volcado y secuencia del último evento escrito
+     */
+    public record PuntoDiario(long posicion, long secuencia) {
+        public static final PuntoDiario INICIO = new PuntoDiario(0, -1);
+    }
+}
@@ -0,0 +1,114 @@
+package com.discretas.maquinaexpendedora.events;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Difunde mensajes a los suscriptores de Server-Sent Events sin bloquear a quien publica.
+ * Cada suscriptor tiene una cola acotada que se vacía en su propio hilo virtual; si un cliente lento
+ * deja llenar su cola se le desconecta, de modo que no puede frenar al hilo del bus ni a las compras.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+public class DifusorSse {
+
+    private static final long SIN_TIMEOUT = 0L;
+
+    private final int capacidadCola;
+
+    private final Executor ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final CopyOnWriteArrayList<Suscriptor> suscriptores = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor del difusor
+     * @param capacidadCola Mensajes pendientes que se toleran por suscriptor antes de desconectarlo
+     */
+    public DifusorSse(int capacidadCola) {
+        this.capacidadCola = Math.max(1, capacidadCola);
+    }
+
+    /**
+     * Registra un nuevo suscriptor
+     * @return Emisor SSE asociado al suscriptor
+     */
+    public SseEmitter suscribir() {
+        SseEmitter emisor = new SseEmitter(SIN_TIMEOUT);
+        Suscriptor suscriptor = new Suscriptor(emisor, new ArrayBlockingQueue<>(capacidadCola));
+        emisor.onCompletion(() -> suscriptores.remove(suscriptor));
+        emisor.onTimeout(() -> suscriptores.remove(suscriptor));
+        emisor.onError(e -> suscriptores.remove(suscriptor));
+        suscriptores.add(suscriptor);
+        return emisor;
+    }
+
+    /**
+     * Indica si hay suscriptores conectados
+     */
+    public boolean haySuscriptores() {
+        return !suscriptores.isEmpty();
+    }
+
+    /**
+     * Encola un mensaje para todos los suscriptores. Nunca bloquea: el envío ocurre en el hilo de cada suscriptor.
+     * @param mensaje Mensaje a enviar
+     */
+    public void difundir(Object mensaje) {
+        for (Suscriptor suscriptor : suscriptores) {
+            if (!suscriptor.pendientes.offer(mensaje)) {
+                log.warn("Suscriptor SSE desconectado por no consumir a tiempo ({} mensajes pendientes)", capacidadCola);
+                descartar(suscriptor, null);
+                continue;
+            }
+            if (suscriptor.enviando.compareAndSet(false, true)) {
+                ejecutor.execute(() -> vaciar(suscriptor));
+            }
+        }
+    }
+
+    /**
+     * Envía los mensajes pendientes de un suscriptor. Solo un hilo vacía cada cola a la vez.
+     */
+    private void vaciar(Suscriptor suscriptor) {
+        do {
+            Object mensaje;
+            while ((mensaje = suscriptor.pendientes.poll()) != null) {
+                try {
+                    suscriptor.emisor.send(mensaje);
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Suscriptor SSE desconectado: {}", e.getMessage());
+                    descartar(suscriptor, e);
+                    return;
+                }
+            }
+            suscriptor.enviando.set(false);
+        } while (!suscriptor.pendientes.isEmpty() && suscriptor.enviando.compareAndSet(false, true));
+    }
+
+    private void descartar(Suscriptor suscriptor, Exception causa) {
+        if (suscriptores.remove(suscriptor)) {
+            suscriptor.pendientes.clear();
+            if (causa != null) {
+                suscriptor.emisor.completeWithError(causa);
+            } else {
+                suscriptor.emisor.complete();
+            }
+        }
+    }
+
+    private record Suscriptor(SseEmitter emisor, Queue<Object> pendientes, AtomicBoolean enviando) {
+        Suscriptor(SseEmitter emisor, Queue<Object> pendientes) {
+            this(emisor, pendientes, new AtomicBoolean());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.discretas.maquinaexpendedora.events;
+
+import lombok.Data;
+
+/**
+ * Evento de dominio emitido por la máquina expendedora.
+ * Las instancias se preasignan dentro del {@link BusEventos} y se reutilizan,
+ * por lo que un consumidor que necesite conservar el evento debe copiarlo.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Data
+public class EventoMaquina {
+
+    /**
+     * Número de secuencia global del evento dentro del bus
+     */
+    private long secuencia;
+
+    /**
+     * Momento en que se emitió el evento (epoch en milisegundos)
+     */
+    private long timestamp;
+
+    /**
+     * Tipo del evento
+     */
+    private TipoEvento tipo;
+
+    /**
+     * Identificador de la máquina que emitió el evento
+     */
+    private String idMaquina;
+
+    /**
+     * Región de la máquina que emitió el evento
+     */
+    private String region;
+
+    /**
+     * Identificador de la transacción asociada
+     */
+    private String idTransaccion;
+
+    /**
+     * Código del producto asociado
+     */
+    private String codigoProducto;
+
+    /**
+     * Monto asociado al evento (precio, dinero insertado, pagado o devuelto según el tipo)
+     */
+    private double monto;
+
+    /**
+     * Cambio asociado al evento
+     */
+    private double cambio;
+
+    /**
+     * Unidades del producto que quedan en la máquina tras el evento
+     */
+    private int stockRestante;
+
+    /**
+     * Copia los datos de otro evento en esta instancia
+     * @param otro Evento origen
+     */
+    public void copiarDe(EventoMaquina otro) {
+        this.secuencia = otro.secuencia;
+        this.timestamp = otro.timestamp;
+        this.tipo = otro.tipo;
+        this.idMaquina = otro.idMaquina;
+        this.region = otro.region;
+        this.idTransaccion = otro.idTransaccion;
+        this.codigoProducto = otro.codigoProducto;
+        this.monto = otro.monto;
+        this.cambio = otro.cambio;
+        this.stockRestante = otro.stockRestante;
+    }
+}
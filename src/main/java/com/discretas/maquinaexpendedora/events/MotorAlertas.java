@@ -0,0 +1,326 @@
+package com.discretas.maquinaexpendedora.events;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumidor que analiza el flujo de eventos en ventanas de tiempo deslizantes y emite alertas:
+ * agotamiento proyectado de una casilla según su velocidad de venta, producto agotado,
+ * tasa de cancelaciones anómala en una máquina e incidentes sin cambio.
+ * <p>
+ * Cada ventana es un anillo fijo de cubetas, por lo que la memoria por casilla es constante
+ * y cada evento se registra en tiempo O(1). Solo el hilo del bus modifica las ventanas.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class MotorAlertas implements ConsumidorEventos {
+
+    private static final long MS_POR_MINUTO = 60_000L;
+
+    /**
+     * Tipos de alerta que emite el motor
+     */
+    public enum TipoAlerta {
+        AGOTAMIENTO_PROYECTADO,
+        PRODUCTO_AGOTADO,
+        TASA_CANCELACION_ANOMALA,
+        SIN_CAMBIO
+    }
+
+    private final long duracionCubetaMs;
+
+    private final int numeroCubetas;
+
+    private final long umbralAgotamientoMs;
+
+    private final double umbralCancelacion;
+
+    private final int minimoMuestras;
+
+    private final int capacidadHistorial;
+
+    /**
+     * Ventanas de ventas por casilla (máquina y código de producto)
+     */
+    private final Map<String, Map<String, VentasCasilla>> casillasPorMaquina = new HashMap<>();
+
+    /**
+     * Ventanas de operaciones por máquina, para la tasa de cancelación
+     */
+    private final Map<String, OperacionesMaquina> maquinas = new HashMap<>();
+
+    /**
+     * Alertas más recientes, de la más antigua a la más nueva
+     */
+    private final Deque<Alerta> historial = new ArrayDeque<>();
+
+    private final DifusorSse difusor;
+
+    private long secuenciaAlertas;
+
+    /**
+     * Constructor del motor de alertas
+     * @param ventanaMinutos Duración de la ventana deslizante en minutos
+     * @param numeroCubetas Número de cubetas en que se divide la ventana
+     * @param umbralAgotamientoMinutos Se alerta si el agotamiento proyectado ocurre antes de estos minutos
+     * @param umbralCancelacion Fracción de transacciones canceladas a partir de la cual se alerta
+     * @param minimoMuestras Eventos mínimos en la ventana para proyectar el agotamiento o evaluar la tasa de cancelación
+     * @param capacidadHistorial Número de alertas recientes que se conservan
+     * @param capacidadCola Alertas pendientes que se toleran por suscriptor SSE antes de desconectarlo
+     */
+    public MotorAlertas(@Value("${maquina.alertas.ventana-minutos:60}") long ventanaMinutos,
+                        @Value("${maquina.alertas.cubetas:12}") int numeroCubetas,
+                        @Value("${maquina.alertas.umbral-agotamiento-minutos:120}") long umbralAgotamientoMinutos,
+                        @Value("${maquina.alertas.umbral-cancelacion:0.5}") double umbralCancelacion,
+                        @Value("${maquina.alertas.minimo-muestras:5}") int minimoMuestras,
+                        @Value("${maquina.alertas.capacidad-historial:200}") int capacidadHistorial,
+                        @Value("${maquina.eventos.sse.capacidad-cola:64}") int capacidadCola) {
+        this.numeroCubetas = Math.max(1, numeroCubetas);
+        this.duracionCubetaMs = Math.max(1, ventanaMinutos * MS_POR_MINUTO / this.numeroCubetas);
+        this.umbralAgotamientoMs = umbralAgotamientoMinutos * MS_POR_MINUTO;
+        this.umbralCancelacion = umbralCancelacion;
+        this.minimoMuestras = minimoMuestras;
+        this.capacidadHistorial = capacidadHistorial;
+        this.difusor = new DifusorSse(capacidadCola);
+    }
+
+    /**
+     * Registra un nuevo suscriptor de alertas
+     * @return Emisor SSE asociado al suscriptor
+     */
+    public SseEmitter suscribir() {
+        return difusor.suscribir();
+    }
+
+    /**
+     * Obtiene las alertas recientes posteriores a una secuencia
+     * @param desde Secuencia de la última alerta conocida por el cliente (0 para todas)
+     * @return Alertas con secuencia mayor a la indicada, de la más antigua a la más nueva
+     */
+    public List<Alerta> obtenerAlertas(long desde) {
+        synchronized (historial) {
+            List<Alerta> alertas = new ArrayList<>();
+            for (Alerta alerta : historial) {
+                if (alerta.getSecuencia() > desde) {
+                    alertas.add(alerta);
+                }
+            }
+            return alertas;
+        }
+    }
+
+    @Override
+    public void procesar(EventoMaquina evento, boolean finDeLote) {
+        switch (evento.getTipo()) {
+            case PRODUCTO_DISPENSADO -> {
+                maquina(evento.getIdMaquina()).registrarVenta(evento);
+                if (evento.getCodigoProducto() != null) {
+                    casilla(evento.getIdMaquina(), evento.getCodigoProducto()).registrarVenta(evento);
+                }
+            }
+            case ARTICULO_DISPENSADO -> casilla(evento.getIdMaquina(), evento.getCodigoProducto()).registrarVenta(evento);
+            case TRANSACCION_CANCELADA -> maquina(evento.getIdMaquina()).registrarCancelacion(evento);
+            case SIN_CAMBIO -> emitir(evento, TipoAlerta.SIN_CAMBIO, 0, 0, 0,
+                    "La máquina no tiene cambio suficiente para la transacción " + evento.getIdTransaccion());
+            default -> {
+                // Los demás eventos no generan alertas
+            }
+        }
+    }
+
+    private OperacionesMaquina maquina(String idMaquina) {
+        return maquinas.computeIfAbsent(idMaquina, id -> new OperacionesMaquina());
+    }
+
+    private VentasCasilla casilla(String idMaquina, String codigoProducto) {
+        return casillasPorMaquina.computeIfAbsent(idMaquina, id -> new HashMap<>())
+                .computeIfAbsent(codigoProducto, c -> new VentasCasilla());
+    }
+
+    /**
+     * Registra una alerta en el historial y la encola para los suscriptores
+     */
+    private void emitir(EventoMaquina evento, TipoAlerta tipo, int stock, long msHastaAgotamiento,
+                        double tasaCancelacion, String descripcion) {
+        Alerta alerta = new Alerta();
+        alerta.setSecuencia(++secuenciaAlertas);
+        alerta.setTimestamp(evento.getTimestamp());
+        alerta.setTipo(tipo);
+        alerta.setIdMaquina(evento.getIdMaquina());
+        alerta.setCodigoProducto(evento.getCodigoProducto());
+        alerta.setStock(stock);
+        alerta.setMsHastaAgotamiento(msHastaAgotamiento);
+        alerta.setTasaCancelacion(tasaCancelacion);
+        alerta.setDescripcion(descripcion);
+
+        synchronized (historial) {
+            historial.addLast(alerta);
+            if (historial.size() > capacidadHistorial) {
+                historial.removeFirst();
+            }
+        }
+
+        difusor.difundir(alerta);
+    }
+
+    /**
+     * Estado de una casilla: ventana de ventas y alertas activas
+     */
+    private final class VentasCasilla {
+        private final VentanaDeslizante ventas = new VentanaDeslizante();
+        private long primeraVenta = -1;
+        private boolean agotamientoAlertado;
+        private boolean agotadoAlertado;
+
+        void registrarVenta(EventoMaquina evento) {
+            long ahora = evento.getTimestamp();
+            if (primeraVenta < 0) {
+                primeraVenta = ahora;
+            }
+            long vendidas = ventas.sumar(ahora, 1);
+            int stock = evento.getStockRestante();
+
+            if (stock <= 0) {
+                if (!agotadoAlertado) {
+                    agotadoAlertado = true;
+                    emitir(evento, TipoAlerta.PRODUCTO_AGOTADO, 0, 0, 0,
+                            "El producto " + evento.getCodigoProducto() + " se agotó");
+                }
+                return;
+            }
+            agotadoAlertado = false;
+
+            // Velocidad = ventas en la ventana / tiempo observado (al menos una cubeta, como máximo la ventana)
+            long observado = Math.min(duracionCubetaMs * numeroCubetas, Math.max(duracionCubetaMs, ahora - primeraVenta));
+            long msHastaAgotamiento = stock * observado / vendidas;
+            if (vendidas >= minimoMuestras && msHastaAgotamiento < umbralAgotamientoMs) {
+                if (!agotamientoAlertado) {
+                    agotamientoAlertado = true;
+                    emitir(evento, TipoAlerta.AGOTAMIENTO_PROYECTADO, stock, msHastaAgotamiento, 0,
+                            "El producto " + evento.getCodigoProducto() + " se agotará en ~"
+                                    + msHastaAgotamiento / MS_POR_MINUTO + " minutos (" + vendidas
+                                    + " ventas en la ventana, quedan " + stock + ")");
+                }
+            } else {
+                agotamientoAlertado = false;
+            }
+        }
+    }
+
+    /**
+     * Estado de una máquina: ventanas de ventas y cancelaciones y alerta activa
+     */
+    private final class OperacionesMaquina {
+        private final VentanaDeslizante ventas = new VentanaDeslizante();
+        private final VentanaDeslizante cancelaciones = new VentanaDeslizante();
+        private boolean cancelacionAlertada;
+
+        void registrarVenta(EventoMaquina evento) {
+            ventas.sumar(evento.getTimestamp(), 1);
+            evaluar(evento);
+        }
+
+        void registrarCancelacion(EventoMaquina evento) {
+            cancelaciones.sumar(evento.getTimestamp(), 1);
+            evaluar(evento);
+        }
+
+        private void evaluar(EventoMaquina evento) {
+            long ahora = evento.getTimestamp();
+            long canceladas = cancelaciones.total(ahora);
+            long total = canceladas + ventas.total(ahora);
+            if (total < minimoMuestras) {
+                return;
+            }
+
+            double tasa = (double) canceladas / total;
+            if (tasa >= umbralCancelacion) {
+                if (!cancelacionAlertada) {
+                    cancelacionAlertada = true;
+                    emitir(evento, TipoAlerta.TASA_CANCELACION_ANOMALA, 0, 0, tasa,
+                            "La máquina " + evento.getIdMaquina() + " canceló " + canceladas + " de "
+                                    + total + " transacciones en la ventana");
+                }
+            } else {
+                cancelacionAlertada = false;
+            }
+        }
+    }
+
+    /**
+     * Contador sobre una ventana de tiempo deslizante, dividido en un anillo fijo de cubetas.
+     * Al avanzar el tiempo se vacían las cubetas que salen de la ventana.
+     */
+    private final class VentanaDeslizante {
+        private final long[] cubetas = new long[numeroCubetas];
+        private long cubetaActual = Long.MIN_VALUE;
+        private long total;
+
+        /**
+         * Suma unidades en la cubeta del instante indicado
+         * @return Total de la ventana tras la suma
+         */
+        long sumar(long timestamp, long unidades) {
+            avanzar(timestamp);
+            cubetas[(int) Math.floorMod(cubetaActual, (long) numeroCubetas)] += unidades;
+            total += unidades;
+            return total;
+        }
+
+        /**
+         * Obtiene el total de la ventana que termina en el instante indicado
+         */
+        long total(long timestamp) {
+            avanzar(timestamp);
+            return total;
+        }
+
+        private void avanzar(long timestamp) {
+            long cubeta = timestamp / duracionCubetaMs;
+            if (cubetaActual == Long.MIN_VALUE) {
+                cubetaActual = cubeta;
+                return;
+            }
+            if (cubeta <= cubetaActual) {
+                return;
+            }
+            long pasos = Math.min(cubeta - cubetaActual, numeroCubetas);
+            for (long i = 1; i <= pasos; i++) {
+                int indice = (int) Math.floorMod(cubetaActual + i, (long) numeroCubetas);
+                total -= cubetas[indice];
+                cubetas[indice] = 0;
+            }
+            cubetaActual = cubeta;
+        }
+    }
+
+    /**
+     * Alerta emitida por el motor
+     */
+    @Data
+    public static class Alerta {
+        private long secuencia;
+        private long timestamp;
+        private TipoAlerta tipo;
+        private String idMaquina;
+        private String codigoProducto;
+        private int stock;
+        private long msHastaAgotamiento;
+        private double tasaCancelacion;
+        private String descripcion;
+    }
+}
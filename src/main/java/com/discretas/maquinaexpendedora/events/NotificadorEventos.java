@@ -0,0 +1,71 @@
+package com.discretas.maquinaexpendedora.events;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consumidor que envía notificaciones push (Server-Sent Events) a los suscriptores.
+ * Los eventos de un lote se acumulan y se envían en un único mensaje al terminar el lote.
+ * El envío lo hace un {@link DifusorSse}, por lo que un suscriptor lento no detiene al hilo del bus.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class NotificadorEventos implements ConsumidorEventos {
+
+    private static final int CAPACIDAD_COLA_DEFECTO = 64;
+
+    private final DifusorSse difusor;
+
+    private List<EventoMaquina> loteActual = new ArrayList<>();
+
+    /**
+     * Constructor del notificador con la cola por suscriptor por defecto
+     */
+    public NotificadorEventos() {
+        this(CAPACIDAD_COLA_DEFECTO);
+    }
+
+    /**
+     * Constructor del notificador
+     * @param capacidadCola Lotes pendientes que se toleran por suscriptor antes de desconectarlo
+     */
+    @Autowired
+    public NotificadorEventos(@Value("${maquina.eventos.sse.capacidad-cola:64}") int capacidadCola) {
+        this.difusor = new DifusorSse(capacidadCola);
+    }
+
+    /**
+     * Registra un nuevo suscriptor de notificaciones
+     * @return Emisor SSE asociado al suscriptor
+     */
+    public SseEmitter suscribir() {
+        return difusor.suscribir();
+    }
+
+    @Override
+    public void procesar(EventoMaquina evento, boolean finDeLote) {
+        if (!difusor.haySuscriptores()) {
+            loteActual.clear();
+            return;
+        }
+
+        EventoMaquina copia = new EventoMaquina();
+        copia.copiarDe(evento);
+        loteActual.add(copia);
+
+        if (finDeLote) {
+            List<EventoMaquina> lote = loteActual;
+            loteActual = new ArrayList<>();
+            difusor.difundir(lote);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.discretas.maquinaexpendedora.events;
+
+import com.discretas.maquinaexpendedora.frecuencias.ResumenFrecuencias;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Consumidor que mantiene los productos más vendidos por región con memoria acotada.
+ * Cada región tiene un {@link ResumenFrecuencias} que se actualiza con cada producto dispensado;
+ * el ranking de la flota se obtiene fusionando los resúmenes de todas las regiones.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Component
+public class RankingProductos implements ConsumidorEventos {
+
+    private final int profundidad;
+
+    private final int anchura;
+
+    private final int capacidad;
+
+    /**
+     * Resumen de ventas por región. Cada resumen se modifica y se copia bajo su propio monitor
+     */
+    private final Map<String, ResumenFrecuencias> porRegion = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor del ranking
+     * @param profundidad Filas del Count-Min Sketch de cada región
+     * @param anchura Contadores por fila del Count-Min Sketch de cada región
+     * @param capacidad Productos candidatos que se siguen en cada región
+     */
+    public RankingProductos(@Value("${maquina.ranking.profundidad:4}") int profundidad,
+                            @Value("${maquina.ranking.anchura:1024}") int anchura,
+                            @Value("${maquina.ranking.capacidad:64}") int capacidad) {
+        this.profundidad = profundidad;
+        this.anchura = anchura;
+        this.capacidad = capacidad;
+    }
+
+    @Override
+    public void procesar(EventoMaquina evento, boolean finDeLote) {
+        if (evento.getTipo() != TipoEvento.PRODUCTO_DISPENSADO && evento.getTipo() != TipoEvento.ARTICULO_DISPENSADO
+                || evento.getCodigoProducto() == null) {
+            return;
+        }
+
+        String region = evento.getRegion() != null ? evento.getRegion() : Constants.Maquina.REGION_DEFAULT;
+        ResumenFrecuencias resumen = porRegion.computeIfAbsent(region, r -> nuevoResumen());
+        synchronized (resumen) {
+            resumen.sumar(evento.getCodigoProducto(), 1);
+        }
+    }
+
+    /**
+     * Obtiene los productos más vendidos
+     * @param region Región a consultar, o null para toda la flota
+     * @param n Número de productos a devolver
+     * @return Productos de mayor a menor venta estimada
+     */
+    public List<ResumenFrecuencias.Frecuente> top(String region, int n) {
+        return exportar(region).top(n);
+    }
+
+    /**
+     * Obtiene una copia del resumen de ventas, que otro nodo puede fusionar con el suyo
+     * @param region Región a consultar, o null para fusionar todas las regiones
+     * @return Copia del resumen
+     */
+    public ResumenFrecuencias exportar(String region) {
+        if (region != null) {
+            ResumenFrecuencias resumen = porRegion.get(region);
+            if (resumen == null) {
+                return nuevoResumen();
+            }
+            synchronized (resumen) {
+                return resumen.copiar();
+            }
+        }
+
+        ResumenFrecuencias fusion = nuevoResumen();
+        for (ResumenFrecuencias resumen : porRegion.values()) {
+            synchronized (resumen) {
+                fusion.fusionar(resumen);
+            }
+        }
+        return fusion;
+    }
+
+    private ResumenFrecuencias nuevoResumen() {
+        return new ResumenFrecuencias(profundidad, anchura, capacidad);
+    }
+}
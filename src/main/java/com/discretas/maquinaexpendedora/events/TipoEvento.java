@@ -0,0 +1,21 @@
+package com.discretas.maquinaexpendedora.events;
+
+/**
+ * Enumeración con los tipos de eventos de dominio que emite la máquina expendedora
+ * en cada transición de estado. Los eventos ARTICULO_* describen los productos de un carrito;
+ * el carrito termina con un PRODUCTO_DISPENSADO sin código de producto.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public enum TipoEvento {
+    PRODUCTO_SELECCIONADO,
+    DINERO_INSERTADO,
+    PAGO_CONFIRMADO,
+    PRODUCTO_DISPENSADO,
+    TRANSACCION_CANCELADA,
+    SIN_CAMBIO,
+    ARTICULO_AGREGADO,
+    ARTICULO_DISPENSADO,
+    ARTICULO_REEMBOLSADO
+}
@@ -0,0 +1,159 @@
+package com.discretas.maquinaexpendedora.frecuencias;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+/**
+ * Count-Min Sketch: estima la frecuencia de cualquier clave con memoria fija.
+ * La estimación nunca es menor que la frecuencia real y, con probabilidad 1 - e^-profundidad,
+ * la supera en a lo sumo (e / anchura) * total.
+ * <p>
+ * Cada fila usa el índice {@code h1 + fila * h2}, con dos hash de 64 bits calculados sobre todos los
+ * caracteres de la clave. Así dos claves solo coinciden en todas las filas si coinciden ambos hash,
+ * y no basta con que coincida su {@link String#hashCode()} de 32 bits.
+ * </p>
+ * <p>
+ * Dos sketches con las mismas dimensiones se fusionan sumando sus contadores, por lo que
+ * pueden combinarse los de varias máquinas o nodos. Esta clase no es segura para uso concurrente.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Getter
+public final class CountMinSketch {
+
+    /**
+     * Número máximo de filas
+     */
+    private static final int MAX_PROFUNDIDAD = 8;
+
+    private static final long FNV_BASE = 0xCBF29CE484222325L;
+
+    private static final long FNV_PRIMO = 0x100000001B3L;
+
+    /**
+     * Semilla del segundo hash, para que sea independiente del primero
+     */
+    private static final long SEMILLA_H2 = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Contadores, una fila por función hash
+     */
+    private final long[][] conteos;
+
+    /**
+     * Suma de todas las cantidades registradas
+     */
+    private long total;
+
+    /**
+     * Constructor de un sketch vacío
+     * @param profundidad Número de funciones hash (filas), entre 1 y 8
+     * @param anchura Número de contadores por fila
+     */
+    public CountMinSketch(int profundidad, int anchura) {
+        if (profundidad < 1 || profundidad > MAX_PROFUNDIDAD || anchura < 1) {
+            throw new IllegalArgumentException("Dimensiones inválidas del sketch: " + profundidad + "x" + anchura);
+        }
+        this.conteos = new long[profundidad][anchura];
+    }
+
+    /**
+     * Constructor a partir de los contadores de otro nodo
+     * @param conteos Contadores del sketch
+     * @param total Suma de las cantidades registradas
+     */
+    @JsonCreator
+    public CountMinSketch(@JsonProperty("conteos") long[][] conteos, @JsonProperty("total") long total) {
+        this(conteos.length, conteos.length > 0 ? conteos[0].length : 0);
+        for (int i = 0; i < conteos.length; i++) {
+            if (conteos[i].length != this.conteos[i].length) {
+                throw new IllegalArgumentException("Las filas del sketch deben tener la misma anchura");
+            }
+            System.arraycopy(conteos[i], 0, this.conteos[i], 0, conteos[i].length);
+        }
+        this.total = total;
+    }
+
+    /**
+     * Suma una cantidad a la frecuencia de una clave
+     * @param clave Clave a registrar
+     * @param cantidad Cantidad a sumar
+     */
+    public void sumar(String clave, long cantidad) {
+        long h1 = hash(clave, FNV_BASE);
+        long h2 = hash(clave, FNV_BASE ^ SEMILLA_H2) | 1;
+        for (int i = 0; i < conteos.length; i++) {
+            conteos[i][indice(h1, h2, i)] += cantidad;
+        }
+        total += cantidad;
+    }
+
+    /**
+     * Estima la frecuencia de una clave
+     * @param clave Clave a consultar
+     * @return Cota superior de la frecuencia de la clave
+     */
+    public long estimar(String clave) {
+        long h1 = hash(clave, FNV_BASE);
+        long h2 = hash(clave, FNV_BASE ^ SEMILLA_H2) | 1;
+        long minimo = Long.MAX_VALUE;
+        for (int i = 0; i < conteos.length; i++) {
+            minimo = Math.min(minimo, conteos[i][indice(h1, h2, i)]);
+        }
+        return minimo;
+    }
+
+    /**
+     * Suma los contadores de otro sketch con las mismas dimensiones
+     * @param otro Sketch a fusionar
+     */
+    public void fusionar(CountMinSketch otro) {
+        if (otro.conteos.length != conteos.length || otro.conteos[0].length != conteos[0].length) {
+            throw new IllegalArgumentException("Solo se pueden fusionar sketches con las mismas dimensiones");
+        }
+        for (int i = 0; i < conteos.length; i++) {
+            for (int j = 0; j < conteos[i].length; j++) {
+                conteos[i][j] += otro.conteos[i][j];
+            }
+        }
+        total += otro.total;
+    }
+
+    /**
+     * Crea una copia independiente del sketch
+     * @return Copia del sketch
+     */
+    public CountMinSketch copiar() {
+        return new CountMinSketch(conteos, total);
+    }
+
+    /**
+     * Obtiene el error máximo de una estimación (con la probabilidad del sketch)
+     * @return Exceso máximo sobre la frecuencia real
+     */
+    @JsonIgnore
+    public long getErrorMaximo() {
+        return (long) Math.ceil(Math.E / conteos[0].length * total);
+    }
+
+    private int indice(long h1, long h2, int fila) {
+        return (int) Math.floorMod(h1 + fila * h2, (long) conteos[fila].length);
+    }
+
+    /**
+     * Hash de 64 bits de todos los caracteres de la clave: FNV-1a con la base indicada y una mezcla final
+     */
+    private static long hash(String clave, long base) {
+        long h = base;
+        for (int i = 0; i < clave.length(); i++) {
+            h = (h ^ clave.charAt(i)) * FNV_PRIMO;
+        }
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
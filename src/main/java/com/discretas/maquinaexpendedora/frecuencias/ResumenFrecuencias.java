@@ -0,0 +1,108 @@
+package com.discretas.maquinaexpendedora.frecuencias;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resumen de frecuencias con memoria acotada que combina un {@link SpaceSaving}, para saber qué claves
+ * son las más frecuentes, con un {@link CountMinSketch}, que acota su frecuencia por arriba.
+ * Los resúmenes con la misma configuración se fusionan, así que el de la flota puede obtenerse
+ * combinando los de cada región o los de cada nodo.
+ * Esta clase no es segura para uso concurrente.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Getter
+public final class ResumenFrecuencias {
+
+    private final CountMinSketch sketch;
+
+    private final SpaceSaving candidatos;
+
+    /**
+     * Constructor de un resumen vacío
+     * @param profundidad Filas del Count-Min Sketch
+     * @param anchura Contadores por fila del Count-Min Sketch
+     * @param capacidad Contadores del Space-Saving
+     */
+    public ResumenFrecuencias(int profundidad, int anchura, int capacidad) {
+        this(new CountMinSketch(profundidad, anchura), new SpaceSaving(capacidad));
+    }
+
+    /**
+     * Constructor a partir de los componentes de otro resumen
+     * @param sketch Count-Min Sketch
+     * @param candidatos Resumen Space-Saving
+     */
+    @JsonCreator
+    public ResumenFrecuencias(@JsonProperty("sketch") CountMinSketch sketch,
+                              @JsonProperty("candidatos") SpaceSaving candidatos) {
+        this.sketch = sketch;
+        this.candidatos = candidatos;
+    }
+
+    /**
+     * Suma una cantidad a la frecuencia de una clave
+     * @param clave Clave a registrar
+     * @param cantidad Cantidad a sumar
+     */
+    public void sumar(String clave, long cantidad) {
+        sketch.sumar(clave, cantidad);
+        candidatos.sumar(clave, cantidad);
+    }
+
+    /**
+     * Fusiona otro resumen con la misma configuración en este
+     * @param otro Resumen a fusionar
+     */
+    public void fusionar(ResumenFrecuencias otro) {
+        sketch.fusionar(otro.sketch);
+        candidatos.fusionar(otro.candidatos);
+    }
+
+    /**
+     * Crea una copia independiente del resumen
+     * @return Copia del resumen
+     */
+    public ResumenFrecuencias copiar() {
+        return new ResumenFrecuencias(sketch.copiar(), candidatos.copiar());
+    }
+
+    /**
+     * Obtiene las claves más frecuentes con las cotas de su frecuencia
+     * @param n Número de claves a devolver
+     * @return Claves de mayor a menor frecuencia estimada
+     */
+    public List<Frecuente> top(int n) {
+        List<SpaceSaving.Contador> ordenados = candidatos.getOrdenados();
+        List<Frecuente> top = new ArrayList<>(Math.min(n, ordenados.size()));
+        for (int i = 0; i < Math.min(n, ordenados.size()); i++) {
+            SpaceSaving.Contador contador = ordenados.get(i);
+            long maximo = Math.min(contador.getConteo(), sketch.estimar(contador.getClave()));
+            long minimo = Math.max(0, Math.min(maximo, contador.getConteo() - contador.getError()));
+            top.add(new Frecuente(contador.getClave(), maximo, minimo));
+        }
+        top.sort((a, b) -> Long.compare(b.getConteoEstimado(), a.getConteoEstimado()));
+        return top;
+    }
+
+    /**
+     * Clave frecuente: su frecuencia real está entre conteoMinimo y conteoEstimado
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Frecuente {
+        private String clave;
+        private long conteoEstimado;
+        private long conteoMinimo;
+    }
+}
@@ -0,0 +1,162 @@
+package com.discretas.maquinaexpendedora.frecuencias;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Algoritmo Space-Saving: mantiene a lo sumo {@code capacidad} contadores y garantiza que toda clave
+ * con frecuencia mayor a total / capacidad está entre ellos. Cada contador guarda el error con el que
+ * entró, de modo que la frecuencia real está entre {@code conteo - error} y {@code conteo}.
+ * <p>
+ * Dos resúmenes se fusionan con el método de Agarwal et al.: a las claves que faltan en un resumen
+ * lleno se les suma el mínimo de ese resumen como conteo y como error. Esta clase no es segura
+ * para uso concurrente.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public final class SpaceSaving {
+
+    private static final Comparator<Contador> POR_CONTEO = Comparator.comparingLong(Contador::getConteo).reversed()
+            .thenComparing(Contador::getClave);
+
+    @Getter
+    private final int capacidad;
+
+    private final Map<String, Contador> contadores = new HashMap<>();
+
+    /**
+     * Constructor de un resumen vacío
+     * @param capacidad Número máximo de contadores
+     */
+    public SpaceSaving(int capacidad) {
+        if (capacidad < 1) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva");
+        }
+        this.capacidad = capacidad;
+    }
+
+    /**
+     * Constructor a partir de los contadores de otro nodo
+     * @param capacidad Número máximo de contadores
+     * @param contadores Contadores del resumen
+     */
+    @JsonCreator
+    public SpaceSaving(@JsonProperty("capacidad") int capacidad, @JsonProperty("contadores") List<Contador> contadores) {
+        this(capacidad);
+        for (Contador contador : contadores) {
+            this.contadores.put(contador.getClave(), new Contador(contador.getClave(), contador.getConteo(), contador.getError()));
+        }
+    }
+
+    /**
+     * Suma una cantidad a la frecuencia de una clave. Si la clave no tiene contador y el resumen está lleno,
+     * reemplaza al contador mínimo y hereda su conteo como error.
+     * @param clave Clave a registrar
+     * @param cantidad Cantidad a sumar
+     */
+    public void sumar(String clave, long cantidad) {
+        Contador contador = contadores.get(clave);
+        if (contador != null) {
+            contador.conteo += cantidad;
+            return;
+        }
+        if (contadores.size() < capacidad) {
+            contadores.put(clave, new Contador(clave, cantidad, 0));
+            return;
+        }
+
+        Contador minimo = minimo();
+        contadores.remove(minimo.getClave());
+        contadores.put(clave, new Contador(clave, minimo.getConteo() + cantidad, minimo.getConteo()));
+    }
+
+    /**
+     * Fusiona otro resumen en este
+     * @param otro Resumen a fusionar
+     */
+    public void fusionar(SpaceSaving otro) {
+        long minimoPropio = estaLleno() ? minimo().getConteo() : 0;
+        long minimoOtro = otro.estaLleno() ? otro.minimo().getConteo() : 0;
+
+        Map<String, Contador> fusion = new HashMap<>();
+        for (Contador propio : contadores.values()) {
+            Contador ajeno = otro.contadores.get(propio.getClave());
+            fusion.put(propio.getClave(), new Contador(propio.getClave(),
+                    propio.getConteo() + (ajeno != null ? ajeno.getConteo() : minimoOtro),
+                    propio.getError() + (ajeno != null ? ajeno.getError() : minimoOtro)));
+        }
+        for (Contador ajeno : otro.contadores.values()) {
+            if (!contadores.containsKey(ajeno.getClave())) {
+                fusion.put(ajeno.getClave(), new Contador(ajeno.getClave(),
+                        ajeno.getConteo() + minimoPropio, ajeno.getError() + minimoPropio));
+            }
+        }
+
+        List<Contador> ordenados = new ArrayList<>(fusion.values());
+        ordenados.sort(POR_CONTEO);
+        contadores.clear();
+        for (int i = 0; i < Math.min(capacidad, ordenados.size()); i++) {
+            contadores.put(ordenados.get(i).getClave(), ordenados.get(i));
+        }
+    }
+
+    /**
+     * Obtiene los contadores ordenados de mayor a menor conteo
+     * @return Copia de los contadores
+     */
+    @JsonProperty("contadores")
+    public List<Contador> getOrdenados() {
+        List<Contador> ordenados = new ArrayList<>(contadores.size());
+        for (Contador contador : contadores.values()) {
+            ordenados.add(new Contador(contador.getClave(), contador.getConteo(), contador.getError()));
+        }
+        ordenados.sort(POR_CONTEO);
+        return ordenados;
+    }
+
+    /**
+     * Crea una copia independiente del resumen
+     * @return Copia del resumen
+     */
+    public SpaceSaving copiar() {
+        return new SpaceSaving(capacidad, getOrdenados());
+    }
+
+    private boolean estaLleno() {
+        return contadores.size() >= capacidad;
+    }
+
+    private Contador minimo() {
+        Contador minimo = null;
+        for (Contador contador : contadores.values()) {
+            if (minimo == null || contador.getConteo() < minimo.getConteo()) {
+                minimo = contador;
+            }
+        }
+        return minimo;
+    }
+
+    /**
+     * Contador de una clave: la frecuencia real está entre conteo - error y conteo
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Contador {
+        private String clave;
+        private long conteo;
+        private long error;
+    }
+}
@@ -0,0 +1,80 @@
+package com.discretas.maquinaexpendedora.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Modelo que representa un producto dentro del carrito de una transacción.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LineaCarrito {
+
+    /**
+     * Producto de la línea
+     */
+    private Producto producto;
+
+    /**
+     * Precio del producto al agregarlo al carrito
+     */
+    private double precio;
+
+    /**
+     * Estado de la entrega de la línea
+     */
+    private EstadoLinea estado;
+
+    /**
+     * Enumeración para los estados de una línea. El número fijo de cada estado es el que se guarda
+     * en las instantáneas
+     */
+    @Getter
+    public enum EstadoLinea {
+        PENDIENTE(0),
+        DISPENSADA(1),
+        REEMBOLSADA(2);
+
+        private final int numero;
+
+        EstadoLinea(int numero) {
+            this.numero = numero;
+        }
+
+        /**
+         * Obtiene el estado con un número fijo
+         * @param numero Número del estado
+         * @return Estado correspondiente
+         * @throws IllegalArgumentException Si ningún estado tiene ese número
+         */
+        public static EstadoLinea desdeNumero(int numero) {
+            for (EstadoLinea estado : values()) {
+                if (estado.numero == numero) {
+                    return estado;
+                }
+            }
+            throw new IllegalArgumentException("Estado de línea desconocido: " + numero);
+        }
+    }
+
+    /**
+     * Constructor para crear una línea pendiente
+     */
+    public LineaCarrito(Producto producto, double precio) {
+        this(producto, precio, EstadoLinea.PENDIENTE);
+    }
+
+    /**
+     * Crea una copia independiente de la línea
+     * @return Copia de la línea
+     */
+    public LineaCarrito copiar() {
+        return new LineaCarrito(producto != null ? producto.copiar() : null, precio, estado);
+    }
+}
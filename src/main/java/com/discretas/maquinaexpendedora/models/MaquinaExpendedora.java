@@ -1,15 +1,29 @@
 package com.discretas.maquinaexpendedora.models;
 
+import com.discretas.maquinaexpendedora.events.BusEventos;
+import com.discretas.maquinaexpendedora.events.EventoMaquina;
+import com.discretas.maquinaexpendedora.events.TipoEvento;
+import com.discretas.maquinaexpendedora.precios.TablaPrecios;
+import com.discretas.maquinaexpendedora.state.CodigoResultado;
+import com.discretas.maquinaexpendedora.state.EstadoDispensando;
+import com.discretas.maquinaexpendedora.state.EstadoEsperandoPago;
 import com.discretas.maquinaexpendedora.state.EstadoMaquina;
+import com.discretas.maquinaexpendedora.state.EstadoProcesandoPago;
 import com.discretas.maquinaexpendedora.state.EstadoSeleccionando;
+import com.discretas.maquinaexpendedora.state.EstadoSinCambio;
+import com.discretas.maquinaexpendedora.state.ResultadoOperacion;
+import com.discretas.maquinaexpendedora.utils.Constants;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.UUID;
 
 /**
  * Clase principal que representa la máquina expendedora.
@@ -22,6 +36,16 @@ import java.util.UUID;
 @Component
 public class MaquinaExpendedora {
 
+    /**
+     * Identificador de la máquina
+     */
+    private String id;
+
+    /**
+     * Región donde está instalada la máquina
+     */
+    private String region;
+
     /**
      * Estado actual de la máquina
      */
@@ -47,14 +71,73 @@ public class MaquinaExpendedora {
      */
     private double dineroDisponible;
 
+    /**
+     * Versión de los datos de la máquina, se incrementa con cada cambio.
+     * Solo la modifica el escritor de la máquina; puede leerse desde cualquier hilo.
+     */
+    private volatile long version;
+
+    /**
+     * Secuencia del último evento publicado por la máquina en el bus, -1 si no ha publicado ninguno.
+     * Las instantáneas la guardan para saber qué eventos del diario aplicar al recuperarse.
+     */
+    private long ultimaSecuenciaEvento = -1;
+
+    /**
+     * Contador para generar identificadores de transacción sin recurrir a UUID.
+     * Se inicia con la hora actual para que los identificadores no se repitan entre reinicios.
+     */
+    private long contadorTransacciones = System.currentTimeMillis();
+
+    /**
+     * Dispensación en curso en el hardware, null si no hay ninguna
+     */
+    private TicketDispensacion ticketDispensacion;
+
+    /**
+     * Bus donde se publican los eventos de dominio de cada transición
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private BusEventos busEventos;
+
+    /**
+     * Precios compilados a partir de las reglas de promoción vigentes; null si no hay reglas
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile TablaPrecios tablaPrecios;
+
     /**
      * Constructor por defecto
      */
     public MaquinaExpendedora() {
-        this.estadoActual = new EstadoSeleccionando();
+        this.id = Constants.Maquina.MAQUINA_ID_DEFAULT;
+        this.region = Constants.Maquina.REGION_DEFAULT;
+        this.estadoActual = EstadoSeleccionando.INSTANCIA;
         this.inventario = new HashMap<>();
         this.historialTransacciones = new ArrayList<>();
-        this.dineroDisponible = 50000.0; // Dinero inicial para cambio - cantidad más realista
+        this.dineroDisponible = Constants.Maquina.DINERO_INICIAL_DEFAULT;
+    }
+
+    /**
+     * Constructor que conecta la máquina al bus de eventos
+     * @param busEventos Bus donde se publican los eventos de dominio
+     */
+    public MaquinaExpendedora(BusEventos busEventos) {
+        this();
+        this.busEventos = busEventos;
+    }
+
+    /**
+     * Constructor que conecta la máquina al bus de eventos con el dinero inicial configurado
+     * @param busEventos Bus donde se publican los eventos de dominio
+     * @param dineroInicial Dinero para cambio con el que arranca la máquina
+     */
+    @Autowired
+    public MaquinaExpendedora(BusEventos busEventos, @Value("${maquina.dinero-inicial:50000}") double dineroInicial) {
+        this(busEventos);
+        this.dineroDisponible = dineroInicial;
     }
 
     /**
@@ -63,6 +146,25 @@ public class MaquinaExpendedora {
      */
     public void inicializarInventario(Map<String, Producto> productos) {
         this.inventario.putAll(productos);
+        marcarCambio();
+    }
+
+    /**
+     * Actualiza los datos de catálogo de una casilla sin modificar su stock.
+     * La transacción en curso conserva el precio con el que se seleccionó el producto.
+     * @param codigo Código de la casilla
+     * @param nombre Nuevo nombre del producto
+     * @param precio Nuevo precio del producto
+     * @param descripcion Nueva descripción del producto
+     */
+    public void actualizarProducto(String codigo, String nombre, double precio, String descripcion) {
+        Producto producto = inventario.get(codigo);
+        if (producto != null) {
+            producto.setNombre(nombre);
+            producto.setPrecio(precio);
+            producto.setDescripcion(descripcion);
+            marcarCambio();
+        }
     }
 
     /**
@@ -71,55 +173,191 @@ public class MaquinaExpendedora {
      */
     public void cambiarEstado(EstadoMaquina nuevoEstado) {
         this.estadoActual = nuevoEstado;
+        marcarCambio();
     }
 
     /**
      * Selecciona un producto
      * @param codigoProducto Código del producto a seleccionar
-     * @return Mensaje del resultado
+     * @return Resultado de la operación
      */
-    public String seleccionarProducto(String codigoProducto) {
+    public ResultadoOperacion seleccionarProducto(String codigoProducto) {
         return estadoActual.seleccionarProducto(this, codigoProducto);
     }
 
+    /**
+     * Agrega un producto al carrito de la transacción actual, o inicia la transacción si no hay ninguna
+     * @param codigoProducto Código del producto a agregar
+     * @return Resultado de la operación
+     */
+    public ResultadoOperacion agregarProducto(String codigoProducto) {
+        return estadoActual.agregarProducto(this, codigoProducto);
+    }
+
+    /**
+     * Agrega varios productos al carrito en una sola operación. Se detiene en el primero que no pueda agregarse;
+     * los anteriores quedan en el carrito.
+     * @param codigosProducto Códigos de los productos a agregar, en orden
+     * @return Resultado del último producto agregado, o del primero que falló
+     */
+    public ResultadoOperacion agregarProductos(List<String> codigosProducto) {
+        ResultadoOperacion resultado = ResultadoOperacion.de(CodigoResultado.SELECCIONE_PRODUCTO_PRIMERO);
+        for (String codigo : codigosProducto) {
+            resultado = agregarProducto(codigo);
+            if (resultado.getTipo() == CodigoResultado.TipoResultado.ERROR
+                    || resultado.getTipo() == CodigoResultado.TipoResultado.ADVERTENCIA) {
+                break;
+            }
+        }
+        return resultado;
+    }
+
     /**
      * Inserta dinero en la máquina
      * @param monto Cantidad de dinero a insertar
-     * @return Mensaje del resultado
+     * @return Resultado de la operación
      */
-    public String insertarDinero(double monto) {
+    public ResultadoOperacion insertarDinero(double monto) {
         return estadoActual.insertarDinero(this, monto);
     }
 
     /**
      * Confirma el pago
-     * @return Mensaje del resultado
+     * @return Resultado de la operación
      */
-    public String confirmarPago() {
+    public ResultadoOperacion confirmarPago() {
         return estadoActual.confirmarPago(this);
     }
 
     /**
      * Dispensa el producto
-     * @return Mensaje del resultado
+     * @return Resultado de la operación
      */
-    public String dispensarProducto() {
+    public ResultadoOperacion dispensarProducto() {
         return estadoActual.dispensarProducto(this);
     }
 
+    /**
+     * Inicia la dispensación asíncrona de la transacción actual.
+     * La máquina permanece en estado DISPENSANDO hasta que se llame a {@link #completarDispensacion(String, boolean)}.
+     * @param idTicket Identificador del ticket a crear
+     * @return Ticket pendiente, o rechazado con el motivo si la máquina no puede dispensar
+     */
+    public TicketDispensacion iniciarDispensacion(String idTicket) {
+        if (ticketDispensacion != null) {
+            return TicketDispensacion.rechazado(idTicket, id, ResultadoOperacion.de(CodigoResultado.DISPENSACION_EN_CURSO));
+        }
+        if (!(estadoActual instanceof EstadoDispensando) || transaccionActual == null) {
+            return TicketDispensacion.rechazado(idTicket, id, estadoActual.dispensarProducto(this));
+        }
+        ticketDispensacion = new TicketDispensacion(idTicket, id, transaccionActual);
+        return ticketDispensacion;
+    }
+
+    /**
+     * Completa la dispensación del ticket según el resultado del hardware. Si quedan productos del carrito
+     * por dispensar, el ticket sigue pendiente con el código del siguiente producto; si el ticket ya terminó
+     * como incierto no se reabre, y los productos restantes continúan con un ticket nuevo cuyo identificador
+     * queda en el ticket terminado. Un resultado de un ticket que ya no está en curso se ignora, para no
+     * aplicarlo sobre otra transacción.
+     * @param idTicket Identificador del ticket que terminó el dispensador
+     * @param exito true si el producto fue entregado
+     * @return Resultado de la operación
+     */
+    public ResultadoOperacion completarDispensacion(String idTicket, boolean exito) {
+        TicketDispensacion ticket = ticketDispensacion;
+        if (ticket == null || !ticket.getId().equals(idTicket)) {
+            return ResultadoOperacion.de(CodigoResultado.DISPENSACION_OBSOLETA);
+        }
+        ticketDispensacion = null;
+
+        ResultadoOperacion resultado;
+        if (exito) {
+            resultado = estadoActual.dispensarProducto(this);
+        } else if (estadoActual instanceof EstadoDispensando dispensando) {
+            resultado = dispensando.revertirDispensacion(this);
+        } else {
+            resultado = ResultadoOperacion.de(CodigoResultado.SIN_TRANSACCION_ACTIVA);
+        }
+
+        LineaCarrito siguiente = estadoActual instanceof EstadoDispensando && transaccionActual != null
+                ? transaccionActual.siguienteLinea() : null;
+        if (siguiente != null) {
+            TicketDispensacion continuacion = ticket;
+            if (!ticket.estaPendiente()) {
+                continuacion = new TicketDispensacion(ticket.getId() + "-" + (transaccionActual.getLineas().indexOf(siguiente) + 1),
+                        id, transaccionActual);
+                ticket.setIdTicketContinuacion(continuacion.getId());
+            }
+            continuacion.setCodigoProducto(siguiente.getProducto().getCodigo());
+            ticket.setResultado(resultado);
+            ticketDispensacion = continuacion;
+            return resultado;
+        }
+
+        // Un carrito con algún producto entregado se completa aunque el último haya fallado
+        boolean entregado = exito || resultado.getCodigo() == CodigoResultado.CARRITO_DISPENSADO_PARCIAL;
+        ticket.finalizar(entregado ? TicketDispensacion.EstadoTicket.COMPLETADO : TicketDispensacion.EstadoTicket.FALLIDO, resultado);
+        return resultado;
+    }
+
+    /**
+     * Marca como incierta la dispensación del ticket cuando el dispensador no responde a tiempo.
+     * No se revierte ni se reembolsa: el hardware aún puede entregar el producto, así que la máquina
+     * sigue dispensando ese ticket hasta que llegue su resultado con {@link #completarDispensacion(String, boolean)}.
+     * @param idTicket Identificador del ticket vencido
+     * @return Resultado de la operación
+     */
+    public ResultadoOperacion marcarDispensacionIncierta(String idTicket) {
+        TicketDispensacion ticket = ticketDispensacion;
+        if (ticket == null || !ticket.getId().equals(idTicket) || !ticket.estaPendiente()) {
+            return ResultadoOperacion.de(CodigoResultado.DISPENSACION_OBSOLETA);
+        }
+        ResultadoOperacion resultado = ResultadoOperacion.de(CodigoResultado.DISPENSACION_INCIERTA);
+        ticket.finalizar(TicketDispensacion.EstadoTicket.INCIERTO, resultado);
+        return resultado;
+    }
+
+    /**
+     * Concilia una dispensación incierta sin esperar más al hardware, por decisión del operador o porque venció
+     * el plazo de conciliación. Se aplica como el resultado del dispensador, de modo que la máquina sale de
+     * DISPENSANDO o continúa con el siguiente producto del carrito.
+     * @param idTicket Identificador del ticket incierto
+     * @param entregado true si el producto se entregó, false para reembolsarlo
+     * @return Resultado de la operación; dispensación obsoleta si el ticket no está en curso o no es incierto
+     */
+    public ResultadoOperacion conciliarDispensacion(String idTicket, boolean entregado) {
+        TicketDispensacion ticket = ticketDispensacion;
+        if (ticket == null || !ticket.getId().equals(idTicket) || ticket.getEstado() != TicketDispensacion.EstadoTicket.INCIERTO) {
+            return ResultadoOperacion.de(CodigoResultado.DISPENSACION_OBSOLETA);
+        }
+        return completarDispensacion(idTicket, entregado);
+    }
+
+    /**
+     * Libera la dispensación en curso sin modificar la transacción, cuando el hardware no la aceptó
+     * @param motivo Motivo por el que se liberó
+     */
+    public void liberarDispensacion(ResultadoOperacion motivo) {
+        if (ticketDispensacion != null) {
+            ticketDispensacion.finalizar(TicketDispensacion.EstadoTicket.RECHAZADO, motivo);
+            ticketDispensacion = null;
+        }
+    }
+
     /**
      * Devuelve el cambio
-     * @return Mensaje del resultado
+     * @return Resultado de la operación
      */
-    public String devolverCambio() {
+    public ResultadoOperacion devolverCambio() {
         return estadoActual.devolverCambio(this);
     }
 
     /**
      * Cancela la transacción actual
-     * @return Mensaje del resultado
+     * @return Resultado de la operación
      */
-    public String cancelarTransaccion() {
+    public ResultadoOperacion cancelarTransaccion() {
         return estadoActual.cancelarTransaccion(this);
     }
 
@@ -129,8 +367,38 @@ public class MaquinaExpendedora {
      * @param montoPagado Monto pagado por el cliente
      */
     public void crearTransaccion(Producto producto, double montoPagado) {
-        String id = UUID.randomUUID().toString();
-        this.transaccionActual = new Transaccion(id, producto, montoPagado);
+        crearTransaccion(producto, producto != null ? producto.getPrecio() : 0.0, montoPagado);
+    }
+
+    /**
+     * Crea una nueva transacción con un precio dado
+     * @param producto Producto seleccionado
+     * @param precio Precio a cobrar
+     * @param montoPagado Monto pagado por el cliente
+     */
+    public void crearTransaccion(Producto producto, double precio, double montoPagado) {
+        String idTransaccion = id + '-' + (++contadorTransacciones);
+        this.transaccionActual = new Transaccion(idTransaccion, producto, precio, montoPagado);
+    }
+
+    /**
+     * Obtiene el precio vigente de un producto, con las promociones de la franja horaria actual
+     * @param producto Producto de una casilla de la máquina
+     * @return Precio a cobrar
+     */
+    public double precioVigente(Producto producto) {
+        TablaPrecios tabla = tablaPrecios;
+        return tabla != null ? tabla.precio(producto, System.currentTimeMillis()) : producto.getPrecio();
+    }
+
+    /**
+     * Obtiene el descuento por combos del carrito de una transacción con los combos vigentes
+     * @param transaccion Transacción con el carrito
+     * @return Descuento sobre el total del carrito, 0 si ningún combo aplica
+     */
+    public double descuentoCombo(Transaccion transaccion) {
+        TablaPrecios tabla = tablaPrecios;
+        return tabla != null ? tabla.descuentoCombo(transaccion, System.currentTimeMillis()) : 0;
     }
 
     /**
@@ -140,9 +408,133 @@ public class MaquinaExpendedora {
         if (transaccionActual != null) {
             historialTransacciones.add(transaccionActual);
             transaccionActual = null;
+            marcarCambio();
         }
     }
 
+    /**
+     * Publica un evento de dominio asociado a una transacción
+     * @param tipo Tipo del evento
+     * @param transaccion Transacción asociada
+     * @param monto Monto asociado al evento
+     */
+    public void publicarEvento(TipoEvento tipo, Transaccion transaccion, double monto) {
+        publicarEvento(tipo, transaccion, transaccion != null ? transaccion.getProducto() : null, monto);
+    }
+
+    /**
+     * Publica un evento de dominio asociado a un producto concreto de una transacción
+     * @param tipo Tipo del evento
+     * @param transaccion Transacción asociada
+     * @param producto Producto del evento, o null si el evento abarca todo el carrito
+     * @param monto Monto asociado al evento
+     */
+    public void publicarEvento(TipoEvento tipo, Transaccion transaccion, Producto producto, double monto) {
+        marcarCambio();
+        if (busEventos != null) {
+            long secuencia = busEventos.publicar(tipo, id, region, transaccion, producto, monto);
+            if (secuencia >= 0) {
+                ultimaSecuenciaEvento = secuencia;
+            }
+        }
+    }
+
+    /**
+     * Aplica sobre la máquina el efecto de un evento registrado en el diario, sin volver a publicarlo.
+     * Se usa al recuperar el estado a partir de una instantánea y la cola del diario.
+     * @param evento Evento a aplicar
+     */
+    public void aplicarEvento(EventoMaquina evento) {
+        Transaccion transaccion = transaccionActual;
+        switch (evento.getTipo()) {
+            case PRODUCTO_SELECCIONADO -> {
+                Producto producto = inventario.get(evento.getCodigoProducto());
+                if (producto != null) {
+                    transaccionActual = new Transaccion(evento.getIdTransaccion(), producto, 0.0);
+                    transaccionActual.setPrecio(evento.getMonto());
+                    transaccionActual.setMarcaTiempo(evento.getTimestamp());
+                    estadoActual = EstadoEsperandoPago.INSTANCIA;
+                }
+            }
+            case DINERO_INSERTADO -> {
+                if (transaccion != null) {
+                    transaccion.setMontoPagado(transaccion.getMontoPagado() + evento.getMonto());
+                    if (transaccion.pagoEsSuficiente()) {
+                        estadoActual = EstadoProcesandoPago.INSTANCIA;
+                    }
+                }
+            }
+            case PAGO_CONFIRMADO -> {
+                if (transaccion != null) {
+                    // El cambio confirmado incluye el descuento por combos, que se reparte igual que en la máquina original
+                    double descuento = evento.getCambio() - (transaccion.getMontoPagado() - transaccion.getPrecio());
+                    if (descuento > 0 && transaccion.esCarrito()) {
+                        transaccion.aplicarDescuento(descuento);
+                    }
+                    transaccion.setCambio(evento.getCambio());
+                    estadoActual = EstadoDispensando.INSTANCIA;
+                }
+            }
+            case SIN_CAMBIO -> {
+                if (transaccion != null) {
+                    transaccion.setCambio(evento.getMonto());
+                    estadoActual = EstadoSinCambio.INSTANCIA;
+                }
+            }
+            case ARTICULO_AGREGADO -> {
+                Producto producto = inventario.get(evento.getCodigoProducto());
+                if (transaccion != null && producto != null) {
+                    transaccion.agregarLinea(producto, evento.getMonto());
+                    estadoActual = transaccion.pagoEsSuficiente() ? EstadoProcesandoPago.INSTANCIA : EstadoEsperandoPago.INSTANCIA;
+                }
+            }
+            case ARTICULO_DISPENSADO, ARTICULO_REEMBOLSADO -> {
+                LineaCarrito linea = transaccion != null ? transaccion.siguienteLinea() : null;
+                if (linea != null) {
+                    if (evento.getTipo() == TipoEvento.ARTICULO_DISPENSADO) {
+                        linea.getProducto().reducirStock();
+                        linea.setEstado(LineaCarrito.EstadoLinea.DISPENSADA);
+                    } else {
+                        linea.setEstado(LineaCarrito.EstadoLinea.REEMBOLSADA);
+                    }
+                }
+            }
+            case PRODUCTO_DISPENSADO -> {
+                if (transaccion != null) {
+                    if (transaccion.esCarrito()) {
+                        // Los productos del carrito ya se descontaron con sus eventos; el cambio incluye los reembolsos
+                        transaccion.setCambio(evento.getCambio());
+                    } else {
+                        transaccion.getProducto().reducirStock();
+                    }
+                    anyadirDineroInsertado(transaccion.getMontoPagado());
+                    if (transaccion.getCambio() > 0) {
+                        reducirDineroDisponible(transaccion.getCambio());
+                    }
+                    transaccion.setEstado(Transaccion.EstadoTransaccion.COMPLETADA);
+                    finalizarTransaccion();
+                    estadoActual = EstadoSeleccionando.INSTANCIA;
+                }
+            }
+            case TRANSACCION_CANCELADA -> {
+                if (transaccion != null) {
+                    transaccion.setEstado(Transaccion.EstadoTransaccion.CANCELADA);
+                    finalizarTransaccion();
+                    estadoActual = EstadoSeleccionando.INSTANCIA;
+                }
+            }
+        }
+        ultimaSecuenciaEvento = Math.max(ultimaSecuenciaEvento, evento.getSecuencia());
+        marcarCambio();
+    }
+
+    /**
+     * Registra que los datos de la máquina cambiaron
+     */
+    private void marcarCambio() {
+        version++;
+    }
+
     /**
      * Obtiene el estado actual como string
      * @return Nombre del estado actual
@@ -40,6 +40,18 @@ public class Producto {
      */
     private String descripcion;
 
+    /**
+     * SKU del producto en el catálogo, null si la casilla no proviene de un catálogo
+     */
+    private String sku;
+
+    /**
+     * Constructor de un producto sin SKU de catálogo
+     */
+    public Producto(String codigo, String nombre, double precio, int stock, String descripcion) {
+        this(codigo, nombre, precio, stock, descripcion, null);
+    }
+
     /**
      * Verifica si el producto está disponible
      * @return true si hay stock disponible
@@ -56,4 +68,12 @@ public class Producto {
             stock--;
         }
     }
+
+    /**
+     * Crea una copia independiente del producto
+     * @return Copia del producto
+     */
+    public Producto copiar() {
+        return new Producto(codigo, nombre, precio, stock, descripcion, sku);
+    }
 }
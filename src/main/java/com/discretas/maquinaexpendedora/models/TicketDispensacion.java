@@ -0,0 +1,162 @@
+package com.discretas.maquinaexpendedora.models;
+
+import com.discretas.maquinaexpendedora.state.ResultadoOperacion;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Modelo que representa una solicitud de dispensación en curso.
+ * Se devuelve inmediatamente al cliente, que puede consultar su estado
+ * mientras el dispensador termina la operación.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+public class TicketDispensacion {
+
+    /**
+     * Identificador único del ticket
+     */
+    private String id;
+
+    /**
+     * Identificador de la máquina que dispensa
+     */
+    private String idMaquina;
+
+    /**
+     * Identificador de la transacción asociada
+     */
+    private String idTransaccion;
+
+    /**
+     * Código del producto a dispensar
+     */
+    private String codigoProducto;
+
+    /**
+     * Estado de la dispensación
+     */
+    private volatile EstadoTicket estado;
+
+    /**
+     * Resultado final de la operación, disponible cuando el ticket termina
+     */
+    private volatile ResultadoOperacion resultado;
+
+    /**
+     * Ticket que continúa con los productos restantes del carrito cuando este terminó antes como incierto
+     */
+    private String idTicketContinuacion;
+
+    /**
+     * Fecha y hora de creación del ticket
+     */
+    private LocalDateTime fechaCreacion;
+
+    /**
+     * Se completa con el propio ticket cuando la dispensación termina
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final CompletableFuture<TicketDispensacion> finalizacion = new CompletableFuture<>();
+
+    /**
+     * Enumeración para los estados del ticket. El número fijo de cada estado es el que se envía
+     * en el protocolo binario
+     */
+    @Getter
+    public enum EstadoTicket {
+        PENDIENTE(0),
+        COMPLETADO(1),
+        FALLIDO(2),
+        RECHAZADO(3),
+        /**
+         * El dispensador no respondió a tiempo: no se sabe si entregó el producto y el ticket
+         * espera su resultado para conciliar la transacción
+         */
+        INCIERTO(4);
+
+        private final int numero;
+
+        EstadoTicket(int numero) {
+            this.numero = numero;
+        }
+    }
+
+    /**
+     * Constructor para crear un ticket pendiente
+     */
+    public TicketDispensacion(String id, String idMaquina, Transaccion transaccion) {
+        this.id = id;
+        this.idMaquina = idMaquina;
+        this.idTransaccion = transaccion.getId();
+        this.codigoProducto = transaccion.getProducto().getCodigo();
+        this.estado = EstadoTicket.PENDIENTE;
+        this.fechaCreacion = LocalDateTime.now();
+    }
+
+    /**
+     * Crea un ticket para una solicitud que no pudo iniciarse
+     * @param id Identificador del ticket
+     * @param idMaquina Identificador de la máquina
+     * @param motivo Motivo del rechazo
+     * @return Ticket en estado RECHAZADO
+     */
+    public static TicketDispensacion rechazado(String id, String idMaquina, ResultadoOperacion motivo) {
+        TicketDispensacion ticket = new TicketDispensacion();
+        ticket.setId(id);
+        ticket.setIdMaquina(idMaquina);
+        ticket.setFechaCreacion(LocalDateTime.now());
+        ticket.finalizar(EstadoTicket.RECHAZADO, motivo);
+        return ticket;
+    }
+
+    /**
+     * Marca el ticket como terminado. Un ticket terminado no vuelve a quedar pendiente; solo uno incierto
+     * cambia a su estado conciliado cuando llega el resultado del hardware.
+     * @param estadoFinal Estado final del ticket
+     * @param resultadoFinal Resultado de la operación
+     */
+    public void finalizar(EstadoTicket estadoFinal, ResultadoOperacion resultadoFinal) {
+        if (estado != null && !esperaDispensador() || estadoFinal == EstadoTicket.PENDIENTE) {
+            return;
+        }
+        this.resultado = resultadoFinal;
+        this.estado = estadoFinal;
+        finalizacion.complete(this);
+    }
+
+    /**
+     * Obtiene el mensaje legible del resultado, construido al consultarlo
+     * @return Mensaje del resultado, o null si el ticket sigue pendiente
+     */
+    public String getMensaje() {
+        ResultadoOperacion actual = resultado;
+        return actual != null ? actual.mensaje() : null;
+    }
+
+    /**
+     * Verifica si el ticket sigue pendiente
+     */
+    public boolean estaPendiente() {
+        return estado == EstadoTicket.PENDIENTE;
+    }
+
+    /**
+     * Verifica si el ticket espera el resultado del dispensador, pendiente o incierto
+     */
+    public boolean esperaDispensador() {
+        return estado == EstadoTicket.PENDIENTE || estado == EstadoTicket.INCIERTO;
+    }
+}
@@ -1,10 +1,16 @@
 package com.discretas.maquinaexpendedora.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Modelo que representa una transacción realizada en la máquina expendedora.
@@ -23,10 +29,16 @@ public class Transaccion {
     private String id;
 
     /**
-     * Producto seleccionado en la transacción
+     * Producto seleccionado en la transacción; en un carrito, el de la primera línea
      */
     private Producto producto;
 
+    /**
+     * Precio del producto al seleccionarlo, o el total del carrito.
+     * Se conserva aunque el catálogo cambie durante la transacción
+     */
+    private double precio;
+
     /**
      * Monto total pagado por el cliente
      */
@@ -38,9 +50,10 @@ public class Transaccion {
     private double cambio;
 
     /**
-     * Fecha y hora de la transacción
+     * Instante de la transacción en milisegundos desde la época, el mismo reloj de los eventos
      */
-    private LocalDateTime fechaTransaccion;
+    @JsonIgnore
+    private long marcaTiempo;
 
     /**
      * Estado de la transacción (COMPLETADA, CANCELADA, EN_PROCESO)
@@ -48,33 +61,195 @@ public class Transaccion {
     private EstadoTransaccion estado;
 
     /**
-     * Enumeración para los estados de la transacción
+     * Productos del carrito, vacío si la transacción es de un solo producto
      */
+    private List<LineaCarrito> lineas = new ArrayList<>();
+
+    /**
+     * Enumeración para los estados de la transacción. El número fijo de cada estado es el que se guarda
+     * en las instantáneas
+     */
+    @Getter
     public enum EstadoTransaccion {
-        EN_PROCESO,
-        COMPLETADA,
-        CANCELADA,
-        ERROR
+        EN_PROCESO(0),
+        COMPLETADA(1),
+        CANCELADA(2),
+        ERROR(3);
+
+        private final int numero;
+
+        EstadoTransaccion(int numero) {
+            this.numero = numero;
+        }
+
+        /**
+         * Obtiene el estado con un número fijo
+         * @param numero Número del estado
+         * @return Estado correspondiente
+         * @throws IllegalArgumentException Si ningún estado tiene ese número
+         */
+        public static EstadoTransaccion desdeNumero(int numero) {
+            for (EstadoTransaccion estado : values()) {
+                if (estado.numero == numero) {
+                    return estado;
+                }
+            }
+            throw new IllegalArgumentException("Estado de transacción desconocido: " + numero);
+        }
     }
 
     /**
      * Constructor para crear una nueva transacción
      */
     public Transaccion(String id, Producto producto, double montoPagado) {
+        this(id, producto, producto != null ? producto.getPrecio() : 0.0, montoPagado);
+    }
+
+    /**
+     * Constructor para crear una nueva transacción con el precio ya resuelto por las promociones vigentes
+     */
+    public Transaccion(String id, Producto producto, double precio, double montoPagado) {
         this.id = id;
         this.producto = producto;
+        this.precio = precio;
         this.montoPagado = montoPagado;
-        this.fechaTransaccion = LocalDateTime.now();
+        this.marcaTiempo = System.currentTimeMillis();
         this.estado = EstadoTransaccion.EN_PROCESO;
         this.cambio = calcularCambio();
     }
 
+    /**
+     * Constructor con todos los datos de una transacción de un solo producto
+     */
+    public Transaccion(String id, Producto producto, double precio, double montoPagado, double cambio,
+                       LocalDateTime fechaTransaccion, EstadoTransaccion estado) {
+        this(id, producto, precio, montoPagado, cambio, aMilisegundos(fechaTransaccion), estado, new ArrayList<>());
+    }
+
+    /**
+     * Obtiene la fecha y hora de la transacción en la zona del sistema
+     * @return Fecha de la transacción
+     */
+    public LocalDateTime getFechaTransaccion() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(marcaTiempo), ZoneId.systemDefault());
+    }
+
+    /**
+     * Asigna la fecha y hora de la transacción en la zona del sistema
+     * @param fechaTransaccion Fecha de la transacción
+     */
+    public void setFechaTransaccion(LocalDateTime fechaTransaccion) {
+        this.marcaTiempo = aMilisegundos(fechaTransaccion);
+    }
+
+    private static long aMilisegundos(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Indica si la transacción es un carrito de varios productos
+     */
+    public boolean esCarrito() {
+        return !lineas.isEmpty();
+    }
+
+    /**
+     * Agrega un producto a la transacción. La primera vez convierte la transacción en un carrito
+     * cuya primera línea es el producto seleccionado, y el precio pasa a ser el total del carrito.
+     * @param nuevo Producto a agregar
+     * @param precioNuevo Precio del producto a cobrar
+     */
+    public void agregarLinea(Producto nuevo, double precioNuevo) {
+        if (lineas.isEmpty()) {
+            lineas.add(new LineaCarrito(producto, precio));
+        }
+        lineas.add(new LineaCarrito(nuevo, precioNuevo));
+        precio += precioNuevo;
+    }
+
+    /**
+     * Descuenta un monto del total del carrito, repartido entre sus líneas en proporción a su precio,
+     * de modo que el reembolso de una línea que no se entrega devuelve lo que el cliente pagó por ella
+     * @param descuento Monto a descontar, como máximo el total del carrito
+     */
+    public void aplicarDescuento(double descuento) {
+        double restante = descuento;
+        for (int i = 0; i < lineas.size(); i++) {
+            LineaCarrito linea = lineas.get(i);
+            double parte = i == lineas.size() - 1 ? restante : descuento * linea.getPrecio() / precio;
+            linea.setPrecio(linea.getPrecio() - parte);
+            restante -= parte;
+        }
+        precio -= descuento;
+    }
+
+    /**
+     * Cuenta las unidades de una casilla reservadas por la transacción
+     * @param codigo Código de la casilla
+     * @return Unidades reservadas
+     */
+    public int unidadesReservadas(String codigo) {
+        if (lineas.isEmpty()) {
+            return producto != null && producto.getCodigo().equals(codigo) ? 1 : 0;
+        }
+        int unidades = 0;
+        for (LineaCarrito linea : lineas) {
+            if (linea.getProducto().getCodigo().equals(codigo)) {
+                unidades++;
+            }
+        }
+        return unidades;
+    }
+
+    /**
+     * Obtiene la siguiente línea del carrito por dispensar
+     * @return Línea pendiente, o null si no hay carrito o ya se procesaron todas
+     */
+    public LineaCarrito siguienteLinea() {
+        for (LineaCarrito linea : lineas) {
+            if (linea.getEstado() == LineaCarrito.EstadoLinea.PENDIENTE) {
+                return linea;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Suma el precio de las líneas del carrito en un estado
+     * @param estadoLinea Estado de las líneas a sumar
+     * @return Suma de sus precios
+     */
+    public double totalLineas(LineaCarrito.EstadoLinea estadoLinea) {
+        double total = 0;
+        for (LineaCarrito linea : lineas) {
+            if (linea.getEstado() == estadoLinea) {
+                total += linea.getPrecio();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Cuenta las líneas del carrito en un estado
+     * @param estadoLinea Estado de las líneas a contar
+     * @return Número de líneas
+     */
+    public int contarLineas(LineaCarrito.EstadoLinea estadoLinea) {
+        int lineasEnEstado = 0;
+        for (LineaCarrito linea : lineas) {
+            if (linea.getEstado() == estadoLinea) {
+                lineasEnEstado++;
+            }
+        }
+        return lineasEnEstado;
+    }
+
     /**
      * Calcula el cambio a devolver
      */
     private double calcularCambio() {
         if (producto != null) {
-            return montoPagado - producto.getPrecio();
+            return montoPagado - precio;
         } else {
             return montoPagado;
         }
@@ -84,6 +259,19 @@ public class Transaccion {
      * Verifica si el pago es suficiente
      */
     public boolean pagoEsSuficiente() {
-        return producto != null && montoPagado >= producto.getPrecio();
+        return producto != null && montoPagado >= precio;
+    }
+
+    /**
+     * Crea una copia independiente de la transacción
+     * @return Copia de la transacción
+     */
+    public Transaccion copiar() {
+        List<LineaCarrito> copiaLineas = new ArrayList<>(lineas.size());
+        for (LineaCarrito linea : lineas) {
+            copiaLineas.add(linea.copiar());
+        }
+        return new Transaccion(id, producto != null ? producto.copiar() : null, precio, montoPagado, cambio, marcaTiempo,
+                estado, copiaLineas);
     }
 }
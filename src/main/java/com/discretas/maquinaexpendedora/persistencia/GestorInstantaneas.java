@@ -0,0 +1,238 @@
+package com.discretas.maquinaexpendedora.persistencia;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.events.AgregadosVentas;
+import com.discretas.maquinaexpendedora.events.BusEventos;
+import com.discretas.maquinaexpendedora.events.DiarioEventos;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gestiona las instantáneas binarias del estado de la flota.
+ * <p>
+ * Al arrancar restaura la última instantánea y aplica la cola del diario de eventos escrita después de ella,
+ * antes de que el bus se inicie y la API reciba solicitudes. Mientras la aplicación corre toma instantáneas
+ * periódicas: cada actor copia su máquina entre dos comandos y la escritura se hace fuera de los actores,
+ * por lo que las compras no se detienen.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class GestorInstantaneas {
+
+    /**
+     * Tiempo máximo que se espera a que los agregados alcancen el punto confirmado del diario
+     */
+    private static final long ESPERA_AGREGADOS_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path ruta;
+
+    private final long intervaloSegundos;
+
+    private final FlotaMaquinas flota;
+
+    private final MaquinaExpendedora principal;
+
+    private final BusEventos busEventos;
+
+    private final DiarioEventos diarioEventos;
+
+    private final AgregadosVentas agregadosVentas;
+
+    private ScheduledExecutorService temporizador;
+
+    /**
+     * Constructor del gestor
+     * @param ruta Ruta del archivo de la instantánea, vacía para deshabilitarlas
+     * @param intervaloSegundos Segundos entre instantáneas periódicas, 0 para tomarlas solo al detener la aplicación
+     */
+    public GestorInstantaneas(@Value("${maquina.instantanea.ruta:}") String ruta,
+                              @Value("${maquina.instantanea.intervalo-segundos:60}") long intervaloSegundos,
+                              FlotaMaquinas flota,
+                              MaquinaExpendedora principal,
+                              BusEventos busEventos,
+                              DiarioEventos diarioEventos,
+                              AgregadosVentas agregadosVentas) {
+        this.ruta = ruta.isBlank() ? null : Path.of(ruta);
+        this.intervaloSegundos = intervaloSegundos;
+        this.flota = flota;
+        this.principal = principal;
+        this.busEventos = busEventos;
+        this.diarioEventos = diarioEventos;
+        this.agregadosVentas = agregadosVentas;
+    }
+
+    /**
+     * Restaura el estado y programa las instantáneas periódicas
+     */
+    @PostConstruct
+    public void iniciar() {
+        recuperar();
+        if (ruta != null && intervaloSegundos > 0) {
+            temporizador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "instantaneas");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            temporizador.scheduleWithFixedDelay(this::tomarSinFallar, intervaloSegundos, intervaloSegundos, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Toma una última instantánea al detener la aplicación
+     */
+    @PreDestroy
+    public void detener() {
+        if (temporizador != null) {
+            temporizador.shutdownNow();
+        }
+        if (ruta != null) {
+            tomarSinFallar();
+        }
+    }
+
+    /**
+     * Restaura la última instantánea y aplica la cola del diario. Se ejecuta antes de que la flota reciba comandos,
+     * por lo que modifica las máquinas directamente. Si la instantánea no puede leerse se arranca sin ella.
+     * @return Número de máquinas restauradas
+     */
+    public int recuperar() {
+        long inicio = System.nanoTime();
+        InstantaneaBinaria.Contenido contenido = null;
+        if (ruta != null && Files.exists(ruta)) {
+            try {
+                contenido = InstantaneaBinaria.leer(ruta);
+            } catch (IOException e) {
+                log.error("No se pudo leer la instantánea {}, se arranca sin ella", ruta, e);
+            }
+        }
+
+        long ultimaSecuencia = -1;
+        Map<String, MaquinaExpendedora> restauradas = new HashMap<>();
+        if (contenido != null) {
+            for (InstantaneaBinaria.InstantaneaMaquina instantanea : contenido.maquinas()) {
+                ActorMaquina actor = flota.obtener(instantanea.id());
+                MaquinaExpendedora maquina = actor != null && instantanea.id().equals(principal.getId())
+                        ? principal : new MaquinaExpendedora(busEventos);
+                instantanea.restaurarEn(maquina);
+                if (actor == null) {
+                    flota.registrar(maquina);
+                }
+                restauradas.put(maquina.getId(), maquina);
+            }
+            agregadosVentas.restaurar(contenido.agregados());
+            ultimaSecuencia = contenido.secuenciaBus();
+        }
+
+        ultimaSecuencia = Math.max(ultimaSecuencia, reproducirDiario(contenido, restauradas));
+        busEventos.continuarDesde(ultimaSecuencia);
+        try {
+            diarioEventos.reanudar(ultimaSecuencia);
+        } catch (IOException e) {
+            log.warn("No se pudo consultar el diario {}", diarioEventos.getRuta(), e);
+        }
+
+        if (contenido != null || ultimaSecuencia >= 0) {
+            log.info("Estado recuperado: {} máquinas, secuencia {}, en {} ms", restauradas.size(), ultimaSecuencia,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        }
+        return restauradas.size();
+    }
+
+    /**
+     * Aplica los eventos del diario posteriores a la instantánea a cada máquina y a los agregados.
+     * Sin instantánea, las máquinas arrancan vacías y solo los agregados se reconstruyen con todo el diario.
+     * @return Mayor secuencia encontrada en el diario, -1 si no hay eventos
+     */
+    private long reproducirDiario(InstantaneaBinaria.Contenido contenido, Map<String, MaquinaExpendedora> restauradas) {
+        Path diario = diarioEventos.getRuta();
+        if (diario == null || !Files.exists(diario)) {
+            return -1;
+        }
+
+        long[] ultima = {-1};
+        try {
+            long posicion = contenido != null && contenido.posicionDiario() <= Files.size(diario) ? contenido.posicionDiario() : 0;
+            long secuenciaAgregados = contenido != null ? contenido.agregados().getUltimaSecuencia() : Long.MIN_VALUE;
+            DiarioEventos.reproducir(diario, posicion, evento -> {
+                ultima[0] = Math.max(ultima[0], evento.getSecuencia());
+                MaquinaExpendedora maquina = restauradas.get(evento.getIdMaquina());
+                if (maquina != null && evento.getSecuencia() > maquina.getUltimaSecuenciaEvento()) {
+                    maquina.aplicarEvento(evento);
+                }
+                if (evento.getSecuencia() > secuenciaAgregados) {
+                    agregadosVentas.procesar(evento, false);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            log.error("Error reproduciendo el diario {}", diario, e);
+        }
+        return ultima[0];
+    }
+
+    /**
+     * Toma una instantánea de toda la flota y la escribe en disco
+     * @return Número de máquinas incluidas
+     * @throws IOException Si no puede escribirse la instantánea
+     */
+    public synchronized int tomarInstantanea() throws IOException {
+        if (ruta == null) {
+            return 0;
+        }
+
+        // El punto del diario se lee antes de copiar las máquinas: todo evento posterior a la copia queda después de él
+        DiarioEventos.PuntoDiario punto = diarioEventos.getConfirmado();
+
+        List<CompletableFuture<InstantaneaBinaria.InstantaneaMaquina>> pendientes = new ArrayList<>();
+        for (ActorMaquina actor : flota.getActores()) {
+            pendientes.add(actor.enviar(InstantaneaBinaria.InstantaneaMaquina::tomar));
+        }
+        List<InstantaneaBinaria.InstantaneaMaquina> maquinas = new ArrayList<>(pendientes.size());
+        for (CompletableFuture<InstantaneaBinaria.InstantaneaMaquina> pendiente : pendientes) {
+            maquinas.add(pendiente.join());
+        }
+
+        AgregadosVentas.ResumenVentas agregados = agregadosVentas.obtenerResumen();
+        long limite = System.nanoTime() + ESPERA_AGREGADOS_NS;
+        while (agregados.getUltimaSecuencia() < punto.secuencia() && System.nanoTime() < limite) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            agregados = agregadosVentas.obtenerResumen();
+        }
+        long posicion = agregados.getUltimaSecuencia() >= punto.secuencia() ? punto.posicion() : 0;
+
+        InstantaneaBinaria.escribir(ruta, new InstantaneaBinaria.Contenido(System.currentTimeMillis(),
+                busEventos.getUltimaSecuencia(), posicion, agregados, maquinas));
+        return maquinas.size();
+    }
+
+    private void tomarSinFallar() {
+        try {
+            long inicio = System.nanoTime();
+            int maquinas = tomarInstantanea();
+            log.debug("Instantánea de {} máquinas en {} ms", maquinas, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        } catch (IOException | RuntimeException e) {
+            log.error("Error tomando la instantánea {}", ruta, e);
+        }
+    }
+}
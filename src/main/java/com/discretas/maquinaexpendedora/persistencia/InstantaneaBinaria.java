@@ -0,0 +1,422 @@
+package com.discretas.maquinaexpendedora.persistencia;
+
+import com.discretas.maquinaexpendedora.events.AgregadosVentas;
+import com.discretas.maquinaexpendedora.models.LineaCarrito;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+import com.discretas.maquinaexpendedora.state.EstadoMaquina;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formato binario de las instantáneas del estado de la flota.
+ * <p>
+ * La instantánea se escribe en un archivo temporal que luego reemplaza al anterior de forma atómica,
+ * así que siempre hay una instantánea completa en disco. Se lee mapeando el archivo en memoria,
+ * sin copiarlo a un buffer intermedio. Todos los números se guardan en big-endian y los textos como
+ * longitud (u16, {@code 0xFFFF} para null) seguida de sus bytes UTF-8.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public final class InstantaneaBinaria {
+
+    /**
+     * Identificador del formato ("MQSN")
+     */
+    private static final int MAGICO = 0x4D51534E;
+
+    private static final int VERSION = 4;
+
+    /**
+     * Primera versión del formato, sin SKU en los productos ni precio en las transacciones
+     */
+    private static final int VERSION_SIN_PRECIOS = 1;
+
+    /**
+     * Segunda versión del formato, sin las líneas del carrito en las transacciones
+     */
+    private static final int VERSION_SIN_CARRITO = 2;
+
+    private static final int TEXTO_NULO = 0xFFFF;
+
+    private InstantaneaBinaria() {}
+
+    /**
+     * Escribe una instantánea reemplazando de forma atómica la anterior
+     * @param ruta Ruta del archivo de la instantánea
+     * @param contenido Contenido a escribir
+     * @throws IOException Si no puede escribirse el archivo
+     */
+    public static void escribir(Path ruta, Contenido contenido) throws IOException {
+        Path directorio = ruta.toAbsolutePath().getParent();
+        Files.createDirectories(directorio);
+        Path temporal = Files.createTempFile(directorio, ruta.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporal, StandardOpenOption.WRITE), 1 << 16))) {
+                salida.writeInt(MAGICO);
+                salida.writeInt(VERSION);
+                salida.writeLong(contenido.marcaTiempo());
+                salida.writeLong(contenido.secuenciaBus());
+                salida.writeLong(contenido.posicionDiario());
+                escribirAgregados(salida, contenido.agregados());
+                salida.writeInt(contenido.maquinas().size());
+                for (InstantaneaMaquina maquina : contenido.maquinas()) {
+                    escribirMaquina(salida, maquina);
+                }
+            }
+            Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Lee una instantánea mapeando el archivo en memoria
+     * @param ruta Ruta del archivo de la instantánea
+     * @return Contenido de la instantánea
+     * @throws IOException Si el archivo no puede leerse o no tiene el formato esperado
+     */
+    public static Contenido leer(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (buffer.getInt() != MAGICO) {
+                throw new IOException("El archivo " + ruta + " no es una instantánea");
+            }
+            int version = buffer.getInt();
+            if (version < VERSION_SIN_PRECIOS || version > VERSION) {
+                throw new IOException("Versión de instantánea no soportada: " + version);
+            }
+
+            Lector lector = new Lector(buffer, version);
+            long marcaTiempo = buffer.getLong();
+            long secuenciaBus = buffer.getLong();
+            long posicionDiario = buffer.getLong();
+            AgregadosVentas.ResumenVentas agregados = lector.leerAgregados();
+            int numeroMaquinas = buffer.getInt();
+            List<InstantaneaMaquina> maquinas = new ArrayList<>(numeroMaquinas);
+            for (int i = 0; i < numeroMaquinas; i++) {
+                maquinas.add(lector.leerMaquina());
+            }
+            return new Contenido(marcaTiempo, secuenciaBus, posicionDiario, agregados, maquinas);
+        } catch (RuntimeException e) {
+            throw new IOException("Instantánea " + ruta + " incompleta o corrupta", e);
+        }
+    }
+
+    /**
+     * Serializa el estado de varias máquinas con el mismo formato de la instantánea, para trasladarlas a otro nodo
+     * @param maquinas Estado de las máquinas
+     * @return Bytes con la cabecera del formato seguida de las máquinas
+     * @throws IOException Si algún texto excede el tamaño admitido
+     */
+    public static byte[] serializarMaquinas(List<InstantaneaMaquina> maquinas) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream salida = new DataOutputStream(bytes)) {
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION);
+            salida.writeInt(maquinas.size());
+            for (InstantaneaMaquina maquina : maquinas) {
+                escribirMaquina(salida, maquina);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Lee el estado de las máquinas serializadas con {@link #serializarMaquinas(List)}
+     * @param datos Bytes recibidos
+     * @return Estado de cada máquina
+     * @throws IOException Si los datos no tienen el formato esperado
+     */
+    public static List<InstantaneaMaquina> deserializarMaquinas(byte[] datos) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(datos);
+            if (buffer.getInt() != MAGICO) {
+                throw new IOException("Los datos recibidos no son máquinas serializadas");
+            }
+            int version = buffer.getInt();
+            if (version < VERSION_SIN_PRECIOS || version > VERSION) {
+                throw new IOException("Versión de instantánea no soportada: " + version);
+            }
+            Lector lector = new Lector(buffer, version);
+            int numeroMaquinas = buffer.getInt();
+            List<InstantaneaMaquina> maquinas = new ArrayList<>(numeroMaquinas);
+            for (int i = 0; i < numeroMaquinas; i++) {
+                maquinas.add(lector.leerMaquina());
+            }
+            return maquinas;
+        } catch (RuntimeException e) {
+            throw new IOException("Máquinas serializadas incompletas o corruptas", e);
+        }
+    }
+
+    private static void escribirAgregados(DataOutputStream salida, AgregadosVentas.ResumenVentas agregados) throws IOException {
+        salida.writeLong(agregados.getUltimaSecuencia());
+        salida.writeLong(agregados.getTransaccionesCompletadas());
+        salida.writeLong(agregados.getTransaccionesCanceladas());
+        salida.writeLong(agregados.getIncidentesSinCambio());
+        salida.writeInt(agregados.getVentasPorProducto().size());
+        for (Map.Entry<String, AgregadosVentas.VentasProducto> entrada : agregados.getVentasPorProducto().entrySet()) {
+            escribirTexto(salida, entrada.getKey());
+            salida.writeLong(entrada.getValue().getUnidades());
+            salida.writeDouble(entrada.getValue().getRecaudo());
+        }
+    }
+
+    private static void escribirMaquina(DataOutputStream salida, InstantaneaMaquina maquina) throws IOException {
+        escribirTexto(salida, maquina.id());
+        escribirTexto(salida, maquina.region());
+        escribirTexto(salida, maquina.estado());
+        salida.writeLong(maquina.ultimaSecuenciaEvento());
+        salida.writeDouble(maquina.dineroDisponible());
+
+        salida.writeInt(maquina.productos().size());
+        for (Producto producto : maquina.productos()) {
+            escribirTexto(salida, producto.getCodigo());
+            escribirTexto(salida, producto.getNombre());
+            salida.writeDouble(producto.getPrecio());
+            salida.writeInt(producto.getStock());
+            escribirTexto(salida, producto.getDescripcion());
+            escribirTexto(salida, producto.getSku());
+        }
+
+        salida.writeBoolean(maquina.transaccionActual() != null);
+        if (maquina.transaccionActual() != null) {
+            escribirTransaccion(salida, maquina.transaccionActual());
+        }
+        salida.writeInt(maquina.historial().size());
+        for (Transaccion transaccion : maquina.historial()) {
+            escribirTransaccion(salida, transaccion);
+        }
+    }
+
+    private static void escribirTransaccion(DataOutputStream salida, Transaccion transaccion) throws IOException {
+        escribirTexto(salida, transaccion.getId());
+        escribirTexto(salida, transaccion.getProducto() != null ? transaccion.getProducto().getCodigo() : null);
+        salida.writeDouble(transaccion.getPrecio());
+        salida.writeDouble(transaccion.getMontoPagado());
+        salida.writeDouble(transaccion.getCambio());
+        LocalDateTime fecha = transaccion.getFechaTransaccion();
+        salida.writeLong(fecha.toEpochSecond(ZoneOffset.UTC));
+        salida.writeInt(fecha.getNano());
+        salida.writeByte(transaccion.getEstado().getNumero());
+        salida.writeShort(transaccion.getLineas().size());
+        for (LineaCarrito linea : transaccion.getLineas()) {
+            escribirTexto(salida, linea.getProducto().getCodigo());
+            salida.writeDouble(linea.getPrecio());
+            salida.writeByte(linea.getEstado().getNumero());
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        if (texto == null) {
+            salida.writeShort(TEXTO_NULO);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= TEXTO_NULO) {
+            throw new IOException("Texto demasiado largo para la instantánea: " + bytes.length + " bytes");
+        }
+        salida.writeShort(bytes.length);
+        salida.write(bytes);
+    }
+
+    /**
+     * Decodifica los registros de un buffer, mapeado o en memoria, reutilizando un arreglo para los textos
+     */
+    private static final class Lector {
+        private final ByteBuffer buffer;
+        private final int version;
+        private byte[] bytes = new byte[256];
+
+        Lector(ByteBuffer buffer, int version) {
+            this.buffer = buffer;
+            this.version = version;
+        }
+
+        AgregadosVentas.ResumenVentas leerAgregados() {
+            AgregadosVentas.ResumenVentas agregados = new AgregadosVentas.ResumenVentas();
+            agregados.setUltimaSecuencia(buffer.getLong());
+            agregados.setTransaccionesCompletadas(buffer.getLong());
+            agregados.setTransaccionesCanceladas(buffer.getLong());
+            agregados.setIncidentesSinCambio(buffer.getLong());
+            int productos = buffer.getInt();
+            for (int i = 0; i < productos; i++) {
+                String codigo = leerTexto();
+                AgregadosVentas.VentasProducto ventas = new AgregadosVentas.VentasProducto();
+                ventas.setUnidades(buffer.getLong());
+                ventas.setRecaudo(buffer.getDouble());
+                agregados.getVentasPorProducto().put(codigo, ventas);
+            }
+            return agregados;
+        }
+
+        InstantaneaMaquina leerMaquina() {
+            String id = leerTexto();
+            String region = leerTexto();
+            String estado = leerTexto();
+            long ultimaSecuencia = buffer.getLong();
+            double dinero = buffer.getDouble();
+
+            int numeroProductos = buffer.getInt();
+            List<Producto> productos = new ArrayList<>(numeroProductos);
+            for (int i = 0; i < numeroProductos; i++) {
+                Producto producto = new Producto(leerTexto(), leerTexto(), buffer.getDouble(), buffer.getInt(), leerTexto());
+                if (version > VERSION_SIN_PRECIOS) {
+                    producto.setSku(leerTexto());
+                }
+                productos.add(producto);
+            }
+
+            Transaccion actual = buffer.get() != 0 ? leerTransaccion() : null;
+            int numeroHistorial = buffer.getInt();
+            List<Transaccion> historial = new ArrayList<>(numeroHistorial);
+            for (int i = 0; i < numeroHistorial; i++) {
+                historial.add(leerTransaccion());
+            }
+            return new InstantaneaMaquina(id, region, estado, ultimaSecuencia, dinero, productos, actual, historial);
+        }
+
+        /**
+         * Lee una transacción. El producto queda solo con su código y se enlaza al restaurar la máquina;
+         * en la primera versión del formato el precio se toma del producto al enlazarlo, y antes de la
+         * tercera las transacciones no tienen líneas de carrito. Hasta la tercera los estados se guardaban por su
+         * posición en la enumeración, que coincide con su número fijo, así que se leen igual en todas las versiones.
+         */
+        private Transaccion leerTransaccion() {
+            String id = leerTexto();
+            String codigo = leerTexto();
+            double precio = version > VERSION_SIN_PRECIOS ? buffer.getDouble() : Double.NaN;
+            double montoPagado = buffer.getDouble();
+            double cambio = buffer.getDouble();
+            LocalDateTime fecha = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            Transaccion.EstadoTransaccion estado = Transaccion.EstadoTransaccion.desdeNumero(buffer.get());
+            Producto producto = codigo != null ? new Producto(codigo, null, 0, 0, null) : null;
+            Transaccion transaccion = new Transaccion(id, producto, precio, montoPagado, cambio, fecha, estado);
+            if (version > VERSION_SIN_CARRITO) {
+                int lineas = Short.toUnsignedInt(buffer.getShort());
+                for (int i = 0; i < lineas; i++) {
+                    Producto productoLinea = new Producto(leerTexto(), null, 0, 0, null);
+                    transaccion.getLineas().add(new LineaCarrito(productoLinea, buffer.getDouble(), LineaCarrito.EstadoLinea.desdeNumero(buffer.get())));
+                }
+            }
+            return transaccion;
+        }
+
+        private String leerTexto() {
+            int longitud = Short.toUnsignedInt(buffer.getShort());
+            if (longitud == TEXTO_NULO) {
+                return null;
+            }
+            if (longitud > bytes.length) {
+                bytes = new byte[Math.max(longitud, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, longitud);
+            return new String(bytes, 0, longitud, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Contenido de una instantánea
+     * @param marcaTiempo Momento en que se tomó (epoch en milisegundos)
+     * @param secuenciaBus Última secuencia publicada en el bus al terminar la instantánea
+     * @param posicionDiario Posición del diario desde la que hay que reproducir los eventos posteriores
+     * @param agregados Agregados de ventas, con la secuencia del último evento incluido
+     * @param maquinas Estado de cada máquina de la flota
+     */
+    public record Contenido(long marcaTiempo, long secuenciaBus, long posicionDiario,
+                            AgregadosVentas.ResumenVentas agregados, List<InstantaneaMaquina> maquinas) {
+    }
+
+    /**
+     * Copia del estado de una máquina
+     */
+    public record InstantaneaMaquina(String id, String region, String estado, long ultimaSecuenciaEvento,
+                                     double dineroDisponible, List<Producto> productos,
+                                     Transaccion transaccionActual, List<Transaccion> historial) {
+
+        /**
+         * Copia el estado de una máquina. Debe ejecutarse dentro del actor de la máquina.
+         * @param maquina Máquina a copiar
+         * @return Copia independiente del estado
+         */
+        public static InstantaneaMaquina tomar(MaquinaExpendedora maquina) {
+            List<Producto> productos = new ArrayList<>(maquina.getInventario().size());
+            for (Producto producto : maquina.getInventario().values()) {
+                productos.add(producto.copiar());
+            }
+            List<Transaccion> historial = new ArrayList<>(maquina.getHistorialTransacciones().size());
+            for (Transaccion transaccion : maquina.getHistorialTransacciones()) {
+                historial.add(transaccion.copiar());
+            }
+            Transaccion actual = maquina.getTransaccionActual() != null ? maquina.getTransaccionActual().copiar() : null;
+            return new InstantaneaMaquina(maquina.getId(), maquina.getRegion(), maquina.getEstadoActualNombre(),
+                    maquina.getUltimaSecuenciaEvento(), maquina.getDineroDisponible(), productos, actual, historial);
+        }
+
+        /**
+         * Reemplaza el estado de una máquina por el de la copia. Las transacciones quedan enlazadas
+         * a los productos del inventario restaurado, como en la máquina original.
+         * @param maquina Máquina a restaurar
+         */
+        public void restaurarEn(MaquinaExpendedora maquina) {
+            Map<String, Producto> inventario = new HashMap<>();
+            for (Producto producto : productos) {
+                inventario.put(producto.getCodigo(), producto);
+            }
+            maquina.setId(id);
+            maquina.setRegion(region);
+            maquina.setInventario(inventario);
+            maquina.setDineroDisponible(dineroDisponible);
+            maquina.setUltimaSecuenciaEvento(ultimaSecuenciaEvento);
+            maquina.setEstadoActual(EstadoMaquina.desdeNombre(estado));
+            maquina.setTransaccionActual(enlazar(transaccionActual, inventario));
+            List<Transaccion> restaurado = new ArrayList<>(historial.size());
+            for (Transaccion transaccion : historial) {
+                restaurado.add(enlazar(transaccion, inventario));
+            }
+            maquina.setHistorialTransacciones(restaurado);
+            maquina.setVersion(maquina.getVersion() + 1);
+        }
+
+        private static Transaccion enlazar(Transaccion transaccion, Map<String, Producto> inventario) {
+            if (transaccion != null && transaccion.getProducto() != null) {
+                Producto producto = inventario.get(transaccion.getProducto().getCodigo());
+                if (producto != null) {
+                    transaccion.setProducto(producto);
+                }
+                if (Double.isNaN(transaccion.getPrecio())) {
+                    transaccion.setPrecio(producto != null ? producto.getPrecio() : 0.0);
+                }
+                for (LineaCarrito linea : transaccion.getLineas()) {
+                    Producto productoLinea = inventario.get(linea.getProducto().getCodigo());
+                    if (productoLinea != null) {
+                        linea.setProducto(productoLinea);
+                    }
+                }
+            }
+            return transaccion;
+        }
+    }
+}
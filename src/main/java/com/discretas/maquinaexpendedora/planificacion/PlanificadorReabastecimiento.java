@@ -0,0 +1,236 @@
+package com.discretas.maquinaexpendedora.planificacion;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.LineaCarrito;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Planificador de reabastecimiento de la flota. Para cada máquina y casilla calcula cuántas unidades
+ * cargar y cuánto dinero dejar para cambio, de modo que ni el stock ni el cambio se agoten antes
+ * de la próxima visita.
+ * <p>
+ * Las instantáneas se piden a todos los actores a la vez y el cálculo se reparte entre los núcleos
+ * con un stream paralelo, por lo que el plan de decenas de miles de máquinas toma pocos segundos.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Component
+public class PlanificadorReabastecimiento {
+
+    private static final double HORAS_OBSERVADAS_MINIMAS = 1.0;
+
+    private static final double SEGUNDOS_POR_HORA = 3600.0;
+
+    private final int capacidadCasilla;
+
+    private final int stockMinimo;
+
+    private final double margenSeguridad;
+
+    private final double dineroMinimo;
+
+    private final double redondeoDinero;
+
+    private final FlotaMaquinas flota;
+
+    /**
+     * Constructor del planificador
+     * @param flota Flota de máquinas a planificar
+     * @param capacidadCasilla Unidades máximas que caben en una casilla
+     * @param stockMinimo Unidades mínimas que se dejan en cada casilla aunque no tenga ventas
+     * @param margenSeguridad Factor que se aplica a la demanda esperada
+     * @param dineroMinimo Dinero mínimo que se deja en cada máquina para cambio
+     * @param redondeoDinero Múltiplo al que se redondea hacia arriba el dinero a dejar
+     */
+    public PlanificadorReabastecimiento(FlotaMaquinas flota,
+                                        @Value("${maquina.reabastecimiento.capacidad-casilla:20}") int capacidadCasilla,
+                                        @Value("${maquina.reabastecimiento.stock-minimo:2}") int stockMinimo,
+                                        @Value("${maquina.reabastecimiento.margen-seguridad:1.25}") double margenSeguridad,
+                                        @Value("${maquina.reabastecimiento.dinero-minimo:20000}") double dineroMinimo,
+                                        @Value("${maquina.reabastecimiento.redondeo-dinero:1000}") double redondeoDinero) {
+        this.flota = flota;
+        this.capacidadCasilla = capacidadCasilla;
+        this.stockMinimo = stockMinimo;
+        this.margenSeguridad = margenSeguridad;
+        this.dineroMinimo = dineroMinimo;
+        this.redondeoDinero = redondeoDinero;
+    }
+
+    /**
+     * Calcula el plan de reabastecimiento de toda la flota
+     * @param horasHastaVisita Horas hasta la próxima visita del operador
+     * @return Futuro con el plan de todas las máquinas, ordenado por identificador
+     */
+    public CompletableFuture<PlanReabastecimiento> planificar(double horasHastaVisita) {
+        if (!(horasHastaVisita > 0)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Las horas hasta la visita deben ser positivas"));
+        }
+
+        List<CompletableFuture<Instantanea>> pendientes = new ArrayList<>();
+        for (ActorMaquina actor : flota.getActores()) {
+            pendientes.add(actor.enviar(PlanificadorReabastecimiento::tomarInstantanea));
+        }
+
+        return CompletableFuture.allOf(pendientes.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            List<PlanMaquina> maquinas = pendientes.parallelStream()
+                    .map(CompletableFuture::join)
+                    .map(instantanea -> planificarMaquina(instantanea, horasHastaVisita))
+                    .sorted(Comparator.comparing(PlanMaquina::getIdMaquina))
+                    .toList();
+
+            PlanReabastecimiento plan = new PlanReabastecimiento();
+            plan.setHorasHastaVisita(horasHastaVisita);
+            plan.setMaquinas(maquinas);
+            for (PlanMaquina maquina : maquinas) {
+                plan.unidadesACargar += maquina.getUnidadesACargar();
+                plan.ajusteDinero += maquina.getAjusteDinero();
+                if (maquina.isRiesgoAgotamiento()) {
+                    plan.maquinasEnRiesgo++;
+                }
+            }
+            return plan;
+        });
+    }
+
+    /**
+     * Calcula el plan de una máquina a partir de su instantánea
+     */
+    private PlanMaquina planificarMaquina(Instantanea instantanea, double horasHastaVisita) {
+        PlanMaquina plan = new PlanMaquina();
+        plan.setIdMaquina(instantanea.idMaquina);
+        double horasObservadas = Math.max(HORAS_OBSERVADAS_MINIMAS, instantanea.horasObservadas);
+
+        List<PlanCasilla> casillas = new ArrayList<>(instantanea.stock.size());
+        for (Map.Entry<String, Integer> entrada : instantanea.stock.entrySet()) {
+            int stock = entrada.getValue();
+            int vendidas = instantanea.unidadesVendidas.getOrDefault(entrada.getKey(), 0);
+            double demanda = vendidas / horasObservadas * horasHastaVisita * margenSeguridad;
+            int objetivo = Math.min(capacidadCasilla, Math.max(stockMinimo, (int) Math.ceil(demanda)));
+
+            PlanCasilla casilla = new PlanCasilla();
+            casilla.setCodigoProducto(entrada.getKey());
+            casilla.setStockActual(stock);
+            casilla.setDemandaEsperada(demanda);
+            casilla.setCantidadACargar(Math.max(0, objetivo - stock));
+            casilla.setRiesgoAgotamiento(demanda > capacidadCasilla);
+            casillas.add(casilla);
+
+            plan.unidadesACargar += casilla.getCantidadACargar();
+            plan.riesgoAgotamiento |= casilla.isRiesgoAgotamiento();
+        }
+        casillas.sort(Comparator.comparing(PlanCasilla::getCodigoProducto));
+        plan.setCasillas(casillas);
+
+        // El cambio a dejar cubre el cambio esperado hasta la visita y al menos el mayor cambio entregado
+        double cambioEsperado = instantanea.cambioEntregado / horasObservadas * horasHastaVisita * margenSeguridad;
+        double dineroObjetivo = Math.max(dineroMinimo, Math.max(cambioEsperado, instantanea.cambioMaximo));
+        dineroObjetivo = Math.ceil(dineroObjetivo / redondeoDinero) * redondeoDinero;
+        plan.setDineroActual(instantanea.dineroDisponible);
+        plan.setDineroObjetivo(dineroObjetivo);
+        plan.setAjusteDinero(dineroObjetivo - instantanea.dineroDisponible);
+        return plan;
+    }
+
+    /**
+     * Copia el stock y resume el historial de ventas. Debe ejecutarse dentro del actor de la máquina.
+     */
+    private static Instantanea tomarInstantanea(MaquinaExpendedora maquina) {
+        Instantanea instantanea = new Instantanea();
+        instantanea.idMaquina = maquina.getId();
+        instantanea.dineroDisponible = maquina.getDineroDisponible();
+        for (Map.Entry<String, Producto> entrada : maquina.getInventario().entrySet()) {
+            instantanea.stock.put(entrada.getKey(), entrada.getValue().getStock());
+        }
+
+        long primera = Long.MAX_VALUE;
+        for (Transaccion transaccion : maquina.getHistorialTransacciones()) {
+            if (transaccion.getEstado() != Transaccion.EstadoTransaccion.COMPLETADA
+                    || (!transaccion.esCarrito() && transaccion.getProducto() == null)) {
+                continue;
+            }
+            if (transaccion.esCarrito()) {
+                // Solo cuentan las líneas entregadas; las reembolsadas no salieron de la casilla
+                for (LineaCarrito linea : transaccion.getLineas()) {
+                    if (linea.getEstado() == LineaCarrito.EstadoLinea.DISPENSADA && linea.getProducto() != null) {
+                        instantanea.unidadesVendidas.merge(linea.getProducto().getCodigo(), 1, Integer::sum);
+                    }
+                }
+            } else {
+                instantanea.unidadesVendidas.merge(transaccion.getProducto().getCodigo(), 1, Integer::sum);
+            }
+            instantanea.cambioEntregado += transaccion.getCambio();
+            instantanea.cambioMaximo = Math.max(instantanea.cambioMaximo, transaccion.getCambio());
+            primera = Math.min(primera, transaccion.getMarcaTiempo());
+        }
+        if (primera != Long.MAX_VALUE) {
+            instantanea.horasObservadas = (System.currentTimeMillis() - primera) / 1000 / SEGUNDOS_POR_HORA;
+        }
+        return instantanea;
+    }
+
+    /**
+     * Datos de una máquina tomados en su actor
+     */
+    private static final class Instantanea {
+        private String idMaquina;
+        private double dineroDisponible;
+        private final Map<String, Integer> stock = new HashMap<>();
+        private final Map<String, Integer> unidadesVendidas = new HashMap<>();
+        private double cambioEntregado;
+        private double cambioMaximo;
+        private double horasObservadas;
+    }
+
+    /**
+     * Plan de reabastecimiento de la flota
+     */
+    @Data
+    public static class PlanReabastecimiento {
+        private double horasHastaVisita;
+        private long unidadesACargar;
+        private double ajusteDinero;
+        private int maquinasEnRiesgo;
+        private List<PlanMaquina> maquinas;
+    }
+
+    /**
+     * Plan de una máquina. Un ajuste de dinero positivo se deposita; uno negativo se recauda.
+     */
+    @Data
+    public static class PlanMaquina {
+        private String idMaquina;
+        private int unidadesACargar;
+        private double dineroActual;
+        private double dineroObjetivo;
+        private double ajusteDinero;
+        private boolean riesgoAgotamiento;
+        private List<PlanCasilla> casillas;
+    }
+
+    /**
+     * Plan de una casilla. Hay riesgo de agotamiento si la demanda esperada supera la capacidad.
+     */
+    @Data
+    public static class PlanCasilla {
+        private String codigoProducto;
+        private int stockActual;
+        private double demandaEsperada;
+        private int cantidadACargar;
+        private boolean riesgoAgotamiento;
+    }
+}
@@ -0,0 +1,377 @@
+package com.discretas.maquinaexpendedora.precios;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.precios.ReglaPrecio.TipoRegla;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Motor de reglas de precio y promociones de la flota.
+ * <p>
+ * Las reglas no se evalúan en cada compra: al cambiar las reglas o el catálogo se compilan, dentro del actor
+ * de cada máquina, en una tabla con el precio de cada casilla en cada franja del día. Al seleccionar un
+ * producto la máquina solo busca su casilla y su franja. Las casillas sin reglas que les apliquen no ocupan
+ * la tabla y se cobran al precio del catálogo.
+ * </p>
+ * <p>
+ * En una franja gana el precio fijo de mayor prioridad, o el del catálogo si no hay ninguno, y sobre él se
+ * aplica el mayor de los descuentos vigentes; los descuentos no se acumulan.
+ * </p>
+ * <p>
+ * Los combos quedan fuera de las filas: la tabla de cada máquina guarda los combos que le aplican y la máquina
+ * los evalúa una sola vez por carrito, al confirmar el pago, sobre los precios ya resueltos de sus líneas.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class MotorPromociones {
+
+    private static final int MINUTOS_POR_DIA = 1440;
+
+    private final Path ruta;
+
+    private final int minutosFranja;
+
+    private final ZoneId zona;
+
+    private final double redondeo;
+
+    private final FlotaMaquinas flota;
+
+    private final ObjectMapper objectMapper;
+
+    private volatile List<ReglaPrecio> reglas = List.of();
+
+    /**
+     * Constructor del motor
+     * @param ruta Ruta del archivo donde se guardan las reglas, vacía para no guardarlas
+     * @param minutosFranja Duración de cada franja de la tabla en minutos; debe dividir el día
+     * @param zona Zona horaria de las franjas, vacía para usar la del sistema
+     * @param redondeo Múltiplo al que se redondean los precios con promoción
+     * @param flota Flota cuyas máquinas reciben las tablas compiladas
+     * @param objectMapper Serializador de las reglas
+     */
+    public MotorPromociones(@Value("${maquina.promociones.ruta:}") String ruta,
+                            @Value("${maquina.promociones.minutos-franja:15}") int minutosFranja,
+                            @Value("${maquina.promociones.zona:}") String zona,
+                            @Value("${maquina.promociones.redondeo:50}") double redondeo,
+                            FlotaMaquinas flota,
+                            ObjectMapper objectMapper) {
+        if (minutosFranja <= 0 || MINUTOS_POR_DIA % minutosFranja != 0) {
+            throw new IllegalArgumentException("La duración de la franja debe dividir el día: " + minutosFranja);
+        }
+        this.ruta = ruta.isBlank() ? null : Path.of(ruta);
+        this.minutosFranja = minutosFranja;
+        this.zona = zona.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zona);
+        this.redondeo = redondeo;
+        this.flota = flota;
+        this.objectMapper = objectMapper;
+        cargar();
+    }
+
+    /**
+     * Obtiene las reglas vigentes
+     * @return Reglas vigentes
+     */
+    public List<ReglaPrecio> getReglas() {
+        return reglas;
+    }
+
+    /**
+     * Valida, guarda y compila un conjunto nuevo de reglas, que reemplaza al vigente
+     * @param nuevas Reglas nuevas
+     * @return Futuro con el resultado, que se completa cuando todas las máquinas tienen su tabla
+     */
+    public CompletableFuture<ResultadoCompilacion> reemplazarReglas(List<ReglaPrecio> nuevas) {
+        List<String> errores = validar(nuevas);
+        if (!errores.isEmpty()) {
+            ResultadoCompilacion rechazado = new ResultadoCompilacion();
+            rechazado.setErrores(errores);
+            return CompletableFuture.completedFuture(rechazado);
+        }
+        synchronized (this) {
+            reglas = List.copyOf(nuevas);
+            guardar();
+        }
+        return recompilar();
+    }
+
+    /**
+     * Compila las reglas vigentes para cada máquina de la flota. Se invoca al arrancar, al cambiar
+     * las reglas y después de publicar un catálogo, porque las filas compiladas con un precio
+     * de catálogo anterior ya no se usan.
+     * @return Futuro con el resultado de la compilación
+     */
+    public CompletableFuture<ResultadoCompilacion> recompilar() {
+        long inicio = System.nanoTime();
+        // Las filas idénticas se compilan una vez y se comparten entre casillas y máquinas
+        Map<ClaveFila, TablaPrecios.Fila> filas = new ConcurrentHashMap<>();
+        List<ReglaPrecio> activas;
+        List<CompletableFuture<Integer>> pendientes = new ArrayList<>();
+
+        // Las reglas se leen y se encolan en todos los actores bajo el mismo monitor: dos recompilaciones
+        // concurrentes llegan a cada máquina en el mismo orden, y todas terminan con las reglas más recientes
+        synchronized (this) {
+            activas = reglas.stream().filter(ReglaPrecio::isActiva).toList();
+            Map<String, List<ReglaPrecio>> porSku = new HashMap<>();
+            List<ReglaPrecio> combos = new ArrayList<>();
+            for (ReglaPrecio regla : activas) {
+                if (regla.getTipo() == TipoRegla.DESCUENTO_COMBO) {
+                    combos.add(regla);
+                } else {
+                    porSku.computeIfAbsent(regla.getSku() != null ? regla.getSku() : "", sku -> new ArrayList<>()).add(regla);
+                }
+            }
+            long compilada = System.currentTimeMillis();
+            for (ActorMaquina actor : flota.getActores()) {
+                pendientes.add(actor.enviar(maquina -> {
+                    TablaPrecios tabla = activas.isEmpty() ? null : compilar(maquina, porSku, combos, filas, compilada);
+                    maquina.setTablaPrecios(tabla);
+                    return tabla != null ? tabla.getCasillas() : 0;
+                }));
+            }
+        }
+        return CompletableFuture.allOf(pendientes.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            long casillas = 0;
+            for (CompletableFuture<Integer> pendiente : pendientes) {
+                casillas += pendiente.join();
+            }
+            ResultadoCompilacion resultado = new ResultadoCompilacion();
+            resultado.setCompilada(true);
+            resultado.setReglas(activas.size());
+            resultado.setMaquinas(pendientes.size());
+            resultado.setCasillasConPromocion(casillas);
+            resultado.setFilasDistintas(filas.size());
+            resultado.setCompilacionMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            log.info("{} reglas de precio compiladas para {} casillas de {} máquinas en {} ms", activas.size(),
+                    casillas, pendientes.size(), resultado.getCompilacionMs());
+            return resultado;
+        });
+    }
+
+    /**
+     * Obtiene el precio vigente de cada casilla de una máquina. Debe ejecutarse dentro del actor de la máquina.
+     * @param maquina Máquina
+     * @return Precio vigente por código de casilla
+     */
+    public static Map<String, Double> preciosVigentes(MaquinaExpendedora maquina) {
+        Map<String, Double> precios = new HashMap<>();
+        for (Producto producto : maquina.getInventario().values()) {
+            precios.put(producto.getCodigo(), maquina.precioVigente(producto));
+        }
+        return precios;
+    }
+
+    /**
+     * Compila la tabla de una máquina. Debe ejecutarse dentro del actor de la máquina.
+     * @return Tabla, o null si ninguna regla aplica a la máquina
+     */
+    private TablaPrecios compilar(MaquinaExpendedora maquina, Map<String, List<ReglaPrecio>> porSku, List<ReglaPrecio> combos,
+                                  Map<ClaveFila, TablaPrecios.Fila> filas, long compilada) {
+        Map<String, TablaPrecios.Fila> porCasilla = new HashMap<>();
+        List<ReglaPrecio> generales = porSku.getOrDefault("", List.of());
+        for (Producto producto : maquina.getInventario().values()) {
+            List<ReglaPrecio> aplicables = new ArrayList<>();
+            agregarAplicables(generales, maquina, aplicables);
+            if (producto.getSku() != null) {
+                agregarAplicables(porSku.getOrDefault(producto.getSku(), List.of()), maquina, aplicables);
+            }
+            if (!aplicables.isEmpty()) {
+                ClaveFila clave = new ClaveFila(producto.getPrecio(), aplicables);
+                porCasilla.put(producto.getCodigo(), filas.computeIfAbsent(clave, this::compilarFila));
+            }
+        }
+        List<ReglaPrecio> combosMaquina = new ArrayList<>();
+        agregarAplicables(combos, maquina, combosMaquina);
+        return porCasilla.isEmpty() && combosMaquina.isEmpty() ? null
+                : new TablaPrecios(Map.copyOf(porCasilla), List.copyOf(combosMaquina), minutosFranja, zona, compilada);
+    }
+
+    private static void agregarAplicables(List<ReglaPrecio> candidatas, MaquinaExpendedora maquina, List<ReglaPrecio> aplicables) {
+        for (ReglaPrecio regla : candidatas) {
+            if ((regla.getIdMaquina() == null || regla.getIdMaquina().equals(maquina.getId()))
+                    && (regla.getRegion() == null || regla.getRegion().equals(maquina.getRegion()))) {
+                aplicables.add(regla);
+            }
+        }
+    }
+
+    /**
+     * Calcula el precio de cada franja del día a partir del precio del catálogo y las reglas aplicables
+     */
+    private TablaPrecios.Fila compilarFila(ClaveFila clave) {
+        double[] precios = new double[MINUTOS_POR_DIA / minutosFranja];
+        for (int franja = 0; franja < precios.length; franja++) {
+            LocalTime hora = LocalTime.ofSecondOfDay(franja * minutosFranja * 60L);
+            ReglaPrecio fijo = null;
+            List<ReglaPrecio> descuentos = new ArrayList<>();
+            for (ReglaPrecio regla : clave.reglas()) {
+                if (!vigente(regla, hora)) {
+                    continue;
+                }
+                if (regla.getTipo() != TipoRegla.PRECIO_FIJO) {
+                    descuentos.add(regla);
+                } else if (fijo == null || regla.getPrioridad() > fijo.getPrioridad()) {
+                    fijo = regla;
+                }
+            }
+            double base = fijo != null ? fijo.getValor() : clave.base();
+            double precio = base;
+            for (ReglaPrecio descuento : descuentos) {
+                double conDescuento = descuento.getTipo() == TipoRegla.DESCUENTO_PORCENTAJE
+                        ? base * (1 - descuento.getValor() / 100) : base - descuento.getValor();
+                precio = Math.min(precio, conDescuento);
+            }
+            if (fijo != null || !descuentos.isEmpty()) {
+                precio = redondeo > 0 ? Math.round(precio / redondeo) * redondeo : precio;
+            }
+            precios[franja] = Math.max(0, precio);
+        }
+        return new TablaPrecios.Fila(clave.base(), precios);
+    }
+
+    /**
+     * Indica si una regla está vigente a una hora del día; una franja con fin anterior al inicio cruza la medianoche
+     */
+    static boolean vigente(ReglaPrecio regla, LocalTime hora) {
+        if (regla.getHoraInicio() == null) {
+            return true;
+        }
+        if (regla.getHoraInicio().isBefore(regla.getHoraFin())) {
+            return !hora.isBefore(regla.getHoraInicio()) && hora.isBefore(regla.getHoraFin());
+        }
+        return !hora.isBefore(regla.getHoraInicio()) || hora.isBefore(regla.getHoraFin());
+    }
+
+    private List<String> validar(List<ReglaPrecio> reglas) {
+        List<String> errores = new ArrayList<>();
+        if (reglas == null) {
+            errores.add("Las reglas son obligatorias");
+            return errores;
+        }
+        Set<String> ids = new HashSet<>();
+        for (ReglaPrecio regla : reglas) {
+            if (regla == null || regla.getId() == null || regla.getId().isBlank()) {
+                errores.add("Hay una regla sin identificador");
+            } else if (!ids.add(regla.getId())) {
+                errores.add("La regla " + regla.getId() + " está repetida");
+            } else if (regla.getTipo() == null) {
+                errores.add("La regla " + regla.getId() + " no tiene tipo");
+            } else if (regla.getTipo() == TipoRegla.DESCUENTO_COMBO && (regla.getSku() != null || regla.getCombo() == null
+                    || regla.getCombo().size() < 2 || regla.getCombo().stream().anyMatch(Objects::isNull))) {
+                errores.add("El combo " + regla.getId() + " debe indicar al menos dos SKUs en combo y ningún sku");
+            } else if (!(regla.getValor() >= 0) || Double.isInfinite(regla.getValor())
+                    || regla.getTipo() == TipoRegla.DESCUENTO_PORCENTAJE && regla.getValor() > 100) {
+                errores.add("La regla " + regla.getId() + " tiene un valor inválido: " + regla.getValor());
+            } else if ((regla.getHoraInicio() == null) != (regla.getHoraFin() == null)
+                    || regla.getHoraInicio() != null && regla.getHoraInicio().equals(regla.getHoraFin())) {
+                errores.add("La regla " + regla.getId() + " tiene una franja horaria inválida");
+            } else if (regla.getHoraInicio() != null
+                    && (!alineada(regla.getHoraInicio()) || !alineada(regla.getHoraFin()))) {
+                errores.add("La franja de la regla " + regla.getId() + " debe empezar y terminar en múltiplos de "
+                        + minutosFranja + " minutos");
+            }
+        }
+        return errores;
+    }
+
+    /**
+     * Indica si una hora coincide con el inicio de una franja de la tabla. Las reglas se evalúan al inicio de
+     * cada franja, así que una hora intermedia correría la vigencia de la regla hasta el final de su franja.
+     */
+    private boolean alineada(LocalTime hora) {
+        return hora.getSecond() == 0 && hora.getNano() == 0 && (hora.getHour() * 60 + hora.getMinute()) % minutosFranja == 0;
+    }
+
+    /**
+     * Lee las reglas guardadas. Si el archivo no existe o no puede leerse se arranca sin reglas.
+     */
+    private void cargar() {
+        if (ruta == null || !Files.exists(ruta)) {
+            return;
+        }
+        try {
+            List<ReglaPrecio> leidas = objectMapper.readValue(ruta.toFile(), new TypeReference<>() {
+            });
+            List<String> errores = validar(leidas);
+            if (errores.isEmpty()) {
+                reglas = List.copyOf(leidas);
+                log.info("{} reglas de precio leídas de {}", reglas.size(), ruta);
+            } else {
+                log.error("Las reglas de precio de {} no son válidas: {}", ruta, errores);
+            }
+        } catch (IOException e) {
+            log.error("No se pudieron leer las reglas de precio de {}", ruta, e);
+        }
+    }
+
+    /**
+     * Guarda las reglas vigentes escribiendo un archivo temporal y reemplazando el anterior
+     */
+    private void guardar() {
+        if (ruta == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(ruta.toAbsolutePath().getParent());
+            Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+            objectMapper.writeValue(temporal.toFile(), reglas);
+            Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("No se pudieron guardar las reglas de precio en {}", ruta, e);
+        }
+    }
+
+    /**
+     * Datos de los que depende una fila compilada
+     */
+    private record ClaveFila(double base, List<ReglaPrecio> reglas) {
+    }
+
+    /**
+     * Resultado de compilar las reglas de precio
+     */
+    @Data
+    public static class ResultadoCompilacion {
+        /**
+         * Indica si las reglas se compilaron; si no, los errores explican el rechazo
+         */
+        private boolean compilada;
+        private int reglas;
+        private int maquinas;
+        private long casillasConPromocion;
+        /**
+         * Filas distintas compiladas; las casillas con el mismo precio y las mismas reglas comparten fila
+         */
+        private int filasDistintas;
+        private long compilacionMs;
+        private List<String> errores = List.of();
+    }
+}
@@ -0,0 +1,99 @@
+package com.discretas.maquinaexpendedora.precios;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Regla de precio o promoción. Los campos de alcance que quedan en null aplican a todo:
+ * una regla sin SKU, máquina, región ni franja horaria aplica a todas las casillas todo el día.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReglaPrecio {
+
+    /**
+     * Identificador de la regla
+     */
+    private String id;
+
+    /**
+     * Tipo de la regla
+     */
+    private TipoRegla tipo;
+
+    /**
+     * Precio fijo, porcentaje de descuento o monto a descontar, según el tipo
+     */
+    private double valor;
+
+    /**
+     * SKU del producto al que aplica
+     */
+    private String sku;
+
+    /**
+     * Máquina a la que aplica
+     */
+    private String idMaquina;
+
+    /**
+     * Región a la que aplica
+     */
+    private String region;
+
+    /**
+     * Inicio de la franja horaria diaria (happy hour); con fin anterior al inicio, la franja cruza la medianoche
+     */
+    private LocalTime horaInicio;
+
+    /**
+     * Fin de la franja horaria diaria, exclusivo
+     */
+    private LocalTime horaFin;
+
+    /**
+     * Entre varios precios fijos que aplican a la vez, gana el de mayor prioridad
+     */
+    private int prioridad;
+
+    /**
+     * Indica si la regla está activa
+     */
+    private boolean activa = true;
+
+    /**
+     * SKUs que forman el combo, repetidos si el combo lleva varias unidades de un producto. Solo para combos
+     */
+    private List<String> combo;
+
+    /**
+     * Tipos de regla. Los combos dependen del contenido del carrito y no de la casilla y la franja, así que
+     * no entran en las filas de la tabla compilada: se evalúan una vez por carrito al confirmar el pago.
+     */
+    public enum TipoRegla {
+        /**
+         * Reemplaza el precio del catálogo, por ejemplo para una máquina concreta
+         */
+        PRECIO_FIJO,
+        /**
+         * Descuenta un porcentaje del precio
+         */
+        DESCUENTO_PORCENTAJE,
+        /**
+         * Descuenta un monto fijo del precio
+         */
+        DESCUENTO_MONTO,
+        /**
+         * Descuenta un monto del total del carrito por cada combo completo que contiene
+         */
+        DESCUENTO_COMBO
+    }
+}
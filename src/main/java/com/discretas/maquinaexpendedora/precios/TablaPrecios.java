@@ -0,0 +1,174 @@
+package com.discretas.maquinaexpendedora.precios;
+
+import com.discretas.maquinaexpendedora.models.LineaCarrito;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precios compilados de una máquina: para cada casilla, el precio en cada franja del día.
+ * Resolver un precio es una búsqueda en la tabla, sin evaluar reglas. La tabla es inmutable
+ * y las filas idénticas se comparten entre casillas y máquinas. Guarda además los combos que aplican
+ * a la máquina, que se evalúan aparte sobre el carrito completo.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public final class TablaPrecios {
+
+    private static final long MS_POR_MINUTO = 60_000L;
+
+    private static final int MINUTOS_POR_DIA = 1440;
+
+    private final Map<String, Fila> porCasilla;
+
+    private final List<ReglaPrecio> combos;
+
+    private final long msPorFranja;
+
+    private final int franjasPorDia;
+
+    private final ZoneId zona;
+
+    /**
+     * Desplazamiento de la zona horaria al compilar, válido hasta su próxima transición (horario de verano)
+     */
+    private final long desplazamientoMs;
+
+    private final long validoHasta;
+
+    /**
+     * Última franja resuelta; mientras no termine, resolver la franja es una comparación
+     */
+    private volatile Franja actual = new Franja(Long.MAX_VALUE, Long.MIN_VALUE, 0);
+
+    /**
+     * Constructor de la tabla
+     * @param porCasilla Fila de precios por código de casilla
+     * @param combos Combos que aplican a la máquina
+     * @param minutosFranja Duración de cada franja en minutos
+     * @param zona Zona horaria de las franjas
+     * @param compilada Momento de la compilación (epoch en milisegundos)
+     */
+    public TablaPrecios(Map<String, Fila> porCasilla, List<ReglaPrecio> combos, int minutosFranja, ZoneId zona, long compilada) {
+        this.porCasilla = porCasilla;
+        this.combos = combos;
+        this.msPorFranja = minutosFranja * MS_POR_MINUTO;
+        this.franjasPorDia = MINUTOS_POR_DIA / minutosFranja;
+        this.zona = zona;
+        Instant instante = Instant.ofEpochMilli(compilada);
+        this.desplazamientoMs = zona.getRules().getOffset(instante).getTotalSeconds() * 1000L;
+        ZoneOffsetTransition transicion = zona.getRules().nextTransition(instante);
+        this.validoHasta = transicion != null ? transicion.toEpochSecond() * 1000L : Long.MAX_VALUE;
+    }
+
+    /**
+     * Obtiene el precio de una casilla en un momento dado. Si la casilla no tiene fila, o su precio
+     * de catálogo cambió después de compilar la tabla, se usa el precio del catálogo.
+     * @param producto Producto de la casilla
+     * @param ahora Momento de la compra (epoch en milisegundos)
+     * @return Precio a cobrar
+     */
+    public double precio(Producto producto, long ahora) {
+        Fila fila = porCasilla.get(producto.getCodigo());
+        if (fila == null || fila.base != producto.getPrecio()) {
+            return producto.getPrecio();
+        }
+        return fila.precios[franja(ahora)];
+    }
+
+    /**
+     * Calcula el descuento por combos de un carrito: cada combo vigente descuenta su monto por cada juego
+     * completo de sus SKUs entre las líneas, y se aplica el combo que más descuenta; los combos no se acumulan.
+     * @param transaccion Transacción con el carrito
+     * @param ahora Momento de la confirmación (epoch en milisegundos)
+     * @return Descuento sobre el total del carrito, como máximo el total
+     */
+    public double descuentoCombo(Transaccion transaccion, long ahora) {
+        if (combos.isEmpty() || !transaccion.esCarrito()) {
+            return 0;
+        }
+        Map<String, Integer> unidades = new HashMap<>();
+        for (LineaCarrito linea : transaccion.getLineas()) {
+            if (linea.getProducto().getSku() != null) {
+                unidades.merge(linea.getProducto().getSku(), 1, Integer::sum);
+            }
+        }
+        LocalTime hora = LocalTime.ofInstant(Instant.ofEpochMilli(ahora), zona);
+        double mejor = 0;
+        for (ReglaPrecio combo : combos) {
+            if (!MotorPromociones.vigente(combo, hora)) {
+                continue;
+            }
+            Map<String, Integer> requeridas = new HashMap<>();
+            combo.getCombo().forEach(sku -> requeridas.merge(sku, 1, Integer::sum));
+            int juegos = Integer.MAX_VALUE;
+            for (Map.Entry<String, Integer> requerida : requeridas.entrySet()) {
+                juegos = Math.min(juegos, unidades.getOrDefault(requerida.getKey(), 0) / requerida.getValue());
+            }
+            mejor = Math.max(mejor, juegos * combo.getValor());
+        }
+        return Math.min(mejor, transaccion.getPrecio());
+    }
+
+    /**
+     * Obtiene la franja del día de un momento dado
+     * @param ahora Momento (epoch en milisegundos)
+     * @return Índice de la franja
+     */
+    public int franja(long ahora) {
+        Franja franja = actual;
+        if (ahora >= franja.inicio && ahora < franja.fin) {
+            return franja.indice;
+        }
+        long desplazamiento = ahora < validoHasta ? desplazamientoMs
+                : zona.getRules().getOffset(Instant.ofEpochMilli(ahora)).getTotalSeconds() * 1000L;
+        long numero = Math.floorDiv(ahora + desplazamiento, msPorFranja);
+        long inicio = numero * msPorFranja - desplazamiento;
+        int indice = (int) Math.floorMod(numero, (long) franjasPorDia);
+        // Una franja que cruza una transición de la zona no se guarda, para no extenderla más allá de ella
+        if (ahora < validoHasta && inicio + msPorFranja <= validoHasta) {
+            actual = new Franja(inicio, inicio + msPorFranja, indice);
+        }
+        return indice;
+    }
+
+    /**
+     * Obtiene el número de casillas con precios compilados
+     * @return Número de casillas
+     */
+    public int getCasillas() {
+        return porCasilla.size();
+    }
+
+    /**
+     * Intervalo de una franja concreta, en epoch en milisegundos
+     */
+    private record Franja(long inicio, long fin, int indice) {
+    }
+
+    /**
+     * Precios de una casilla por franja, compilados a partir de un precio de catálogo
+     */
+    public static final class Fila {
+        private final double base;
+        private final double[] precios;
+
+        /**
+         * Constructor de la fila
+         * @param base Precio de catálogo con el que se compiló
+         * @param precios Precio en cada franja del día
+         */
+        public Fila(double base, double[] precios) {
+            this.base = base;
+            this.precios = precios;
+        }
+    }
+}
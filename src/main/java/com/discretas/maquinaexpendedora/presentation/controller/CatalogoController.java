@@ -0,0 +1,84 @@
+package com.discretas.maquinaexpendedora.presentation.controller;
+
+import com.discretas.maquinaexpendedora.cache.CacheIdempotencia;
+import com.discretas.maquinaexpendedora.catalogo.CargadorCatalogo;
+import com.discretas.maquinaexpendedora.precios.ReglaPrecio;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.services.CatalogoService;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Controlador REST del catálogo de productos y de las reglas de precio de la flota.
+ * Las publicaciones se aplican en los actores de todas las máquinas y la respuesta se escribe
+ * cuando terminan, sin ocupar un hilo del contenedor mientras tanto.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@RestController
+@RequestMapping(Constants.Global.API_BASE_PATH + Constants.Catalogo.CATALOGO_SERVICE_PATH)
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogoController {
+
+    private final CatalogoService catalogoService;
+
+    private final CacheIdempotencia cacheIdempotencia;
+
+    /**
+     * Obtiene la versión vigente del catálogo de productos
+     */
+    @GetMapping
+    public ResponseEntity<?> obtenerCatalogo() {
+        return responder(catalogoService.obtenerCatalogo());
+    }
+
+    /**
+     * Publica en caliente una versión nueva del catálogo de productos
+     */
+    @PutMapping
+    public CompletableFuture<ResponseEntity<?>> publicarCatalogo(@RequestBody List<CargadorCatalogo.ProductoCatalogo> productos) {
+        return catalogoService.publicarCatalogoAsync(productos).thenApply(CatalogoController::responder);
+    }
+
+    /**
+     * Vuelve a leer el catálogo configurado y lo publica en caliente
+     */
+    @PostMapping(Constants.Catalogo.CATALOGO_SERVICE_PATH_RELOAD)
+    public CompletableFuture<ResponseEntity<?>> recargarCatalogo(@RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, Constants.Catalogo.CATALOGO_SERVICE_PATH + Constants.Catalogo.CATALOGO_SERVICE_PATH_RELOAD, () -> {
+            log.info("Recargando el catálogo de productos");
+
+            return catalogoService.recargarCatalogoAsync().thenApply(CatalogoController::responder);
+        });
+    }
+
+    /**
+     * Obtiene las reglas de precio y promociones vigentes
+     */
+    @GetMapping(Constants.Catalogo.CATALOGO_SERVICE_PATH_PROMOTIONS)
+    public ResponseEntity<?> obtenerPromociones() {
+        ApiResponseDTO<List<ReglaPrecio>> response = catalogoService.obtenerPromociones();
+        return responder(response);
+    }
+
+    /**
+     * Reemplaza las reglas de precio y promociones
+     */
+    @PutMapping(Constants.Catalogo.CATALOGO_SERVICE_PATH_PROMOTIONS)
+    public CompletableFuture<ResponseEntity<?>> reemplazarPromociones(@RequestBody List<ReglaPrecio> reglas) {
+        return catalogoService.reemplazarPromocionesAsync(reglas).thenApply(CatalogoController::responder);
+    }
+
+    private static ResponseEntity<?> responder(ApiResponseDTO<?> response) {
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+}
@@ -0,0 +1,70 @@
+package com.discretas.maquinaexpendedora.presentation.controller;
+
+import com.discretas.maquinaexpendedora.cluster.GestorCluster;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.services.ClusterService;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controlador REST de la membresía del clúster. Los nodos lo usan entre sí para anunciarse,
+ * retirarse y trasladar máquinas; las operaciones que no llevan la cabecera {@code X-Cluster-Reenviado}
+ * vienen de un operador y se propagan a los demás nodos.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@RestController
+@RequestMapping(Constants.Global.API_BASE_PATH + Constants.Cluster.CLUSTER_SERVICE_PATH)
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterController {
+
+    private final ClusterService clusterService;
+
+    /**
+     * Obtiene el estado del clúster visto desde este nodo
+     */
+    @GetMapping
+    public ResponseEntity<?> obtenerEstado() {
+        ApiResponseDTO<GestorCluster.EstadoCluster> response = clusterService.obtenerEstado();
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+
+    /**
+     * Agrega un nodo al clúster o actualiza su URL
+     */
+    @PutMapping(Constants.Cluster.CLUSTER_SERVICE_PATH_NODE)
+    public ResponseEntity<?> unirNodo(@PathVariable String idNodo,
+                                      @RequestParam String url,
+                                      @RequestHeader(value = Constants.Global.CLUSTER_FORWARDED_HEADER, required = false) String origen) {
+        log.info("Uniendo el nodo {} en {}", idNodo, url);
+        ApiResponseDTO<GestorCluster.EstadoCluster> response = clusterService.unirNodo(idNodo, url, origen == null);
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+
+    /**
+     * Retira un nodo del clúster
+     */
+    @DeleteMapping(Constants.Cluster.CLUSTER_SERVICE_PATH_NODE)
+    public ResponseEntity<?> retirarNodo(@PathVariable String idNodo,
+                                         @RequestHeader(value = Constants.Global.CLUSTER_FORWARDED_HEADER, required = false) String origen) {
+        log.info("Retirando el nodo {}", idNodo);
+        ApiResponseDTO<GestorCluster.EstadoCluster> response = clusterService.retirarNodo(idNodo, origen == null);
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+
+    /**
+     * Recibe las máquinas trasladadas desde otro nodo
+     */
+    @PostMapping(value = Constants.Cluster.CLUSTER_SERVICE_PATH_MACHINES, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> recibirMaquinas(@RequestBody byte[] maquinas) {
+        ApiResponseDTO<Integer> response = clusterService.recibirMaquinas(maquinas);
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+}
@@ -0,0 +1,89 @@
+package com.discretas.maquinaexpendedora.presentation.controller;
+
+import com.discretas.maquinaexpendedora.events.AgregadosVentas;
+import com.discretas.maquinaexpendedora.events.MotorAlertas;
+import com.discretas.maquinaexpendedora.frecuencias.ResumenFrecuencias;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.services.FlotaService;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Controlador REST de las vistas de toda la flota del nodo: alertas, productos más vendidos, agregados de ventas
+ * y plan de reabastecimiento. No opera sobre una máquina, por lo que no usa la cabecera {@code X-Maquina-Id}.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@RestController
+@RequestMapping(Constants.Global.API_BASE_PATH + Constants.Flota.FLOTA_SERVICE_PATH)
+@RequiredArgsConstructor
+@Slf4j
+public class FlotaController {
+
+    private final FlotaService flotaService;
+
+    /**
+     * Obtiene las alertas de stock y anomalías posteriores a la secuencia indicada
+     */
+    @GetMapping(Constants.Flota.FLOTA_SERVICE_PATH_ALERTS)
+    public ResponseEntity<?> obtenerAlertas(@RequestParam(defaultValue = "0") long desde) {
+        ApiResponseDTO<List<MotorAlertas.Alerta>> response = flotaService.obtenerAlertas(desde);
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+
+    /**
+     * Suscribe al cliente a las alertas push de stock y anomalías
+     */
+    @GetMapping(value = Constants.Flota.FLOTA_SERVICE_PATH_ALERTS_EVENTS, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirAlertas() {
+        return flotaService.suscribirAlertas();
+    }
+
+    /**
+     * Obtiene los productos más vendidos de una región o de toda la flota
+     */
+    @GetMapping(Constants.Flota.FLOTA_SERVICE_PATH_TOP_PRODUCTS)
+    public ResponseEntity<?> obtenerTopProductos(@RequestParam(required = false) String region,
+                                                 @RequestParam(defaultValue = "10") int n) {
+        ApiResponseDTO<List<ResumenFrecuencias.Frecuente>> response = flotaService.obtenerTopProductos(region, n);
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+
+    /**
+     * Obtiene el resumen de ventas fusionable de una región o de toda la flota
+     */
+    @GetMapping(Constants.Flota.FLOTA_SERVICE_PATH_TOP_PRODUCTS_SUMMARY)
+    public ResponseEntity<?> obtenerResumenVentas(@RequestParam(required = false) String region) {
+        ApiResponseDTO<ResumenFrecuencias> response = flotaService.obtenerResumenVentas(region);
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+
+    /**
+     * Obtiene los agregados de ventas de todas las máquinas del nodo
+     */
+    @GetMapping(Constants.Flota.FLOTA_SERVICE_PATH_STATISTICS)
+    public ResponseEntity<?> obtenerEstadisticas() {
+        ApiResponseDTO<AgregadosVentas.ResumenVentas> response = flotaService.obtenerEstadisticas();
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+
+    /**
+     * Calcula el plan de reabastecimiento de la flota hasta la próxima visita, sin ocupar un hilo mientras
+     * los actores de las máquinas entregan sus datos
+     */
+    @GetMapping(Constants.Flota.FLOTA_SERVICE_PATH_RESTOCK_PLAN)
+    public CompletableFuture<ResponseEntity<?>> obtenerPlanReabastecimiento(@RequestParam(defaultValue = "24") double horas) {
+        return flotaService.obtenerPlanReabastecimientoAsync(horas)
+                .thenApply(response -> new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus())));
+    }
+}
@@ -0,0 +1,59 @@
+package com.discretas.maquinaexpendedora.presentation.controller;
+
+import com.discretas.maquinaexpendedora.actor.MaquinaNoDisponibleException;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Respuestas de los controladores cuando el servicio no está disponible por un momento.
+ * Una máquina que se trasladó a otro nodo mientras se atendía la solicitud responde 503, y toda respuesta 503
+ * lleva la cabecera Retry-After para que el cliente reintente en lugar de tratarla como un error definitivo.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@RestControllerAdvice
+public class ManejadorMaquinaNoDisponible implements ResponseBodyAdvice<Object> {
+
+    /**
+     * Responde 503 cuando la máquina de la solicitud dejó de estar en este nodo
+     */
+    @ExceptionHandler(MaquinaNoDisponibleException.class)
+    public ResponseEntity<ApiResponseDTO<Void>> maquinaNoDisponible(MaquinaNoDisponibleException e) {
+        log.info(e.getMessage());
+        ApiResponseDTO<Void> response = new ApiResponseDTO<>();
+        response.BusyOperation(null);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Constants.Global.RETRY_AFTER_SECONDS)
+                .body(response);
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof ApiResponseDTO<?> respuesta && respuesta.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                && !response.getHeaders().containsKey(HttpHeaders.RETRY_AFTER)) {
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Constants.Global.RETRY_AFTER_SECONDS);
+        }
+        return body;
+    }
+}
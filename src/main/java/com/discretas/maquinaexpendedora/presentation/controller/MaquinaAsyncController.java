@@ -0,0 +1,258 @@
+package com.discretas.maquinaexpendedora.presentation.controller;
+
+import com.discretas.maquinaexpendedora.cache.CacheIdempotencia;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.protocolo.ProtocoloBinario;
+import com.discretas.maquinaexpendedora.services.MaquinaService;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.InputStream;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Variante no bloqueante de {@link MaquinaController} con las mismas operaciones.
+ * Cada endpoint devuelve un {@link CompletableFuture}: el hilo del contenedor se libera en cuanto
+ * la operación se encola en el actor de la máquina y la respuesta se escribe cuando el futuro se completa,
+ * de modo que las conexiones en espera (tableros, quioscos, esperas de dispensación) no ocupan hilos.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@RestController
+@RequestMapping(Constants.Global.API_BASE_PATH + Constants.Maquina.MAQUINA_ASYNC_SERVICE_PATH)
+@RequiredArgsConstructor
+@Slf4j
+public class MaquinaAsyncController {
+
+    private final MaquinaService maquinaService;
+
+    private final CacheIdempotencia cacheIdempotencia;
+
+    private final ProtocoloBinario protocoloBinario;
+
+    /**
+     * Obtiene el estado actual de la máquina
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_STATE)
+    public CompletableFuture<ResponseEntity<byte[]>> obtenerEstado(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacion) {
+        return maquinaService.obtenerSerializadoAsync(Constants.Maquina.MAQUINA_SERVICE_PATH_STATE, maquinaService::obtenerEstadoActualAsync)
+                .thenApply(respuesta -> MaquinaController.responderSerializado(respuesta, codificacion));
+    }
+
+    /**
+     * Obtiene todos los productos disponibles
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_PRODUCTS)
+    public CompletableFuture<ResponseEntity<byte[]>> obtenerProductos(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacion) {
+        return maquinaService.obtenerSerializadoAsync(Constants.Maquina.MAQUINA_SERVICE_PATH_PRODUCTS, maquinaService::obtenerProductosDisponiblesAsync)
+                .thenApply(respuesta -> MaquinaController.responderSerializado(respuesta, codificacion));
+    }
+
+    /**
+     * Selecciona un producto
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_SELECT + "/{codigoProducto}")
+    public CompletableFuture<ResponseEntity<?>> seleccionarProducto(@PathVariable String codigoProducto,
+                                                                    @RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                                                    @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, () -> MaquinaController.rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_SELECT), () -> codigoProducto + (compacto ? MaquinaController.COMPACTO : ""),
+                () -> maquinaService.seleccionarProductoAsync(codigoProducto)
+                        .thenApply(response -> MaquinaController.responderResultado(response, compacto)));
+    }
+
+    /**
+     * Agrega un producto al carrito
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_CART + "/{codigoProducto}")
+    public CompletableFuture<ResponseEntity<?>> agregarProducto(@PathVariable String codigoProducto,
+                                                                @RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                                                @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, () -> MaquinaController.rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_CART), () -> codigoProducto + (compacto ? MaquinaController.COMPACTO : ""),
+                () -> maquinaService.agregarProductoAsync(codigoProducto)
+                        .thenApply(response -> MaquinaController.responderResultado(response, compacto)));
+    }
+
+    /**
+     * Agrega varios productos al carrito
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_CART)
+    public CompletableFuture<ResponseEntity<?>> agregarProductos(@RequestBody List<String> codigosProducto,
+                                                                 @RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                                                 @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, () -> MaquinaController.rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_CART), () -> String.join(",", codigosProducto) + (compacto ? MaquinaController.COMPACTO : ""),
+                () -> maquinaService.agregarProductosAsync(codigosProducto)
+                        .thenApply(response -> MaquinaController.responderResultado(response, compacto)));
+    }
+
+    /**
+     * Inserta dinero en la máquina
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY + "/{monto}")
+    public CompletableFuture<ResponseEntity<?>> insertarDinero(@PathVariable double monto,
+                                                               @RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                                               @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, () -> MaquinaController.rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY), () -> monto + (compacto ? MaquinaController.COMPACTO : ""),
+                () -> maquinaService.insertarDineroAsync(monto)
+                        .thenApply(response -> MaquinaController.responderResultado(response, compacto)));
+    }
+
+    /**
+     * Ingresa un flujo de denominaciones (lote o conexión persistente) en la máquina, leyéndolo fuera del hilo del contenedor
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY_BATCH)
+    public CompletableFuture<ResponseEntity<?>> insertarDineroLote(InputStream flujo,
+                                                                   @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, () -> MaquinaController.rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY_BATCH),
+                () -> "", () -> maquinaService.insertarDineroLoteAsync(flujo).thenApply(MaquinaAsyncController::responder));
+    }
+
+    /**
+     * Confirma el pago
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_CONFIRM_PAYMENT)
+    public CompletableFuture<ResponseEntity<?>> confirmarPago(@RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                                              @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, () -> MaquinaController.rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_CONFIRM_PAYMENT), () -> compacto ? MaquinaController.COMPACTO : "",
+                () -> maquinaService.confirmarPagoAsync()
+                        .thenApply(response -> MaquinaController.responderResultado(response, compacto)));
+    }
+
+    /**
+     * Dispensa el producto
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE)
+    public CompletableFuture<ResponseEntity<?>> dispensarProducto(@RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, () -> MaquinaController.rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE),
+                () -> "", () -> maquinaService.dispensarProductoAsync().thenApply(MaquinaAsyncController::responder));
+    }
+
+    /**
+     * Consulta el estado de una dispensación
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE_TICKET)
+    public ResponseEntity<?> consultarDispensacion(@PathVariable String idTicket) {
+        return responder(maquinaService.consultarDispensacion(idTicket));
+    }
+
+    /**
+     * Espera a que termine una dispensación sin ocupar un hilo y devuelve el ticket terminado
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE_RESULT)
+    public CompletableFuture<ResponseEntity<?>> esperarDispensacion(@PathVariable String idTicket) {
+        return maquinaService.esperarDispensacion(idTicket).thenApply(MaquinaAsyncController::responder);
+    }
+
+    /**
+     * Concilia una dispensación incierta cuando el operador verificó si el producto se entregó
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE_RECONCILE)
+    public CompletableFuture<ResponseEntity<?>> conciliarDispensacion(@PathVariable String idTicket, @RequestParam boolean entregado) {
+        log.info("Conciliando la dispensación {}: entregado={}", idTicket, entregado);
+        return maquinaService.conciliarDispensacionAsync(idTicket, entregado)
+                .thenApply(response -> MaquinaController.responderResultado(response, false));
+    }
+
+    /**
+     * Cancela la transacción actual
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_CANCEL)
+    public CompletableFuture<ResponseEntity<?>> cancelarTransaccion(@RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                                                    @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, () -> MaquinaController.rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_CANCEL), () -> compacto ? MaquinaController.COMPACTO : "",
+                () -> maquinaService.cancelarTransaccionAsync()
+                        .thenApply(response -> MaquinaController.responderResultado(response, compacto)));
+    }
+
+    /**
+     * Obtiene la transacción actual
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_CURRENT_TRANSACTION)
+    public CompletableFuture<ResponseEntity<?>> obtenerTransaccionActual() {
+        return maquinaService.obtenerTransaccionActualAsync().thenApply(MaquinaAsyncController::responder);
+    }
+
+    /**
+     * Obtiene el historial de transacciones
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_HISTORY)
+    public CompletableFuture<ResponseEntity<byte[]>> obtenerHistorial(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacion) {
+        return maquinaService.obtenerSerializadoAsync(Constants.Maquina.MAQUINA_SERVICE_PATH_HISTORY, maquinaService::obtenerHistorialTransaccionesAsync)
+                .thenApply(respuesta -> MaquinaController.responderSerializado(respuesta, codificacion));
+    }
+
+    /**
+     * Reinicia la máquina
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_RESTART)
+    public CompletableFuture<ResponseEntity<?>> reiniciarMaquina(@RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                                                 @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, () -> MaquinaController.rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_RESTART), () -> compacto ? MaquinaController.COMPACTO : "", () -> {
+            log.info("Reiniciando máquina expendedora");
+
+            return maquinaService.reiniciarMaquinaAsync()
+                    .thenApply(response -> MaquinaController.responderResultado(response, compacto));
+        });
+    }
+
+    /**
+     * Obtiene el dinero disponible en la máquina
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_AVAILABLE_MONEY)
+    public CompletableFuture<ResponseEntity<byte[]>> obtenerDineroDisponible(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacion) {
+        return maquinaService.obtenerSerializadoAsync(Constants.Maquina.MAQUINA_SERVICE_PATH_AVAILABLE_MONEY, maquinaService::obtenerDineroDisponibleAsync)
+                .thenApply(respuesta -> MaquinaController.responderSerializado(respuesta, codificacion));
+    }
+
+    /**
+     * Suscribe al cliente a las notificaciones push de eventos de la máquina
+     */
+    @GetMapping(value = Constants.Maquina.MAQUINA_SERVICE_PATH_EVENTS, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirEventos() {
+        return maquinaService.suscribirEventos();
+    }
+
+    /**
+     * Obtiene en una sola respuesta una instantánea consistente de todos los paneles del tablero
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_DASHBOARD)
+    public CompletableFuture<ResponseEntity<byte[]>> obtenerDashboard(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacion) {
+        return maquinaService.obtenerSerializadoAsync(Constants.Maquina.MAQUINA_SERVICE_PATH_DASHBOARD, maquinaService::obtenerDashboardAsync)
+                .thenApply(respuesta -> MaquinaController.responderSerializado(respuesta, codificacion));
+    }
+
+    /**
+     * Obtiene el precio vigente de cada casilla, con las promociones de la franja actual
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_PROMOTIONS_PRICES)
+    public CompletableFuture<ResponseEntity<?>> obtenerPreciosVigentes() {
+        return maquinaService.obtenerPreciosVigentesAsync().thenApply(MaquinaAsyncController::responder);
+    }
+
+    /**
+     * Procesa una solicitud en el protocolo binario compacto de las máquinas en campo.
+     * Las tramas se procesan al recibir la solicitud: cada una es una operación corta en el actor
+     * y la dispensación solo se inicia, sin esperar al hardware
+     */
+    @PostMapping(value = Constants.Maquina.MAQUINA_SERVICE_PATH_BINARY,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public CompletableFuture<ResponseEntity<?>> procesarBinario(@RequestBody byte[] solicitud,
+                                                                @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, () -> MaquinaController.rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_BINARY),
+                () -> HexFormat.of().formatHex(solicitud),
+                () -> CompletableFuture.completedFuture(MaquinaController.responderBinario(protocoloBinario.procesar(solicitud))));
+    }
+
+    private static ResponseEntity<?> responder(ApiResponseDTO<?> response) {
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+}
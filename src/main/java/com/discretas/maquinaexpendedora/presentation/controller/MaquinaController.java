@@ -1,21 +1,38 @@
 package com.discretas.maquinaexpendedora.presentation.controller;
 
-import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.cache.CacheIdempotencia;
+import com.discretas.maquinaexpendedora.cache.CacheRespuestas;
+import com.discretas.maquinaexpendedora.cluster.EnrutadorCluster;
+import com.discretas.maquinaexpendedora.models.TicketDispensacion;
 import com.discretas.maquinaexpendedora.models.Transaccion;
 import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.presentation.dto.IngestaDineroDTO;
+import com.discretas.maquinaexpendedora.presentation.dto.ResultadoDTO;
+import com.discretas.maquinaexpendedora.protocolo.ProtocoloBinario;
 import com.discretas.maquinaexpendedora.services.MaquinaService;
+import com.discretas.maquinaexpendedora.state.ResultadoOperacion;
 import com.discretas.maquinaexpendedora.utils.Constants;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controlador REST para manejar las operaciones de la máquina expendedora.
+ * Todas las operaciones POST aceptan la cabecera {@code Idempotency-Key}: un reintento
+ * con la misma clave recibe la respuesta original sin volver a ejecutar la operación.
+ * Las operaciones de la máquina aceptan el parámetro {@code compacto} para integraciones
+ * máquina a máquina, que reciben solo el código del resultado.
  *
  * @author Duvan Gil
  * @version 1.0
@@ -26,75 +43,169 @@ import java.util.Map;
 @Slf4j
 public class MaquinaController {
 
+    private static final String GZIP = "gzip";
+
+    static final String COMPACTO = "?compacto";
+
     private final MaquinaService maquinaService;
 
+    private final CacheIdempotencia cacheIdempotencia;
+
+    private final ProtocoloBinario protocoloBinario;
+
     /**
      * Obtiene el estado actual de la máquina
      */
     @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_STATE)
-    public ResponseEntity<?> obtenerEstado() {
-        ApiResponseDTO<String> response = maquinaService.obtenerEstadoActual();
-        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    public ResponseEntity<?> obtenerEstado(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacion) {
+        return responderSerializado(maquinaService.obtenerSerializado(
+                Constants.Maquina.MAQUINA_SERVICE_PATH_STATE, maquinaService::obtenerEstadoActual), codificacion);
     }
 
     /**
      * Obtiene todos los productos disponibles
      */
     @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_PRODUCTS)
-    public ResponseEntity<?> obtenerProductos() {
-        ApiResponseDTO<Map<String, Producto>> response = maquinaService.obtenerProductosDisponibles();
-        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    public ResponseEntity<?> obtenerProductos(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacion) {
+        return responderSerializado(maquinaService.obtenerSerializado(
+                Constants.Maquina.MAQUINA_SERVICE_PATH_PRODUCTS, maquinaService::obtenerProductosDisponibles), codificacion);
     }
 
     /**
      * Selecciona un producto
      */
     @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_SELECT + "/{codigoProducto}")
-    public ResponseEntity<?> seleccionarProducto(@PathVariable String codigoProducto) {
-        log.info("Seleccionando producto: {}", codigoProducto);
+    public ResponseEntity<?> seleccionarProducto(@PathVariable String codigoProducto,
+                                                 @RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                                 @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolver(claveIdempotencia, () -> rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_SELECT), () -> codigoProducto + (compacto ? COMPACTO : ""), () -> {
+            if (log.isDebugEnabled()) {
+                log.debug("Seleccionando producto: {}", codigoProducto);
+            }
 
-        ApiResponseDTO<String> response = maquinaService.seleccionarProducto(codigoProducto);
-        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+            return responderResultado(maquinaService.seleccionarProducto(codigoProducto), compacto);
+        });
+    }
+
+    /**
+     * Agrega un producto al carrito
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_CART + "/{codigoProducto}")
+    public ResponseEntity<?> agregarProducto(@PathVariable String codigoProducto,
+                                             @RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                             @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolver(claveIdempotencia, () -> rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_CART), () -> codigoProducto + (compacto ? COMPACTO : ""), () -> {
+            if (log.isDebugEnabled()) {
+                log.debug("Agregando producto al carrito: {}", codigoProducto);
+            }
+
+            return responderResultado(maquinaService.agregarProducto(codigoProducto), compacto);
+        });
+    }
+
+    /**
+     * Agrega varios productos al carrito
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_CART)
+    public ResponseEntity<?> agregarProductos(@RequestBody List<String> codigosProducto,
+                                              @RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                              @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolver(claveIdempotencia, () -> rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_CART), () -> String.join(",", codigosProducto) + (compacto ? COMPACTO : ""), () -> {
+            if (log.isDebugEnabled()) {
+                log.debug("Agregando productos al carrito: {}", codigosProducto);
+            }
+
+            return responderResultado(maquinaService.agregarProductos(codigosProducto), compacto);
+        });
     }
 
     /**
      * Inserta dinero en la máquina
      */
     @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY + "/{monto}")
-    public ResponseEntity<?> insertarDinero(@PathVariable double monto) {
-        log.info("Insertando dinero: ${}", monto);
+    public ResponseEntity<?> insertarDinero(@PathVariable double monto,
+                                            @RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                            @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolver(claveIdempotencia, () -> rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY), () -> monto + (compacto ? COMPACTO : ""), () -> {
+            if (log.isDebugEnabled()) {
+                log.debug("Insertando dinero: ${}", monto);
+            }
 
-        ApiResponseDTO<String> response = maquinaService.insertarDinero(monto);
-        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+            return responderResultado(maquinaService.insertarDinero(monto), compacto);
+        });
+    }
+
+    /**
+     * Ingresa un flujo de denominaciones (lote o conexión persistente) en la máquina
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY_BATCH)
+    public ResponseEntity<?> insertarDineroLote(InputStream flujo,
+                                                @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolver(claveIdempotencia, () -> rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY_BATCH), () -> "", () -> {
+            ApiResponseDTO<IngestaDineroDTO> response = maquinaService.insertarDineroLote(flujo);
+            return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+        });
     }
 
     /**
      * Confirma el pago
      */
     @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_CONFIRM_PAYMENT)
-    public ResponseEntity<?> confirmarPago() {
-        ApiResponseDTO<String> response = maquinaService.confirmarPago();
-        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    public ResponseEntity<?> confirmarPago(@RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                           @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolver(claveIdempotencia, () -> rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_CONFIRM_PAYMENT), () -> compacto ? COMPACTO : "", () -> {
+            return responderResultado(maquinaService.confirmarPago(), compacto);
+        });
     }
 
     /**
      * Dispensa el producto
      */
     @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE)
-    public ResponseEntity<?> dispensarProducto() {
-        ApiResponseDTO<String> response = maquinaService.dispensarProducto();
+    public ResponseEntity<?> dispensarProducto(@RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolver(claveIdempotencia, () -> rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE), () -> "", () -> {
+            ApiResponseDTO<TicketDispensacion> response = maquinaService.dispensarProducto();
+            return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+        });
+    }
+
+    /**
+     * Consulta el estado de una dispensación
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE_TICKET)
+    public ResponseEntity<?> consultarDispensacion(@PathVariable String idTicket) {
+        ApiResponseDTO<TicketDispensacion> response = maquinaService.consultarDispensacion(idTicket);
         return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
 
+    /**
+     * Espera a que termine una dispensación y devuelve el ticket terminado. La espera depende del hardware,
+     * así que se responde de forma asíncrona, sin retener el hilo de la solicitud.
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE_RESULT)
+    public CompletableFuture<ResponseEntity<?>> esperarDispensacion(@PathVariable String idTicket) {
+        return maquinaService.esperarDispensacion(idTicket)
+                .thenApply(response -> new ResponseEntity<Object>(response, HttpStatusCode.valueOf(response.getStatus())));
+    }
+
+    /**
+     * Concilia una dispensación incierta cuando el operador verificó si el producto se entregó
+     */
+    @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE_RECONCILE)
+    public ResponseEntity<?> conciliarDispensacion(@PathVariable String idTicket, @RequestParam boolean entregado) {
+        log.info("Conciliando la dispensación {}: entregado={}", idTicket, entregado);
+        return responderResultado(maquinaService.conciliarDispensacion(idTicket, entregado), false);
     }
 
     /**
      * Cancela la transacción actual
      */
     @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_CANCEL)
-    public ResponseEntity<?> cancelarTransaccion() {
-        ApiResponseDTO<String> response = maquinaService.cancelarTransaccion();
-        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
-
+    public ResponseEntity<?> cancelarTransaccion(@RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                                 @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolver(claveIdempotencia, () -> rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_CANCEL), () -> compacto ? COMPACTO : "", () -> {
+            return responderResultado(maquinaService.cancelarTransaccion(), compacto);
+        });
     }
 
     /**
@@ -111,30 +222,114 @@ public class MaquinaController {
      * Obtiene el historial de transacciones
      */
     @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_HISTORY)
-    public ResponseEntity<?> obtenerHistorial() {
-        ApiResponseDTO<List<Transaccion>> response = maquinaService.obtenerHistorialTransacciones();
-        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
-
+    public ResponseEntity<?> obtenerHistorial(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacion) {
+        return responderSerializado(maquinaService.obtenerSerializado(
+                Constants.Maquina.MAQUINA_SERVICE_PATH_HISTORY, maquinaService::obtenerHistorialTransacciones), codificacion);
     }
 
     /**
      * Reinicia la máquina
      */
     @PostMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_RESTART)
-    public ResponseEntity<?> reiniciarMaquina() {
-        log.info("Reiniciando máquina expendedora");
-
-        ApiResponseDTO<String> response = maquinaService.reiniciarMaquina();
-        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    public ResponseEntity<?> reiniciarMaquina(@RequestParam(value = Constants.Global.COMPACT_PARAM, defaultValue = "false") boolean compacto,
+                                              @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolver(claveIdempotencia, () -> rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_RESTART), () -> compacto ? COMPACTO : "", () -> {
+            log.info("Reiniciando máquina expendedora");
 
+            return responderResultado(maquinaService.reiniciarMaquina(), compacto);
+        });
     }
 
     /**
      * Obtiene el dinero disponible en la máquina
      */
     @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_AVAILABLE_MONEY)
-    public ResponseEntity<?> obtenerDineroDisponible() {
-        ApiResponseDTO<Double> response = maquinaService.obtenerDineroDisponible();
+    public ResponseEntity<?> obtenerDineroDisponible(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacion) {
+        return responderSerializado(maquinaService.obtenerSerializado(
+                Constants.Maquina.MAQUINA_SERVICE_PATH_AVAILABLE_MONEY, maquinaService::obtenerDineroDisponible), codificacion);
+    }
+
+    /**
+     * Suscribe al cliente a las notificaciones push de eventos de la máquina
+     */
+    @GetMapping(value = Constants.Maquina.MAQUINA_SERVICE_PATH_EVENTS, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirEventos() {
+        return maquinaService.suscribirEventos();
+    }
+
+    /**
+     * Obtiene en una sola respuesta una instantánea consistente de todos los paneles del tablero
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_DASHBOARD)
+    public ResponseEntity<?> obtenerDashboard(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String codificacion) {
+        return responderSerializado(maquinaService.obtenerSerializado(
+                Constants.Maquina.MAQUINA_SERVICE_PATH_DASHBOARD, maquinaService::obtenerDashboard), codificacion);
+    }
+
+    /**
+     * Obtiene el precio vigente de cada casilla, con las promociones de la franja actual
+     */
+    @GetMapping(Constants.Maquina.MAQUINA_SERVICE_PATH_PROMOTIONS_PRICES)
+    public ResponseEntity<?> obtenerPreciosVigentes() {
+        ApiResponseDTO<Map<String, Double>> response = maquinaService.obtenerPreciosVigentes();
         return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
     }
+
+    /**
+     * Procesa una solicitud en el protocolo binario compacto de las máquinas en campo
+     */
+    @PostMapping(value = Constants.Maquina.MAQUINA_SERVICE_PATH_BINARY,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> procesarBinario(@RequestBody byte[] solicitud,
+                                             @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolver(claveIdempotencia, () -> rutaMaquina(Constants.Maquina.MAQUINA_SERVICE_PATH_BINARY),
+                () -> HexFormat.of().formatHex(solicitud),
+                () -> responderBinario(protocoloBinario.procesar(solicitud)));
+    }
+
+    /**
+     * Antepone a la ruta de una operación la máquina a la que se enrutó la solicitud, para que la misma clave
+     * de idempotencia enviada a dos máquinas no devuelva a la segunda la respuesta de la primera.
+     * Debe llamarse en el hilo de la solicitud.
+     */
+    static String rutaMaquina(String ruta) {
+        String idMaquina = EnrutadorCluster.maquinaSolicitada();
+        return (idMaquina != null ? idMaquina : Constants.Maquina.MAQUINA_ID_DEFAULT) + ruta;
+    }
+
+    /**
+     * Responde con el cuerpo del protocolo binario, o 400 si la solicitud estaba mal formada
+     */
+    static ResponseEntity<?> responderBinario(byte[] respuesta) {
+        if (respuesta == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(respuesta);
+    }
+
+    /**
+     * Responde con el resultado de una operación de la máquina. Por defecto incluye el mensaje
+     * legible; con {@code compacto=true} solo envía el código y los datos numéricos, sin construir texto
+     */
+    static ResponseEntity<?> responderResultado(ApiResponseDTO<ResultadoOperacion> response, boolean compacto) {
+        HttpStatusCode status = HttpStatusCode.valueOf(response.getStatus());
+        if (compacto) {
+            return new ResponseEntity<>(response, status);
+        }
+        return new ResponseEntity<>(ResultadoDTO.envolver(response), status);
+    }
+
+    /**
+     * Escribe una respuesta ya serializada, comprimida con gzip si el cliente lo acepta
+     */
+    static ResponseEntity<byte[]> responderSerializado(CacheRespuestas.RespuestaSerializada respuesta, String codificacion) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(respuesta.getStatus())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (codificacion != null && codificacion.contains(GZIP)) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(respuesta.getGzip());
+        }
+        return builder.body(respuesta.getJson());
+    }
+
 }
@@ -0,0 +1,67 @@
+package com.discretas.maquinaexpendedora.presentation.controller;
+
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.presentation.dto.ReplicacionDTO;
+import com.discretas.maquinaexpendedora.replicacion.ReplicaRespaldo;
+import com.discretas.maquinaexpendedora.services.ReplicacionService;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controlador REST de la replicación del diario. El nodo de origen envía aquí las copias base y los lotes
+ * de eventos; un operador consulta el retraso de la replicación y promueve la réplica cuando el origen cae.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@RestController
+@RequestMapping(Constants.Global.API_BASE_PATH + Constants.Replicacion.REPLICATION_SERVICE_PATH)
+@RequiredArgsConstructor
+@Slf4j
+public class ReplicacionController {
+
+    private final ReplicacionService replicacionService;
+
+    /**
+     * Obtiene el estado de la replicación en este nodo
+     */
+    @GetMapping
+    public ResponseEntity<?> obtenerEstado() {
+        ApiResponseDTO<ReplicacionDTO> response = replicacionService.obtenerEstado();
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+
+    /**
+     * Recibe una copia base de las máquinas del origen
+     */
+    @PutMapping(value = Constants.Replicacion.REPLICATION_SERVICE_PATH_BASE, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> recibirBase(@RequestBody byte[] maquinas,
+                                         @RequestHeader(Constants.Global.REPLICATION_SEQUENCE_HEADER) long secuencia) {
+        ApiResponseDTO<Integer> response = replicacionService.recibirBase(maquinas, secuencia);
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+
+    /**
+     * Recibe un lote de eventos del origen
+     */
+    @PostMapping(value = Constants.Replicacion.REPLICATION_SERVICE_PATH_EVENTS, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> aplicarLote(@RequestBody byte[] lote) {
+        ApiResponseDTO<ReplicaRespaldo.EstadoRespaldo> response = replicacionService.aplicarLote(lote);
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+
+    /**
+     * Promueve la réplica para que este nodo atienda las máquinas del origen
+     */
+    @PostMapping(Constants.Replicacion.REPLICATION_SERVICE_PATH_PROMOTE)
+    public ResponseEntity<?> promover() {
+        log.info("Promoviendo la réplica de respaldo");
+        ApiResponseDTO<Integer> response = replicacionService.promover();
+        return new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()));
+    }
+}
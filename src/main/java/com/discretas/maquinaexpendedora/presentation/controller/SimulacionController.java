@@ -0,0 +1,42 @@
+package com.discretas.maquinaexpendedora.presentation.controller;
+
+import com.discretas.maquinaexpendedora.cache.CacheIdempotencia;
+import com.discretas.maquinaexpendedora.presentation.dto.SimulacionDTO;
+import com.discretas.maquinaexpendedora.services.SimulacionService;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Controlador REST de la simulación con clientes sintéticos. Simula la máquina indicada en la cabecera
+ * {@code X-Maquina-Id}, o la principal del nodo, con sus productos y precios actuales.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@RestController
+@RequestMapping(Constants.Global.API_BASE_PATH + Constants.Simulacion.SIMULACION_SERVICE_PATH)
+@RequiredArgsConstructor
+@Slf4j
+public class SimulacionController {
+
+    private final SimulacionService simulacionService;
+
+    private final CacheIdempotencia cacheIdempotencia;
+
+    /**
+     * Simula la máquina con clientes sintéticos para ajustar el dinero inicial y la frecuencia de reabastecimiento
+     */
+    @PostMapping
+    public CompletableFuture<ResponseEntity<?>> simular(@RequestBody SimulacionDTO simulacion,
+                                                        @RequestHeader(value = Constants.Global.IDEMPOTENCY_KEY_HEADER, required = false) String claveIdempotencia) {
+        return cacheIdempotencia.resolverAsync(claveIdempotencia, Constants.Simulacion.SIMULACION_SERVICE_PATH,
+                () -> simulacionService.simularAsync(simulacion)
+                        .thenApply(response -> new ResponseEntity<>(response, HttpStatusCode.valueOf(response.getStatus()))));
+    }
+}
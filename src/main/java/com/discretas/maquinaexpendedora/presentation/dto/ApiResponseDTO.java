@@ -124,4 +124,80 @@ public class ApiResponseDTO<T> {
         setTimestamp(LocalDateTime.now());
     }
 
+    /**
+     * Configura la respuesta para una operación sobre un recurso que no existe.
+     * Establece un error de recurso no encontrado (404).
+     */
+    public void NotFoundOperation(){
+        setData(null);
+        setMessage(Constants.Message.NOT_FOUND_OPERATION);
+        setSuccess(false);
+        setStatus(HttpStatus.NOT_FOUND.value());
+        setTimestamp(LocalDateTime.now());
+    }
+
+    /**
+     * Configura la respuesta para una operación rechazada por falta de capacidad.
+     * Establece un error de servicio no disponible (503).
+     *
+     * @param data Los datos relacionados con la operación rechazada
+     */
+    public void BusyOperation(T data){
+        setData(data);
+        setMessage(Constants.Message.BUSY_OPERATION);
+        setSuccess(false);
+        setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        setTimestamp(LocalDateTime.now());
+    }
+
+    /**
+     * Configura la respuesta para una operación que no puede aplicarse sobre el estado actual.
+     * Establece un error de conflicto (409).
+     *
+     * @param data Datos del estado actual
+     */
+    public void ConflictOperation(T data){
+        setData(data);
+        setMessage(Constants.Message.CONFLICT_OPERATION);
+        setSuccess(false);
+        setStatus(HttpStatus.CONFLICT.value());
+        setTimestamp(LocalDateTime.now());
+    }
+
+    /**
+     * Configura la respuesta para una clave de idempotencia que ya se usó con otros parámetros.
+     * Establece un error de entidad no procesable (422).
+     */
+    public void ReusedKeyOperation(){
+        setData(null);
+        setMessage(Constants.Message.REUSED_KEY_OPERATION);
+        setSuccess(false);
+        setStatus(HttpStatus.UNPROCESSABLE_ENTITY.value());
+        setTimestamp(LocalDateTime.now());
+    }
+
+    /**
+     * Configura la respuesta para una operación interna solicitada sin las credenciales del clúster.
+     * Establece un error de acceso prohibido (403).
+     */
+    public void ForbiddenOperation(){
+        setData(null);
+        setMessage(Constants.Message.FORBIDDEN_OPERATION);
+        setSuccess(false);
+        setStatus(HttpStatus.FORBIDDEN.value());
+        setTimestamp(LocalDateTime.now());
+    }
+
+    /**
+     * Configura la respuesta para una operación rechazada por el control de admisión.
+     * Establece un error de demasiadas solicitudes (429).
+     */
+    public void LimitedOperation(){
+        setData(null);
+        setMessage(Constants.Message.LIMITED_OPERATION);
+        setSuccess(false);
+        setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        setTimestamp(LocalDateTime.now());
+    }
+
 }
\ No newline at end of file
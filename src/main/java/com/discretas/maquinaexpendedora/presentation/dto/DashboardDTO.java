@@ -0,0 +1,42 @@
+package com.discretas.maquinaexpendedora.presentation.dto;
+
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * DTO con una instantánea consistente de todos los paneles del tablero de la máquina.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Data
+public class DashboardDTO {
+
+    /**
+     * Versión de los datos de la máquina en que se tomó la instantánea
+     */
+    private long version;
+
+    /**
+     * Nombre del estado actual de la máquina
+     */
+    private String estado;
+
+    /**
+     * Dinero disponible para dar cambio
+     */
+    private double dineroDisponible;
+
+    /**
+     * Transacción en curso, null si no hay ninguna
+     */
+    private Transaccion transaccionActual;
+
+    /**
+     * Productos del inventario
+     */
+    private Map<String, Producto> productos;
+}
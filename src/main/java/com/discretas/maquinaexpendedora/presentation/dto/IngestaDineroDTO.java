@@ -0,0 +1,49 @@
+package com.discretas.maquinaexpendedora.presentation.dto;
+
+import com.discretas.maquinaexpendedora.state.ResultadoOperacion;
+import lombok.Data;
+
+/**
+ * DTO con el resultado de la ingesta de un flujo de denominaciones.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Data
+public class IngestaDineroDTO {
+
+    /**
+     * Número de denominaciones válidas recibidas
+     */
+    private long eventos;
+
+    /**
+     * Número de denominaciones descartadas por ser inválidas
+     */
+    private long rechazados;
+
+    /**
+     * Número de lotes aplicados a la máquina (una evaluación de estado por lote)
+     */
+    private long lotes;
+
+    /**
+     * Suma de las denominaciones válidas recibidas
+     */
+    private double montoRecibido;
+
+    /**
+     * Suma de los lotes que la máquina aceptó como pago
+     */
+    private double montoAceptado;
+
+    /**
+     * Resultado de la máquina tras aplicar el último lote
+     */
+    private ResultadoOperacion resultado;
+
+    /**
+     * true si el flujo se interrumpió y solo se aplicaron los lotes indicados
+     */
+    private boolean interrumpida;
+}
@@ -0,0 +1,29 @@
+package com.discretas.maquinaexpendedora.presentation.dto;
+
+import com.discretas.maquinaexpendedora.replicacion.ReplicaRespaldo;
+import com.discretas.maquinaexpendedora.replicacion.ReplicadorDiario;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con el estado de la replicación del diario en este nodo, como origen y como respaldo.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicacionDTO {
+
+    /**
+     * Replicación de los eventos de este nodo hacia su respaldo
+     */
+    private ReplicadorDiario.EstadoReplicacion envio;
+
+    /**
+     * Réplica que este nodo mantiene de otro nodo
+     */
+    private ReplicaRespaldo.EstadoRespaldo respaldo;
+}
@@ -0,0 +1,101 @@
+package com.discretas.maquinaexpendedora.presentation.dto;
+
+import com.discretas.maquinaexpendedora.state.CodigoResultado;
+import com.discretas.maquinaexpendedora.state.ResultadoOperacion;
+import lombok.Data;
+
+/**
+ * DTO con el resultado de una operación de la máquina para clientes de personas:
+ * incluye el código y tipo del resultado junto con el mensaje ya construido.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Data
+public class ResultadoDTO {
+
+    /**
+     * Código del resultado
+     */
+    private CodigoResultado codigo;
+
+    /**
+     * Tipo del resultado (EXITO, INFO, ADVERTENCIA, ERROR)
+     */
+    private CodigoResultado.TipoResultado tipo;
+
+    /**
+     * Mensaje legible del resultado
+     */
+    private String mensaje;
+
+    /**
+     * Referencia asociada (nombre o código del producto)
+     */
+    private String referencia;
+
+    /**
+     * Monto de la operación
+     */
+    private double monto;
+
+    /**
+     * Total pagado en la transacción
+     */
+    private double total;
+
+    /**
+     * Cambio de la transacción
+     */
+    private double cambio;
+
+    /**
+     * Monto que falta para completar el pago
+     */
+    private double faltante;
+
+    /**
+     * Productos entregados de un carrito terminado
+     */
+    private int productosDispensados;
+
+    /**
+     * Productos de un carrito terminado
+     */
+    private int productosCarrito;
+
+    /**
+     * Construye el DTO a partir de un resultado de la máquina
+     * @param resultado Resultado de la operación
+     * @return DTO con el mensaje construido
+     */
+    public static ResultadoDTO desde(ResultadoOperacion resultado) {
+        ResultadoDTO dto = new ResultadoDTO();
+        dto.setCodigo(resultado.getCodigo());
+        dto.setTipo(resultado.getTipo());
+        dto.setMensaje(resultado.mensaje());
+        dto.setReferencia(resultado.getReferencia());
+        dto.setMonto(resultado.getMonto());
+        dto.setTotal(resultado.getTotal());
+        dto.setCambio(resultado.getCambio());
+        dto.setFaltante(resultado.getFaltante());
+        dto.setProductosDispensados(resultado.getProductosDispensados());
+        dto.setProductosCarrito(resultado.getProductosCarrito());
+        return dto;
+    }
+
+    /**
+     * Convierte una respuesta con el resultado compacto en una respuesta con el mensaje construido
+     * @param response Respuesta del servicio
+     * @return Respuesta equivalente para clientes de personas
+     */
+    public static ApiResponseDTO<ResultadoDTO> envolver(ApiResponseDTO<ResultadoOperacion> response) {
+        ApiResponseDTO<ResultadoDTO> envuelta = new ApiResponseDTO<>();
+        envuelta.setData(response.getData() != null ? desde(response.getData()) : null);
+        envuelta.setMessage(response.getMessage());
+        envuelta.setSuccess(response.isSuccess());
+        envuelta.setStatus(response.getStatus());
+        envuelta.setTimestamp(response.getTimestamp());
+        return envuelta;
+    }
+}
@@ -0,0 +1,37 @@
+package com.discretas.maquinaexpendedora.presentation.dto;
+
+import com.discretas.maquinaexpendedora.simulacion.EscenarioSimulacion;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * DTO con la solicitud de una simulación: un escenario base y los valores de dinero inicial e intervalo
+ * de reabastecimiento a combinar con él.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Data
+public class SimulacionDTO {
+
+    /**
+     * Escenario base, null para usar los valores por defecto
+     */
+    private EscenarioSimulacion escenario;
+
+    /**
+     * Dineros iniciales a probar, vacío para usar el del escenario base
+     */
+    private List<Double> dinerosIniciales;
+
+    /**
+     * Horas entre visitas del operador a probar, vacío para usar las del escenario base
+     */
+    private List<Double> intervalosReabastecimientoHoras;
+
+    /**
+     * Corridas de cada combinación, cada una con su semilla
+     */
+    private int replicas = 1;
+}
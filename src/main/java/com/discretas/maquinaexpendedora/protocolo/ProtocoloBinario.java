@@ -0,0 +1,227 @@
+package com.discretas.maquinaexpendedora.protocolo;
+
+import com.discretas.maquinaexpendedora.models.TicketDispensacion;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.services.MaquinaService;
+import com.discretas.maquinaexpendedora.state.ResultadoOperacion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Protocolo binario compacto para el tráfico entre las máquinas en campo y el servidor.
+ * Es una alternativa a JSON para las operaciones de compra y telemetría que usa la misma
+ * lógica de {@link MaquinaService}.
+ *
+ * <p>Una solicitud contiene una o más tramas {@code [operación u8][longitud u16][datos]} y la
+ * respuesta contiene una trama {@code [operación u8][estado u8][longitud u16][datos]} por cada una,
+ * en el mismo orden. Los enteros van en big-endian y los montos en pesos enteros. Las tramas se leen
+ * directamente sobre el arreglo de la solicitud, sin copiarlo. Los códigos de resultado y los estados
+ * de los tickets se envían con su número fijo, no con su posición en la enumeración.</p>
+ *
+ * <p>La respuesta se reserva con el tamaño máximo de la trama de respuesta de cada operación, y una
+ * solicitud cuya respuesta podría superar {@link #MAX_BYTES_RESPUESTA} se rechaza como mal formada.</p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class ProtocoloBinario {
+
+    // Operaciones
+    public static final byte OP_SELECCIONAR = 0x01;
+    public static final byte OP_INSERTAR_DINERO = 0x02;
+    public static final byte OP_CONFIRMAR_PAGO = 0x03;
+    public static final byte OP_DISPENSAR = 0x04;
+    public static final byte OP_CANCELAR = 0x05;
+    public static final byte OP_ESTADO = 0x06;
+    public static final byte OP_CONSULTAR_DISPENSACION = 0x07;
+    public static final byte OP_AGREGAR = 0x08;
+
+    // Estados de la trama de respuesta
+    public static final byte ESTADO_OK = 0;
+    public static final byte ESTADO_SOLICITUD_INCORRECTA = 1;
+    public static final byte ESTADO_OCUPADO = 2;
+    public static final byte ESTADO_ERROR = 3;
+
+    /**
+     * Código de resultado de un ticket que aún no termina
+     */
+    public static final short SIN_RESULTADO = -1;
+
+    public static final int CABECERA_SOLICITUD = 3;
+
+    public static final int CABECERA_RESPUESTA = 4;
+
+    /**
+     * Tamaño máximo de la respuesta a una solicitud
+     */
+    public static final int MAX_BYTES_RESPUESTA = 1 << 20;
+
+    /**
+     * Tamaño máximo de las tramas de respuesta de cada tipo: resultado, ticket y estado
+     */
+    private static final int MAX_TRAMA_RESULTADO = CABECERA_RESPUESTA + Short.BYTES + 4 * Integer.BYTES;
+
+    private static final int MAX_TRAMA_TICKET = CABECERA_RESPUESTA + 1 + Short.BYTES + 1 + 255;
+
+    private static final int MAX_TRAMA_ESTADO = CABECERA_RESPUESTA + Long.BYTES + 1 + 255;
+
+    private final MaquinaService maquinaService;
+
+    /**
+     * Procesa todas las tramas de una solicitud
+     * @param solicitud Cuerpo de la solicitud
+     * @return Cuerpo de la respuesta, o null si la solicitud está mal formada o su respuesta sería demasiado grande
+     */
+    public byte[] procesar(byte[] solicitud) {
+        int tamanyoRespuesta = tamanyoMaximoRespuesta(solicitud);
+        if (tamanyoRespuesta <= 0) {
+            return null;
+        }
+
+        ByteBuffer entrada = ByteBuffer.wrap(solicitud);
+        ByteBuffer salida = ByteBuffer.allocate(tamanyoRespuesta);
+        while (entrada.hasRemaining()) {
+            byte operacion = entrada.get();
+            int longitud = Short.toUnsignedInt(entrada.getShort());
+            int inicio = entrada.position();
+            procesarTrama(operacion, entrada, inicio, longitud, salida);
+            entrada.position(inicio + longitud);
+        }
+        return Arrays.copyOf(salida.array(), salida.position());
+    }
+
+    /**
+     * Valida las longitudes de la solicitud y calcula el tamaño máximo de su respuesta
+     * @return Bytes máximos de la respuesta, 0 si no hay tramas, o -1 si alguna longitud excede el cuerpo
+     * o la respuesta superaría {@link #MAX_BYTES_RESPUESTA}
+     */
+    static int tamanyoMaximoRespuesta(byte[] solicitud) {
+        int posicion = 0;
+        int tamanyo = 0;
+        while (posicion < solicitud.length) {
+            if (posicion + CABECERA_SOLICITUD > solicitud.length) {
+                return -1;
+            }
+            int longitud = ((solicitud[posicion + 1] & 0xFF) << 8) | (solicitud[posicion + 2] & 0xFF);
+            tamanyo += tamanyoMaximoTrama(solicitud[posicion]);
+            posicion += CABECERA_SOLICITUD + longitud;
+            if (posicion > solicitud.length || tamanyo > MAX_BYTES_RESPUESTA) {
+                return -1;
+            }
+        }
+        return tamanyo;
+    }
+
+    /**
+     * Tamaño máximo de la trama de respuesta de una operación
+     */
+    private static int tamanyoMaximoTrama(byte operacion) {
+        return switch (operacion) {
+            case OP_SELECCIONAR, OP_AGREGAR, OP_INSERTAR_DINERO, OP_CONFIRMAR_PAGO, OP_CANCELAR -> MAX_TRAMA_RESULTADO;
+            case OP_DISPENSAR, OP_CONSULTAR_DISPENSACION -> MAX_TRAMA_TICKET;
+            case OP_ESTADO -> MAX_TRAMA_ESTADO;
+            default -> CABECERA_RESPUESTA;
+        };
+    }
+
+    /**
+     * Procesa una trama de la solicitud y escribe su trama de respuesta
+     */
+    private void procesarTrama(byte operacion, ByteBuffer entrada, int inicio, int longitud, ByteBuffer salida) {
+        byte[] datos = entrada.array();
+        switch (operacion) {
+            case OP_SELECCIONAR -> escribirResultado(salida, operacion,
+                    maquinaService.seleccionarProducto(new String(datos, inicio, longitud, StandardCharsets.US_ASCII)));
+            case OP_AGREGAR -> escribirResultado(salida, operacion,
+                    maquinaService.agregarProducto(new String(datos, inicio, longitud, StandardCharsets.US_ASCII)));
+            case OP_INSERTAR_DINERO -> {
+                if (longitud != Integer.BYTES) {
+                    escribirVacia(salida, operacion, ESTADO_SOLICITUD_INCORRECTA);
+                    return;
+                }
+                escribirResultado(salida, operacion, maquinaService.insertarDinero(entrada.getInt(inicio)));
+            }
+            case OP_CONFIRMAR_PAGO -> escribirResultado(salida, operacion, maquinaService.confirmarPago());
+            case OP_CANCELAR -> escribirResultado(salida, operacion, maquinaService.cancelarTransaccion());
+            case OP_DISPENSAR -> escribirTicket(salida, operacion, maquinaService.dispensarProducto());
+            case OP_CONSULTAR_DISPENSACION -> escribirTicket(salida, operacion,
+                    maquinaService.consultarDispensacion(new String(datos, inicio, longitud, StandardCharsets.US_ASCII)));
+            case OP_ESTADO -> escribirEstado(salida, operacion);
+            default -> escribirVacia(salida, operacion, ESTADO_SOLICITUD_INCORRECTA);
+        }
+    }
+
+    /**
+     * Datos: [código u16][monto i32][total i32][cambio i32][faltante i32]
+     */
+    private static void escribirResultado(ByteBuffer salida, byte operacion, ApiResponseDTO<ResultadoOperacion> response) {
+        ResultadoOperacion resultado = response.getData();
+        if (resultado == null) {
+            escribirVacia(salida, operacion, estadoDe(response));
+            return;
+        }
+        salida.put(operacion).put(estadoDe(response)).putShort((short) (Short.BYTES + 4 * Integer.BYTES));
+        salida.putShort((short) resultado.getCodigo().getNumero())
+                .putInt((int) resultado.getMonto())
+                .putInt((int) resultado.getTotal())
+                .putInt((int) resultado.getCambio())
+                .putInt((int) resultado.getFaltante());
+    }
+
+    /**
+     * Datos: [estado del ticket u8][código u16][longitud del id u8][id]
+     */
+    private static void escribirTicket(ByteBuffer salida, byte operacion, ApiResponseDTO<TicketDispensacion> response) {
+        TicketDispensacion ticket = response.getData();
+        if (ticket == null) {
+            escribirVacia(salida, operacion, estadoDe(response));
+            return;
+        }
+        byte[] id = ticket.getId().getBytes(StandardCharsets.US_ASCII);
+        ResultadoOperacion resultado = ticket.getResultado();
+        salida.put(operacion).put(estadoDe(response)).putShort((short) (1 + Short.BYTES + 1 + id.length));
+        salida.put((byte) ticket.getEstado().getNumero())
+                .putShort(resultado != null ? (short) resultado.getCodigo().getNumero() : SIN_RESULTADO)
+                .put((byte) id.length)
+                .put(id);
+    }
+
+    /**
+     * Datos: [dinero disponible i64][longitud del estado u8][estado]
+     */
+    private void escribirEstado(ByteBuffer salida, byte operacion) {
+        ApiResponseDTO<String> estado = maquinaService.obtenerEstadoActual();
+        ApiResponseDTO<Double> dinero = maquinaService.obtenerDineroDisponible();
+        if (estado.getData() == null || dinero.getData() == null) {
+            escribirVacia(salida, operacion, ESTADO_ERROR);
+            return;
+        }
+        byte[] nombre = estado.getData().getBytes(StandardCharsets.US_ASCII);
+        salida.put(operacion).put(ESTADO_OK).putShort((short) (Long.BYTES + 1 + nombre.length));
+        salida.putLong(dinero.getData().longValue()).put((byte) nombre.length).put(nombre);
+    }
+
+    private static void escribirVacia(ByteBuffer salida, byte operacion, byte estado) {
+        salida.put(operacion).put(estado).putShort((short) 0);
+    }
+
+    private static byte estadoDe(ApiResponseDTO<?> response) {
+        if (response.getStatus() == HttpStatus.OK.value()) {
+            return ESTADO_OK;
+        }
+        if (response.getStatus() == HttpStatus.BAD_REQUEST.value()) {
+            return ESTADO_SOLICITUD_INCORRECTA;
+        }
+        if (response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+            return ESTADO_OCUPADO;
+        }
+        return ESTADO_ERROR;
+    }
+}
@@ -0,0 +1,151 @@
+package com.discretas.maquinaexpendedora.replicacion;
+
+import com.discretas.maquinaexpendedora.events.EventoMaquina;
+import com.discretas.maquinaexpendedora.events.TipoEvento;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Formato binario de los lotes de eventos del diario que se replican al nodo de respaldo.
+ * <p>
+ * Un lote tiene una cabecera con la secuencia del último evento enviado antes de él, para que el respaldo
+ * detecte huecos, seguida de los eventos en orden. Los eventos se codifican uno a uno en un buffer mientras
+ * se acumula el lote y la cabecera se antepone al enviarlo. Los números van en big-endian y los textos como
+ * longitud (u16, {@code 0xFFFF} para null) seguida de sus bytes UTF-8, igual que en las instantáneas.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public final class LoteEventos {
+
+    /**
+     * Identificador del formato ("MQRL")
+     */
+    private static final int MAGICO = 0x4D51524C;
+
+    private static final int VERSION = 1;
+
+    private static final int TEXTO_NULO = 0xFFFF;
+
+    private static final TipoEvento[] TIPOS = TipoEvento.values();
+
+    private LoteEventos() {}
+
+    /**
+     * Codifica un evento al final del cuerpo de un lote
+     * @param salida Cuerpo del lote en construcción
+     * @param evento Evento a codificar
+     * @throws IOException Si algún texto excede el tamaño admitido
+     */
+    public static void escribirEvento(DataOutputStream salida, EventoMaquina evento) throws IOException {
+        salida.writeLong(evento.getSecuencia());
+        salida.writeLong(evento.getTimestamp());
+        salida.writeByte(evento.getTipo().ordinal());
+        escribirTexto(salida, evento.getIdMaquina());
+        escribirTexto(salida, evento.getRegion());
+        escribirTexto(salida, evento.getIdTransaccion());
+        escribirTexto(salida, evento.getCodigoProducto());
+        salida.writeDouble(evento.getMonto());
+        salida.writeDouble(evento.getCambio());
+        salida.writeInt(evento.getStockRestante());
+    }
+
+    /**
+     * Arma un lote anteponiendo la cabecera a los eventos codificados
+     * @param anterior Secuencia del último evento enviado antes del lote
+     * @param eventos Número de eventos del cuerpo
+     * @param cuerpo Eventos codificados con {@link #escribirEvento(DataOutputStream, EventoMaquina)}
+     * @return Bytes del lote
+     */
+    public static byte[] armar(long anterior, int eventos, ByteArrayOutputStream cuerpo) {
+        ByteBuffer lote = ByteBuffer.allocate(Integer.BYTES * 3 + Long.BYTES + cuerpo.size());
+        lote.putInt(MAGICO).putInt(VERSION).putLong(anterior).putInt(eventos);
+        lote.put(cuerpo.toByteArray());
+        return lote.array();
+    }
+
+    /**
+     * Lee la secuencia del último evento enviado antes de un lote
+     * @param datos Bytes del lote
+     * @return Secuencia anterior al primer evento del lote
+     * @throws IOException Si los datos no son un lote de eventos
+     */
+    public static long anterior(byte[] datos) throws IOException {
+        return cabecera(datos).getLong();
+    }
+
+    /**
+     * Decodifica los eventos de un lote en orden
+     * @param datos Bytes del lote
+     * @param consumidor Consumidor que recibe cada evento (instancia reutilizada)
+     * @return Número de eventos del lote
+     * @throws IOException Si los datos no son un lote de eventos o están incompletos
+     */
+    public static int reproducir(byte[] datos, Consumer<EventoMaquina> consumidor) throws IOException {
+        ByteBuffer buffer = cabecera(datos);
+        try {
+            buffer.getLong();
+            int eventos = buffer.getInt();
+            EventoMaquina evento = new EventoMaquina();
+            byte[] texto = new byte[256];
+            for (int i = 0; i < eventos; i++) {
+                evento.setSecuencia(buffer.getLong());
+                evento.setTimestamp(buffer.getLong());
+                evento.setTipo(TIPOS[buffer.get()]);
+                evento.setIdMaquina(leerTexto(buffer, texto));
+                evento.setRegion(leerTexto(buffer, texto));
+                evento.setIdTransaccion(leerTexto(buffer, texto));
+                evento.setCodigoProducto(leerTexto(buffer, texto));
+                evento.setMonto(buffer.getDouble());
+                evento.setCambio(buffer.getDouble());
+                evento.setStockRestante(buffer.getInt());
+                consumidor.accept(evento);
+            }
+            return eventos;
+        } catch (RuntimeException e) {
+            throw new IOException("Lote de eventos incompleto o corrupto", e);
+        }
+    }
+
+    private static ByteBuffer cabecera(byte[] datos) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(datos);
+        if (datos.length < Integer.BYTES * 3 + Long.BYTES || buffer.getInt() != MAGICO) {
+            throw new IOException("Los datos recibidos no son un lote de eventos");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Versión de lote de eventos no soportada: " + version);
+        }
+        return buffer;
+    }
+
+    private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        if (texto == null) {
+            salida.writeShort(TEXTO_NULO);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= TEXTO_NULO) {
+            throw new IOException("Texto demasiado largo para el lote: " + bytes.length + " bytes");
+        }
+        salida.writeShort(bytes.length);
+        salida.write(bytes);
+    }
+
+    private static String leerTexto(ByteBuffer buffer, byte[] bytes) {
+        int longitud = Short.toUnsignedInt(buffer.getShort());
+        if (longitud == TEXTO_NULO) {
+            return null;
+        }
+        // Los textos de los eventos son identificadores cortos; uno más largo se lee en un arreglo propio
+        byte[] destino = longitud <= bytes.length ? bytes : new byte[longitud];
+        buffer.get(destino, 0, longitud);
+        return new String(destino, 0, longitud, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,206 @@
+package com.discretas.maquinaexpendedora.replicacion;
+
+import com.discretas.maquinaexpendedora.cluster.GestorCluster;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.persistencia.InstantaneaBinaria;
+import com.discretas.maquinaexpendedora.persistencia.InstantaneaBinaria.InstantaneaMaquina;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Réplica en caliente de las máquinas de otro nodo, mantenida con la copia base y los lotes de eventos que envía
+ * su {@link ReplicadorDiario}. Las réplicas no forman parte de la flota de este nodo hasta que se promueven:
+ * entonces se incorporan a la flota con el último estado replicado y este nodo empieza a atenderlas. En un clúster,
+ * retirar después el nodo caído reparte las máquinas promovidas entre sus nuevos dueños.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class ReplicaRespaldo {
+
+    private final GestorCluster gestorCluster;
+
+    /**
+     * Máquinas replicadas, por identificador. Protegido por el monitor de la réplica.
+     */
+    private final Map<String, MaquinaExpendedora> replicas = new HashMap<>();
+
+    /**
+     * Última secuencia aplicada, de la copia base o del último lote
+     */
+    private long ultimaSecuencia = -1;
+
+    /**
+     * Indica si hay una copia base sobre la que aplicar los lotes
+     */
+    private boolean sincronizada;
+
+    private boolean promovida;
+
+    private long eventosAplicados;
+
+    private long basesRecibidas;
+
+    /**
+     * Momento en que se emitió el último evento aplicado (epoch en milisegundos)
+     */
+    private long marcaUltimoEvento;
+
+    public ReplicaRespaldo(GestorCluster gestorCluster) {
+        this.gestorCluster = gestorCluster;
+    }
+
+    /**
+     * Reemplaza las réplicas con una copia base
+     * @param datos Máquinas serializadas con {@link InstantaneaBinaria#serializarMaquinas(List)}
+     * @param secuencia Secuencia del origen a partir de la cual llegarán los lotes
+     * @return Número de máquinas replicadas
+     * @throws IOException Si los datos no tienen el formato esperado
+     * @throws IllegalStateException Si la réplica ya se promovió
+     */
+    public synchronized int recibirBase(byte[] datos, long secuencia) throws IOException {
+        verificarNoPromovida();
+        List<InstantaneaMaquina> maquinas = InstantaneaBinaria.deserializarMaquinas(datos);
+        replicas.clear();
+        for (InstantaneaMaquina instantanea : maquinas) {
+            MaquinaExpendedora maquina = new MaquinaExpendedora();
+            instantanea.restaurarEn(maquina);
+            replicas.put(maquina.getId(), maquina);
+        }
+        ultimaSecuencia = secuencia;
+        sincronizada = true;
+        basesRecibidas++;
+        log.info("Copia base recibida: {} máquinas hasta la secuencia {}", maquinas.size(), secuencia);
+        return maquinas.size();
+    }
+
+    /**
+     * Aplica un lote de eventos sobre las réplicas. Cada evento se aplica solo si es posterior al estado de su
+     * máquina, por lo que los eventos ya incluidos en la copia base se ignoran.
+     * @param datos Lote codificado con {@link LoteEventos}
+     * @return true si se aplicó; false si la réplica perdió el hilo y necesita una copia base
+     * @throws IOException Si los datos no son un lote válido
+     * @throws IllegalStateException Si la réplica ya se promovió
+     */
+    public synchronized boolean aplicarLote(byte[] datos) throws IOException {
+        verificarNoPromovida();
+        if (!sincronizada || LoteEventos.anterior(datos) != ultimaSecuencia) {
+            sincronizada = false;
+            return false;
+        }
+
+        int[] desconocidas = {0};
+        LoteEventos.reproducir(datos, evento -> {
+            MaquinaExpendedora maquina = replicas.get(evento.getIdMaquina());
+            if (maquina == null) {
+                desconocidas[0]++;
+            } else if (evento.getSecuencia() > maquina.getUltimaSecuenciaEvento()) {
+                maquina.aplicarEvento(evento);
+                eventosAplicados++;
+            }
+            ultimaSecuencia = evento.getSecuencia();
+            marcaUltimoEvento = evento.getTimestamp();
+        });
+        if (desconocidas[0] > 0) {
+            // Una máquina llegó al origen después de la copia base, por ejemplo desde otro nodo del clúster
+            sincronizada = false;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Promueve las réplicas: las incorpora a la flota de este nodo, que desde entonces las atiende.
+     * Tras la promoción la réplica deja de aceptar datos del origen.
+     * @return Número de máquinas incorporadas a la flota
+     * @throws IllegalStateException Si no hay una copia base o la réplica ya se promovió
+     */
+    public int promover() {
+        List<InstantaneaMaquina> maquinas;
+        long secuencia;
+        synchronized (this) {
+            verificarNoPromovida();
+            if (basesRecibidas == 0) {
+                throw new IllegalStateException("La réplica no ha recibido ninguna copia base");
+            }
+            maquinas = new ArrayList<>(replicas.size());
+            for (MaquinaExpendedora replica : replicas.values()) {
+                maquinas.add(InstantaneaMaquina.tomar(replica));
+            }
+            promovida = true;
+            secuencia = ultimaSecuencia;
+        }
+        // Se incorporan fuera del monitor: esperar a los actores con el monitor tomado fijaría el hilo virtual a su portador
+        int incorporadas = gestorCluster.incorporarMaquinas(maquinas);
+        log.info("Réplica promovida: {} máquinas incorporadas a la flota hasta la secuencia {}", incorporadas, secuencia);
+        return incorporadas;
+    }
+
+    /**
+     * Obtiene el estado de la réplica
+     * @return Máquinas replicadas, última secuencia aplicada y si la réplica se promovió
+     */
+    public synchronized EstadoRespaldo obtenerEstado() {
+        EstadoRespaldo estado = new EstadoRespaldo();
+        estado.setMaquinasReplicadas(replicas.size());
+        estado.setSecuenciaAplicada(ultimaSecuencia);
+        estado.setSincronizada(sincronizada);
+        estado.setPromovida(promovida);
+        estado.setEventosAplicados(eventosAplicados);
+        estado.setBasesRecibidas(basesRecibidas);
+        estado.setMarcaUltimoEvento(marcaUltimoEvento);
+        return estado;
+    }
+
+    /**
+     * Obtiene el estado replicado de una máquina
+     * @param idMaquina Identificador de la máquina
+     * @return Copia del estado, o null si la máquina no está replicada
+     */
+    public synchronized InstantaneaMaquina obtenerReplica(String idMaquina) {
+        MaquinaExpendedora replica = replicas.get(idMaquina);
+        return replica != null ? InstantaneaMaquina.tomar(replica) : null;
+    }
+
+    private void verificarNoPromovida() {
+        if (promovida) {
+            throw new IllegalStateException("La réplica ya fue promovida");
+        }
+    }
+
+    /**
+     * Estado de la réplica de respaldo
+     */
+    @Data
+    public static class EstadoRespaldo {
+
+        private int maquinasReplicadas;
+
+        /**
+         * Última secuencia del origen aplicada
+         */
+        private long secuenciaAplicada;
+
+        private boolean sincronizada;
+
+        private boolean promovida;
+
+        private long eventosAplicados;
+
+        private long basesRecibidas;
+
+        /**
+         * Momento en que el origen emitió el último evento aplicado (epoch en milisegundos)
+         */
+        private long marcaUltimoEvento;
+    }
+}
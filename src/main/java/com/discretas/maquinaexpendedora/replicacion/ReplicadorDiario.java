@@ -0,0 +1,506 @@
+package com.discretas.maquinaexpendedora.replicacion;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.cluster.SecretoCluster;
+import com.discretas.maquinaexpendedora.events.ConsumidorEventos;
+import com.discretas.maquinaexpendedora.events.EventoMaquina;
+import com.discretas.maquinaexpendedora.persistencia.InstantaneaBinaria;
+import com.discretas.maquinaexpendedora.persistencia.InstantaneaBinaria.InstantaneaMaquina;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replica continuamente el diario de eventos de este nodo en un nodo de respaldo.
+ * <p>
+ * El hilo del bus codifica cada evento en el lote pendiente y sigue; un hilo de envío toma todo lo acumulado
+ * y lo manda en una sola solicitud, mientras el bus ya llena el lote siguiente. Así la compra nunca espera a la
+ * red y, con el respaldo lento, los lotes crecen en lugar de multiplicarse. Antes del primer lote, y cada vez
+ * que el respaldo pierde el hilo (reinicio, hueco de secuencias, máquina desconocida o desborde del lote
+ * pendiente), se envía una copia base de todas las máquinas de la flota. La copia base también se repite
+ * periódicamente para llevar los cambios que no generan eventos, como los reabastecimientos del catálogo.
+ * La máquina principal no se replica: cada nodo tiene la suya, y al promoverse el respaldo conserva su propia principal.
+ * </p>
+ * <p>
+ * Por defecto la replicación es asíncrona: lo que puede perderse si el nodo cae es lo que indica el retraso de
+ * replicación. En modo síncrono las operaciones que publican eventos no responden hasta que el respaldo confirma
+ * el lote que los contiene, o hasta que vence el tiempo máximo de un envío; si el respaldo no responde a tiempo
+ * la operación responde igualmente, ya aplicada, y el retraso lo muestra el estado de la replicación.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class ReplicadorDiario implements ConsumidorEventos {
+
+    private final String destino;
+
+    private final int capacidad;
+
+    private final long reintentoMs;
+
+    private final long resincronizacionNs;
+
+    private final boolean sincrona;
+
+    private final long esperaMaximaMs;
+
+    /**
+     * Operaciones que esperan la confirmación del respaldo, por la secuencia de su último evento
+     */
+    private final ConcurrentSkipListMap<Long, CompletableFuture<Void>> esperas = new ConcurrentSkipListMap<>();
+
+    private final FlotaMaquinas flota;
+
+    private final RestClient cliente;
+
+    private final Object cerrojo = new Object();
+
+    /**
+     * Eventos codificados que aún no se han tomado para enviar. Protegido por el cerrojo.
+     */
+    private final ByteArrayOutputStream pendiente = new ByteArrayOutputStream(1 << 16);
+
+    private final DataOutputStream salidaPendiente = new DataOutputStream(pendiente);
+
+    private int eventosPendientes;
+
+    private long marcaPrimerPendiente;
+
+    /**
+     * Última secuencia recibida del bus de una máquina replicada
+     */
+    private volatile long ultimaRecibida = -1;
+
+    /**
+     * Última secuencia confirmada por el respaldo
+     */
+    private volatile long confirmada = -1;
+
+    /**
+     * Momento del evento más antiguo del lote en vuelo, 0 si no hay lote en vuelo
+     */
+    private volatile long marcaEnVuelo;
+
+    private volatile boolean necesitaBase = true;
+
+    private final AtomicLong lotesEnviados = new AtomicLong();
+
+    private final AtomicLong eventosEnviados = new AtomicLong();
+
+    private final AtomicLong basesEnviadas = new AtomicLong();
+
+    /**
+     * Indica si ya se avisó de que el respaldo no responde; solo lo usa el hilo de envío
+     */
+    private boolean fallando;
+
+    private volatile Thread hiloEnvio;
+
+    private volatile boolean activo;
+
+    /**
+     * Constructor del replicador
+     * @param destino URL base del nodo de respaldo, con el contexto de la aplicación; vacía para no replicar
+     * @param capacidad Número máximo de eventos pendientes; al superarlo se descartan y se envía una copia base
+     * @param timeoutMs Tiempo máximo de cada envío al respaldo
+     * @param reintentoMs Espera antes de reintentar un envío fallido
+     * @param resincronizacionSegundos Segundos entre copias base periódicas, 0 para enviarlas solo cuando hacen falta
+     * @param sincrona true para que las operaciones esperen a que el respaldo confirme sus eventos
+     * @param secreto Secreto compartido con el respaldo; es obligatorio si hay un respaldo configurado
+     */
+    public ReplicadorDiario(@Value("${maquina.replicacion.destino:}") String destino,
+                            @Value("${maquina.replicacion.capacidad:65536}") int capacidad,
+                            @Value("${maquina.replicacion.timeout-ms:2000}") long timeoutMs,
+                            @Value("${maquina.replicacion.reintento-ms:500}") long reintentoMs,
+                            @Value("${maquina.replicacion.resincronizacion-segundos:300}") long resincronizacionSegundos,
+                            @Value("${maquina.replicacion.sincrona:false}") boolean sincrona,
+                            FlotaMaquinas flota,
+                            SecretoCluster secreto) {
+        this.destino = destino.isBlank() ? null : destino.trim();
+        this.capacidad = capacidad;
+        this.reintentoMs = reintentoMs;
+        this.resincronizacionNs = TimeUnit.SECONDS.toNanos(resincronizacionSegundos);
+        this.sincrona = sincrona && this.destino != null;
+        this.esperaMaximaMs = timeoutMs;
+        this.flota = flota;
+
+        this.cliente = secreto.crearCliente(timeoutMs, timeoutMs);
+        if (this.destino != null && !secreto.isConfigurado()) {
+            throw new IllegalStateException("La replicación hacia un respaldo requiere maquina.cluster.secreto");
+        }
+    }
+
+    /**
+     * Inicia el hilo de envío si hay un respaldo configurado
+     */
+    @PostConstruct
+    public void iniciar() {
+        if (destino == null) {
+            return;
+        }
+        activo = true;
+        hiloEnvio = Thread.ofPlatform().name("replicacion-diario").daemon().start(this::enviarContinuamente);
+        log.info("Replicación del diario hacia {}", destino);
+    }
+
+    /**
+     * Detiene el hilo de envío tras un último intento de enviar los eventos pendientes
+     */
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        Thread hilo = hiloEnvio;
+        if (hilo != null) {
+            LockSupport.unpark(hilo);
+            try {
+                hilo.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        liberarEsperas(Long.MAX_VALUE);
+    }
+
+    /**
+     * Indica si las operaciones deben esperar la confirmación del respaldo
+     */
+    public boolean isSincrona() {
+        return sincrona;
+    }
+
+    /**
+     * Espera a que el respaldo confirme un evento. Se completa de inmediato si la replicación no es síncrona,
+     * si la máquina no se replica o si el evento ya está confirmado, y como máximo al vencer el tiempo de un envío.
+     * @param idMaquina Máquina que publicó el evento
+     * @param secuencia Secuencia del evento, negativa si la operación no publicó ninguno
+     * @return Futuro que se completa al confirmarse el evento
+     */
+    public CompletableFuture<Void> confirmacion(String idMaquina, long secuencia) {
+        if (!sincrona || secuencia < 0 || secuencia <= confirmada || esPrincipal(idMaquina)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> espera = esperas.computeIfAbsent(secuencia, s -> new CompletableFuture<>());
+        // La confirmación pudo llegar entre la comprobación y el registro de la espera
+        if (secuencia <= confirmada) {
+            liberarEsperas(confirmada);
+        }
+        return espera.completeOnTimeout(null, esperaMaximaMs, TimeUnit.MILLISECONDS)
+                .whenComplete((r, e) -> esperas.remove(secuencia, espera));
+    }
+
+    @Override
+    public void procesar(EventoMaquina evento, boolean finDeLote) {
+        if (destino == null) {
+            return;
+        }
+        if (!esPrincipal(evento.getIdMaquina())) {
+            encolar(evento);
+        }
+        if (finDeLote) {
+            LockSupport.unpark(hiloEnvio);
+        }
+    }
+
+    /**
+     * Codifica un evento en el lote pendiente
+     */
+    private void encolar(EventoMaquina evento) {
+        synchronized (cerrojo) {
+            ultimaRecibida = evento.getSecuencia();
+            if (eventosPendientes >= capacidad) {
+                // El respaldo no da abasto: se descarta lo pendiente y se resincroniza con una copia base
+                descartarPendientes();
+                necesitaBase = true;
+            } else if (!necesitaBase) {
+                try {
+                    LoteEventos.escribirEvento(salidaPendiente, evento);
+                    if (eventosPendientes++ == 0) {
+                        marcaPrimerPendiente = evento.getTimestamp();
+                    }
+                } catch (IOException e) {
+                    log.error("No se pudo codificar el evento {} para replicarlo", evento.getSecuencia(), e);
+                    descartarPendientes();
+                    necesitaBase = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indica si la máquina es la principal de este nodo, que no se replica
+     */
+    private boolean esPrincipal(String idMaquina) {
+        return flota.getPrincipal().getMaquina().getId().equals(idMaquina);
+    }
+
+    /**
+     * Ciclo del hilo de envío: copia base cuando hace falta y, si no, el lote acumulado desde el último envío
+     */
+    private void enviarContinuamente() {
+        long siguienteBase = System.nanoTime() + resincronizacionNs;
+        while (activo) {
+            if (resincronizacionNs > 0 && System.nanoTime() - siguienteBase >= 0) {
+                necesitaBase = true;
+            }
+            if (necesitaBase) {
+                if (enviarBase()) {
+                    siguienteBase = System.nanoTime() + resincronizacionNs;
+                } else {
+                    esperar(reintentoMs);
+                }
+                continue;
+            }
+            Lote lote = tomarLote();
+            if (lote == null) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(reintentoMs));
+                continue;
+            }
+            enviarLote(lote);
+        }
+
+        // Al detener se intenta una vez enviar la cola, para no dejar ventas sin replicar en un apagado ordenado
+        Lote ultimo = necesitaBase ? null : tomarLote();
+        if (ultimo != null) {
+            intentarLote(ultimo);
+        }
+    }
+
+    /**
+     * Envía una copia base de la flota. La secuencia de la copia se fija antes de copiar las máquinas:
+     * los eventos posteriores que ya estén en la copia los descarta el respaldo por la secuencia de cada máquina.
+     * @return true si el respaldo la aceptó
+     */
+    private boolean enviarBase() {
+        long secuencia;
+        synchronized (cerrojo) {
+            descartarPendientes();
+            necesitaBase = false;
+            secuencia = ultimaRecibida;
+        }
+
+        try {
+            List<CompletableFuture<InstantaneaMaquina>> pendientes = new ArrayList<>();
+            for (ActorMaquina actor : flota.getActores()) {
+                if (actor != flota.getPrincipal()) {
+                    pendientes.add(actor.enviar(InstantaneaMaquina::tomar));
+                }
+            }
+            List<InstantaneaMaquina> maquinas = new ArrayList<>(pendientes.size());
+            for (CompletableFuture<InstantaneaMaquina> copia : pendientes) {
+                maquinas.add(copia.join());
+            }
+
+            cliente.put()
+                    .uri(destino + Constants.Global.API_BASE_PATH + Constants.Replicacion.REPLICATION_SERVICE_PATH
+                            + Constants.Replicacion.REPLICATION_SERVICE_PATH_BASE)
+                    .header(Constants.Global.REPLICATION_SEQUENCE_HEADER, Long.toString(secuencia))
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(InstantaneaBinaria.serializarMaquinas(maquinas))
+                    .retrieve()
+                    .toBodilessEntity();
+            confirmar(secuencia);
+            basesEnviadas.incrementAndGet();
+            fallando = false;
+            log.info("Copia base de {} máquinas replicada en {} hasta la secuencia {}", maquinas.size(), destino, secuencia);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            avisarFallo("la copia base", e);
+            necesitaBase = true;
+            return false;
+        }
+    }
+
+    /**
+     * Envía un lote y lo reintenta mientras el respaldo no responda, salvo que haga falta una copia base
+     */
+    private void enviarLote(Lote lote) {
+        marcaEnVuelo = lote.marcaPrimero();
+        while (activo && !necesitaBase && !intentarLote(lote)) {
+            esperar(reintentoMs);
+        }
+        marcaEnVuelo = 0;
+    }
+
+    /**
+     * @return true si el respaldo aplicó el lote o pidió una copia base
+     */
+    private boolean intentarLote(Lote lote) {
+        try {
+            cliente.post()
+                    .uri(destino + Constants.Global.API_BASE_PATH + Constants.Replicacion.REPLICATION_SERVICE_PATH
+                            + Constants.Replicacion.REPLICATION_SERVICE_PATH_EVENTS)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(lote.datos())
+                    .retrieve()
+                    .toBodilessEntity();
+            confirmar(lote.ultimo());
+            lotesEnviados.incrementAndGet();
+            eventosEnviados.addAndGet(lote.eventos());
+            fallando = false;
+            return true;
+        } catch (HttpClientErrorException.Conflict e) {
+            log.info("El respaldo {} perdió el hilo de la replicación, se enviará una copia base", destino);
+            necesitaBase = true;
+            return true;
+        } catch (RestClientException e) {
+            avisarFallo("un lote de " + lote.eventos() + " eventos", e);
+            return false;
+        }
+    }
+
+    /**
+     * Avisa del primer fallo de una racha; los reintentos siguientes solo se registran en depuración
+     */
+    private void avisarFallo(String envio, Exception e) {
+        if (!fallando) {
+            log.warn("No se pudo replicar {} en {}, se reintentará: {}", envio, destino, e.getMessage());
+            fallando = true;
+        } else {
+            log.debug("Reintento fallido de {} en {}: {}", envio, destino, e.getMessage());
+        }
+    }
+
+    /**
+     * Toma todos los eventos pendientes como un lote
+     * @return Lote a enviar, o null si no hay eventos pendientes
+     */
+    private Lote tomarLote() {
+        synchronized (cerrojo) {
+            if (eventosPendientes == 0 || necesitaBase) {
+                return null;
+            }
+            long anterior = confirmada;
+            Lote lote = new Lote(LoteEventos.armar(anterior, eventosPendientes, pendiente), eventosPendientes,
+                    ultimaRecibida, marcaPrimerPendiente);
+            descartarPendientes();
+            return lote;
+        }
+    }
+
+    /**
+     * Registra la confirmación del respaldo y libera las operaciones que la esperaban
+     */
+    private void confirmar(long secuencia) {
+        confirmada = secuencia;
+        if (sincrona) {
+            liberarEsperas(secuencia);
+        }
+    }
+
+    private void liberarEsperas(long hasta) {
+        Map.Entry<Long, CompletableFuture<Void>> espera;
+        while ((espera = esperas.firstEntry()) != null && espera.getKey() <= hasta) {
+            if (esperas.remove(espera.getKey(), espera.getValue())) {
+                espera.getValue().complete(null);
+            }
+        }
+    }
+
+    private void descartarPendientes() {
+        pendiente.reset();
+        eventosPendientes = 0;
+        marcaPrimerPendiente = 0;
+    }
+
+    private void esperar(long milisegundos) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(milisegundos));
+    }
+
+    /**
+     * Obtiene el estado de la replicación desde este nodo
+     * @return Secuencias recibida y confirmada, retraso y contadores de envíos
+     */
+    public EstadoReplicacion obtenerEstado() {
+        EstadoReplicacion estado = new EstadoReplicacion();
+        estado.setHabilitada(destino != null);
+        estado.setDestino(destino);
+        long recibida = ultimaRecibida;
+        long confirmadaActual = confirmada;
+        estado.setSecuenciaRecibida(recibida);
+        estado.setSecuenciaConfirmada(confirmadaActual);
+        estado.setRetrasoEventos(Math.max(0, recibida - confirmadaActual));
+
+        long masAntiguo = marcaEnVuelo;
+        if (masAntiguo == 0) {
+            synchronized (cerrojo) {
+                masAntiguo = marcaPrimerPendiente;
+            }
+        }
+        estado.setRetrasoMs(masAntiguo > 0 ? Math.max(0, System.currentTimeMillis() - masAntiguo) : 0);
+        estado.setLotesEnviados(lotesEnviados.get());
+        estado.setEventosEnviados(eventosEnviados.get());
+        estado.setBasesEnviadas(basesEnviadas.get());
+        return estado;
+    }
+
+    /**
+     * Lote tomado para enviar
+     * @param datos Bytes del lote con su cabecera
+     * @param eventos Número de eventos
+     * @param ultimo Secuencia del último evento
+     * @param marcaPrimero Momento del primer evento (epoch en milisegundos)
+     */
+    private record Lote(byte[] datos, int eventos, long ultimo, long marcaPrimero) {
+    }
+
+    /**
+     * Estado de la replicación del diario hacia el respaldo
+     */
+    @Data
+    public static class EstadoReplicacion {
+
+        private boolean habilitada;
+
+        private String destino;
+
+        /**
+         * Última secuencia recibida del bus
+         */
+        private long secuenciaRecibida;
+
+        /**
+         * Última secuencia confirmada por el respaldo
+         */
+        private long secuenciaConfirmada;
+
+        /**
+         * Eventos recibidos que el respaldo aún no confirmó
+         */
+        private long retrasoEventos;
+
+        /**
+         * Antigüedad del evento más antiguo sin confirmar, 0 si el respaldo está al día
+         */
+        private long retrasoMs;
+
+        private long lotesEnviados;
+
+        private long eventosEnviados;
+
+        private long basesEnviadas;
+    }
+}
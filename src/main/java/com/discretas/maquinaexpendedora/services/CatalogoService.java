@@ -0,0 +1,135 @@
+package com.discretas.maquinaexpendedora.services;
+
+import com.discretas.maquinaexpendedora.catalogo.CargadorCatalogo;
+import com.discretas.maquinaexpendedora.catalogo.GestorCatalogo;
+import com.discretas.maquinaexpendedora.precios.MotorPromociones;
+import com.discretas.maquinaexpendedora.precios.ReglaPrecio;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Servicio del catálogo de productos y de las reglas de precio de la flota. Publicar un catálogo
+ * recompila las promociones para que sus tablas usen los precios nuevos.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogoService {
+
+    private final GestorCatalogo gestorCatalogo;
+
+    private final CargadorCatalogo cargadorCatalogo;
+
+    private final MotorPromociones motorPromociones;
+
+    /**
+     * Obtiene la versión vigente del catálogo de productos
+     * @return ApiResponseDTO con la versión vigente
+     */
+    public ApiResponseDTO<GestorCatalogo.VersionCatalogo> obtenerCatalogo() {
+        ApiResponseDTO<GestorCatalogo.VersionCatalogo> response = new ApiResponseDTO<>();
+        response.SuccessOperation(gestorCatalogo.getVigente());
+        return response;
+    }
+
+    /**
+     * Publica en caliente una versión nueva del catálogo
+     * @param productos Productos de la versión nueva
+     * @return ApiResponseDTO con el resultado de la publicación
+     */
+    public ApiResponseDTO<GestorCatalogo.PublicacionCatalogo> publicarCatalogo(List<CargadorCatalogo.ProductoCatalogo> productos) {
+        return publicarCatalogoAsync(productos).join();
+    }
+
+    /**
+     * Publica en caliente una versión nueva del catálogo sin bloquear al llamador
+     * @param productos Productos de la versión nueva
+     * @return Futuro con el ApiResponseDTO del resultado; 400 si la versión no es válida
+     */
+    public CompletableFuture<ApiResponseDTO<GestorCatalogo.PublicacionCatalogo>> publicarCatalogoAsync(List<CargadorCatalogo.ProductoCatalogo> productos) {
+        return recompilarPromociones(gestorCatalogo.publicar(productos)).handle(CatalogoService::aPublicacion);
+    }
+
+    /**
+     * Vuelve a leer el catálogo configurado y lo publica en caliente
+     * @return ApiResponseDTO con el resultado de la publicación
+     */
+    public ApiResponseDTO<GestorCatalogo.PublicacionCatalogo> recargarCatalogo() {
+        return recargarCatalogoAsync().join();
+    }
+
+    /**
+     * Vuelve a leer el catálogo configurado y lo publica en caliente sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO del resultado; 400 si la versión no es válida
+     */
+    public CompletableFuture<ApiResponseDTO<GestorCatalogo.PublicacionCatalogo>> recargarCatalogoAsync() {
+        try {
+            return recompilarPromociones(cargadorCatalogo.recargarCatalogo()).handle(CatalogoService::aPublicacion);
+        } catch (IOException e) {
+            log.error("No se pudo leer el catálogo para recargarlo", e);
+            return CompletableFuture.completedFuture(MaquinaService.respuestaFallida(e));
+        }
+    }
+
+    /**
+     * Recompila las promociones cuando se publica un catálogo, para que sus tablas usen los precios nuevos
+     */
+    private CompletableFuture<GestorCatalogo.PublicacionCatalogo> recompilarPromociones(CompletableFuture<GestorCatalogo.PublicacionCatalogo> publicacion) {
+        return publicacion.thenCompose(resultado -> resultado.isPublicada()
+                ? motorPromociones.recompilar().thenApply(compilacion -> resultado)
+                : CompletableFuture.completedFuture(resultado));
+    }
+
+    private static ApiResponseDTO<GestorCatalogo.PublicacionCatalogo> aPublicacion(GestorCatalogo.PublicacionCatalogo publicacion, Throwable error) {
+        if (error == null && !publicacion.isPublicada()) {
+            ApiResponseDTO<GestorCatalogo.PublicacionCatalogo> response = new ApiResponseDTO<>();
+            response.BadOperation(publicacion);
+            return response;
+        }
+        return MaquinaService.aRespuesta(publicacion, error);
+    }
+
+    /**
+     * Obtiene las reglas de precio y promociones vigentes
+     * @return ApiResponseDTO con las reglas
+     */
+    public ApiResponseDTO<List<ReglaPrecio>> obtenerPromociones() {
+        ApiResponseDTO<List<ReglaPrecio>> response = new ApiResponseDTO<>();
+        response.SuccessOperation(motorPromociones.getReglas());
+        return response;
+    }
+
+    /**
+     * Reemplaza las reglas de precio y promociones y las compila para toda la flota
+     * @param reglas Reglas nuevas
+     * @return ApiResponseDTO con el resultado de la compilación
+     */
+    public ApiResponseDTO<MotorPromociones.ResultadoCompilacion> reemplazarPromociones(List<ReglaPrecio> reglas) {
+        return reemplazarPromocionesAsync(reglas).join();
+    }
+
+    /**
+     * Reemplaza las reglas de precio y promociones sin bloquear al llamador
+     * @param reglas Reglas nuevas
+     * @return Futuro con el ApiResponseDTO del resultado; 400 si alguna regla no es válida
+     */
+    public CompletableFuture<ApiResponseDTO<MotorPromociones.ResultadoCompilacion>> reemplazarPromocionesAsync(List<ReglaPrecio> reglas) {
+        return motorPromociones.reemplazarReglas(reglas).handle((resultado, error) -> {
+            if (error == null && !resultado.isCompilada()) {
+                ApiResponseDTO<MotorPromociones.ResultadoCompilacion> response = new ApiResponseDTO<>();
+                response.BadOperation(resultado);
+                return response;
+            }
+            return MaquinaService.aRespuesta(resultado, error);
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package com.discretas.maquinaexpendedora.services;
+
+import com.discretas.maquinaexpendedora.cluster.GestorCluster;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Servicio para administrar la membresía del clúster y recibir las máquinas trasladadas entre nodos.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClusterService {
+
+    private final GestorCluster gestorCluster;
+
+    /**
+     * Obtiene el estado del clúster visto desde este nodo
+     * @return ApiResponseDTO con el estado del clúster
+     */
+    public ApiResponseDTO<GestorCluster.EstadoCluster> obtenerEstado() {
+        ApiResponseDTO<GestorCluster.EstadoCluster> response = new ApiResponseDTO<>();
+        try {
+            response.SuccessOperation(gestorCluster.obtenerEstado());
+        } catch (Exception e) {
+            response.FailedOperation();
+        }
+        return response;
+    }
+
+    /**
+     * Agrega un nodo al clúster
+     * @param idNodo Identificador del nodo
+     * @param url URL base del nodo
+     * @param propagar true para avisar a los demás nodos
+     * @return ApiResponseDTO con el estado del clúster, o solicitud incorrecta si el clúster está deshabilitado
+     */
+    public ApiResponseDTO<GestorCluster.EstadoCluster> unirNodo(String idNodo, String url, boolean propagar) {
+        ApiResponseDTO<GestorCluster.EstadoCluster> response = new ApiResponseDTO<>();
+        try {
+            if (!gestorCluster.isHabilitado() || url == null || url.isBlank()) {
+                response.BadOperation();
+                return response;
+            }
+            gestorCluster.unirNodo(idNodo, url, propagar);
+            response.SuccessOperation(gestorCluster.obtenerEstado());
+        } catch (Exception e) {
+            log.error("Error al agregar el nodo {}", idNodo, e);
+            response.FailedOperation();
+        }
+        return response;
+    }
+
+    /**
+     * Retira un nodo del clúster; si es este nodo, sus máquinas se trasladan a los demás
+     * @param idNodo Identificador del nodo
+     * @param propagar true para avisar a los demás nodos
+     * @return ApiResponseDTO con el estado del clúster, o solicitud incorrecta si el nodo no es miembro
+     */
+    public ApiResponseDTO<GestorCluster.EstadoCluster> retirarNodo(String idNodo, boolean propagar) {
+        ApiResponseDTO<GestorCluster.EstadoCluster> response = new ApiResponseDTO<>();
+        try {
+            if (!gestorCluster.retirarNodo(idNodo, propagar)) {
+                response.BadOperation(gestorCluster.obtenerEstado());
+                return response;
+            }
+            response.SuccessOperation(gestorCluster.obtenerEstado());
+        } catch (Exception e) {
+            log.error("Error al retirar el nodo {}", idNodo, e);
+            response.FailedOperation();
+        }
+        return response;
+    }
+
+    /**
+     * Registra las máquinas trasladadas desde otro nodo
+     * @param datos Máquinas serializadas
+     * @return ApiResponseDTO con el número de máquinas recibidas, o solicitud incorrecta si los datos no son válidos
+     */
+    public ApiResponseDTO<Integer> recibirMaquinas(byte[] datos) {
+        ApiResponseDTO<Integer> response = new ApiResponseDTO<>();
+        try {
+            response.SuccessOperation(gestorCluster.recibirMaquinas(datos));
+        } catch (IOException e) {
+            log.warn("Máquinas recibidas con formato inválido: {}", e.getMessage());
+            response.BadOperation();
+        } catch (Exception e) {
+            log.error("Error al recibir máquinas de otro nodo", e);
+            response.FailedOperation();
+        }
+        return response;
+    }
+}
@@ -0,0 +1,126 @@
+package com.discretas.maquinaexpendedora.services;
+
+import com.discretas.maquinaexpendedora.events.AgregadosVentas;
+import com.discretas.maquinaexpendedora.events.MotorAlertas;
+import com.discretas.maquinaexpendedora.events.RankingProductos;
+import com.discretas.maquinaexpendedora.frecuencias.ResumenFrecuencias;
+import com.discretas.maquinaexpendedora.planificacion.PlanificadorReabastecimiento;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Servicio de las vistas de toda la flota del nodo: alertas de stock y anomalías, productos más vendidos,
+ * agregados de ventas y plan de reabastecimiento.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FlotaService {
+
+    private final MotorAlertas motorAlertas;
+
+    private final RankingProductos rankingProductos;
+
+    private final AgregadosVentas agregadosVentas;
+
+    private final PlanificadorReabastecimiento planificador;
+
+    /**
+     * Obtiene las alertas de stock y anomalías emitidas por el motor de alertas
+     * @param desde Secuencia de la última alerta conocida por el cliente (0 para todas)
+     * @return ApiResponseDTO con las alertas posteriores a la secuencia indicada
+     */
+    public ApiResponseDTO<List<MotorAlertas.Alerta>> obtenerAlertas(long desde) {
+        ApiResponseDTO<List<MotorAlertas.Alerta>> response = new ApiResponseDTO<>();
+        try {
+            response.SuccessOperation(motorAlertas.obtenerAlertas(desde));
+        } catch (Exception e) {
+            response.FailedOperation();
+        }
+        return response;
+    }
+
+    /**
+     * Suscribe un cliente a las alertas push de stock y anomalías
+     * @return Emisor SSE por el que se envían las alertas
+     */
+    public SseEmitter suscribirAlertas() {
+        return motorAlertas.suscribir();
+    }
+
+    /**
+     * Obtiene los productos más vendidos de una región o de toda la flota
+     * @param region Región a consultar, o null para toda la flota
+     * @param n Número de productos a devolver
+     * @return ApiResponseDTO con los productos y las cotas de sus ventas
+     */
+    public ApiResponseDTO<List<ResumenFrecuencias.Frecuente>> obtenerTopProductos(String region, int n) {
+        ApiResponseDTO<List<ResumenFrecuencias.Frecuente>> response = new ApiResponseDTO<>();
+        if (n < 1) {
+            response.BadOperation();
+            return response;
+        }
+        try {
+            response.SuccessOperation(rankingProductos.top(region, n));
+        } catch (Exception e) {
+            response.FailedOperation();
+        }
+        return response;
+    }
+
+    /**
+     * Obtiene el resumen de ventas fusionable de una región o de toda la flota, para combinarlo con el de otros nodos
+     * @param region Región a consultar, o null para toda la flota
+     * @return ApiResponseDTO con el resumen de frecuencias
+     */
+    public ApiResponseDTO<ResumenFrecuencias> obtenerResumenVentas(String region) {
+        ApiResponseDTO<ResumenFrecuencias> response = new ApiResponseDTO<>();
+        try {
+            response.SuccessOperation(rankingProductos.exportar(region));
+        } catch (Exception e) {
+            response.FailedOperation();
+        }
+        return response;
+    }
+
+    /**
+     * Obtiene los agregados de ventas de todas las máquinas del nodo, calculados a partir de los eventos del bus
+     * @return ApiResponseDTO con el resumen de ventas
+     */
+    public ApiResponseDTO<AgregadosVentas.ResumenVentas> obtenerEstadisticas() {
+        ApiResponseDTO<AgregadosVentas.ResumenVentas> response = new ApiResponseDTO<>();
+        try {
+            response.SuccessOperation(agregadosVentas.obtenerResumen());
+        } catch (Exception e) {
+            response.FailedOperation();
+        }
+        return response;
+    }
+
+    /**
+     * Calcula el plan de reabastecimiento de toda la flota
+     * @param horasHastaVisita Horas hasta la próxima visita del operador
+     * @return ApiResponseDTO con la cantidad a cargar por casilla y el dinero a dejar por máquina
+     */
+    public ApiResponseDTO<PlanificadorReabastecimiento.PlanReabastecimiento> obtenerPlanReabastecimiento(double horasHastaVisita) {
+        return obtenerPlanReabastecimientoAsync(horasHastaVisita).join();
+    }
+
+    /**
+     * Calcula el plan de reabastecimiento de toda la flota sin bloquear al llamador
+     * @param horasHastaVisita Horas hasta la próxima visita del operador
+     * @return Futuro con el ApiResponseDTO del plan; 400 si las horas no son válidas
+     */
+    public CompletableFuture<ApiResponseDTO<PlanificadorReabastecimiento.PlanReabastecimiento>> obtenerPlanReabastecimientoAsync(double horasHastaVisita) {
+        return planificador.planificar(horasHastaVisita).handle(MaquinaService::aRespuestaValidada);
+    }
+}
@@ -1,40 +1,152 @@
 package com.discretas.maquinaexpendedora.services;
 
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.actor.MaquinaNoDisponibleException;
+import com.discretas.maquinaexpendedora.cache.CacheRespuestas;
+import com.discretas.maquinaexpendedora.cluster.EnrutadorCluster;
+import com.discretas.maquinaexpendedora.dispensador.Dispensador;
+import com.discretas.maquinaexpendedora.events.NotificadorEventos;
 import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
 import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.models.TicketDispensacion;
 import com.discretas.maquinaexpendedora.models.Transaccion;
+import com.discretas.maquinaexpendedora.precios.MotorPromociones;
 import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
-import lombok.RequiredArgsConstructor;
+import com.discretas.maquinaexpendedora.presentation.dto.DashboardDTO;
+import com.discretas.maquinaexpendedora.presentation.dto.IngestaDineroDTO;
+import com.discretas.maquinaexpendedora.replicacion.ReplicadorDiario;
+import com.discretas.maquinaexpendedora.state.CodigoResultado;
+import com.discretas.maquinaexpendedora.state.ResultadoOperacion;
+import com.discretas.maquinaexpendedora.utils.LectorDenominaciones;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Servicio que maneja la lógica de negocio de la máquina expendedora.
+ * Todas las operaciones se encolan en el actor de la máquina, que las ejecuta
+ * con un único escritor. Cada operación tiene una variante asíncrona que devuelve un
+ * {@link CompletableFuture} sin bloquear al llamador; la variante síncrona espera ese futuro.
  *
  * @author Duvan Gil
  * @version 1.0
  */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class MaquinaService {
 
-    private final MaquinaExpendedora maquina;
+    private static final int MAX_TICKETS_REGISTRADOS = 1000;
+
+    private final FlotaMaquinas flota;
+
+    private final NotificadorEventos notificadorEventos;
+
+    private final Dispensador dispensador;
+
+    private final long timeoutDispensacionMs;
+
+    private final long plazoConciliacionMs;
+
+    private final int tamanyoLoteIngesta;
+
+    private final CacheRespuestas cacheRespuestas;
+
+    private final ReplicadorDiario replicador;
+
+    /**
+     * Hilos virtuales para leer los flujos de denominaciones de la variante asíncrona, cuya lectura bloquea
+     */
+    private final Executor ejecutorIngesta = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Contador para generar identificadores de ticket sin recurrir a UUID
+     */
+    private final AtomicLong contadorTickets = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Tickets de dispensación recientes, para consultar su estado
+     */
+    private final Map<String, TicketDispensacion> tickets = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TicketDispensacion> eldest) {
+                    return size() > MAX_TICKETS_REGISTRADOS;
+                }
+            });
+
+    /**
+     * Constructor del servicio
+     */
+    public MaquinaService(FlotaMaquinas flota,
+                          NotificadorEventos notificadorEventos,
+                          Dispensador dispensador,
+                          @Value("${maquina.dispensador.timeout-ms:10000}") long timeoutDispensacionMs,
+                          @Value("${maquina.dispensador.conciliacion-ms:120000}") long plazoConciliacionMs,
+                          @Value("${maquina.ingesta.tamanyo-lote:512}") int tamanyoLoteIngesta,
+                          CacheRespuestas cacheRespuestas,
+                          ReplicadorDiario replicador) {
+        this.flota = flota;
+        this.notificadorEventos = notificadorEventos;
+        this.dispensador = dispensador;
+        this.timeoutDispensacionMs = timeoutDispensacionMs;
+        this.plazoConciliacionMs = Math.max(timeoutDispensacionMs, plazoConciliacionMs);
+        this.tamanyoLoteIngesta = tamanyoLoteIngesta;
+        this.cacheRespuestas = cacheRespuestas;
+        this.replicador = replicador;
+    }
+
+    /**
+     * Obtiene el actor de la máquina indicada en la solicitud en curso, o el de la máquina principal si la
+     * solicitud no indica ninguna
+     * @return Actor que gobierna la máquina
+     * @throws MaquinaNoDisponibleException Si la máquina indicada ya no está en la flota de este nodo
+     */
+    private ActorMaquina maquina() {
+        String idMaquina = EnrutadorCluster.maquinaSolicitada();
+        if (idMaquina == null) {
+            return flota.getPrincipal();
+        }
+        ActorMaquina actor = flota.obtener(idMaquina);
+        if (actor == null) {
+            // El enrutador la encontró, así que se trasladó a otro nodo mientras tanto
+            throw new MaquinaNoDisponibleException(idMaquina);
+        }
+        return actor;
+    }
 
     /**
      * Obtiene el estado actual de la máquina
      * @return ApiResponseDTO con el estado actual de la máquina
      */
     public ApiResponseDTO<String> obtenerEstadoActual() {
-        ApiResponseDTO<String> response = new ApiResponseDTO<>();
-        try {
-            String estadoActual = maquina.getEstadoActualNombre();
-            response.SuccessOperation(estadoActual);
-        } catch (Exception e) {
-            response.FailedOperation();
-        }
-        return response;
+        return obtenerEstadoActualAsync().join();
+    }
+
+    /**
+     * Obtiene el estado actual de la máquina sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO del estado actual
+     */
+    public CompletableFuture<ApiResponseDTO<String>> obtenerEstadoActualAsync() {
+        return responder(MaquinaExpendedora::getEstadoActualNombre);
     }
 
     /**
@@ -42,106 +154,425 @@ public class MaquinaService {
      * @return ApiResponseDTO con mapa de productos disponibles
      */
     public ApiResponseDTO<Map<String, Producto>> obtenerProductosDisponibles() {
-        ApiResponseDTO<Map<String, Producto>> response = new ApiResponseDTO<>();
+        return obtenerProductosDisponiblesAsync().join();
+    }
+
+    /**
+     * Obtiene todos los productos disponibles sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO del mapa de productos
+     */
+    public CompletableFuture<ApiResponseDTO<Map<String, Producto>>> obtenerProductosDisponiblesAsync() {
+        return responder(MaquinaService::copiarInventario);
+    }
+
+    /**
+     * Selecciona un producto
+     * @param codigoProducto Código del producto a seleccionar
+     * @return ApiResponseDTO con el resultado de la operación
+     */
+    public ApiResponseDTO<ResultadoOperacion> seleccionarProducto(String codigoProducto) {
+        return seleccionarProductoAsync(codigoProducto).join();
+    }
+
+    /**
+     * Selecciona un producto sin bloquear al llamador
+     * @param codigoProducto Código del producto a seleccionar
+     * @return Futuro con el ApiResponseDTO del resultado de la operación
+     */
+    public CompletableFuture<ApiResponseDTO<ResultadoOperacion>> seleccionarProductoAsync(String codigoProducto) {
+        return responder(m -> m.seleccionarProducto(codigoProducto));
+    }
+
+    /**
+     * Agrega un producto al carrito de la transacción actual; sin transacción equivale a seleccionarlo
+     * @param codigoProducto Código del producto
+     * @return ApiResponseDTO con el resultado de la operación
+     */
+    public ApiResponseDTO<ResultadoOperacion> agregarProducto(String codigoProducto) {
+        return agregarProductoAsync(codigoProducto).join();
+    }
+
+    /**
+     * Agrega un producto al carrito de la transacción actual sin bloquear al llamador
+     * @param codigoProducto Código del producto
+     * @return Futuro con el ApiResponseDTO del resultado de la operación
+     */
+    public CompletableFuture<ApiResponseDTO<ResultadoOperacion>> agregarProductoAsync(String codigoProducto) {
+        return responder(m -> m.agregarProducto(codigoProducto));
+    }
+
+    /**
+     * Agrega varios productos al carrito en un solo mensaje al actor; se detiene en el primero rechazado
+     * @param codigos Códigos de los productos
+     * @return ApiResponseDTO con el resultado del último producto procesado
+     */
+    public ApiResponseDTO<ResultadoOperacion> agregarProductos(List<String> codigos) {
+        return agregarProductosAsync(codigos).join();
+    }
+
+    /**
+     * Agrega varios productos al carrito sin bloquear al llamador
+     * @param codigos Códigos de los productos
+     * @return Futuro con el ApiResponseDTO del resultado del último producto procesado
+     */
+    public CompletableFuture<ApiResponseDTO<ResultadoOperacion>> agregarProductosAsync(List<String> codigos) {
+        return responder(m -> m.agregarProductos(codigos));
+    }
+
+    /**
+     * Inserta dinero en la máquina
+     * @param monto Cantidad de dinero a insertar
+     * @return ApiResponseDTO con el resultado de la operación
+     */
+    public ApiResponseDTO<ResultadoOperacion> insertarDinero(double monto) {
+        return insertarDineroAsync(monto).join();
+    }
+
+    /**
+     * Inserta dinero en la máquina sin bloquear al llamador
+     * @param monto Cantidad de dinero a insertar
+     * @return Futuro con el ApiResponseDTO del resultado de la operación
+     */
+    public CompletableFuture<ApiResponseDTO<ResultadoOperacion>> insertarDineroAsync(double monto) {
+        return responder(m -> m.insertarDinero(monto));
+    }
+
+    /**
+     * Ingresa un flujo de denominaciones reportadas por el aceptador de monedas y billetes.
+     * Las denominaciones se acumulan y se aplican a la máquina como un solo monto por lote,
+     * con una única evaluación de estado por lote. Un lote se cierra al alcanzar el tamaño
+     * máximo o al consumir todo lo recibido hasta el momento por la conexión.
+     * Si el flujo se interrumpe después de aplicar algún lote, se responde 409 con lo aplicado hasta entonces
+     * y no 500, para que un reintento con la misma clave de idempotencia no vuelva a acreditar esos lotes.
+     * @param flujo Flujo con las denominaciones
+     * @return ApiResponseDTO con el resumen de la ingesta
+     */
+    public ApiResponseDTO<IngestaDineroDTO> insertarDineroLote(InputStream flujo) {
         try {
-            Map<String, Producto> productos = maquina.getInventario();
-            response.SuccessOperation(productos);
+            return ingerirDinero(maquina(), flujo);
         } catch (Exception e) {
-            response.FailedOperation();
+            return respuestaFallida(e);
         }
-        return response;
     }
 
     /**
-     * Selecciona un producto
-     * @param codigoProducto Código del producto a seleccionar
-     * @return ApiResponseDTO con mensaje del resultado
+     * Ingresa un flujo de denominaciones sin bloquear al llamador. La máquina se resuelve en el hilo de la solicitud
+     * y el flujo se lee en un hilo virtual aparte, porque la conexión puede permanecer abierta mientras llegan monedas.
+     * @param flujo Flujo con las denominaciones
+     * @return Futuro con el ApiResponseDTO del resumen de la ingesta
      */
-    public ApiResponseDTO<String> seleccionarProducto(String codigoProducto) {
-        ApiResponseDTO<String> response = new ApiResponseDTO<>();
+    public CompletableFuture<ApiResponseDTO<IngestaDineroDTO>> insertarDineroLoteAsync(InputStream flujo) {
         try {
-            String resultado = maquina.seleccionarProducto(codigoProducto);
-            response.SuccessOperation(resultado);
+            ActorMaquina actor = maquina();
+            return CompletableFuture.supplyAsync(() -> ingerirDinero(actor, flujo), ejecutorIngesta);
         } catch (Exception e) {
-            response.FailedOperation();
+            return CompletableFuture.completedFuture(respuestaFallida(e));
         }
-        return response;
     }
 
     /**
-     * Inserta dinero en la máquina
-     * @param monto Cantidad de dinero a insertar
-     * @return ApiResponseDTO con mensaje del resultado
+     * Lee el flujo de denominaciones y lo aplica por lotes a la máquina indicada
      */
-    public ApiResponseDTO<String> insertarDinero(double monto) {
-        ApiResponseDTO<String> response = new ApiResponseDTO<>();
+    private ApiResponseDTO<IngestaDineroDTO> ingerirDinero(ActorMaquina actor, InputStream flujo) {
+        ApiResponseDTO<IngestaDineroDTO> response = new ApiResponseDTO<>();
+        IngestaDineroDTO ingesta = new IngestaDineroDTO();
         try {
-            String resultado = maquina.insertarDinero(monto);
-            response.SuccessOperation(resultado);
+            LectorDenominaciones lector = new LectorDenominaciones(flujo);
+            long acumulado = 0;
+            int enLote = 0;
+            long denominacion;
+
+            while ((denominacion = lector.siguiente()) != LectorDenominaciones.FIN_FLUJO) {
+                if (denominacion == LectorDenominaciones.DENOMINACION_INVALIDA) {
+                    ingesta.setRechazados(ingesta.getRechazados() + 1);
+                    continue;
+                }
+                if (acumulado > Long.MAX_VALUE - denominacion) {
+                    aplicarLote(actor, ingesta, acumulado, enLote);
+                    acumulado = 0;
+                    enLote = 0;
+                }
+                acumulado += denominacion;
+                enLote++;
+
+                if (enLote >= tamanyoLoteIngesta || !lector.hayDatosDisponibles()) {
+                    aplicarLote(actor, ingesta, acumulado, enLote);
+                    acumulado = 0;
+                    enLote = 0;
+                }
+            }
+            if (enLote > 0) {
+                aplicarLote(actor, ingesta, acumulado, enLote);
+            }
+
+            if (ingesta.getEventos() == 0) {
+                response.BadOperation(ingesta);
+            } else {
+                response.SuccessOperation(ingesta);
+            }
         } catch (Exception e) {
-            response.FailedOperation();
+            if (ingesta.getLotes() > 0) {
+                log.warn("Ingesta de dinero interrumpida tras aplicar {} lotes", ingesta.getLotes(), e);
+                ingesta.setInterrumpida(true);
+                response.ConflictOperation(ingesta);
+            } else {
+                response.FailedOperation();
+            }
         }
         return response;
     }
 
+    /**
+     * Aplica un lote de denominaciones a la máquina como un único monto
+     */
+    private void aplicarLote(ActorMaquina actor, IngestaDineroDTO ingesta, long monto, int eventos) {
+        ResultadoOperacion resultado = enviarReplicado(actor, m -> m.insertarDinero(monto)).join();
+        if (resultado.getCodigo() == CodigoResultado.DINERO_INSERTADO_PARCIAL
+                || resultado.getCodigo() == CodigoResultado.DINERO_INSERTADO_SUFICIENTE
+                || resultado.getCodigo() == CodigoResultado.DINERO_ADICIONAL_INSERTADO) {
+            ingesta.setMontoAceptado(ingesta.getMontoAceptado() + monto);
+        }
+        ingesta.setResultado(resultado);
+        ingesta.setEventos(ingesta.getEventos() + eventos);
+        ingesta.setMontoRecibido(ingesta.getMontoRecibido() + monto);
+        ingesta.setLotes(ingesta.getLotes() + 1);
+    }
+
     /**
      * Confirma el pago de la transacción actual
-     * @return ApiResponseDTO con mensaje del resultado
+     * @return ApiResponseDTO con el resultado de la operación
+     */
+    public ApiResponseDTO<ResultadoOperacion> confirmarPago() {
+        return confirmarPagoAsync().join();
+    }
+
+    /**
+     * Confirma el pago de la transacción actual sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO del resultado de la operación
+     */
+    public CompletableFuture<ApiResponseDTO<ResultadoOperacion>> confirmarPagoAsync() {
+        return responder(MaquinaExpendedora::confirmarPago);
+    }
+
+    /**
+     * Inicia la dispensación del producto seleccionado sin esperar al hardware.
+     * El resultado final se consulta con el ticket devuelto o llega como evento.
+     * @return ApiResponseDTO con el ticket de la dispensación
      */
-    public ApiResponseDTO<String> confirmarPago() {
-        ApiResponseDTO<String> response = new ApiResponseDTO<>();
+    public ApiResponseDTO<TicketDispensacion> dispensarProducto() {
+        return dispensarProductoAsync().join();
+    }
+
+    /**
+     * Inicia la dispensación del producto seleccionado sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO del ticket de la dispensación
+     */
+    public CompletableFuture<ApiResponseDTO<TicketDispensacion>> dispensarProductoAsync() {
         try {
-            String resultado = maquina.confirmarPago();
-            response.SuccessOperation(resultado);
+            ActorMaquina actor = maquina();
+            String idTicket = "T-" + contadorTickets.incrementAndGet();
+            return enviarReplicado(actor, m -> m.iniciarDispensacion(idTicket))
+                    .thenCompose(ticket -> iniciarDispensador(actor, ticket))
+                    .exceptionally(MaquinaService::respuestaFallida);
         } catch (Exception e) {
-            response.FailedOperation();
+            return CompletableFuture.completedFuture(respuestaFallida(e));
         }
-        return response;
     }
 
     /**
-     * Dispensa el producto seleccionado
-     * @return ApiResponseDTO con mensaje del resultado
+     * Entrega el ticket al dispensador; si no tiene capacidad, libera la dispensación en el actor
+     */
+    private CompletableFuture<ApiResponseDTO<TicketDispensacion>> iniciarDispensador(ActorMaquina actor, TicketDispensacion ticket) {
+        ApiResponseDTO<TicketDispensacion> response = new ApiResponseDTO<>();
+        if (ticket.estaPendiente()) {
+            try {
+                dispensarSiguiente(actor, ticket);
+            } catch (RejectedExecutionException e) {
+                return actor.enviar(m -> {
+                    m.liberarDispensacion(ResultadoOperacion.de(CodigoResultado.DISPENSADOR_OCUPADO));
+                    return ticket;
+                }).thenApply(liberado -> {
+                    response.BusyOperation(liberado);
+                    return response;
+                });
+            }
+        }
+
+        tickets.put(ticket.getId(), ticket);
+        response.SuccessOperation(ticket);
+        return CompletableFuture.completedFuture(response);
+    }
+
+    /**
+     * Dispensa el producto del ticket y lo completa en el actor. En un carrito el ticket sigue pendiente
+     * mientras queden productos, y cada uno se entrega al dispensador cuando termina el anterior.
+     * Si el dispensador no responde dentro del plazo el ticket queda incierto, sin reembolsar ni revertir,
+     * y se concilia cuando llega el resultado del hardware; si tampoco llega dentro del plazo de conciliación,
+     * el producto se da por no entregado y se reembolsa para que la máquina no quede dispensando.
+     */
+    private void dispensarSiguiente(ActorMaquina actor, TicketDispensacion ticket) {
+        String idTicket = ticket.getId();
+        CompletableFuture<Boolean> entrega = dispensador.dispensar(ticket);
+        entrega.whenComplete((exito, error) -> {
+            if (error != null) {
+                log.error("Error en el dispensador para el ticket {}", idTicket, error);
+            }
+            completar(actor, m -> m.completarDispensacion(idTicket, Boolean.TRUE.equals(exito)));
+        });
+        entrega.copy()
+                .orTimeout(timeoutDispensacionMs, TimeUnit.MILLISECONDS)
+                .whenComplete((exito, error) -> {
+                    if (error instanceof TimeoutException && !entrega.isDone()) {
+                        log.warn("El dispensador no respondió en {} ms para el ticket {}; queda pendiente de conciliación",
+                                timeoutDispensacionMs, idTicket);
+                        actor.enviar(m -> m.marcarDispensacionIncierta(idTicket));
+                    }
+                });
+        entrega.copy()
+                .orTimeout(plazoConciliacionMs, TimeUnit.MILLISECONDS)
+                .whenComplete((exito, error) -> {
+                    if (error instanceof TimeoutException && !entrega.isDone()) {
+                        log.warn("El dispensador no respondió en {} ms para el ticket {}; se reembolsa el producto",
+                                plazoConciliacionMs, idTicket);
+                        completar(actor, m -> m.conciliarDispensacion(idTicket, false));
+                    }
+                });
+    }
+
+    /**
+     * Aplica en el actor el resultado de una dispensación y, si el carrito continúa, entrega el siguiente
+     * producto al dispensador con el ticket en curso, que puede ser uno nuevo si el anterior terminó incierto
+     * @param actor Actor de la máquina
+     * @param resultado Operación que aplica el resultado del hardware o la conciliación
+     * @return Futuro con el resultado de la operación
+     */
+    private CompletableFuture<ResultadoOperacion> completar(ActorMaquina actor, Function<MaquinaExpendedora, ResultadoOperacion> resultado) {
+        CompletableFuture<ResultadoOperacion> aplicado = new CompletableFuture<>();
+        actor.enviar(m -> {
+            ResultadoOperacion aplicacion = resultado.apply(m);
+            aplicado.complete(aplicacion);
+            // Un resultado obsoleto no es de este ticket: el siguiente lo gobierna su propia dispensación
+            return aplicacion.getCodigo() == CodigoResultado.DISPENSACION_OBSOLETA ? null : m.getTicketDispensacion();
+        }).whenComplete((siguiente, error) -> {
+            if (error != null) {
+                aplicado.completeExceptionally(error);
+            } else if (siguiente != null && siguiente.estaPendiente()) {
+                tickets.putIfAbsent(siguiente.getId(), siguiente);
+                continuarCarrito(actor, siguiente);
+            }
+        });
+        return aplicado;
+    }
+
+    /**
+     * Continúa con el siguiente producto del carrito; si el dispensador no lo acepta, se reembolsa
+     * como un producto fallido para no dejar la máquina en dispensación
+     */
+    private void continuarCarrito(ActorMaquina actor, TicketDispensacion ticket) {
+        try {
+            dispensarSiguiente(actor, ticket);
+        } catch (RejectedExecutionException e) {
+            log.warn("El dispensador rechazó el siguiente producto del ticket {}", ticket.getId());
+            completar(actor, m -> m.completarDispensacion(ticket.getId(), false));
+        }
+    }
+
+    /**
+     * Concilia una dispensación incierta por decisión del operador, sin esperar más al hardware
+     * @param idTicket Identificador del ticket incierto
+     * @param entregado true si el producto se entregó, false para reembolsarlo
+     * @return ApiResponseDTO con el resultado de la conciliación
+     */
+    public ApiResponseDTO<ResultadoOperacion> conciliarDispensacion(String idTicket, boolean entregado) {
+        return conciliarDispensacionAsync(idTicket, entregado).join();
+    }
+
+    /**
+     * Concilia una dispensación incierta sin bloquear al llamador
+     * @param idTicket Identificador del ticket incierto
+     * @param entregado true si el producto se entregó, false para reembolsarlo
+     * @return Futuro con el ApiResponseDTO del resultado; solicitud incorrecta si el ticket no está incierto
      */
-    public ApiResponseDTO<String> dispensarProducto() {
-        ApiResponseDTO<String> response = new ApiResponseDTO<>();
+    public CompletableFuture<ApiResponseDTO<ResultadoOperacion>> conciliarDispensacionAsync(String idTicket, boolean entregado) {
         try {
-            String resultado = maquina.dispensarProducto();
-            response.SuccessOperation(resultado);
+            return completar(maquina(), m -> m.conciliarDispensacion(idTicket, entregado)).handle((resultado, error) -> {
+                if (error == null && resultado.getCodigo() == CodigoResultado.DISPENSACION_OBSOLETA) {
+                    ApiResponseDTO<ResultadoOperacion> response = new ApiResponseDTO<>();
+                    response.BadOperation();
+                    return response;
+                }
+                return aRespuesta(resultado, error);
+            });
         } catch (Exception e) {
-            response.FailedOperation();
+            return CompletableFuture.completedFuture(respuestaFallida(e));
         }
-        return response;
     }
 
     /**
-     * Cancela la transacción actual
-     * @return ApiResponseDTO con mensaje del resultado
+     * Consulta el estado de una dispensación
+     * @param idTicket Identificador del ticket
+     * @return ApiResponseDTO con el ticket, o solicitud incorrecta si no existe
      */
-    public ApiResponseDTO<String> cancelarTransaccion() {
-        ApiResponseDTO<String> response = new ApiResponseDTO<>();
+    public ApiResponseDTO<TicketDispensacion> consultarDispensacion(String idTicket) {
+        ApiResponseDTO<TicketDispensacion> response = new ApiResponseDTO<>();
         try {
-            String resultado = maquina.cancelarTransaccion();
-            response.SuccessOperation(resultado);
+            TicketDispensacion ticket = tickets.get(idTicket);
+            if (ticket == null) {
+                response.BadOperation();
+            } else {
+                response.SuccessOperation(ticket);
+            }
         } catch (Exception e) {
             response.FailedOperation();
         }
         return response;
     }
 
+    /**
+     * Espera a que termine una dispensación sin ocupar un hilo mientras el dispensador trabaja
+     * @param idTicket Identificador del ticket
+     * @return Futuro con el ticket terminado, o solicitud incorrecta si no existe
+     */
+    public CompletableFuture<ApiResponseDTO<TicketDispensacion>> esperarDispensacion(String idTicket) {
+        TicketDispensacion ticket = tickets.get(idTicket);
+        if (ticket == null) {
+            ApiResponseDTO<TicketDispensacion> response = new ApiResponseDTO<>();
+            response.BadOperation();
+            return CompletableFuture.completedFuture(response);
+        }
+        return ticket.getFinalizacion().handle(MaquinaService::aRespuesta);
+    }
+
+    /**
+     * Cancela la transacción actual
+     * @return ApiResponseDTO con el resultado de la operación
+     */
+    public ApiResponseDTO<ResultadoOperacion> cancelarTransaccion() {
+        return cancelarTransaccionAsync().join();
+    }
+
+    /**
+     * Cancela la transacción actual sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO del resultado de la operación
+     */
+    public CompletableFuture<ApiResponseDTO<ResultadoOperacion>> cancelarTransaccionAsync() {
+        return responder(MaquinaExpendedora::cancelarTransaccion);
+    }
+
     /**
      * Obtiene la transacción actual
      * @return ApiResponseDTO con la transacción actual
      */
     public ApiResponseDTO<Transaccion> obtenerTransaccionActual() {
-        ApiResponseDTO<Transaccion> response = new ApiResponseDTO<>();
-        try {
-            Transaccion transaccion = maquina.getTransaccionActual();
-            response.SuccessOperation(transaccion);
-        } catch (Exception e) {
-            response.FailedOperation();
-        }
-        return response;
+        return obtenerTransaccionActualAsync().join();
+    }
+
+    /**
+     * Obtiene la transacción actual sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO de la transacción actual
+     */
+    public CompletableFuture<ApiResponseDTO<Transaccion>> obtenerTransaccionActualAsync() {
+        return responder(m -> m.getTransaccionActual() != null ? m.getTransaccionActual().copiar() : null);
     }
 
     /**
@@ -149,14 +580,15 @@ public class MaquinaService {
      * @return ApiResponseDTO con lista de transacciones realizadas
      */
     public ApiResponseDTO<List<Transaccion>> obtenerHistorialTransacciones() {
-        ApiResponseDTO<List<Transaccion>> response = new ApiResponseDTO<>();
-        try {
-            List<Transaccion> historial = maquina.getHistorialTransacciones();
-            response.SuccessOperation(historial);
-        } catch (Exception e) {
-            response.FailedOperation();
-        }
-        return response;
+        return obtenerHistorialTransaccionesAsync().join();
+    }
+
+    /**
+     * Obtiene el historial de transacciones sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO de la lista de transacciones
+     */
+    public CompletableFuture<ApiResponseDTO<List<Transaccion>>> obtenerHistorialTransaccionesAsync() {
+        return responder(m -> new ArrayList<>(m.getHistorialTransacciones()));
     }
 
     /**
@@ -164,30 +596,188 @@ public class MaquinaService {
      * @return Cantidad de dinero disponible para cambio
      */
     public ApiResponseDTO<Double> obtenerDineroDisponible() {
-        ApiResponseDTO<Double> response = new ApiResponseDTO<>();
+        return obtenerDineroDisponibleAsync().join();
+    }
+
+    /**
+     * Obtiene el dinero disponible en la máquina sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO del dinero disponible
+     */
+    public CompletableFuture<ApiResponseDTO<Double>> obtenerDineroDisponibleAsync() {
+        return responder(MaquinaExpendedora::getDineroDisponible);
+    }
+
+    /**
+     * Reinicia la máquina al estado inicial
+     * @return ApiResponseDTO con el resultado de la operación
+     */
+    public ApiResponseDTO<ResultadoOperacion> reiniciarMaquina() {
+        return reiniciarMaquinaAsync().join();
+    }
+
+    /**
+     * Reinicia la máquina al estado inicial sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO del resultado de la operación
+     */
+    public CompletableFuture<ApiResponseDTO<ResultadoOperacion>> reiniciarMaquinaAsync() {
+        return responder(m -> {
+            if (m.getTransaccionActual() != null) {
+                m.cancelarTransaccion();
+            }
+            return ResultadoOperacion.de(CodigoResultado.MAQUINA_REINICIADA);
+        });
+    }
+
+    /**
+     * Suscribe un cliente a las notificaciones push de eventos de la máquina
+     * @return Emisor SSE por el que se envían los eventos
+     */
+    public SseEmitter suscribirEventos() {
+        return notificadorEventos.suscribir();
+    }
+
+    /**
+     * Obtiene el tablero completo de la máquina (estado, dinero, transacción y productos).
+     * La instantánea se toma atómicamente en el actor de la máquina.
+     * @return ApiResponseDTO con el DashboardDTO
+     */
+    public ApiResponseDTO<DashboardDTO> obtenerDashboard() {
+        return obtenerDashboardAsync().join();
+    }
+
+    /**
+     * Obtiene el tablero completo de la máquina sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO del DashboardDTO
+     */
+    public CompletableFuture<ApiResponseDTO<DashboardDTO>> obtenerDashboardAsync() {
+        return responder(MaquinaService::tomarInstantanea);
+    }
+
+    /**
+     * Obtiene una respuesta de lectura ya serializada para la versión actual de los datos de la máquina.
+     * Mientras la máquina no cambie, todas las consultas comparten los mismos bytes.
+     * @param clave Clave de la respuesta (ruta del endpoint), que se combina con el identificador de la máquina
+     * @param generador Operación del servicio que genera la respuesta
+     * @return Respuesta serializada vigente
+     */
+    public CacheRespuestas.RespuestaSerializada obtenerSerializado(String clave, Supplier<? extends ApiResponseDTO<?>> generador) {
+        MaquinaExpendedora maquina = maquina().getMaquina();
+        return cacheRespuestas.obtener(maquina.getId() + clave, maquina.getVersion(), generador);
+    }
+
+    /**
+     * Obtiene una respuesta de lectura ya serializada sin bloquear al llamador.
+     * Si la versión vigente ya está en caché se devuelve un futuro completado.
+     * @param clave Clave de la respuesta (ruta del endpoint)
+     * @param generador Operación asíncrona del servicio que genera la respuesta
+     * @return Futuro con la respuesta serializada vigente
+     */
+    public CompletableFuture<CacheRespuestas.RespuestaSerializada> obtenerSerializadoAsync(
+            String clave, Supplier<? extends CompletableFuture<? extends ApiResponseDTO<?>>> generador) {
+        MaquinaExpendedora maquina = maquina().getMaquina();
+        return cacheRespuestas.obtenerAsync(maquina.getId() + clave, maquina.getVersion(), generador);
+    }
+
+    /**
+     * Encola una operación en el actor de la máquina y envuelve su resultado en un ApiResponseDTO
+     */
+    private <T> CompletableFuture<ApiResponseDTO<T>> responder(Function<MaquinaExpendedora, T> operacion) {
         try {
-            double dineroDisponible = maquina.getDineroDisponible();
-            response.SuccessOperation(dineroDisponible);
+            return enviarReplicado(maquina(), operacion).handle(MaquinaService::aRespuesta);
         } catch (Exception e) {
-            response.FailedOperation();
+            return CompletableFuture.completedFuture(respuestaFallida(e));
         }
+    }
+
+    /**
+     * Encola una operación en el actor de la máquina. Con replicación síncrona el futuro se completa
+     * cuando el respaldo confirma los eventos que publicó la operación.
+     */
+    private <T> CompletableFuture<T> enviarReplicado(ActorMaquina actor, Function<MaquinaExpendedora, T> operacion) {
+        if (!replicador.isSincrona()) {
+            return actor.enviar(operacion);
+        }
+        return actor.enviar(m -> {
+            long anterior = m.getUltimaSecuenciaEvento();
+            T resultado = operacion.apply(m);
+            long ultima = m.getUltimaSecuenciaEvento();
+            return new Replicado<>(resultado, m.getId(), ultima != anterior ? ultima : -1);
+        }).thenCompose(r -> replicador.confirmacion(r.idMaquina(), r.secuencia()).thenApply(v -> r.resultado()));
+    }
+
+    static <T> ApiResponseDTO<T> aRespuesta(T resultado, Throwable error) {
+        if (error != null) {
+            return respuestaFallida(error);
+        }
+        ApiResponseDTO<T> response = new ApiResponseDTO<>();
+        response.SuccessOperation(resultado);
         return response;
     }
 
     /**
-     * Reinicia la máquina al estado inicial
-     * @return ApiResponseDTO con mensaje de confirmación
+     * Como {@link #aRespuesta}, pero un parámetro rechazado por la operación responde solicitud incorrecta
      */
-    public ApiResponseDTO<String> reiniciarMaquina() {
-        ApiResponseDTO<String> response = new ApiResponseDTO<>();
-        try {
-            if (maquina.getTransaccionActual() != null) {
-                maquina.cancelarTransaccion();
-            }
-            response.SuccessOperation("Máquina reiniciada correctamente.");
-        } catch (Exception e) {
+    static <T> ApiResponseDTO<T> aRespuestaValidada(T resultado, Throwable error) {
+        if (error != null && (error instanceof IllegalArgumentException || error.getCause() instanceof IllegalArgumentException)) {
+            ApiResponseDTO<T> response = new ApiResponseDTO<>();
+            response.BadOperation();
+            return response;
+        }
+        return aRespuesta(resultado, error);
+    }
+
+    static <T> ApiResponseDTO<T> respuestaFallida(Throwable error) {
+        ApiResponseDTO<T> response = new ApiResponseDTO<>();
+        if (error != null && (error instanceof MaquinaNoDisponibleException || error.getCause() instanceof MaquinaNoDisponibleException)) {
+            response.BusyOperation(null);
+        } else {
             response.FailedOperation();
         }
         return response;
     }
+
+    /**
+     * Obtiene el precio vigente de cada casilla de la máquina, con las promociones de la franja actual
+     * @return ApiResponseDTO con el precio por casilla
+     */
+    public ApiResponseDTO<Map<String, Double>> obtenerPreciosVigentes() {
+        return obtenerPreciosVigentesAsync().join();
+    }
+
+    /**
+     * Obtiene el precio vigente de cada casilla de la máquina sin bloquear al llamador
+     * @return Futuro con el ApiResponseDTO del precio por casilla
+     */
+    public CompletableFuture<ApiResponseDTO<Map<String, Double>>> obtenerPreciosVigentesAsync() {
+        return maquina().enviar(MotorPromociones::preciosVigentes).handle(MaquinaService::aRespuesta);
+    }
+
+    /**
+     * Copia el inventario de la máquina. Debe ejecutarse dentro del actor de la máquina.
+     */
+    private static Map<String, Producto> copiarInventario(MaquinaExpendedora maquina) {
+        Map<String, Producto> productos = new HashMap<>();
+        maquina.getInventario().forEach((codigo, producto) -> productos.put(codigo, producto.copiar()));
+        return productos;
+    }
+
+    /**
+     * Copia los datos del tablero. Debe ejecutarse dentro del actor de la máquina.
+     */
+    private static DashboardDTO tomarInstantanea(MaquinaExpendedora maquina) {
+        DashboardDTO dashboard = new DashboardDTO();
+        dashboard.setVersion(maquina.getVersion());
+        dashboard.setEstado(maquina.getEstadoActualNombre());
+        dashboard.setDineroDisponible(maquina.getDineroDisponible());
+        Transaccion transaccion = maquina.getTransaccionActual();
+        dashboard.setTransaccionActual(transaccion != null ? transaccion.copiar() : null);
+        dashboard.setProductos(copiarInventario(maquina));
+        return dashboard;
+    }
+
+    /**
+     * Resultado de una operación junto con la secuencia del último evento que publicó, o -1 si no publicó ninguno
+     */
+    private record Replicado<T>(T resultado, String idMaquina, long secuencia) {
+    }
 }
@@ -0,0 +1,107 @@
+package com.discretas.maquinaexpendedora.services;
+
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.presentation.dto.ReplicacionDTO;
+import com.discretas.maquinaexpendedora.replicacion.ReplicaRespaldo;
+import com.discretas.maquinaexpendedora.replicacion.ReplicadorDiario;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Servicio de la replicación del diario: estado del envío y de la réplica, recepción de las copias base y
+ * de los lotes de eventos, y promoción de la réplica cuando su origen cae.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReplicacionService {
+
+    private final ReplicadorDiario replicadorDiario;
+
+    private final ReplicaRespaldo replicaRespaldo;
+
+    /**
+     * Obtiene el estado de la replicación en este nodo, incluido el retraso de la replicación hacia su respaldo
+     * @return ApiResponseDTO con el estado del envío y de la réplica
+     */
+    public ApiResponseDTO<ReplicacionDTO> obtenerEstado() {
+        ApiResponseDTO<ReplicacionDTO> response = new ApiResponseDTO<>();
+        try {
+            response.SuccessOperation(new ReplicacionDTO(replicadorDiario.obtenerEstado(), replicaRespaldo.obtenerEstado()));
+        } catch (Exception e) {
+            response.FailedOperation();
+        }
+        return response;
+    }
+
+    /**
+     * Reemplaza la réplica con una copia base del origen
+     * @param datos Máquinas serializadas
+     * @param secuencia Secuencia del origen a partir de la cual llegarán los lotes
+     * @return ApiResponseDTO con el número de máquinas replicadas; conflicto si la réplica ya se promovió
+     */
+    public ApiResponseDTO<Integer> recibirBase(byte[] datos, long secuencia) {
+        ApiResponseDTO<Integer> response = new ApiResponseDTO<>();
+        try {
+            response.SuccessOperation(replicaRespaldo.recibirBase(datos, secuencia));
+        } catch (IOException e) {
+            log.warn("Copia base recibida con formato inválido: {}", e.getMessage());
+            response.BadOperation();
+        } catch (IllegalStateException e) {
+            response.ConflictOperation(null);
+        } catch (Exception e) {
+            log.error("Error al recibir la copia base", e);
+            response.FailedOperation();
+        }
+        return response;
+    }
+
+    /**
+     * Aplica un lote de eventos del origen sobre la réplica
+     * @param datos Lote de eventos
+     * @return ApiResponseDTO con el estado de la réplica; conflicto si necesita una copia base o ya se promovió
+     */
+    public ApiResponseDTO<ReplicaRespaldo.EstadoRespaldo> aplicarLote(byte[] datos) {
+        ApiResponseDTO<ReplicaRespaldo.EstadoRespaldo> response = new ApiResponseDTO<>();
+        try {
+            if (replicaRespaldo.aplicarLote(datos)) {
+                response.SuccessOperation(replicaRespaldo.obtenerEstado());
+            } else {
+                response.ConflictOperation(replicaRespaldo.obtenerEstado());
+            }
+        } catch (IOException e) {
+            log.warn("Lote de eventos recibido con formato inválido: {}", e.getMessage());
+            response.BadOperation();
+        } catch (IllegalStateException e) {
+            response.ConflictOperation(replicaRespaldo.obtenerEstado());
+        } catch (Exception e) {
+            log.error("Error al aplicar un lote de eventos replicado", e);
+            response.FailedOperation();
+        }
+        return response;
+    }
+
+    /**
+     * Promueve la réplica: este nodo pasa a atender las máquinas replicadas
+     * @return ApiResponseDTO con el número de máquinas incorporadas; solicitud incorrecta si no hay réplica que promover
+     */
+    public ApiResponseDTO<Integer> promover() {
+        ApiResponseDTO<Integer> response = new ApiResponseDTO<>();
+        try {
+            response.SuccessOperation(replicaRespaldo.promover());
+        } catch (IllegalStateException e) {
+            log.warn("No se pudo promover la réplica: {}", e.getMessage());
+            response.BadOperation();
+        } catch (Exception e) {
+            log.error("Error al promover la réplica", e);
+            response.FailedOperation();
+        }
+        return response;
+    }
+}
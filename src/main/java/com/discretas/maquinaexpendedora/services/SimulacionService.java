@@ -0,0 +1,115 @@
+package com.discretas.maquinaexpendedora.services;
+
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.presentation.dto.SimulacionDTO;
+import com.discretas.maquinaexpendedora.simulacion.EscenarioSimulacion;
+import com.discretas.maquinaexpendedora.simulacion.SimuladorMaquina;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servicio de simulación de una máquina con clientes sintéticos, para ajustar el dinero inicial
+ * y la frecuencia de reabastecimiento antes de aplicarlos en campo.
+ * Las simulaciones corren en un pool propio con un número acotado de hilos, de modo que no ocupan el pool
+ * común, y el número de simulaciones en curso está acotado: las que exceden la capacidad responden ocupado.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class SimulacionService {
+
+    private final MaquinaService maquinaService;
+
+    private final SimuladorMaquina simulador;
+
+    /**
+     * Pool de las simulaciones; el stream paralelo del simulador reparte los escenarios en este mismo pool
+     */
+    private final ForkJoinPool ejecutor;
+
+    private final int capacidad;
+
+    private final AtomicInteger enCurso = new AtomicInteger();
+
+    /**
+     * Constructor del servicio
+     * @param hilos Hilos del pool de simulación
+     * @param capacidad Número máximo de simulaciones en curso
+     */
+    public SimulacionService(MaquinaService maquinaService,
+                             SimuladorMaquina simulador,
+                             @Value("${maquina.simulacion.hilos:2}") int hilos,
+                             @Value("${maquina.simulacion.capacidad:4}") int capacidad) {
+        this.maquinaService = maquinaService;
+        this.simulador = simulador;
+        this.ejecutor = new ForkJoinPool(Math.max(1, hilos));
+        this.capacidad = capacidad;
+    }
+
+    /**
+     * Simula la máquina con clientes sintéticos para cada combinación de dinero inicial e intervalo de reabastecimiento
+     * @param simulacion Escenario base y valores a combinar
+     * @return ApiResponseDTO con el resultado de cada escenario
+     */
+    public ApiResponseDTO<List<SimuladorMaquina.ResultadoSimulacion>> simular(SimulacionDTO simulacion) {
+        return simularAsync(simulacion).join();
+    }
+
+    /**
+     * Simula la máquina sin bloquear al llamador. Los escenarios usan los productos y precios actuales
+     * de la máquina de la solicitud y se ejecutan en paralelo fuera de su actor.
+     * @param simulacion Escenario base y valores a combinar
+     * @return Futuro con el ApiResponseDTO de los resultados; 400 si algún parámetro no es válido
+     * y 503 si ya hay demasiadas simulaciones en curso
+     */
+    public CompletableFuture<ApiResponseDTO<List<SimuladorMaquina.ResultadoSimulacion>>> simularAsync(SimulacionDTO simulacion) {
+        try {
+            EscenarioSimulacion base = simulacion.getEscenario() != null ? simulacion.getEscenario() : new EscenarioSimulacion();
+            List<EscenarioSimulacion> escenarios = SimuladorMaquina.rejilla(base, simulacion.getDinerosIniciales(),
+                    simulacion.getIntervalosReabastecimientoHoras(), simulacion.getReplicas());
+            return maquinaService.obtenerProductosDisponiblesAsync().thenCompose(productos -> {
+                if (!productos.isSuccess()) {
+                    return CompletableFuture.completedFuture(MaquinaService.<List<SimuladorMaquina.ResultadoSimulacion>>respuestaFallida(null));
+                }
+                if (enCurso.incrementAndGet() > capacidad) {
+                    enCurso.decrementAndGet();
+                    log.warn("Simulación rechazada: ya hay {} en curso", capacidad);
+                    ApiResponseDTO<List<SimuladorMaquina.ResultadoSimulacion>> ocupado = new ApiResponseDTO<>();
+                    ocupado.BusyOperation(null);
+                    return CompletableFuture.completedFuture(ocupado);
+                }
+                try {
+                    return CompletableFuture.supplyAsync(() -> simulador.simular(escenarios, productos.getData()), ejecutor)
+                            .whenComplete((resultados, error) -> enCurso.decrementAndGet())
+                            .handle(MaquinaService::aRespuestaValidada);
+                } catch (RuntimeException e) {
+                    enCurso.decrementAndGet();
+                    return CompletableFuture.completedFuture(MaquinaService.<List<SimuladorMaquina.ResultadoSimulacion>>respuestaFallida(e));
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            ApiResponseDTO<List<SimuladorMaquina.ResultadoSimulacion>> response = new ApiResponseDTO<>();
+            response.BadOperation();
+            return CompletableFuture.completedFuture(response);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(MaquinaService.respuestaFallida(e));
+        }
+    }
+
+    /**
+     * Detiene el pool de simulación
+     */
+    @PreDestroy
+    public void detener() {
+        ejecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,202 @@
+package com.discretas.maquinaexpendedora.simulacion;
+
+import com.discretas.maquinaexpendedora.utils.Constants;
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parámetros de un escenario de simulación: cómo llegan los clientes, qué compran, con qué billetes
+ * y monedas pagan, con cuánto dinero para cambio arranca la máquina y cada cuánto se reabastece.
+ * Los campos que no se indican toman valores por defecto.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Data
+public class EscenarioSimulacion {
+
+    private static final int HORAS_DIA = 24;
+
+    /**
+     * Número máximo de eventos (llegadas candidatas y visitas) que puede simular un escenario
+     */
+    public static final long MAX_EVENTOS = 2_000_000;
+
+    /**
+     * Nombre del escenario, se copia en el resultado
+     */
+    private String nombre = "base";
+
+    /**
+     * Semilla del generador aleatorio; la misma semilla reproduce la misma corrida
+     */
+    private long semilla = 1;
+
+    /**
+     * Horas de tiempo virtual a simular
+     */
+    private double horas = 24 * 7;
+
+    /**
+     * Llegadas de clientes por hora (proceso de Poisson)
+     */
+    private double llegadasPorHora = 6;
+
+    /**
+     * Multiplicador de la tasa de llegadas para cada hora del día (24 valores), null para una tasa constante
+     */
+    private double[] perfilHorario;
+
+    /**
+     * Peso de cada código de producto en la elección del cliente, null para elegir con la misma probabilidad
+     */
+    private Map<String, Double> preferencias;
+
+    /**
+     * Peso de cada denominación con la que pagan los clientes. Si la denominación no alcanza para el
+     * precio, el cliente inserta varias hasta cubrirlo. Solo se admiten las monedas y billetes de
+     * {@link Constants.Maquina#DENOMINACIONES_ACEPTADAS}.
+     */
+    private Map<Double, Double> denominaciones = denominacionesPorDefecto();
+
+    /**
+     * Dinero para cambio con el que arranca la máquina y que el operador deja en cada visita
+     */
+    private double dineroInicial = Constants.Maquina.DINERO_INICIAL_DEFAULT;
+
+    /**
+     * Horas entre visitas del operador, 0 para no reabastecer
+     */
+    private double intervaloReabastecimientoHoras = 24;
+
+    /**
+     * Unidades con las que se llena cada casilla al arrancar y en cada visita
+     */
+    private int capacidadCasilla = 20;
+
+    /**
+     * Probabilidad de que el cliente elija otro producto cuando el suyo está agotado
+     */
+    private double probabilidadSustitucion = 0.5;
+
+    /**
+     * Copia el escenario
+     * @return Escenario con los mismos parámetros
+     */
+    public EscenarioSimulacion copiar() {
+        EscenarioSimulacion copia = new EscenarioSimulacion();
+        copia.nombre = nombre;
+        copia.semilla = semilla;
+        copia.horas = horas;
+        copia.llegadasPorHora = llegadasPorHora;
+        copia.perfilHorario = perfilHorario != null ? perfilHorario.clone() : null;
+        copia.preferencias = preferencias != null ? new LinkedHashMap<>(preferencias) : null;
+        copia.denominaciones = denominaciones != null ? new LinkedHashMap<>(denominaciones) : null;
+        copia.dineroInicial = dineroInicial;
+        copia.intervaloReabastecimientoHoras = intervaloReabastecimientoHoras;
+        copia.capacidadCasilla = capacidadCasilla;
+        copia.probabilidadSustitucion = probabilidadSustitucion;
+        return copia;
+    }
+
+    /**
+     * Verifica que los parámetros permitan simular
+     * @throws IllegalArgumentException Si algún parámetro no es válido
+     */
+    public void validar() {
+        if (!(horas > 0) || !(llegadasPorHora > 0)) {
+            throw new IllegalArgumentException("Las horas y las llegadas por hora deben ser positivas");
+        }
+        if (!(dineroInicial >= 0) || !(intervaloReabastecimientoHoras >= 0) || capacidadCasilla <= 0) {
+            throw new IllegalArgumentException("El dinero inicial, el intervalo y la capacidad no pueden ser negativos");
+        }
+        if (!(probabilidadSustitucion >= 0 && probabilidadSustitucion <= 1)) {
+            throw new IllegalArgumentException("La probabilidad de sustitución debe estar entre 0 y 1");
+        }
+        if (denominaciones == null || denominaciones.isEmpty()) {
+            throw new IllegalArgumentException("Se necesita al menos una denominación");
+        }
+        double pesoDenominaciones = 0;
+        for (Map.Entry<Double, Double> denominacion : denominaciones.entrySet()) {
+            if (denominacion.getKey() == null || !esDenominacionAceptada(denominacion.getKey())
+                    || !(denominacion.getValue() >= 0)) {
+                throw new IllegalArgumentException("Denominación inválida: " + denominacion.getKey());
+            }
+            pesoDenominaciones += denominacion.getValue();
+        }
+        if (!(pesoDenominaciones > 0)) {
+            throw new IllegalArgumentException("Las denominaciones deben tener algún peso");
+        }
+        if (perfilHorario != null) {
+            if (perfilHorario.length != HORAS_DIA) {
+                throw new IllegalArgumentException("El perfil horario debe tener " + HORAS_DIA + " valores");
+            }
+            double maximo = 0;
+            for (double multiplicador : perfilHorario) {
+                if (!(multiplicador >= 0)) {
+                    throw new IllegalArgumentException("El perfil horario no admite valores negativos");
+                }
+                maximo = Math.max(maximo, multiplicador);
+            }
+            if (maximo == 0) {
+                throw new IllegalArgumentException("El perfil horario debe tener alguna hora con llegadas");
+            }
+        }
+        if (!(eventosEstimados() <= MAX_EVENTOS)) {
+            throw new IllegalArgumentException("El escenario excede " + MAX_EVENTOS + " eventos; reduzca las horas, "
+                    + "las llegadas por hora o la frecuencia de reabastecimiento");
+        }
+    }
+
+    /**
+     * Indica si un valor es una de las monedas o billetes que acepta la máquina
+     */
+    private static boolean esDenominacionAceptada(double valor) {
+        return valor == Math.rint(valor) && Constants.Maquina.DENOMINACIONES_ACEPTADAS.contains((long) valor);
+    }
+
+    /**
+     * Eventos que generará el escenario: las llegadas candidatas a la tasa máxima y las visitas del operador
+     * @return Número esperado de eventos de la corrida
+     */
+    public double eventosEstimados() {
+        double visitas = intervaloReabastecimientoHoras > 0 ? horas / intervaloReabastecimientoHoras : 0;
+        return horas * tasaMaxima() + visitas;
+    }
+
+    /**
+     * Tasa de llegadas en un instante del tiempo virtual
+     * @param hora Horas desde el inicio de la simulación
+     * @return Llegadas por hora en ese instante
+     */
+    double tasa(double hora) {
+        return perfilHorario != null ? llegadasPorHora * perfilHorario[(int) (hora % HORAS_DIA)] : llegadasPorHora;
+    }
+
+    /**
+     * Tasa de llegadas máxima del día, cota del muestreo por rechazo
+     * @return Mayor número de llegadas por hora
+     */
+    double tasaMaxima() {
+        double maximo = 1;
+        if (perfilHorario != null) {
+            maximo = 0;
+            for (double multiplicador : perfilHorario) {
+                maximo = Math.max(maximo, multiplicador);
+            }
+        }
+        return llegadasPorHora * maximo;
+    }
+
+    private static Map<Double, Double> denominacionesPorDefecto() {
+        Map<Double, Double> denominaciones = new LinkedHashMap<>();
+        denominaciones.put(1000.0, 0.15);
+        denominaciones.put(2000.0, 0.25);
+        denominaciones.put(5000.0, 0.30);
+        denominaciones.put(10000.0, 0.20);
+        denominaciones.put(20000.0, 0.10);
+        return denominaciones;
+    }
+}
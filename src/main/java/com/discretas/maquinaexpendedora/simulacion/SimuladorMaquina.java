@@ -0,0 +1,444 @@
+package com.discretas.maquinaexpendedora.simulacion;
+
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+import com.discretas.maquinaexpendedora.state.CodigoResultado;
+import com.discretas.maquinaexpendedora.state.EstadoEsperandoPago;
+import com.discretas.maquinaexpendedora.state.ResultadoOperacion;
+import lombok.Data;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulador de eventos discretos de una máquina expendedora. Cada escenario conduce una
+ * {@link MaquinaExpendedora} real, sin bus de eventos, a través de sus estados con clientes sintéticos:
+ * el reloj salta de un evento al siguiente (llegada de un cliente o visita del operador), por lo que una
+ * semana de ventas se simula en milisegundos.
+ * <p>
+ * Los escenarios son independientes, con su propia máquina y su propio generador aleatorio, y se reparten
+ * con un stream paralelo en el pool del hilo que llama, que en el servicio es su pool de simulación.
+ * El resultado de cada uno solo depende de sus parámetros y su semilla, de modo que una rejilla de dinero
+ * inicial e intervalo de reabastecimiento se compara sin ruido entre corridas.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Component
+public class SimuladorMaquina {
+
+    /**
+     * Número máximo de escenarios de una rejilla
+     */
+    public static final int MAX_ESCENARIOS = 1000;
+
+    /**
+     * Número máximo de eventos entre todos los escenarios de una rejilla
+     */
+    public static final long MAX_EVENTOS_REJILLA = 20_000_000;
+
+    /**
+     * Simula varios escenarios en paralelo
+     * @param escenarios Escenarios a simular
+     * @param catalogo Productos de la máquina por código; se usan su nombre y su precio
+     * @return Resultados en el mismo orden que los escenarios
+     * @throws IllegalArgumentException Si algún escenario no es válido, la rejilla excede {@link #MAX_EVENTOS_REJILLA}
+     * eventos o el catálogo está vacío
+     */
+    public List<ResultadoSimulacion> simular(List<EscenarioSimulacion> escenarios, Map<String, Producto> catalogo) {
+        if (escenarios.isEmpty() || escenarios.size() > MAX_ESCENARIOS) {
+            throw new IllegalArgumentException("Se admiten entre 1 y " + MAX_ESCENARIOS + " escenarios");
+        }
+        // Se valida antes de repartir para no lanzar corridas de una rejilla que fallará
+        escenarios.forEach(escenario -> new Corrida(escenario, catalogo));
+        double eventos = escenarios.stream().mapToDouble(EscenarioSimulacion::eventosEstimados).sum();
+        if (eventos > MAX_EVENTOS_REJILLA) {
+            throw new IllegalArgumentException("La rejilla excede " + MAX_EVENTOS_REJILLA + " eventos");
+        }
+        return escenarios.parallelStream()
+                .map(escenario -> simular(escenario, catalogo))
+                .toList();
+    }
+
+    /**
+     * Simula un escenario
+     * @param escenario Escenario a simular
+     * @param catalogo Productos de la máquina por código; se usan su nombre y su precio
+     * @return Resultado de la corrida
+     * @throws IllegalArgumentException Si el escenario no es válido o el catálogo está vacío
+     */
+    public ResultadoSimulacion simular(EscenarioSimulacion escenario, Map<String, Producto> catalogo) {
+        return new Corrida(escenario, catalogo).ejecutar();
+    }
+
+    /**
+     * Combina un escenario base con varios dineros iniciales, intervalos de reabastecimiento y réplicas.
+     * Cada réplica usa la semilla base más su número, y la misma réplica comparte semilla en toda la rejilla.
+     * @param base Escenario base
+     * @param dinerosIniciales Dineros iniciales a probar, null o vacío para usar el del escenario base
+     * @param intervalosHoras Intervalos de reabastecimiento a probar, null o vacío para usar el del escenario base
+     * @param replicas Número de réplicas de cada combinación
+     * @return Escenarios de la rejilla
+     * @throws IllegalArgumentException Si la rejilla excede {@link #MAX_ESCENARIOS}
+     */
+    public static List<EscenarioSimulacion> rejilla(EscenarioSimulacion base, List<Double> dinerosIniciales,
+                                                    List<Double> intervalosHoras, int replicas) {
+        List<Double> dineros = dinerosIniciales == null || dinerosIniciales.isEmpty() ? List.of(base.getDineroInicial()) : dinerosIniciales;
+        List<Double> intervalos = intervalosHoras == null || intervalosHoras.isEmpty()
+                ? List.of(base.getIntervaloReabastecimientoHoras()) : intervalosHoras;
+        int repeticiones = Math.max(1, replicas);
+        if ((long) dineros.size() * intervalos.size() * repeticiones > MAX_ESCENARIOS) {
+            throw new IllegalArgumentException("La rejilla excede " + MAX_ESCENARIOS + " escenarios");
+        }
+
+        List<EscenarioSimulacion> escenarios = new ArrayList<>(dineros.size() * intervalos.size() * repeticiones);
+        for (double dinero : dineros) {
+            for (double intervalo : intervalos) {
+                for (int replica = 0; replica < repeticiones; replica++) {
+                    EscenarioSimulacion escenario = base.copiar();
+                    escenario.setDineroInicial(dinero);
+                    escenario.setIntervaloReabastecimientoHoras(intervalo);
+                    escenario.setSemilla(base.getSemilla() + replica);
+                    escenario.setNombre(String.format("%s/dinero=%.0f/intervalo=%sh/replica=%d",
+                            base.getNombre(), dinero, intervalo, replica + 1));
+                    escenarios.add(escenario);
+                }
+            }
+        }
+        return escenarios;
+    }
+
+    /**
+     * Suceso de la agenda de eventos
+     */
+    private enum Suceso { LLEGADA, VISITA }
+
+    /**
+     * Evento de la agenda: un suceso en un instante del tiempo virtual
+     */
+    private record Evento(double hora, Suceso suceso) implements Comparable<Evento> {
+        @Override
+        public int compareTo(Evento otro) {
+            return Double.compare(hora, otro.hora);
+        }
+    }
+
+    /**
+     * Estado de una corrida. Solo la usa el hilo que la ejecuta.
+     */
+    private static final class Corrida {
+        private final EscenarioSimulacion escenario;
+        private final SplittableRandom aleatorio;
+        private final MaquinaExpendedora maquina = new MaquinaExpendedora();
+        private final PriorityQueue<Evento> agenda = new PriorityQueue<>();
+
+        private final String[] codigos;
+        private final Producto[] productos;
+        private final double[] preferencias;
+        private final double[] valores;
+        private final double[] pesosValores;
+        private final double tasaMaxima;
+
+        private final int[] vendidas;
+        private final int[] noAtendidas;
+        private final int[] agotamientos;
+        private final double[] primerAgotamiento;
+        private final double[] horasAgotada;
+        private final double[] agotadaDesde;
+
+        private final ResultadoSimulacion resultado = new ResultadoSimulacion();
+
+        Corrida(EscenarioSimulacion escenario, Map<String, Producto> catalogo) {
+            escenario.validar();
+            if (catalogo == null || catalogo.isEmpty()) {
+                throw new IllegalArgumentException("La máquina a simular no tiene productos");
+            }
+            this.escenario = escenario;
+            this.aleatorio = new SplittableRandom(escenario.getSemilla());
+            this.tasaMaxima = escenario.tasaMaxima();
+
+            codigos = catalogo.keySet().stream().sorted().toArray(String[]::new);
+            productos = new Producto[codigos.length];
+            preferencias = new double[codigos.length];
+            for (int i = 0; i < codigos.length; i++) {
+                Producto original = catalogo.get(codigos[i]);
+                productos[i] = new Producto(original.getCodigo(), original.getNombre(), original.getPrecio(),
+                        escenario.getCapacidadCasilla(), original.getDescripcion());
+                Map<String, Double> pesos = escenario.getPreferencias();
+                preferencias[i] = pesos == null ? 1 : Math.max(0, pesos.getOrDefault(codigos[i], 0.0));
+            }
+            if (!(Arrays.stream(preferencias).sum() > 0)) {
+                throw new IllegalArgumentException("Ningún producto de la máquina tiene preferencia");
+            }
+
+            valores = new double[escenario.getDenominaciones().size()];
+            pesosValores = new double[valores.length];
+            int i = 0;
+            for (Map.Entry<Double, Double> denominacion : escenario.getDenominaciones().entrySet()) {
+                valores[i] = denominacion.getKey();
+                pesosValores[i++] = denominacion.getValue();
+            }
+
+            vendidas = new int[codigos.length];
+            noAtendidas = new int[codigos.length];
+            agotamientos = new int[codigos.length];
+            primerAgotamiento = new double[codigos.length];
+            horasAgotada = new double[codigos.length];
+            agotadaDesde = new double[codigos.length];
+            Arrays.fill(primerAgotamiento, Double.NaN);
+            Arrays.fill(agotadaDesde, Double.NaN);
+        }
+
+        ResultadoSimulacion ejecutar() {
+            long inicio = System.nanoTime();
+            for (Producto producto : productos) {
+                maquina.getInventario().put(producto.getCodigo(), producto);
+            }
+            maquina.setDineroDisponible(escenario.getDineroInicial());
+            resultado.dineroMinimo = escenario.getDineroInicial();
+
+            double horas = escenario.getHoras();
+            agenda.add(new Evento(siguienteLlegada(0), Suceso.LLEGADA));
+            if (escenario.getIntervaloReabastecimientoHoras() > 0) {
+                agenda.add(new Evento(escenario.getIntervaloReabastecimientoHoras(), Suceso.VISITA));
+            }
+
+            Evento evento;
+            while ((evento = agenda.poll()) != null && evento.hora() <= horas) {
+                if (evento.suceso() == Suceso.LLEGADA) {
+                    atender(evento.hora());
+                    agenda.add(new Evento(siguienteLlegada(evento.hora()), Suceso.LLEGADA));
+                } else {
+                    reabastecer(evento.hora());
+                    agenda.add(new Evento(evento.hora() + escenario.getIntervaloReabastecimientoHoras(), Suceso.VISITA));
+                }
+            }
+            cerrarAgotamientos(horas);
+
+            resultado.setNombre(escenario.getNombre());
+            resultado.setSemilla(escenario.getSemilla());
+            resultado.setHoras(horas);
+            resultado.setDineroInicial(escenario.getDineroInicial());
+            resultado.setIntervaloReabastecimientoHoras(escenario.getIntervaloReabastecimientoHoras());
+            resultado.setDineroFinal(maquina.getDineroDisponible());
+            List<ResultadoCasilla> casillas = new ArrayList<>(codigos.length);
+            for (int i = 0; i < codigos.length; i++) {
+                ResultadoCasilla casilla = new ResultadoCasilla();
+                casilla.setCodigoProducto(codigos[i]);
+                casilla.setVendidas(vendidas[i]);
+                casilla.setDemandaNoAtendida(noAtendidas[i]);
+                casilla.setAgotamientos(agotamientos[i]);
+                casilla.setPrimerAgotamientoHoras(Double.isNaN(primerAgotamiento[i]) ? null : primerAgotamiento[i]);
+                casilla.setHorasAgotada(horasAgotada[i]);
+                casillas.add(casilla);
+            }
+            resultado.setCasillas(casillas);
+
+            long nanos = System.nanoTime() - inicio;
+            resultado.setDuracionMs(TimeUnit.NANOSECONDS.toMillis(nanos));
+            resultado.setHorasPorSegundo(horas / Math.max(1, nanos) * TimeUnit.SECONDS.toNanos(1));
+            return resultado;
+        }
+
+        /**
+         * Instante de la siguiente llegada. Con perfil horario se muestrea un proceso de Poisson a la tasa
+         * máxima y se acepta cada llegada con la proporción de la tasa vigente en ese instante.
+         */
+        private double siguienteLlegada(double hora) {
+            double siguiente = hora;
+            do {
+                siguiente += -Math.log(1 - aleatorio.nextDouble()) / tasaMaxima;
+            } while (siguiente <= escenario.getHoras() && aleatorio.nextDouble() * tasaMaxima > escenario.tasa(siguiente));
+            return siguiente;
+        }
+
+        /**
+         * Atiende a un cliente: elige un producto, lo sustituye si está agotado y lo compra
+         */
+        private void atender(double hora) {
+            resultado.clientes++;
+            int casilla = elegir(preferencias, false);
+            if (productos[casilla].getStock() == 0) {
+                noAtendidas[casilla]++;
+                casilla = aleatorio.nextDouble() < escenario.getProbabilidadSustitucion() ? elegir(preferencias, true) : -1;
+                if (casilla < 0) {
+                    resultado.ventasPerdidasAgotado++;
+                    return;
+                }
+            }
+            comprar(casilla, hora);
+            // El historial no se usa en la simulación y crecería con cada cliente
+            maquina.getHistorialTransacciones().clear();
+        }
+
+        /**
+         * Recorre el flujo de compra de la máquina: selección, pago con la denominación del cliente,
+         * confirmación y dispensación. Si no hay cambio el cliente cancela y se va.
+         */
+        private void comprar(int casilla, double hora) {
+            ResultadoOperacion seleccion = maquina.seleccionarProducto(codigos[casilla]);
+            if (seleccion.getCodigo() != CodigoResultado.PRODUCTO_SELECCIONADO) {
+                throw new IllegalStateException("La máquina rechazó la selección: " + seleccion.getCodigo());
+            }
+            double denominacion = valores[elegir(pesosValores, false)];
+            // El cliente entrega de una vez las piezas que necesita, para no insertar pieza por pieza
+            Transaccion transaccion = maquina.getTransaccionActual();
+            double piezas = Math.ceil((transaccion.getPrecio() - transaccion.getMontoPagado()) / denominacion);
+            maquina.insertarDinero(Math.max(1, piezas) * denominacion);
+            while (maquina.getEstadoActual() == EstadoEsperandoPago.INSTANCIA) {
+                maquina.insertarDinero(denominacion);
+            }
+
+            if (maquina.confirmarPago().getCodigo() == CodigoResultado.SIN_CAMBIO_DISPONIBLE) {
+                resultado.incidentesSinCambio++;
+                maquina.cancelarTransaccion();
+                return;
+            }
+            ResultadoOperacion dispensacion = maquina.dispensarProducto();
+            if (dispensacion.getCodigo() != CodigoResultado.PRODUCTO_DISPENSADO) {
+                throw new IllegalStateException("La máquina no dispensó el producto: " + dispensacion.getCodigo());
+            }
+
+            resultado.ventas++;
+            resultado.ingresos += seleccion.getMonto();
+            resultado.cambioEntregado += dispensacion.getCambio();
+            resultado.dineroMinimo = Math.min(resultado.dineroMinimo, maquina.getDineroDisponible());
+            vendidas[casilla]++;
+            if (productos[casilla].getStock() == 0) {
+                agotamientos[casilla]++;
+                agotadaDesde[casilla] = hora;
+                if (Double.isNaN(primerAgotamiento[casilla])) {
+                    primerAgotamiento[casilla] = hora;
+                }
+            }
+        }
+
+        /**
+         * Visita del operador: llena las casillas, recauda el dinero que sobra del inicial o repone el que falta
+         */
+        private void reabastecer(double hora) {
+            resultado.visitas++;
+            for (Producto producto : productos) {
+                resultado.unidadesRepuestas += escenario.getCapacidadCasilla() - producto.getStock();
+                producto.setStock(escenario.getCapacidadCasilla());
+            }
+            cerrarAgotamientos(hora);
+            resultado.recaudado += maquina.getDineroDisponible() - escenario.getDineroInicial();
+            maquina.setDineroDisponible(escenario.getDineroInicial());
+        }
+
+        private void cerrarAgotamientos(double hora) {
+            for (int i = 0; i < agotadaDesde.length; i++) {
+                if (!Double.isNaN(agotadaDesde[i])) {
+                    horasAgotada[i] += hora - agotadaDesde[i];
+                    agotadaDesde[i] = Double.NaN;
+                }
+            }
+        }
+
+        /**
+         * Elige un índice con probabilidad proporcional a su peso
+         * @param soloDisponibles Si solo se consideran las casillas con stock
+         * @return Índice elegido, -1 si ninguno tiene peso
+         */
+        private int elegir(double[] pesos, boolean soloDisponibles) {
+            double total = 0;
+            for (int i = 0; i < pesos.length; i++) {
+                if (!soloDisponibles || productos[i].getStock() > 0) {
+                    total += pesos[i];
+                }
+            }
+            if (!(total > 0)) {
+                return -1;
+            }
+            double punto = aleatorio.nextDouble() * total;
+            int ultimo = -1;
+            for (int i = 0; i < pesos.length; i++) {
+                if (soloDisponibles && productos[i].getStock() == 0 || pesos[i] == 0) {
+                    continue;
+                }
+                ultimo = i;
+                punto -= pesos[i];
+                if (punto < 0) {
+                    return i;
+                }
+            }
+            return ultimo;
+        }
+    }
+
+    /**
+     * Resultado de una corrida. Los tiempos son horas de tiempo virtual desde el inicio.
+     */
+    @Data
+    public static class ResultadoSimulacion {
+        private String nombre;
+        private long semilla;
+        private double horas;
+        private double dineroInicial;
+        private double intervaloReabastecimientoHoras;
+        private long clientes;
+        private long ventas;
+        private double ingresos;
+        private double cambioEntregado;
+
+        /**
+         * Clientes que se fueron sin comprar porque su producto estaba agotado y no lo sustituyeron
+         */
+        private long ventasPerdidasAgotado;
+
+        /**
+         * Compras canceladas porque la máquina no tenía cambio (estado sin cambio)
+         */
+        private long incidentesSinCambio;
+
+        private long visitas;
+        private long unidadesRepuestas;
+
+        /**
+         * Dinero recaudado en las visitas por encima del dinero inicial
+         */
+        private double recaudado;
+
+        /**
+         * Menor dinero para cambio que tuvo la máquina tras una venta
+         */
+        private double dineroMinimo;
+
+        private double dineroFinal;
+        private List<ResultadoCasilla> casillas;
+        private long duracionMs;
+
+        /**
+         * Horas de tiempo virtual simuladas por segundo de reloj
+         */
+        private double horasPorSegundo;
+    }
+
+    /**
+     * Resultado de una casilla. La demanda no atendida cuenta a los clientes que pidieron el producto
+     * agotado, lo hayan sustituido o no.
+     */
+    @Data
+    public static class ResultadoCasilla {
+        private String codigoProducto;
+        private int vendidas;
+        private int demandaNoAtendida;
+        private int agotamientos;
+
+        /**
+         * Hora del primer agotamiento, null si la casilla nunca se agotó
+         */
+        private Double primerAgotamientoHoras;
+
+        private double horasAgotada;
+    }
+}
@@ -0,0 +1,109 @@
+package com.discretas.maquinaexpendedora.state;
+
+import lombok.Getter;
+
+/**
+ * Enumeración con los resultados posibles de las operaciones de la máquina expendedora.
+ * Cada código tiene un tipo, para que los clientes reaccionen sin interpretar texto, y el
+ * texto fijo del mensaje para los resultados que no llevan datos.
+ * Cada código tiene además un número fijo, que es el que viaja en el protocolo binario y no depende
+ * del orden de declaración; un código nuevo debe usar un número sin asignar.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Getter
+public enum CodigoResultado {
+
+    // Selección de productos
+    PRODUCTO_SELECCIONADO(0, TipoResultado.EXITO, null),
+    PRODUCTO_NO_ENCONTRADO(1, TipoResultado.ERROR, null),
+    PRODUCTO_AGOTADO(2, TipoResultado.ERROR, "Error: Producto agotado. Seleccione otro producto."),
+    PRODUCTO_YA_SELECCIONADO(3, TipoResultado.ADVERTENCIA, "Ya hay un producto seleccionado. Complete la transacción o cancélela."),
+    TRANSACCION_EN_PROCESO(4, TipoResultado.ADVERTENCIA, "Ya hay una transacción en proceso. Complete o cancele la transacción actual."),
+    SELECCIONE_PRODUCTO_PRIMERO(5, TipoResultado.ERROR, "Error: Primero debe seleccionar un producto."),
+
+    // Pago
+    DINERO_INSERTADO_PARCIAL(6, TipoResultado.INFO, null),
+    DINERO_INSERTADO_SUFICIENTE(7, TipoResultado.INFO, null),
+    DINERO_ADICIONAL_INSERTADO(8, TipoResultado.EXITO, null),
+    MONTO_INVALIDO(9, TipoResultado.ERROR, "Error: El monto debe ser mayor a cero."),
+    PAGO_INSUFICIENTE(10, TipoResultado.ERROR, "Error: El pago no es suficiente."),
+    INSERTE_DINERO_SUFICIENTE(11, TipoResultado.ERROR, "Error: Inserte el dinero suficiente antes de confirmar."),
+    PAGO_CONFIRMADO(12, TipoResultado.EXITO, "Pago confirmado. Dispensando producto..."),
+    PAGO_YA_CONFIRMADO(13, TipoResultado.ADVERTENCIA, "El pago ya fue confirmado. Producto siendo dispensado."),
+    COMPLETE_PAGO_PRIMERO(14, TipoResultado.ERROR, "Error: Debe completar el pago primero."),
+    CONFIRME_PAGO_PRIMERO(15, TipoResultado.ERROR, "Error: Debe confirmar el pago primero."),
+    SIN_CAMBIO_DISPONIBLE(16, TipoResultado.ERROR, "Error: No hay suficiente cambio disponible. Transacción cancelada."),
+
+    // Dispensación
+    PRODUCTO_DISPENSADO(17, TipoResultado.EXITO, null),
+    DISPENSACION_EN_CURSO(18, TipoResultado.ADVERTENCIA, "La máquina está dispensando un producto. Espere a que termine la operación."),
+    DISPENSACION_FALLIDA(19, TipoResultado.ERROR, null),
+    DISPENSADOR_OCUPADO(20, TipoResultado.ADVERTENCIA, "Dispensador ocupado. Intente dispensar nuevamente."),
+    INSERCION_DURANTE_DISPENSACION(21, TipoResultado.ADVERTENCIA, "No puede insertar dinero mientras se dispensa un producto."),
+    SIN_PRODUCTO_PARA_DISPENSAR(22, TipoResultado.ERROR, "Error: No hay producto seleccionado para dispensar."),
+    CAMBIO_AUTOMATICO(23, TipoResultado.INFO, "El cambio se devuelve automáticamente con el producto."),
+    CANCELACION_NO_PERMITIDA(24, TipoResultado.ADVERTENCIA, "No se puede cancelar la transacción durante la dispensación."),
+
+    // Falta de cambio
+    PROBLEMA_CAMBIO(25, TipoResultado.ADVERTENCIA, "La máquina tiene problemas con el cambio. Complete o cancele la transacción actual."),
+    SIN_CAMBIO_INSERCION(26, TipoResultado.ADVERTENCIA, "No se puede insertar más dinero. La máquina no tiene cambio suficiente."),
+    SIN_CAMBIO_CONFIRMACION(27, TipoResultado.ADVERTENCIA, "No se puede confirmar el pago. La máquina no tiene cambio suficiente."),
+    SIN_CAMBIO_DISPENSACION(28, TipoResultado.ADVERTENCIA, "No se puede dispensar el producto sin cambio suficiente."),
+    SIN_CAMBIO_DEVOLUCION(29, TipoResultado.ADVERTENCIA, "No hay cambio suficiente disponible en la máquina."),
+
+    // Transacciones
+    SIN_TRANSACCION_ACTIVA(30, TipoResultado.ERROR, "Error: No hay transacción activa."),
+    SIN_TRANSACCION_EN_PROCESO(31, TipoResultado.ERROR, "Error: No hay transacción en proceso."),
+    SIN_TRANSACCION_PARA_CANCELAR(32, TipoResultado.INFO, "No hay transacción para cancelar."),
+    TRANSACCION_CANCELADA(33, TipoResultado.INFO, "Transacción cancelada."),
+    TRANSACCION_CANCELADA_CON_DEVOLUCION(34, TipoResultado.INFO, null),
+    CANCELADA_POR_FALTA_DE_CAMBIO(35, TipoResultado.INFO, null),
+
+    // Máquina
+    MAQUINA_REINICIADA(36, TipoResultado.EXITO, "Máquina reiniciada correctamente."),
+
+    // Carrito
+    PRODUCTO_AGREGADO(37, TipoResultado.INFO, null),
+    CARRITO_LLENO(38, TipoResultado.ADVERTENCIA, "El carrito está lleno. Pague o cancele la transacción."),
+    ARTICULO_DISPENSADO(39, TipoResultado.INFO, null),
+    ARTICULO_REEMBOLSADO(40, TipoResultado.ADVERTENCIA, null),
+    CARRITO_DISPENSADO(41, TipoResultado.EXITO, null),
+    CARRITO_DISPENSADO_PARCIAL(42, TipoResultado.ADVERTENCIA, null),
+
+    // Conciliación con el dispensador
+    DISPENSACION_INCIERTA(43, TipoResultado.ADVERTENCIA, "El dispensador no confirmó la entrega a tiempo. La dispensación queda pendiente de conciliación."),
+    DISPENSACION_OBSOLETA(44, TipoResultado.ADVERTENCIA, "El resultado no corresponde a la dispensación en curso y se ignora.");
+
+    /**
+     * Número estable del código, el que se envía en el protocolo binario
+     */
+    private final int numero;
+
+    /**
+     * Tipo del resultado
+     */
+    private final TipoResultado tipo;
+
+    /**
+     * Texto fijo del mensaje, null si el mensaje depende de los datos del resultado
+     */
+    private final String texto;
+
+    CodigoResultado(int numero, TipoResultado tipo, String texto) {
+        this.numero = numero;
+        this.tipo = tipo;
+        this.texto = texto;
+    }
+
+    /**
+     * Enumeración para los tipos de resultado
+     */
+    public enum TipoResultado {
+        EXITO,
+        INFO,
+        ADVERTENCIA,
+        ERROR
+    }
+}
@@ -1,37 +1,64 @@
 package com.discretas.maquinaexpendedora.state;
 
+import com.discretas.maquinaexpendedora.events.TipoEvento;
+import com.discretas.maquinaexpendedora.models.LineaCarrito;
 import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
 import com.discretas.maquinaexpendedora.models.Transaccion;
 
 /**
  * Estado donde se dispensa el producto y se entrega el cambio.
+ * Los productos de un carrito se dispensan uno a uno y la máquina sigue en este estado hasta procesarlos todos.
  *
  * @author Duvan Gil
  * @version 1.0
  */
 public class EstadoDispensando implements EstadoMaquina {
 
+    /**
+     * Instancia única del estado. Los estados no guardan datos, por lo que se comparten
+     */
+    public static final EstadoDispensando INSTANCIA = new EstadoDispensando();
+
+    @Override
+    public ResultadoOperacion seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto) {
+        return ResultadoOperacion.de(CodigoResultado.DISPENSACION_EN_CURSO);
+    }
+
     @Override
-    public String seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto) {
-        return "La máquina está dispensando un producto. Espere a que termine la operación.";
+    public ResultadoOperacion agregarProducto(MaquinaExpendedora maquina, String codigoProducto) {
+        return ResultadoOperacion.de(CodigoResultado.DISPENSACION_EN_CURSO);
     }
 
     @Override
-    public String insertarDinero(MaquinaExpendedora maquina, double monto) {
-        return "No puede insertar dinero mientras se dispensa un producto.";
+    public ResultadoOperacion insertarDinero(MaquinaExpendedora maquina, double monto) {
+        return ResultadoOperacion.de(CodigoResultado.INSERCION_DURANTE_DISPENSACION);
     }
 
     @Override
-    public String confirmarPago(MaquinaExpendedora maquina) {
-        return "El pago ya fue confirmado. Producto siendo dispensado.";
+    public ResultadoOperacion confirmarPago(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.PAGO_YA_CONFIRMADO);
     }
 
     @Override
-    public String dispensarProducto(MaquinaExpendedora maquina) {
+    public ResultadoOperacion dispensarProducto(MaquinaExpendedora maquina) {
         Transaccion transaccion = maquina.getTransaccionActual();
         if (transaccion == null) {
-            maquina.cambiarEstado(new EstadoSeleccionando());
-            return "Error: No hay transacción activa.";
+            maquina.cambiarEstado(EstadoSeleccionando.INSTANCIA);
+            return ResultadoOperacion.de(CodigoResultado.SIN_TRANSACCION_ACTIVA);
+        }
+
+        if (transaccion.esCarrito()) {
+            LineaCarrito linea = transaccion.siguienteLinea();
+            if (linea != null) {
+                linea.getProducto().reducirStock();
+                linea.setEstado(LineaCarrito.EstadoLinea.DISPENSADA);
+                maquina.publicarEvento(TipoEvento.ARTICULO_DISPENSADO, transaccion, linea.getProducto(), linea.getPrecio());
+                if (transaccion.siguienteLinea() != null) {
+                    return ResultadoOperacion.conProducto(CodigoResultado.ARTICULO_DISPENSADO, linea.getProducto().getNombre(),
+                            linea.getPrecio(), 0);
+                }
+            }
+            return finalizarCarrito(maquina, transaccion);
         }
 
         // Reducir stock del producto
@@ -43,29 +70,90 @@ public class EstadoDispensando implements EstadoMaquina {
         // Marcar transacción como completada
         transaccion.setEstado(Transaccion.EstadoTransaccion.COMPLETADA);
 
-        String mensaje = "Producto dispensado: " + transaccion.getProducto().getNombre();
-
         // Verificar si hay cambio que devolver y reducir el dinero disponible
         if (transaccion.getCambio() > 0) {
-            mensaje += ". Su cambio: $" + (int) transaccion.getCambio();
             maquina.reducirDineroDisponible(transaccion.getCambio());
         }
 
+        maquina.publicarEvento(TipoEvento.PRODUCTO_DISPENSADO, transaccion, transaccion.getMontoPagado());
+
         // Finalizar transacción y volver al estado inicial
         maquina.finalizarTransaccion();
-        maquina.cambiarEstado(new EstadoSeleccionando());
+        maquina.cambiarEstado(EstadoSeleccionando.INSTANCIA);
+
+        return ResultadoOperacion.conProducto(CodigoResultado.PRODUCTO_DISPENSADO, transaccion.getProducto().getNombre(),
+                transaccion.getMontoPagado(), transaccion.getCambio());
+    }
+
+    /**
+     * Termina un carrito cuyas líneas ya se procesaron. El cambio se calcula una sola vez sobre
+     * lo dispensado, por lo que incluye el reembolso de las líneas que fallaron.
+     */
+    private static ResultadoOperacion finalizarCarrito(MaquinaExpendedora maquina, Transaccion transaccion) {
+        double cobrado = transaccion.totalLineas(LineaCarrito.EstadoLinea.DISPENSADA);
+        boolean parcial = transaccion.contarLineas(LineaCarrito.EstadoLinea.REEMBOLSADA) > 0;
+        int dispensadas = transaccion.contarLineas(LineaCarrito.EstadoLinea.DISPENSADA);
+
+        transaccion.setCambio(transaccion.getMontoPagado() - cobrado);
+        maquina.anyadirDineroInsertado(transaccion.getMontoPagado());
+        if (transaccion.getCambio() > 0) {
+            maquina.reducirDineroDisponible(transaccion.getCambio());
+        }
+        transaccion.setEstado(Transaccion.EstadoTransaccion.COMPLETADA);
+        maquina.publicarEvento(TipoEvento.PRODUCTO_DISPENSADO, transaccion, null, transaccion.getMontoPagado());
+
+        maquina.finalizarTransaccion();
+        maquina.cambiarEstado(EstadoSeleccionando.INSTANCIA);
+
+        return ResultadoOperacion.conCarritoDispensado(parcial ? CodigoResultado.CARRITO_DISPENSADO_PARCIAL
+                : CodigoResultado.CARRITO_DISPENSADO, dispensadas, transaccion.getLineas().size(), cobrado, transaccion.getCambio());
+    }
 
-        return mensaje + ". Gracias por su compra.";
+    /**
+     * Revierte la dispensación cuando el hardware no pudo entregar el producto,
+     * cancelando la transacción y devolviendo el dinero insertado. En un carrito solo se reembolsa
+     * la línea que falló y se continúa con las demás; si ninguna se entregó, se cancela la transacción.
+     * @param maquina Referencia a la máquina expendedora
+     * @return Resultado de la operación
+     */
+    public ResultadoOperacion revertirDispensacion(MaquinaExpendedora maquina) {
+        Transaccion transaccion = maquina.getTransaccionActual();
+        if (transaccion == null) {
+            maquina.cambiarEstado(EstadoSeleccionando.INSTANCIA);
+            return ResultadoOperacion.de(CodigoResultado.SIN_TRANSACCION_ACTIVA);
+        }
+
+        if (transaccion.esCarrito()) {
+            LineaCarrito linea = transaccion.siguienteLinea();
+            if (linea != null) {
+                linea.setEstado(LineaCarrito.EstadoLinea.REEMBOLSADA);
+                maquina.publicarEvento(TipoEvento.ARTICULO_REEMBOLSADO, transaccion, linea.getProducto(), linea.getPrecio());
+                if (transaccion.siguienteLinea() != null) {
+                    return ResultadoOperacion.conProducto(CodigoResultado.ARTICULO_REEMBOLSADO, linea.getProducto().getNombre(),
+                            linea.getPrecio(), 0);
+                }
+            }
+            if (transaccion.contarLineas(LineaCarrito.EstadoLinea.DISPENSADA) > 0) {
+                return finalizarCarrito(maquina, transaccion);
+            }
+        }
+
+        double montoDevolver = transaccion.getMontoPagado();
+        transaccion.setEstado(Transaccion.EstadoTransaccion.CANCELADA);
+        maquina.publicarEvento(TipoEvento.TRANSACCION_CANCELADA, transaccion, montoDevolver);
+        maquina.finalizarTransaccion();
+        maquina.cambiarEstado(EstadoSeleccionando.INSTANCIA);
+        return ResultadoOperacion.conMonto(CodigoResultado.DISPENSACION_FALLIDA, montoDevolver);
     }
 
     @Override
-    public String devolverCambio(MaquinaExpendedora maquina) {
-        return "El cambio se devuelve automáticamente con el producto.";
+    public ResultadoOperacion devolverCambio(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.CAMBIO_AUTOMATICO);
     }
 
     @Override
-    public String cancelarTransaccion(MaquinaExpendedora maquina) {
-        return "No se puede cancelar la transacción durante la dispensación.";
+    public ResultadoOperacion cancelarTransaccion(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.CANCELACION_NO_PERMITIDA);
     }
 
     @Override
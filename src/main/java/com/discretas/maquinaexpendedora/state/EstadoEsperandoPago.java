@@ -1,79 +1,128 @@
 package com.discretas.maquinaexpendedora.state;
 
+import com.discretas.maquinaexpendedora.events.TipoEvento;
 import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
 import com.discretas.maquinaexpendedora.models.Transaccion;
+import com.discretas.maquinaexpendedora.utils.Constants;
 
 /**
- * Estado donde el usuario ha seleccionado un producto y puede insertar dinero.
+ * Estado donde el usuario ha seleccionado un producto y puede insertar dinero o agregar más productos al carrito.
  *
  * @author Duvan Gil
  * @version 1.0
  */
 public class EstadoEsperandoPago implements EstadoMaquina {
 
+    /**
+     * Instancia única del estado. Los estados no guardan datos, por lo que se comparten
+     */
+    public static final EstadoEsperandoPago INSTANCIA = new EstadoEsperandoPago();
+
+    @Override
+    public ResultadoOperacion seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto) {
+        return ResultadoOperacion.de(CodigoResultado.PRODUCTO_YA_SELECCIONADO);
+    }
+
     @Override
-    public String seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto) {
-        return "Ya hay un producto seleccionado. Complete la transacción o cancélela.";
+    public ResultadoOperacion agregarProducto(MaquinaExpendedora maquina, String codigoProducto) {
+        return agregarAlCarrito(maquina, codigoProducto);
+    }
+
+    /**
+     * Agrega un producto al carrito de la transacción actual. Después del pago la máquina queda
+     * esperando dinero o lista para confirmar, según alcance lo pagado para el nuevo total.
+     * @param maquina Referencia a la máquina expendedora
+     * @param codigoProducto Código del producto a agregar
+     * @return Resultado de la operación
+     */
+    static ResultadoOperacion agregarAlCarrito(MaquinaExpendedora maquina, String codigoProducto) {
+        Transaccion transaccion = maquina.getTransaccionActual();
+        if (transaccion == null) {
+            return ResultadoOperacion.de(CodigoResultado.SIN_TRANSACCION_ACTIVA);
+        }
+
+        Producto producto = maquina.getInventario().get(codigoProducto);
+        if (producto == null) {
+            return ResultadoOperacion.conProducto(CodigoResultado.PRODUCTO_NO_ENCONTRADO, codigoProducto, 0, 0);
+        }
+        if (producto.getStock() <= transaccion.unidadesReservadas(codigoProducto)) {
+            return ResultadoOperacion.de(CodigoResultado.PRODUCTO_AGOTADO);
+        }
+        if (transaccion.getLineas().size() >= Constants.Maquina.MAX_PRODUCTOS_CARRITO) {
+            return ResultadoOperacion.de(CodigoResultado.CARRITO_LLENO);
+        }
+
+        double precio = maquina.precioVigente(producto);
+        transaccion.agregarLinea(producto, precio);
+        maquina.publicarEvento(TipoEvento.ARTICULO_AGREGADO, transaccion, producto, precio);
+
+        double faltante = Math.max(0, transaccion.getPrecio() - transaccion.getMontoPagado());
+        maquina.cambiarEstado(faltante > 0 ? EstadoEsperandoPago.INSTANCIA : EstadoProcesandoPago.INSTANCIA);
+        return ResultadoOperacion.conCarrito(CodigoResultado.PRODUCTO_AGREGADO, producto.getNombre(), precio,
+                transaccion.getPrecio(), faltante);
     }
 
     @Override
-    public String insertarDinero(MaquinaExpendedora maquina, double monto) {
+    public ResultadoOperacion insertarDinero(MaquinaExpendedora maquina, double monto) {
         if (monto <= 0) {
-            return "Error: El monto debe ser mayor a cero.";
+            return ResultadoOperacion.de(CodigoResultado.MONTO_INVALIDO);
         }
 
         Transaccion transaccion = maquina.getTransaccionActual();
         if (transaccion == null) {
-            return "Error: No hay transacción activa.";
+            return ResultadoOperacion.de(CodigoResultado.SIN_TRANSACCION_ACTIVA);
         }
 
         // Actualizar el monto pagado
         double nuevoMonto = transaccion.getMontoPagado() + monto;
         transaccion.setMontoPagado(nuevoMonto);
+        maquina.publicarEvento(TipoEvento.DINERO_INSERTADO, transaccion, monto);
 
         // Verificar si es suficiente para pagar
-        if (nuevoMonto >= transaccion.getProducto().getPrecio()) {
-            maquina.cambiarEstado(new EstadoProcesandoPago());
-            return "Dinero insertado: $" + (int) monto + ". Total: $" + (int) nuevoMonto + ". Presione confirmar para continuar.";
+        if (nuevoMonto >= transaccion.getPrecio()) {
+            maquina.cambiarEstado(EstadoProcesandoPago.INSTANCIA);
+            return ResultadoOperacion.conPago(CodigoResultado.DINERO_INSERTADO_SUFICIENTE, monto, nuevoMonto, 0);
         } else {
-            double faltante = transaccion.getProducto().getPrecio() - nuevoMonto;
-            return "Dinero insertado: $" + (int) monto + ". Total: $" + (int) nuevoMonto + ". Falta: $" + (int) faltante;
+            double faltante = transaccion.getPrecio() - nuevoMonto;
+            return ResultadoOperacion.conPago(CodigoResultado.DINERO_INSERTADO_PARCIAL, monto, nuevoMonto, faltante);
         }
     }
 
     @Override
-    public String confirmarPago(MaquinaExpendedora maquina) {
-        return "Error: Inserte el dinero suficiente antes de confirmar.";
+    public ResultadoOperacion confirmarPago(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.INSERTE_DINERO_SUFICIENTE);
     }
 
     @Override
-    public String dispensarProducto(MaquinaExpendedora maquina) {
-        return "Error: Debe completar el pago primero.";
+    public ResultadoOperacion dispensarProducto(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.COMPLETE_PAGO_PRIMERO);
     }
 
     @Override
-    public String devolverCambio(MaquinaExpendedora maquina) {
-        return "Error: Debe completar el pago primero.";
+    public ResultadoOperacion devolverCambio(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.COMPLETE_PAGO_PRIMERO);
     }
 
     @Override
-    public String cancelarTransaccion(MaquinaExpendedora maquina) {
+    public ResultadoOperacion cancelarTransaccion(MaquinaExpendedora maquina) {
         Transaccion transaccion = maquina.getTransaccionActual();
         if (transaccion != null) {
             double montoDevolver = transaccion.getMontoPagado();
             transaccion.setEstado(Transaccion.EstadoTransaccion.CANCELADA);
+            maquina.publicarEvento(TipoEvento.TRANSACCION_CANCELADA, transaccion, montoDevolver);
             maquina.finalizarTransaccion();
-            maquina.cambiarEstado(new EstadoSeleccionando());
+            maquina.cambiarEstado(EstadoSeleccionando.INSTANCIA);
 
             if (montoDevolver > 0) {
-                return "Transacción cancelada. Dinero devuelto: $" + (int) montoDevolver;
+                return ResultadoOperacion.conMonto(CodigoResultado.TRANSACCION_CANCELADA_CON_DEVOLUCION, montoDevolver);
             } else {
-                return "Transacción cancelada.";
+                return ResultadoOperacion.de(CodigoResultado.TRANSACCION_CANCELADA);
             }
         }
 
-        maquina.cambiarEstado(new EstadoSeleccionando());
-        return "Transacción cancelada.";
+        maquina.cambiarEstado(EstadoSeleccionando.INSTANCIA);
+        return ResultadoOperacion.de(CodigoResultado.TRANSACCION_CANCELADA);
     }
 
     @Override
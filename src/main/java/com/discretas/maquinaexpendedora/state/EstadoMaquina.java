@@ -15,49 +15,73 @@ public interface EstadoMaquina {
      * Maneja la selección de un producto
      * @param maquina Referencia a la máquina expendedora
      * @param codigoProducto Código del producto seleccionado
-     * @return Mensaje del resultado de la operación
+     * @return Resultado de la operación
      */
-    String seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto);
+    ResultadoOperacion seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto);
+
+    /**
+     * Maneja la adición de un producto al carrito de la transacción
+     * @param maquina Referencia a la máquina expendedora
+     * @param codigoProducto Código del producto a agregar
+     * @return Resultado de la operación
+     */
+    ResultadoOperacion agregarProducto(MaquinaExpendedora maquina, String codigoProducto);
 
     /**
      * Maneja la inserción de dinero
      * @param maquina Referencia a la máquina expendedora
      * @param monto Cantidad de dinero insertada
-     * @return Mensaje del resultado de la operación
+     * @return Resultado de la operación
      */
-    String insertarDinero(MaquinaExpendedora maquina, double monto);
+    ResultadoOperacion insertarDinero(MaquinaExpendedora maquina, double monto);
 
     /**
      * Maneja la confirmación del pago
      * @param maquina Referencia a la máquina expendedora
-     * @return Mensaje del resultado de la operación
+     * @return Resultado de la operación
      */
-    String confirmarPago(MaquinaExpendedora maquina);
+    ResultadoOperacion confirmarPago(MaquinaExpendedora maquina);
 
     /**
      * Maneja la dispensación del producto
      * @param maquina Referencia a la máquina expendedora
-     * @return Mensaje del resultado de la operación
+     * @return Resultado de la operación
      */
-    String dispensarProducto(MaquinaExpendedora maquina);
+    ResultadoOperacion dispensarProducto(MaquinaExpendedora maquina);
 
     /**
      * Maneja la devolución del cambio
      * @param maquina Referencia a la máquina expendedora
-     * @return Mensaje del resultado de la operación
+     * @return Resultado de la operación
      */
-    String devolverCambio(MaquinaExpendedora maquina);
+    ResultadoOperacion devolverCambio(MaquinaExpendedora maquina);
 
     /**
      * Maneja la cancelación de la transacción
      * @param maquina Referencia a la máquina expendedora
-     * @return Mensaje del resultado de la operación
+     * @return Resultado de la operación
      */
-    String cancelarTransaccion(MaquinaExpendedora maquina);
+    ResultadoOperacion cancelarTransaccion(MaquinaExpendedora maquina);
 
     /**
      * Obtiene el nombre del estado actual
      * @return Nombre del estado
      */
     String getNombreEstado();
+
+    /**
+     * Obtiene la instancia del estado a partir de su nombre
+     * @param nombre Nombre del estado, como lo devuelve {@link #getNombreEstado()}
+     * @return Instancia compartida del estado
+     */
+    static EstadoMaquina desdeNombre(String nombre) {
+        return switch (nombre) {
+            case "SELECCIONANDO" -> EstadoSeleccionando.INSTANCIA;
+            case "ESPERANDO_PAGO" -> EstadoEsperandoPago.INSTANCIA;
+            case "PROCESANDO_PAGO" -> EstadoProcesandoPago.INSTANCIA;
+            case "DISPENSANDO" -> EstadoDispensando.INSTANCIA;
+            case "SIN_CAMBIO" -> EstadoSinCambio.INSTANCIA;
+            default -> throw new IllegalArgumentException("Estado desconocido: " + nombre);
+        };
+    }
 }
@@ -1,5 +1,6 @@
 package com.discretas.maquinaexpendedora.state;
 
+import com.discretas.maquinaexpendedora.events.TipoEvento;
 import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
 import com.discretas.maquinaexpendedora.models.Transaccion;
 
@@ -11,75 +12,96 @@ import com.discretas.maquinaexpendedora.models.Transaccion;
  */
 public class EstadoProcesandoPago implements EstadoMaquina {
 
+    /**
+     * Instancia única del estado. Los estados no guardan datos, por lo que se comparten
+     */
+    public static final EstadoProcesandoPago INSTANCIA = new EstadoProcesandoPago();
+
+    @Override
+    public ResultadoOperacion seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto) {
+        return ResultadoOperacion.de(CodigoResultado.TRANSACCION_EN_PROCESO);
+    }
+
     @Override
-    public String seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto) {
-        return "Ya hay una transacción en proceso. Complete o cancele la transacción actual.";
+    public ResultadoOperacion agregarProducto(MaquinaExpendedora maquina, String codigoProducto) {
+        return EstadoEsperandoPago.agregarAlCarrito(maquina, codigoProducto);
     }
 
     @Override
-    public String insertarDinero(MaquinaExpendedora maquina, double monto) {
+    public ResultadoOperacion insertarDinero(MaquinaExpendedora maquina, double monto) {
         if (monto <= 0) {
-            return "Error: El monto debe ser mayor a cero.";
+            return ResultadoOperacion.de(CodigoResultado.MONTO_INVALIDO);
         }
 
         Transaccion transaccion = maquina.getTransaccionActual();
         if (transaccion != null) {
             double nuevoMonto = transaccion.getMontoPagado() + monto;
             transaccion.setMontoPagado(nuevoMonto);
-            return "Dinero adicional insertado: $" + (int) monto + ". Total: $" + (int) nuevoMonto + ". Presione confirmar para continuar.";
+            maquina.publicarEvento(TipoEvento.DINERO_INSERTADO, transaccion, monto);
+            return ResultadoOperacion.conPago(CodigoResultado.DINERO_ADICIONAL_INSERTADO, monto, nuevoMonto, 0);
         }
-        return "Error: No hay transacción activa.";
+        return ResultadoOperacion.de(CodigoResultado.SIN_TRANSACCION_ACTIVA);
     }
 
     @Override
-    public String confirmarPago(MaquinaExpendedora maquina) {
+    public ResultadoOperacion confirmarPago(MaquinaExpendedora maquina) {
         Transaccion transaccion = maquina.getTransaccionActual();
         if (transaccion == null) {
-            return "Error: No hay transacción activa.";
+            return ResultadoOperacion.de(CodigoResultado.SIN_TRANSACCION_ACTIVA);
         }
 
         if (!transaccion.pagoEsSuficiente()) {
-            return "Error: El pago no es suficiente.";
+            return ResultadoOperacion.conPago(CodigoResultado.PAGO_INSUFICIENTE, 0, transaccion.getMontoPagado(),
+                    transaccion.getPrecio() - transaccion.getMontoPagado());
+        }
+
+        // Los combos dependen de todo el carrito, así que se evalúan una sola vez, al confirmar
+        double descuento = maquina.descuentoCombo(transaccion);
+        if (descuento > 0) {
+            transaccion.aplicarDescuento(descuento);
         }
 
         // Calcular cambio
-        double cambio = transaccion.getMontoPagado() - transaccion.getProducto().getPrecio();
+        double cambio = transaccion.getMontoPagado() - transaccion.getPrecio();
         transaccion.setCambio(cambio);
 
         // Verificar si hay suficiente cambio disponible
         if (cambio > 0 && !maquina.haySuficienteCambio(cambio)) {
-            maquina.cambiarEstado(new EstadoSinCambio());
-            return "Error: No hay suficiente cambio disponible. Transacción cancelada.";
+            maquina.cambiarEstado(EstadoSinCambio.INSTANCIA);
+            maquina.publicarEvento(TipoEvento.SIN_CAMBIO, transaccion, cambio);
+            return ResultadoOperacion.conProducto(CodigoResultado.SIN_CAMBIO_DISPONIBLE, null, 0, cambio);
         }
 
         // Proceder a dispensar
-        maquina.cambiarEstado(new EstadoDispensando());
-        return "Pago confirmado. Dispensando producto...";
+        maquina.cambiarEstado(EstadoDispensando.INSTANCIA);
+        maquina.publicarEvento(TipoEvento.PAGO_CONFIRMADO, transaccion, transaccion.getMontoPagado());
+        return ResultadoOperacion.de(CodigoResultado.PAGO_CONFIRMADO);
     }
 
     @Override
-    public String dispensarProducto(MaquinaExpendedora maquina) {
-        return "Error: Debe confirmar el pago primero.";
+    public ResultadoOperacion dispensarProducto(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.CONFIRME_PAGO_PRIMERO);
     }
 
     @Override
-    public String devolverCambio(MaquinaExpendedora maquina) {
-        return "Error: Debe confirmar el pago primero.";
+    public ResultadoOperacion devolverCambio(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.CONFIRME_PAGO_PRIMERO);
     }
 
     @Override
-    public String cancelarTransaccion(MaquinaExpendedora maquina) {
+    public ResultadoOperacion cancelarTransaccion(MaquinaExpendedora maquina) {
         Transaccion transaccion = maquina.getTransaccionActual();
         if (transaccion != null) {
             double montoDevolver = transaccion.getMontoPagado();
             transaccion.setEstado(Transaccion.EstadoTransaccion.CANCELADA);
+            maquina.publicarEvento(TipoEvento.TRANSACCION_CANCELADA, transaccion, montoDevolver);
             maquina.finalizarTransaccion();
-            maquina.cambiarEstado(new EstadoSeleccionando());
-            return "Transacción cancelada. Dinero devuelto: $" + (int) montoDevolver;
+            maquina.cambiarEstado(EstadoSeleccionando.INSTANCIA);
+            return ResultadoOperacion.conMonto(CodigoResultado.TRANSACCION_CANCELADA_CON_DEVOLUCION, montoDevolver);
         }
 
-        maquina.cambiarEstado(new EstadoSeleccionando());
-        return "Transacción cancelada.";
+        maquina.cambiarEstado(EstadoSeleccionando.INSTANCIA);
+        return ResultadoOperacion.de(CodigoResultado.TRANSACCION_CANCELADA);
     }
 
     @Override
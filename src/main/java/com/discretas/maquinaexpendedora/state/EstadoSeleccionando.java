@@ -1,5 +1,6 @@
 package com.discretas.maquinaexpendedora.state;
 
+import com.discretas.maquinaexpendedora.events.TipoEvento;
 import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
 import com.discretas.maquinaexpendedora.models.Producto;
 
@@ -12,48 +13,61 @@ import com.discretas.maquinaexpendedora.models.Producto;
  */
 public class EstadoSeleccionando implements EstadoMaquina {
 
+    /**
+     * Instancia única del estado. Los estados no guardan datos, por lo que se comparten
+     */
+    public static final EstadoSeleccionando INSTANCIA = new EstadoSeleccionando();
+
     @Override
-    public String seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto) {
+    public ResultadoOperacion seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto) {
         Producto producto = maquina.getInventario().get(codigoProducto);
 
         if (producto == null) {
-            return "Error: Producto no encontrado. Código: " + codigoProducto;
+            return ResultadoOperacion.conProducto(CodigoResultado.PRODUCTO_NO_ENCONTRADO, codigoProducto, 0, 0);
         }
 
         if (!producto.estaDisponible()) {
-            return "Error: Producto agotado. Seleccione otro producto.";
+            return ResultadoOperacion.de(CodigoResultado.PRODUCTO_AGOTADO);
         }
 
         // Cambiar al estado de esperando pago
-        maquina.cambiarEstado(new EstadoEsperandoPago());
-        maquina.crearTransaccion(producto, 0.0);
+        maquina.cambiarEstado(EstadoEsperandoPago.INSTANCIA);
+        double precio = maquina.precioVigente(producto);
+        maquina.crearTransaccion(producto, precio, 0.0);
+        maquina.publicarEvento(TipoEvento.PRODUCTO_SELECCIONADO, maquina.getTransaccionActual(), precio);
+
+        return ResultadoOperacion.conProducto(CodigoResultado.PRODUCTO_SELECCIONADO, producto.getNombre(), precio, 0);
+    }
 
-        return "Producto seleccionado: " + producto.getNombre() + " - Precio: $" + (int) producto.getPrecio() + ". Inserte el dinero.";
+    @Override
+    public ResultadoOperacion agregarProducto(MaquinaExpendedora maquina, String codigoProducto) {
+        // El primer producto del carrito inicia la transacción como una selección normal
+        return seleccionarProducto(maquina, codigoProducto);
     }
 
     @Override
-    public String insertarDinero(MaquinaExpendedora maquina, double monto) {
-        return "Error: Primero debe seleccionar un producto.";
+    public ResultadoOperacion insertarDinero(MaquinaExpendedora maquina, double monto) {
+        return ResultadoOperacion.de(CodigoResultado.SELECCIONE_PRODUCTO_PRIMERO);
     }
 
     @Override
-    public String confirmarPago(MaquinaExpendedora maquina) {
-        return "Error: Primero debe seleccionar un producto.";
+    public ResultadoOperacion confirmarPago(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.SELECCIONE_PRODUCTO_PRIMERO);
     }
 
     @Override
-    public String dispensarProducto(MaquinaExpendedora maquina) {
-        return "Error: No hay producto seleccionado para dispensar.";
+    public ResultadoOperacion dispensarProducto(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.SIN_PRODUCTO_PARA_DISPENSAR);
     }
 
     @Override
-    public String devolverCambio(MaquinaExpendedora maquina) {
-        return "Error: No hay transacción en proceso.";
+    public ResultadoOperacion devolverCambio(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.SIN_TRANSACCION_EN_PROCESO);
     }
 
     @Override
-    public String cancelarTransaccion(MaquinaExpendedora maquina) {
-        return "No hay transacción para cancelar.";
+    public ResultadoOperacion cancelarTransaccion(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.SIN_TRANSACCION_PARA_CANCELAR);
     }
 
     @Override
@@ -1,5 +1,6 @@
 package com.discretas.maquinaexpendedora.state;
 
+import com.discretas.maquinaexpendedora.events.TipoEvento;
 import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
 import com.discretas.maquinaexpendedora.models.Transaccion;
 
@@ -11,44 +12,55 @@ import com.discretas.maquinaexpendedora.models.Transaccion;
  */
 public class EstadoSinCambio implements EstadoMaquina {
 
+    /**
+     * Instancia única del estado. Los estados no guardan datos, por lo que se comparten
+     */
+    public static final EstadoSinCambio INSTANCIA = new EstadoSinCambio();
+
+    @Override
+    public ResultadoOperacion seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto) {
+        return ResultadoOperacion.de(CodigoResultado.PROBLEMA_CAMBIO);
+    }
+
     @Override
-    public String seleccionarProducto(MaquinaExpendedora maquina, String codigoProducto) {
-        return "La máquina tiene problemas con el cambio. Complete o cancele la transacción actual.";
+    public ResultadoOperacion agregarProducto(MaquinaExpendedora maquina, String codigoProducto) {
+        return ResultadoOperacion.de(CodigoResultado.PROBLEMA_CAMBIO);
     }
 
     @Override
-    public String insertarDinero(MaquinaExpendedora maquina, double monto) {
-        return "No se puede insertar más dinero. La máquina no tiene cambio suficiente.";
+    public ResultadoOperacion insertarDinero(MaquinaExpendedora maquina, double monto) {
+        return ResultadoOperacion.de(CodigoResultado.SIN_CAMBIO_INSERCION);
     }
 
     @Override
-    public String confirmarPago(MaquinaExpendedora maquina) {
-        return "No se puede confirmar el pago. La máquina no tiene cambio suficiente.";
+    public ResultadoOperacion confirmarPago(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.SIN_CAMBIO_CONFIRMACION);
     }
 
     @Override
-    public String dispensarProducto(MaquinaExpendedora maquina) {
-        return "No se puede dispensar el producto sin cambio suficiente.";
+    public ResultadoOperacion dispensarProducto(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.SIN_CAMBIO_DISPENSACION);
     }
 
     @Override
-    public String devolverCambio(MaquinaExpendedora maquina) {
-        return "No hay cambio suficiente disponible en la máquina.";
+    public ResultadoOperacion devolverCambio(MaquinaExpendedora maquina) {
+        return ResultadoOperacion.de(CodigoResultado.SIN_CAMBIO_DEVOLUCION);
     }
 
     @Override
-    public String cancelarTransaccion(MaquinaExpendedora maquina) {
+    public ResultadoOperacion cancelarTransaccion(MaquinaExpendedora maquina) {
         Transaccion transaccion = maquina.getTransaccionActual();
         if (transaccion != null) {
             double montoDevolver = transaccion.getMontoPagado();
             transaccion.setEstado(Transaccion.EstadoTransaccion.CANCELADA);
+            maquina.publicarEvento(TipoEvento.TRANSACCION_CANCELADA, transaccion, montoDevolver);
             maquina.finalizarTransaccion();
-            maquina.cambiarEstado(new EstadoSeleccionando());
-            return "Transacción cancelada por falta de cambio. Dinero devuelto: $" + (int) montoDevolver;
+            maquina.cambiarEstado(EstadoSeleccionando.INSTANCIA);
+            return ResultadoOperacion.conMonto(CodigoResultado.CANCELADA_POR_FALTA_DE_CAMBIO, montoDevolver);
         }
 
-        maquina.cambiarEstado(new EstadoSeleccionando());
-        return "Transacción cancelada.";
+        maquina.cambiarEstado(EstadoSeleccionando.INSTANCIA);
+        return ResultadoOperacion.de(CodigoResultado.TRANSACCION_CANCELADA);
     }
 
     @Override
@@ -0,0 +1,193 @@
+package com.discretas.maquinaexpendedora.state;
+
+import lombok.Getter;
+
+/**
+ * Resultado tipado de una operación de la máquina expendedora: un código más los datos numéricos
+ * asociados (monto, total, cambio, faltante). El mensaje para las personas se construye solo
+ * cuando se solicita, de modo que las integraciones máquina a máquina no pagan la construcción de texto.
+ * Los resultados sin datos son instancias compartidas.
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+@Getter
+public final class ResultadoOperacion {
+
+    private static final ResultadoOperacion[] SIMPLES = new ResultadoOperacion[CodigoResultado.values().length];
+
+    static {
+        for (CodigoResultado codigo : CodigoResultado.values()) {
+            SIMPLES[codigo.ordinal()] = new ResultadoOperacion(codigo, null, 0, 0, 0, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Código del resultado
+     */
+    private final CodigoResultado codigo;
+
+    /**
+     * Referencia asociada (nombre o código del producto), null si no aplica
+     */
+    private final String referencia;
+
+    /**
+     * Monto de la operación: precio, dinero insertado o dinero devuelto según el código
+     */
+    private final double monto;
+
+    /**
+     * Total pagado en la transacción
+     */
+    private final double total;
+
+    /**
+     * Cambio de la transacción
+     */
+    private final double cambio;
+
+    /**
+     * Monto que falta para completar el pago
+     */
+    private final double faltante;
+
+    /**
+     * Productos entregados de un carrito terminado
+     */
+    private final int productosDispensados;
+
+    /**
+     * Productos de un carrito terminado
+     */
+    private final int productosCarrito;
+
+    private ResultadoOperacion(CodigoResultado codigo, String referencia, double monto, double total, double cambio,
+                               double faltante, int productosDispensados, int productosCarrito) {
+        this.codigo = codigo;
+        this.referencia = referencia;
+        this.monto = monto;
+        this.total = total;
+        this.cambio = cambio;
+        this.faltante = faltante;
+        this.productosDispensados = productosDispensados;
+        this.productosCarrito = productosCarrito;
+    }
+
+    /**
+     * Obtiene el resultado sin datos de un código
+     * @param codigo Código del resultado
+     * @return Instancia compartida del resultado
+     */
+    public static ResultadoOperacion de(CodigoResultado codigo) {
+        return SIMPLES[codigo.ordinal()];
+    }
+
+    /**
+     * Crea un resultado con un monto
+     * @param codigo Código del resultado
+     * @param monto Monto de la operación
+     * @return Resultado creado
+     */
+    public static ResultadoOperacion conMonto(CodigoResultado codigo, double monto) {
+        return new ResultadoOperacion(codigo, null, monto, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Crea un resultado de inserción de dinero
+     * @param codigo Código del resultado
+     * @param monto Dinero insertado
+     * @param total Total pagado
+     * @param faltante Monto que falta para completar el pago
+     * @return Resultado creado
+     */
+    public static ResultadoOperacion conPago(CodigoResultado codigo, double monto, double total, double faltante) {
+        return new ResultadoOperacion(codigo, null, monto, total, 0, faltante, 0, 0);
+    }
+
+    /**
+     * Crea un resultado asociado a un producto
+     * @param codigo Código del resultado
+     * @param referencia Nombre o código del producto
+     * @param monto Monto de la operación
+     * @param cambio Cambio entregado
+     * @return Resultado creado
+     */
+    public static ResultadoOperacion conProducto(CodigoResultado codigo, String referencia, double monto, double cambio) {
+        return new ResultadoOperacion(codigo, referencia, monto, 0, cambio, 0, 0, 0);
+    }
+
+    /**
+     * Crea el resultado de un carrito terminado
+     * @param codigo Código del resultado
+     * @param dispensados Productos entregados
+     * @param productos Productos del carrito
+     * @param cobrado Monto cobrado por lo entregado
+     * @param cambio Cambio entregado, con el reembolso de lo no entregado
+     * @return Resultado creado
+     */
+    public static ResultadoOperacion conCarritoDispensado(CodigoResultado codigo, int dispensados, int productos,
+                                                          double cobrado, double cambio) {
+        return new ResultadoOperacion(codigo, null, cobrado, 0, cambio, 0, dispensados, productos);
+    }
+
+    /**
+     * Crea un resultado de un producto agregado al carrito
+     * @param codigo Código del resultado
+     * @param referencia Nombre del producto
+     * @param monto Precio del producto
+     * @param total Total del carrito
+     * @param faltante Monto que falta para completar el pago
+     * @return Resultado creado
+     */
+    public static ResultadoOperacion conCarrito(CodigoResultado codigo, String referencia, double monto, double total, double faltante) {
+        return new ResultadoOperacion(codigo, referencia, monto, total, 0, faltante, 0, 0);
+    }
+
+    /**
+     * Obtiene el tipo del resultado
+     * @return Tipo del resultado
+     */
+    public CodigoResultado.TipoResultado getTipo() {
+        return codigo.getTipo();
+    }
+
+    /**
+     * Construye el mensaje legible del resultado
+     * @return Mensaje para mostrar a las personas
+     */
+    public String mensaje() {
+        return switch (codigo) {
+            case PRODUCTO_SELECCIONADO ->
+                    "Producto seleccionado: " + referencia + " - Precio: $" + (int) monto + ". Inserte el dinero.";
+            case PRODUCTO_NO_ENCONTRADO -> "Error: Producto no encontrado. Código: " + referencia;
+            case DINERO_INSERTADO_PARCIAL ->
+                    "Dinero insertado: $" + (int) monto + ". Total: $" + (int) total + ". Falta: $" + (int) faltante;
+            case DINERO_INSERTADO_SUFICIENTE ->
+                    "Dinero insertado: $" + (int) monto + ". Total: $" + (int) total + ". Presione confirmar para continuar.";
+            case DINERO_ADICIONAL_INSERTADO ->
+                    "Dinero adicional insertado: $" + (int) monto + ". Total: $" + (int) total + ". Presione confirmar para continuar.";
+            case PRODUCTO_DISPENSADO -> "Producto dispensado: " + referencia
+                    + (cambio > 0 ? ". Su cambio: $" + (int) cambio : "") + ". Gracias por su compra.";
+            case DISPENSACION_FALLIDA -> "Error: No se pudo dispensar el producto. Dinero devuelto: $" + (int) monto;
+            case TRANSACCION_CANCELADA_CON_DEVOLUCION -> "Transacción cancelada. Dinero devuelto: $" + (int) monto;
+            case CANCELADA_POR_FALTA_DE_CAMBIO ->
+                    "Transacción cancelada por falta de cambio. Dinero devuelto: $" + (int) monto;
+            case PRODUCTO_AGREGADO -> "Producto agregado al carrito: " + referencia + " - Precio: $" + (int) monto
+                    + ". Total: $" + (int) total + (faltante > 0 ? ". Falta: $" + (int) faltante : ". Presione confirmar para continuar.");
+            case ARTICULO_DISPENSADO -> "Producto dispensado: " + referencia + ". Dispensando el siguiente producto del carrito...";
+            case ARTICULO_REEMBOLSADO -> "No se pudo dispensar " + referencia + ". Se reembolsarán $" + (int) monto
+                    + ". Dispensando el siguiente producto del carrito...";
+            case CARRITO_DISPENSADO -> "Carrito dispensado: " + productosDispensados + " de " + productosCarrito + " productos"
+                    + (cambio > 0 ? ". Su cambio: $" + (int) cambio : "") + ". Gracias por su compra.";
+            case CARRITO_DISPENSADO_PARCIAL -> "Carrito dispensado parcialmente: " + productosDispensados + " de "
+                    + productosCarrito + " productos. Cobrado: $" + (int) monto + ". Cambio y reembolso: $" + (int) cambio;
+            default -> codigo.getTexto();
+        };
+    }
+
+    @Override
+    public String toString() {
+        return mensaje();
+    }
+}
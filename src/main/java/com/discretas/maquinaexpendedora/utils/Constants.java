@@ -1,5 +1,7 @@
 package com.discretas.maquinaexpendedora.utils;
 
+import java.util.Set;
+
 /**
  * Clase de utilidades que contiene constantes globales para la aplicación.
  * Incluye rutas de servicios, mensajes, formatos y otras constantes usadas en el sistema.
@@ -25,6 +27,12 @@ public final class Constants {
         public static final String SUCCESS_OPERATION= "OPERACION EXITOSA";
         public static final String ERROR_OPERATION = "ERROR EN LA OPERACION";
         public static final String BAD_OPERATION = "OPERACION INVALIDA";
+        public static final String BUSY_OPERATION = "SERVICIO OCUPADO, INTENTE NUEVAMENTE";
+        public static final String LIMITED_OPERATION = "DEMASIADAS SOLICITUDES, INTENTE MAS TARDE";
+        public static final String NOT_FOUND_OPERATION = "RECURSO NO ENCONTRADO";
+        public static final String CONFLICT_OPERATION = "CONFLICTO CON EL ESTADO ACTUAL";
+        public static final String FORBIDDEN_OPERATION = "OPERACION NO AUTORIZADA";
+        public static final String REUSED_KEY_OPERATION = "CLAVE DE IDEMPOTENCIA USADA CON OTROS PARAMETROS";
 
         public static final String JSON_ERROR = "ERROR EN LA CONVERSION A JSON";
 
@@ -43,6 +51,14 @@ public final class Constants {
      */
     public static class Global{
         public static final String API_BASE_PATH = "/api";
+        public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+        public static final String CLIENT_ID_HEADER = "X-Cliente-Id";
+        public static final String MACHINE_ID_HEADER = "X-Maquina-Id";
+        public static final String CLUSTER_FORWARDED_HEADER = "X-Cluster-Reenviado";
+        public static final String CLUSTER_SECRET_HEADER = "X-Cluster-Secreto";
+        public static final String REPLICATION_SEQUENCE_HEADER = "X-Replicacion-Secuencia";
+        public static final String COMPACT_PARAM = "compacto";
+        public static final String RETRY_AFTER_SECONDS = "1";
 
         private Global(){}
     }
@@ -51,22 +67,98 @@ public final class Constants {
      * Constantes relacionadas con los servicios de grafos y rutas de endpoints.
      */
     public static class Maquina {
+        public static final String MAQUINA_ID_DEFAULT = "MAQ-001";
+        public static final String REGION_DEFAULT = "GENERAL";
+        public static final int MAX_PRODUCTOS_CARRITO = 20;
+        public static final double DINERO_INICIAL_DEFAULT = 50000.0;
+        public static final Set<Long> DENOMINACIONES_ACEPTADAS =
+                Set.of(50L, 100L, 200L, 500L, 1000L, 2000L, 5000L, 10000L, 20000L, 50000L, 100000L);
+
         public static final String MAQUINA_SERVICE_PATH = "/maquina";
+        public static final String MAQUINA_ASYNC_SERVICE_PATH = "/maquina-async";
         public static final String MAQUINA_SERVICE_PATH_STATE = "/estado";
         public static final String MAQUINA_SERVICE_PATH_PRODUCTS = "/productos";
         public static final String MAQUINA_SERVICE_PATH_SELECT = "/seleccionar";
+        public static final String MAQUINA_SERVICE_PATH_CART = "/carrito";
         public static final String MAQUINA_SERVICE_PATH_INSERT_MONEY = "/insertar-dinero";
+        public static final String MAQUINA_SERVICE_PATH_INSERT_MONEY_BATCH = "/insertar-dinero/lote";
         public static final String MAQUINA_SERVICE_PATH_CONFIRM_PAYMENT = "/confirmar-pago";
         public static final String MAQUINA_SERVICE_PATH_DISPENSE = "/dispensar";
+        public static final String MAQUINA_SERVICE_PATH_DISPENSE_TICKET = "/dispensar/{idTicket}";
+        public static final String MAQUINA_SERVICE_PATH_DISPENSE_RESULT = "/dispensar/{idTicket}/resultado";
+        public static final String MAQUINA_SERVICE_PATH_DISPENSE_RECONCILE = "/dispensar/{idTicket}/conciliar";
         public static final String MAQUINA_SERVICE_PATH_CANCEL = "/cancelar";
         public static final String MAQUINA_SERVICE_PATH_CURRENT_TRANSACTION = "/transaccion-actual";
         public static final String MAQUINA_SERVICE_PATH_HISTORY = "/historial";
         public static final String MAQUINA_SERVICE_PATH_RESTART = "/reiniciar";
         public static final String MAQUINA_SERVICE_PATH_AVAILABLE_MONEY = "/dinero-disponible";
+        public static final String MAQUINA_SERVICE_PATH_EVENTS = "/eventos";
+        public static final String MAQUINA_SERVICE_PATH_DASHBOARD = "/dashboard";
+        public static final String MAQUINA_SERVICE_PATH_BINARY = "/binario";
+        public static final String MAQUINA_SERVICE_PATH_PROMOTIONS_PRICES = "/promociones/precios";
 
         private Maquina(){}
     }
 
+    /**
+     * Constantes de las vistas de toda la flota del nodo y rutas de sus endpoints.
+     */
+    public static class Flota {
+        public static final String FLOTA_SERVICE_PATH = "/flota";
+        public static final String FLOTA_SERVICE_PATH_ALERTS = "/alertas";
+        public static final String FLOTA_SERVICE_PATH_ALERTS_EVENTS = "/alertas/eventos";
+        public static final String FLOTA_SERVICE_PATH_RESTOCK_PLAN = "/plan-reabastecimiento";
+        public static final String FLOTA_SERVICE_PATH_STATISTICS = "/estadisticas";
+        public static final String FLOTA_SERVICE_PATH_TOP_PRODUCTS = "/top-productos";
+        public static final String FLOTA_SERVICE_PATH_TOP_PRODUCTS_SUMMARY = "/top-productos/resumen";
+
+        private Flota(){}
+    }
+
+    /**
+     * Constantes del catálogo de productos, de las reglas de precio y rutas de sus endpoints.
+     */
+    public static class Catalogo {
+        public static final String CATALOGO_SERVICE_PATH = "/catalogo";
+        public static final String CATALOGO_SERVICE_PATH_RELOAD = "/recargar";
+        public static final String CATALOGO_SERVICE_PATH_PROMOTIONS = "/promociones";
+
+        private Catalogo(){}
+    }
+
+    /**
+     * Constantes de la simulación de máquinas y rutas de sus endpoints.
+     */
+    public static class Simulacion {
+        public static final String SIMULACION_SERVICE_PATH = "/simulacion";
+
+        private Simulacion(){}
+    }
+
+    /**
+     * Constantes del clúster de nodos y rutas de sus endpoints.
+     */
+    public static class Cluster {
+        public static final String CLUSTER_SERVICE_PATH = "/cluster";
+        public static final String CLUSTER_SERVICE_PATH_NODES = "/nodos";
+        public static final String CLUSTER_SERVICE_PATH_NODE = "/nodos/{idNodo}";
+        public static final String CLUSTER_SERVICE_PATH_MACHINES = "/maquinas";
+
+        private Cluster(){}
+    }
+
+    /**
+     * Constantes de la replicación del diario hacia un nodo de respaldo y rutas de sus endpoints.
+     */
+    public static class Replicacion {
+        public static final String REPLICATION_SERVICE_PATH = "/replicacion";
+        public static final String REPLICATION_SERVICE_PATH_BASE = "/base";
+        public static final String REPLICATION_SERVICE_PATH_EVENTS = "/eventos";
+        public static final String REPLICATION_SERVICE_PATH_PROMOTE = "/promover";
+
+        private Replicacion(){}
+    }
+
     /**
      * Constantes de formatos de fecha, hora y monto.
      */
@@ -0,0 +1,126 @@
+package com.discretas.maquinaexpendedora.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Lector de flujos de denominaciones (monedas y billetes) reportadas por los aceptadores.
+ * Acepta números separados por cualquier carácter no numérico, por lo que sirve tanto para
+ * arreglos JSON ({@code [500,1000]}) como para un valor por línea en una conexión persistente.
+ * La lectura se hace sobre un buffer reutilizado y no asigna memoria por evento.
+ * Los valores con signo, con decimales distintos de cero o que no son una de las
+ * {@link Constants.Maquina#DENOMINACIONES_ACEPTADAS} se devuelven como {@link #DENOMINACION_INVALIDA}
+ * para que el llamador los descarte sin cortar el flujo.
+ * <p>
+ * Esta clase no es segura para uso concurrente.
+ * </p>
+ *
+ * @author Duvan Gil
+ * @version 1.0
+ */
+public final class LectorDenominaciones {
+
+    /**
+     * Valor que se devuelve cuando el flujo terminó
+     */
+    public static final long FIN_FLUJO = -1;
+
+    /**
+     * Valor que se devuelve para una denominación con signo, fraccionaria o que la máquina no acepta
+     */
+    public static final long DENOMINACION_INVALIDA = -2;
+
+    /**
+     * Denominaciones aceptadas ordenadas, para buscarlas sin convertir cada valor a {@link Long}
+     */
+    private static final long[] ACEPTADAS = Constants.Maquina.DENOMINACIONES_ACEPTADAS.stream()
+            .mapToLong(Long::longValue).sorted().toArray();
+
+    private static final int TAMANYO_BUFFER = 8192;
+
+    private static final int SIN_CARACTER = -1;
+
+    private final InputStream entrada;
+
+    private final byte[] buffer = new byte[TAMANYO_BUFFER];
+
+    private int posicion;
+
+    private int limite;
+
+    /**
+     * Carácter que terminó el valor anterior, por si es el signo del siguiente
+     */
+    private int terminador = SIN_CARACTER;
+
+    /**
+     * Constructor del lector
+     * @param entrada Flujo de entrada con las denominaciones
+     */
+    public LectorDenominaciones(InputStream entrada) {
+        this.entrada = entrada;
+    }
+
+    /**
+     * Lee la siguiente denominación del flujo. Se admiten decimales solo si son ceros ({@code 500.00}).
+     * @return Valor de la denominación, {@link #DENOMINACION_INVALIDA} si tiene signo, es fraccionaria
+     * o no es una denominación aceptada, o {@link #FIN_FLUJO} si el flujo terminó
+     * @throws IOException Si ocurre un error de lectura
+     */
+    public long siguiente() throws IOException {
+        int anterior = terminador;
+        int caracter;
+        while (!esDigito(caracter = leer())) {
+            if (caracter < 0) {
+                return FIN_FLUJO;
+            }
+            anterior = caracter;
+        }
+        boolean valido = anterior != '-' && anterior != '+';
+
+        long valor = 0;
+        while (esDigito(caracter)) {
+            int digito = caracter - '0';
+            if (valor > (Long.MAX_VALUE - digito) / 10) {
+                valido = false;
+            } else {
+                valor = valor * 10 + digito;
+            }
+            caracter = leer();
+        }
+        if (caracter == '.') {
+            while (esDigito(caracter = leer())) {
+                valido &= caracter == '0';
+            }
+        }
+        terminador = caracter;
+        return valido && Arrays.binarySearch(ACEPTADAS, valor) >= 0 ? valor : DENOMINACION_INVALIDA;
+    }
+
+    /**
+     * Indica si quedan datos ya recibidos sin bloquear la lectura.
+     * Permite cerrar un lote cuando se consumió todo lo que ha llegado por la conexión.
+     * @return true si hay datos disponibles sin esperar
+     * @throws IOException Si ocurre un error de lectura
+     */
+    public boolean hayDatosDisponibles() throws IOException {
+        return posicion < limite || entrada.available() > 0;
+    }
+
+    private int leer() throws IOException {
+        if (posicion >= limite) {
+            limite = entrada.read(buffer, 0, buffer.length);
+            posicion = 0;
+            if (limite <= 0) {
+                limite = 0;
+                return -1;
+            }
+        }
+        return buffer[posicion++] & 0xFF;
+    }
+
+    private static boolean esDigito(int caracter) {
+        return caracter >= '0' && caracter <= '9';
+    }
+}
@@ -18,11 +18,16 @@ const ENDPOINTS = {
     cancelar: `${API_BASE}/cancelar`,
     transaccionActual: `${API_BASE}/transaccion-actual`,
     historial: `${API_BASE}/historial`,
-    reiniciar: `${API_BASE}/reiniciar`
+    reiniciar: `${API_BASE}/reiniciar`,
+    dashboard: `${API_BASE}/dashboard`
 };
 
+// Intervalo de consulta de los tickets de dispensación
+const INTERVALO_TICKET_MS = 300;
+
 // Estado de la aplicación
 let estadoMaquina = {
+    version: -1,
     estado: 'SELECCIONANDO',
     productos: {},
     transaccionActual: null,
@@ -54,8 +59,8 @@ document.addEventListener('DOMContentLoaded', function() {
     inicializarEventos();
     cargarDatosIniciales();
 
-    // Actualizar estado cada 2 segundos
-    setInterval(actualizarEstado, 2000);
+    // Actualizar el tablero cada 2 segundos
+    setInterval(actualizarDashboard, 2000);
 });
 
 /**
@@ -117,12 +122,7 @@ function inicializarEventos() {
  */
 async function cargarDatosIniciales() {
     try {
-        await Promise.all([
-            cargarProductos(),
-            actualizarEstado(),
-            cargarTransaccionActual(),
-            actualizarDineroDisponible()
-        ]);
+        await actualizarDashboard();
     } catch (error) {
         console.error('Error cargando datos iniciales:', error);
         mostrarMensaje('Error al cargar los datos de la máquina', 'error');
@@ -156,58 +156,28 @@ async function realizarPeticion(url, options = {}) {
 }
 
 /**
- * Carga los productos disponibles
+ * Actualiza todos los paneles con una única instantánea consistente de la máquina
  */
-async function cargarProductos() {
+async function actualizarDashboard() {
     try {
-        const response = await realizarPeticion(ENDPOINTS.productos);
-        estadoMaquina.productos = response.data;
-        renderizarProductos();
-    } catch (error) {
-        mostrarMensaje('Error al cargar productos', 'error');
-    }
-}
+        const response = await realizarPeticion(ENDPOINTS.dashboard);
+        const dashboard = response.data;
+        if (dashboard.version === estadoMaquina.version) {
+            return;
+        }
 
-/**
- * Actualiza el estado actual de la máquina
- */
-async function actualizarEstado() {
-    try {
-        const response = await realizarPeticion(ENDPOINTS.estado);
-        estadoMaquina.estado = response.data;
-        actualizarInterfazEstado();
-        // También actualizar dinero disponible cuando se actualiza el estado
-        await actualizarDineroDisponible();
-    } catch (error) {
-        console.error('Error actualizando estado:', error);
-    }
-}
+        estadoMaquina.version = dashboard.version;
+        estadoMaquina.estado = dashboard.estado;
+        estadoMaquina.dineroDisponible = dashboard.dineroDisponible;
+        estadoMaquina.transaccionActual = dashboard.transaccionActual;
+        estadoMaquina.productos = dashboard.productos;
 
-/**
- * Actualiza el dinero disponible en la máquina
- */
-async function actualizarDineroDisponible() {
-    try {
-        const response = await realizarPeticion(`${API_BASE}/dinero-disponible`);
-        estadoMaquina.dineroDisponible = response.data;
+        actualizarInterfazEstado();
         mostrarDineroDisponible();
-    } catch (error) {
-        console.error('Error actualizando dinero disponible:', error);
-    }
-}
-
-/**
- * Carga la transacción actual si existe
- */
-async function cargarTransaccionActual() {
-    try {
-        const response = await realizarPeticion(ENDPOINTS.transaccionActual);
-        estadoMaquina.transaccionActual = response.data;
         mostrarTransaccionActual();
+        renderizarProductos();
     } catch (error) {
-        // Es normal que no haya transacción actual
-        estadoMaquina.transaccionActual = null;
-        elementos.transaccionInfo.style.display = 'none';
+        console.error('Error actualizando el tablero:', error);
     }
 }
 
@@ -310,16 +280,10 @@ async function seleccionarProducto(codigoProducto) {
             method: 'POST'
         });
 
-        // Usar el mensaje del estado directamente y clasificar según el contenido
-        const mensaje = response.data;
-        const tipoNotificacion = clasificarMensaje(mensaje);
-        mostrarMensaje(mensaje, tipoNotificacion);
+        // Mostrar el mensaje del resultado según su tipo
+        mostrarResultado(response.data);
 
-        await Promise.all([
-            actualizarEstado(),
-            cargarTransaccionActual(),
-            cargarProductos()
-        ]);
+        await actualizarDashboard();
 
     } catch (error) {
         mostrarMensaje(error.message, 'error');
@@ -339,15 +303,10 @@ async function insertarDinero(monto) {
             method: 'POST'
         });
 
-        // Usar el mensaje del estado directamente y clasificar según el contenido
-        const mensaje = response.data;
-        const tipoNotificacion = clasificarMensaje(mensaje);
-        mostrarMensaje(mensaje, tipoNotificacion);
+        // Mostrar el mensaje del resultado según su tipo
+        mostrarResultado(response.data);
 
-        await Promise.all([
-            actualizarEstado(),
-            cargarTransaccionActual()
-        ]);
+        await actualizarDashboard();
 
     } catch (error) {
         mostrarMensaje(error.message, 'error');
@@ -367,15 +326,10 @@ async function confirmarPago() {
             method: 'POST'
         });
 
-        // Usar el mensaje del estado directamente y clasificar según el contenido
-        const mensaje = response.data;
-        const tipoNotificacion = clasificarMensaje(mensaje);
-        mostrarMensaje(mensaje, tipoNotificacion);
+        // Mostrar el mensaje del resultado según su tipo
+        mostrarResultado(response.data);
 
-        await Promise.all([
-            actualizarEstado(),
-            cargarTransaccionActual()
-        ]);
+        await actualizarDashboard();
 
     } catch (error) {
         mostrarMensaje(error.message, 'error');
@@ -395,16 +349,13 @@ async function dispensarProducto() {
             method: 'POST'
         });
 
-        // Usar el mensaje del estado directamente y clasificar según el contenido
-        const mensaje = response.data;
-        const tipoNotificacion = clasificarMensaje(mensaje);
-        mostrarMensaje(mensaje, tipoNotificacion);
+        // La dispensación es asíncrona: esperar a que el ticket termine
+        const ticket = await esperarTicket(response.data);
 
-        await Promise.all([
-            actualizarEstado(),
-            cargarTransaccionActual(),
-            cargarProductos()
-        ]);
+        // Mostrar el mensaje final del ticket según el tipo de su resultado
+        mostrarMensaje(ticket.mensaje, TIPOS_NOTIFICACION[ticket.resultado.tipo] || 'info');
+
+        await actualizarDashboard();
 
     } catch (error) {
         mostrarMensaje(error.message, 'error');
@@ -413,6 +364,20 @@ async function dispensarProducto() {
     }
 }
 
+/**
+ * Consulta un ticket de dispensación hasta que deje de estar pendiente
+ * @param {object} ticket - Ticket devuelto al solicitar la dispensación
+ * @returns {Promise<object>} - Ticket con su estado final
+ */
+async function esperarTicket(ticket) {
+    while (ticket.estado === 'PENDIENTE') {
+        await new Promise(resolve => setTimeout(resolve, INTERVALO_TICKET_MS));
+        const response = await realizarPeticion(`${ENDPOINTS.dispensar}/${ticket.id}`);
+        ticket = response.data;
+    }
+    return ticket;
+}
+
 /**
  * Cancela la transacción actual
  */
@@ -436,16 +401,10 @@ async function cancelarTransaccion() {
             method: 'POST'
         });
 
-        // Usar el mensaje del estado directamente y clasificar según el contenido
-        const mensaje = response.data;
-        const tipoNotificacion = clasificarMensaje(mensaje);
-        mostrarMensaje(mensaje, tipoNotificacion);
+        // Mostrar el mensaje del resultado según su tipo
+        mostrarResultado(response.data);
 
-        await Promise.all([
-            actualizarEstado(),
-            cargarTransaccionActual(),
-            cargarProductos()
-        ]);
+        await actualizarDashboard();
 
     } catch (error) {
         mostrarMensaje(error.message, 'error');
@@ -455,90 +414,21 @@ async function cancelarTransaccion() {
 }
 
 /**
- * Clasifica el mensaje del backend para determinar el tipo de notificación
- * @param {string} mensaje - Mensaje proveniente del estado del backend
- * @returns {string} - Tipo de notificación (success, warning, info, error)
+ * Tipo de notificación según el tipo del resultado devuelto por el backend
  */
-function clasificarMensaje(mensaje) {
-    const mensajeLower = mensaje.toLowerCase().trim();
-
-    // Mensajes de error - tipo error (errores técnicos o del sistema)
-    if (mensajeLower.startsWith('error:') ||
-        mensajeLower.includes('error en') ||
-        mensajeLower.includes('no encontrado') ||
-        mensajeLower.includes('problemas técnicos') ||
-        mensajeLower.includes('falla del sistema')) {
-        return 'error';
-    }
-
-    // Mensajes de éxito - tipo success (operaciones completadas exitosamente)
-    if (mensajeLower.includes('producto dispensado') ||
-        mensajeLower.includes('gracias por su compra') ||
-        mensajeLower.includes('pago confirmado') ||
-        mensajeLower.includes('dispensando producto') ||
-        (mensajeLower.includes('producto seleccionado') && mensajeLower.includes('inserte el dinero')) ||
-        mensajeLower.includes('dinero adicional insertado') ||
-        mensajeLower.includes('máquina reiniciada correctamente')) {
-        return 'success';
-    }
-
-    // PRIORIDAD: Inserción de dinero normal (ESPERANDO_PAGO) - tipo info
-    if (mensajeLower.includes('dinero insertado') &&
-        (mensajeLower.includes('total:') || mensajeLower.includes('falta:') || mensajeLower.includes('presione confirmar'))) {
-        return 'info';
-    }
-
-    // Mensajes de advertencia - tipo warning (situaciones que requieren atención del usuario)
-    if (mensajeLower.includes('agotado') ||
-        (mensajeLower.includes('no es suficiente') && mensajeLower.includes('pago')) ||
-        mensajeLower.includes('debe insertar el dinero suficiente') ||
-        mensajeLower.includes('debe confirmar el pago') ||
-        mensajeLower.includes('debe completar el pago') ||
-        mensajeLower.includes('ya hay un producto seleccionado') ||
-        mensajeLower.includes('ya hay una transacción en proceso') ||
-        mensajeLower.includes('no hay suficiente cambio disponible') ||
-        mensajeLower.includes('no se puede cancelar') ||
-        mensajeLower.includes('no puede insertar dinero') ||
-        mensajeLower.includes('esperando que termine') ||
-        mensajeLower.includes('siendo dispensado') ||
-        mensajeLower.includes('complete la transacción o cancélela') ||
-        mensajeLower.includes('primero debe seleccionar un producto')) {
-        return 'warning';
-    }
-
-    // Mensajes informativos - tipo info (información neutral, estados, cancelaciones)
-    if (mensajeLower.includes('transacción cancelada') ||
-        mensajeLower.includes('dinero devuelto') ||
-        mensajeLower.includes('no hay transacción para cancelar') ||
-        mensajeLower.includes('no hay ninguna transacción') ||
-        mensajeLower.includes('el cambio se devuelve automáticamente') ||
-        mensajeLower.includes('no hay transacción en proceso') ||
-        mensajeLower.includes('no hay producto seleccionado para dispensar')) {
-        return 'info';
-    }
-
-    // Análisis contextual adicional para casos ambiguos
-
-    // Si menciona cancelación por cualquier motivo, es info
-    if (mensajeLower.includes('cancelad') &&
-        (mensajeLower.includes('transacción') || mensajeLower.includes('dinero devuelto'))) {
-        return 'info';
-    }
-
-    // Si menciona que debe hacer algo antes de otra acción, es warning
-    if ((mensajeLower.includes('debe') || mensajeLower.includes('primero')) &&
-        (mensajeLower.includes('antes') || mensajeLower.includes('primero'))) {
-        return 'warning';
-    }
-
-    // Si menciona que algo ya está en proceso o ya existe, es warning
-    if (mensajeLower.includes('ya ') &&
-        (mensajeLower.includes('seleccionado') || mensajeLower.includes('proceso') || mensajeLower.includes('confirmado'))) {
-        return 'warning';
-    }
+const TIPOS_NOTIFICACION = {
+    EXITO: 'success',
+    INFO: 'info',
+    ADVERTENCIA: 'warning',
+    ERROR: 'error'
+};
 
-    // Mensajes informativos por defecto (incluye estados neutrales y navegación)
-    return 'info';
+/**
+ * Muestra el resultado de una operación de la máquina
+ * @param {Object} resultado - Resultado con el código, tipo y mensaje de la operación
+ */
+function mostrarResultado(resultado) {
+    mostrarMensaje(resultado.mensaje, TIPOS_NOTIFICACION[resultado.tipo] || 'info');
 }
 
 /**
@@ -0,0 +1,129 @@
+package com.discretas.maquinaexpendedora.actor;
+
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.state.CodigoResultado;
+import com.discretas.maquinaexpendedora.state.ResultadoOperacion;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compara el actor de escritor único contra una variante con bloqueo bajo contención.
+ * El número de operaciones se ajusta con la propiedad {@code benchmark.ciclos}.
+ */
+@Slf4j
+class ActorMaquinaBenchmarkTest {
+
+    private static final int HILOS = 16;
+
+    private static final int CICLOS_POR_HILO = Integer.getInteger("benchmark.ciclos", 2_000);
+
+    private static final int STOCK_INICIAL = HILOS * CICLOS_POR_HILO;
+
+    private final ExecutorService ejecutorActores = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void detener() {
+        ejecutorActores.shutdown();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void actorYBloqueoMantienenElInventarioConsistente() throws Exception {
+        MaquinaExpendedora maquinaBloqueo = nuevaMaquina("BLOQUEO");
+        long inicioBloqueo = System.nanoTime();
+        long ventasBloqueo = ejecutarCompras(operacion -> {
+            synchronized (maquinaBloqueo) {
+                return operacion.apply(maquinaBloqueo);
+            }
+        });
+        long nanosBloqueo = System.nanoTime() - inicioBloqueo;
+
+        ActorMaquina actor = new ActorMaquina(nuevaMaquina("ACTOR"), ejecutorActores, 64);
+        long inicioActor = System.nanoTime();
+        long ventasActor = ejecutarCompras(actor::ejecutar);
+        long nanosActor = System.nanoTime() - inicioActor;
+
+        assertEquals(STOCK_INICIAL - ventasBloqueo, maquinaBloqueo.getInventario().get("A1").getStock());
+        assertEquals(STOCK_INICIAL - ventasActor, actor.getMaquina().getInventario().get("A1").getStock());
+        assertEquals(50000.0 + ventasBloqueo * 2500.0, maquinaBloqueo.getDineroDisponible());
+        assertEquals(50000.0 + ventasActor * 2500.0, actor.getMaquina().getDineroDisponible());
+
+        long operaciones = (long) HILOS * CICLOS_POR_HILO * 4;
+        log.info("Bloqueo: {} ops/s ({} ventas)", operaciones * 1_000_000_000L / nanosBloqueo, ventasBloqueo);
+        log.info("Actor:   {} ops/s ({} ventas)", operaciones * 1_000_000_000L / nanosActor, ventasActor);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void muchasMaquinasCompartenPocosHilos() throws Exception {
+        int maquinas = 10_000;
+        List<ActorMaquina> actores = new ArrayList<>(maquinas);
+        for (int i = 0; i < maquinas; i++) {
+            actores.add(new ActorMaquina(nuevaMaquina("MAQ-" + i), ejecutorActores, 64));
+        }
+
+        long inicio = System.nanoTime();
+        List<CompletableFuture<ResultadoOperacion>> resultados = new ArrayList<>(maquinas);
+        for (ActorMaquina actor : actores) {
+            actor.enviar(m -> m.seleccionarProducto("A1"));
+            actor.enviar(m -> m.insertarDinero(5000));
+            actor.enviar(MaquinaExpendedora::confirmarPago);
+            resultados.add(actor.enviar(MaquinaExpendedora::dispensarProducto));
+        }
+        resultados.forEach(CompletableFuture::join);
+        long nanos = System.nanoTime() - inicio;
+
+        for (ActorMaquina actor : actores) {
+            assertEquals(STOCK_INICIAL - 1, actor.getMaquina().getInventario().get("A1").getStock());
+        }
+        log.info("{} máquinas: {} ops/s", maquinas, maquinas * 4L * 1_000_000_000L / nanos);
+    }
+
+    /**
+     * Ejecuta ciclos de compra concurrentes y cuenta las ventas completadas
+     */
+    private long ejecutarCompras(Function<Function<MaquinaExpendedora, ResultadoOperacion>, ResultadoOperacion> ejecutar) throws Exception {
+        AtomicLong ventas = new AtomicLong();
+        ExecutorService clientes = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            tareas.add(clientes.submit(() -> {
+                for (int i = 0; i < CICLOS_POR_HILO; i++) {
+                    ejecutar.apply(m -> m.seleccionarProducto("A1"));
+                    ejecutar.apply(m -> m.insertarDinero(5000));
+                    ejecutar.apply(MaquinaExpendedora::confirmarPago);
+                    if (ejecutar.apply(MaquinaExpendedora::dispensarProducto).getCodigo() == CodigoResultado.PRODUCTO_DISPENSADO) {
+                        ventas.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        clientes.shutdown();
+        return ventas.get();
+    }
+
+    private MaquinaExpendedora nuevaMaquina(String id) {
+        MaquinaExpendedora maquina = new MaquinaExpendedora();
+        maquina.setId(id);
+        maquina.inicializarInventario(Map.of("A1", new Producto("A1", "Coca Cola", 2500.0, STOCK_INICIAL, "Bebida gaseosa 350ml")));
+        return maquina;
+    }
+}
@@ -0,0 +1,69 @@
+package com.discretas.maquinaexpendedora.actor;
+
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas del cierre del actor al trasladar su máquina: ningún comando modifica la máquina después de la copia.
+ */
+class ActorMaquinaTest {
+
+    private final Queue<Runnable> pendientes = new ArrayDeque<>();
+
+    private final MaquinaExpendedora maquina = new MaquinaExpendedora();
+
+    private final ActorMaquina actor = new ActorMaquina(maquina, pendientes::add, 64);
+
+    @Test
+    void losComandosEncoladosDetrasDeLaCopiaSeRechazan() {
+        CompletableFuture<Double> copia = actor.trasladar(MaquinaExpendedora::getDineroDisponible);
+        // Encolado antes de que el escritor tome la copia, pero ejecutado después
+        CompletableFuture<Double> tardio = actor.enviar(m -> {
+            m.setDineroDisponible(0);
+            return m.getDineroDisponible();
+        });
+        ejecutarPendientes();
+
+        double dinero = copia.join();
+        assertEquals(dinero, maquina.getDineroDisponible());
+        assertNoDisponible(tardio);
+        assertNoDisponible(actor.enviar(MaquinaExpendedora::getDineroDisponible));
+    }
+
+    @Test
+    void unTrasladoFallidoReabreElActor() {
+        CompletableFuture<Double> copia = actor.trasladar(m -> null);
+        CompletableFuture<String> siguiente = actor.enviar(MaquinaExpendedora::getEstadoActualNombre);
+        ejecutarPendientes();
+        assertEquals(null, copia.join());
+        assertEquals("SELECCIONANDO", siguiente.join());
+
+        actor.trasladar(MaquinaExpendedora::getDineroDisponible);
+        ejecutarPendientes();
+        actor.reabrir();
+        CompletableFuture<String> reabierto = actor.enviar(MaquinaExpendedora::getEstadoActualNombre);
+        ejecutarPendientes();
+        assertEquals("SELECCIONANDO", reabierto.join());
+    }
+
+    private void ejecutarPendientes() {
+        Runnable tarea;
+        while ((tarea = pendientes.poll()) != null) {
+            tarea.run();
+        }
+    }
+
+    private static void assertNoDisponible(CompletableFuture<?> futuro) {
+        CompletionException error = assertThrows(CompletionException.class, futuro::join);
+        assertInstanceOf(MaquinaNoDisponibleException.class, error.getCause());
+    }
+}
@@ -0,0 +1,47 @@
+package com.discretas.maquinaexpendedora.admision;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de la tabla acotada de cubetas: nunca supera su capacidad y solo reemplaza cubetas llenas.
+ */
+class TablaCubetasTest {
+
+    @Test
+    void comparteLaCubetaDeDesbordamientoSiNingunaEstaLlena() {
+        TablaCubetas tabla = new TablaCubetas(2, 1, 1);
+        long ahora = System.nanoTime();
+        tabla.obtener("cliente-1", ahora).intentarConsumir(ahora);
+        tabla.obtener("cliente-2", ahora).intentarConsumir(ahora);
+
+        CubetaTokens tercera = tabla.obtener("cliente-3", ahora);
+        assertSame(tercera, tabla.obtener("cliente-4", ahora));
+        assertEquals(2, tabla.tamanyo());
+    }
+
+    @Test
+    void reemplazaUnaCubetaLlena() {
+        TablaCubetas tabla = new TablaCubetas(2, 1, 1);
+        long ahora = System.nanoTime();
+        CubetaTokens primera = tabla.obtener("cliente-1", ahora);
+        tabla.obtener("cliente-2", ahora).intentarConsumir(ahora);
+
+        // cliente-1 no ha consumido, así que su cubeta está llena y se reemplaza
+        long despues = System.nanoTime();
+        CubetaTokens tercera = tabla.obtener("cliente-3", despues);
+        assertSame(tercera, tabla.obtener("cliente-3", despues));
+        assertNotSame(primera, tabla.obtener("cliente-1", System.nanoTime()));
+        assertEquals(2, tabla.tamanyo());
+    }
+
+    @Test
+    void rechazaUnaTasaNula() {
+        assertThrows(IllegalArgumentException.class, () -> new CubetaTokens(0, 10));
+        assertEquals(0, new CubetaTokens(1e-30, Integer.MAX_VALUE).intentarConsumir(System.nanoTime()));
+    }
+}
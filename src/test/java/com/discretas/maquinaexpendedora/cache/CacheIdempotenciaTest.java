@@ -0,0 +1,56 @@
+package com.discretas.maquinaexpendedora.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de la caché de idempotencia: una operación en curso nunca se desaloja y una clave
+ * reutilizada con otros parámetros no vuelve a ejecutar la operación.
+ */
+class CacheIdempotenciaTest {
+
+    private static final String RUTA = "MAQ-001/insertar-dinero";
+
+    private final AtomicInteger ejecuciones = new AtomicInteger();
+
+    @Test
+    void noDesalojaOperacionesEnCurso() {
+        CacheIdempotencia cache = new CacheIdempotencia(2, 300);
+        CompletableFuture<ResponseEntity<?>> primera = new CompletableFuture<>();
+        cache.resolverAsync("K-1", () -> RUTA, () -> "500", () -> primera);
+        cache.resolverAsync("K-2", () -> RUTA, () -> "500", CompletableFuture::new);
+
+        // Con las dos ranuras en curso la clave nueva se rechaza y la operación no se ejecuta
+        assertEquals(503, cache.resolverAsync("K-3", () -> RUTA, () -> "500", this::ejecutar).join().getStatusCode().value());
+        assertEquals(0, ejecuciones.get());
+
+        // El reintento de una clave en curso sigue esperando la operación original
+        CompletableFuture<ResponseEntity<?>> reintento = cache.resolverAsync("K-1", () -> RUTA, () -> "500", this::ejecutar);
+        primera.complete(ResponseEntity.ok("original"));
+        assertEquals("original", reintento.join().getBody());
+        assertEquals(0, ejecuciones.get());
+
+        // Terminada la primera, su ranura puede desalojarse
+        assertEquals(200, cache.resolverAsync("K-3", () -> RUTA, () -> "500", this::ejecutar).join().getStatusCode().value());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    void rechazaLaClaveReutilizadaConOtrosParametros() {
+        CacheIdempotencia cache = new CacheIdempotencia(16, 300);
+        assertEquals(200, cache.resolver("K-1", () -> RUTA, () -> "500", () -> ejecutar().join()).getStatusCode().value());
+        assertEquals(200, cache.resolver("K-1", () -> RUTA, () -> "500", () -> ejecutar().join()).getStatusCode().value());
+        assertEquals(422, cache.resolver("K-1", () -> RUTA, () -> "1000", () -> ejecutar().join()).getStatusCode().value());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    private CompletableFuture<ResponseEntity<?>> ejecutar() {
+        ejecuciones.incrementAndGet();
+        return CompletableFuture.completedFuture(ResponseEntity.ok("ejecutada"));
+    }
+}
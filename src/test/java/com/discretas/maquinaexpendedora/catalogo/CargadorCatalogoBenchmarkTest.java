@@ -0,0 +1,100 @@
+package com.discretas.maquinaexpendedora.catalogo;
+
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de rendimiento de la carga de un planograma de un millón de filas.
+ */
+@Slf4j
+class CargadorCatalogoBenchmarkTest {
+
+    private static final int PRODUCTOS = 2_000;
+
+    private static final int DESCRIPCIONES = 50;
+
+    private static final int CASILLAS = 12;
+
+    private static final int MAQUINAS = 83_334;
+
+    private static final String[] REGIONES = {"NORTE", "SUR", "ORIENTE", "OCCIDENTE", "CENTRO"};
+
+    private static final long LIMITE_CARGA_MS = 10_000;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    @Tag("benchmark")
+    void cargaUnPlanogramaDeUnMillonDeFilas() throws IOException {
+        Path catalogo = directorio.resolve("productos.csv");
+        try (BufferedWriter salida = Files.newBufferedWriter(catalogo, StandardCharsets.UTF_8)) {
+            salida.write("sku;nombre;precio;descripcion\n");
+            for (int i = 0; i < PRODUCTOS; i++) {
+                salida.write("SKU-" + i + ";Producto " + i + ";" + (1_000 + i % 40 * 100) + ";Descripción compartida " + i % DESCRIPCIONES + "\n");
+            }
+        }
+        Path planograma = directorio.resolve("planograma.csv");
+        try (BufferedWriter salida = Files.newBufferedWriter(planograma, StandardCharsets.UTF_8)) {
+            salida.write("idMaquina;region;casilla;sku;stock\r\n");
+            for (int m = 0; m < MAQUINAS; m++) {
+                String prefijo = "MAQ-" + m + ";" + REGIONES[m % REGIONES.length] + ";";
+                for (int c = 0; c < CASILLAS; c++) {
+                    String casilla = (char) ('A' + c / 3) + String.valueOf(c % 3 + 1);
+                    salida.write(prefijo + casilla + ";SKU-" + (m * 7 + c * 13) % PRODUCTOS + ";" + (5 + c) + "\r\n");
+                }
+            }
+            salida.write("MAQ-0;NORTE;Z9;SKU-INEXISTENTE;4\r\n");
+            salida.write("MAQ-0;NORTE;Z9;SKU-1;muchas\r\n");
+        }
+
+        CargadorCatalogo cargador = new CargadorCatalogo("", "", new DefaultResourceLoader(), null, null, null, Constants.Maquina.DINERO_INICIAL_DEFAULT);
+        long inicio = System.nanoTime();
+        Map<String, CargadorCatalogo.ProductoCatalogo> productos = cargador.leerCatalogo(new FileSystemResource(catalogo));
+        CargadorCatalogo.Planograma resultado = cargador.leerPlanograma(new FileSystemResource(planograma), productos);
+        long cargaMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        log.info("Planograma de {} casillas ({} MB) cargado en {} ms",
+
+                resultado.casillas(), Files.size(planograma) >> 20, cargaMs);
+        assertEquals(PRODUCTOS, productos.size());
+        assertEquals(MAQUINAS, resultado.maquinas().size());
+        assertEquals((long) MAQUINAS * CASILLAS, resultado.casillas());
+        assertEquals(2, resultado.filasInvalidas());
+        assertTrue(cargaMs < LIMITE_CARGA_MS, "La carga tomó " + cargaMs + " ms");
+
+        CargadorCatalogo.MaquinaPlanograma ultima = resultado.maquinas().get("MAQ-" + (MAQUINAS - 1));
+        assertNotNull(ultima);
+        assertEquals(REGIONES[(MAQUINAS - 1) % REGIONES.length], ultima.region());
+        Producto d3 = ultima.casillas().get("D3");
+        assertEquals(5 + CASILLAS - 1, d3.getStock());
+
+        // Las casillas con el mismo producto comparten el nombre y la descripción del catálogo
+        Producto a1 = resultado.maquinas().get("MAQ-0").casillas().get("A1");
+        Producto otraA1 = resultado.maquinas().get("MAQ-" + PRODUCTOS).casillas().get("A1");
+        assertEquals(a1.getNombre(), otraA1.getNombre());
+        assertSame(a1.getNombre(), otraA1.getNombre());
+        assertSame(productos.get("SKU-0").descripcion(), productos.get("SKU-" + DESCRIPCIONES).descripcion());
+        assertSame(productos.get("SKU-0").descripcion(), a1.getDescripcion());
+        assertSame(ultima.region(), resultado.maquinas().get("MAQ-" + (MAQUINAS - 1 - REGIONES.length)).region());
+    }
+}
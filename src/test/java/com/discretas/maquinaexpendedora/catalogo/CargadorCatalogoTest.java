@@ -0,0 +1,57 @@
+package com.discretas.maquinaexpendedora.catalogo;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de la carga del catálogo y del planograma en la flota.
+ */
+class CargadorCatalogoTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void aplicaElPlanogramaALaFlota() throws IOException {
+        Path planograma = directorio.resolve("planograma.csv");
+        Files.writeString(planograma, """
+                idMaquina;region;casilla;sku;stock
+                MAQ-001;CENTRO;A1;COCA-COLA-350;10
+                MAQ-001;CENTRO;A2;PEPSI-350;8
+                MAQ-002;NORTE;A1;AGUA-500;15
+
+                MAQ-002;NORTE;A2;NO-EXISTE;3
+                """, StandardCharsets.UTF_8);
+
+        MaquinaExpendedora principal = new MaquinaExpendedora();
+        FlotaMaquinas flota = new FlotaMaquinas(principal, 64);
+        try {
+            CargadorCatalogo cargador = new CargadorCatalogo("classpath:catalogo/productos.csv", planograma.toString(),
+                    new DefaultResourceLoader(), flota, null, new GestorCatalogo(flota), Constants.Maquina.DINERO_INICIAL_DEFAULT);
+            assertEquals(2, cargador.cargar());
+
+            assertEquals("CENTRO", principal.getRegion());
+            assertEquals(2, principal.getInventario().size());
+            assertEquals("Coca Cola", principal.getInventario().get("A1").getNombre());
+            assertEquals(2500.0, principal.getInventario().get("A1").getPrecio());
+
+            MaquinaExpendedora segunda = flota.obtener("MAQ-002").ejecutar(m -> m);
+            assertEquals("NORTE", segunda.getRegion());
+            assertEquals(1, segunda.getInventario().size());
+            assertEquals(15, segunda.getInventario().get("A1").getStock());
+        } finally {
+            flota.detener();
+        }
+    }
+}
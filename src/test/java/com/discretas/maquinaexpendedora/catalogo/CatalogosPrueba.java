@@ -0,0 +1,38 @@
+package com.discretas.maquinaexpendedora.catalogo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catálogos para las pruebas, con los SKU del inventario de {@link com.discretas.maquinaexpendedora.models.MaquinasPrueba}.
+ */
+final class CatalogosPrueba {
+
+    private CatalogosPrueba() {
+    }
+
+    /**
+     * Crea un catálogo con un producto por casilla, SKU-0, SKU-1..., todos con el mismo precio
+     * @param casillas Número de productos
+     * @param incremento Monto que se suma al precio del inventario de prueba
+     * @return Productos del catálogo
+     */
+    static List<CargadorCatalogo.ProductoCatalogo> catalogo(int casillas, double incremento) {
+        List<CargadorCatalogo.ProductoCatalogo> productos = new ArrayList<>();
+        for (int i = 0; i < casillas; i++) {
+            productos.add(new CargadorCatalogo.ProductoCatalogo("SKU-" + i, "Producto " + i, 2_000.0 + incremento, "Descripción " + i));
+        }
+        return productos;
+    }
+
+    /**
+     * Indexa los productos de un catálogo por su SKU
+     */
+    static Map<String, CargadorCatalogo.ProductoCatalogo> porSku(List<CargadorCatalogo.ProductoCatalogo> productos) {
+        Map<String, CargadorCatalogo.ProductoCatalogo> porSku = new HashMap<>();
+        productos.forEach(producto -> porSku.put(producto.sku(), producto));
+        return porSku;
+    }
+}
@@ -0,0 +1,63 @@
+package com.discretas.maquinaexpendedora.catalogo;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static com.discretas.maquinaexpendedora.catalogo.CatalogosPrueba.catalogo;
+import static com.discretas.maquinaexpendedora.catalogo.CatalogosPrueba.porSku;
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.inventario;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de rendimiento de la publicación en caliente del catálogo en una flota de 20.000 máquinas.
+ */
+@Slf4j
+class GestorCatalogoBenchmarkTest {
+
+    private static final int MAQUINAS = 20_000;
+
+    private static final int CASILLAS = 12;
+
+    private static final long LIMITE_PUBLICACION_MICROS = 200_000;
+
+    private final MaquinaExpendedora principal = new MaquinaExpendedora();
+
+    private final FlotaMaquinas flota = new FlotaMaquinas(principal, 64);
+
+    private final GestorCatalogo gestor = new GestorCatalogo(flota);
+
+    @AfterEach
+    void detener() {
+        flota.detener();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void publicaElCatalogoDeUnaFlotaGrandeEnMilisegundos() {
+        principal.inicializarInventario(inventario(CASILLAS));
+        for (int i = 1; i < MAQUINAS; i++) {
+            MaquinaExpendedora maquina = new MaquinaExpendedora();
+            maquina.setId("MAQ-" + i);
+            maquina.inicializarInventario(inventario(CASILLAS));
+            flota.registrar(maquina);
+        }
+        gestor.establecer(porSku(catalogo(CASILLAS, 0)));
+        gestor.publicar(catalogo(CASILLAS, 100)).join();
+
+        GestorCatalogo.PublicacionCatalogo publicacion = gestor.publicar(catalogo(CASILLAS, 200)).join();
+
+        log.info("Catálogo publicado en {} µs y aplicado a {} casillas de {} máquinas en {} ms",
+
+                publicacion.getPublicacionMicros(), publicacion.getCasillasActualizadas(), publicacion.getMaquinas(), publicacion.getPropagacionMs());
+        assertTrue(publicacion.isPublicada());
+        assertEquals((long) MAQUINAS * CASILLAS, publicacion.getCasillasActualizadas());
+        assertEquals(2_200.0, flota.obtener("MAQ-" + (MAQUINAS - 1)).ejecutar(m -> m.getInventario().get("A1").getPrecio()));
+        assertTrue(publicacion.getPublicacionMicros() < LIMITE_PUBLICACION_MICROS,
+                "La publicación tomó " + publicacion.getPublicacionMicros() + " µs");
+    }
+}
@@ -0,0 +1,79 @@
+package com.discretas.maquinaexpendedora.catalogo;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.discretas.maquinaexpendedora.catalogo.CatalogosPrueba.catalogo;
+import static com.discretas.maquinaexpendedora.catalogo.CatalogosPrueba.porSku;
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.inventario;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la publicación en caliente del catálogo: precios de la compra en curso y catálogos inválidos.
+ */
+class GestorCatalogoTest {
+
+    private static final int CASILLAS = 12;
+
+    private final MaquinaExpendedora principal = new MaquinaExpendedora();
+
+    private final FlotaMaquinas flota = new FlotaMaquinas(principal, 64);
+
+    private final GestorCatalogo gestor = new GestorCatalogo(flota);
+
+    @AfterEach
+    void detener() {
+        flota.detener();
+    }
+
+    @Test
+    void laTransaccionEnCursoConservaSuPrecio() {
+        principal.inicializarInventario(inventario(CASILLAS));
+        gestor.establecer(porSku(catalogo(CASILLAS, 0)));
+        ActorMaquina actor = flota.getPrincipal();
+
+        actor.ejecutar(m -> m.seleccionarProducto("A1"));
+        GestorCatalogo.PublicacionCatalogo publicacion = gestor.publicar(catalogo(CASILLAS, 500)).join();
+        assertTrue(publicacion.isPublicada());
+        assertEquals(2, publicacion.getVersion());
+        assertEquals(CASILLAS, publicacion.getCasillasActualizadas());
+
+        // El precio nuevo ya está en la casilla, pero la compra en curso se cobra con el anterior
+        assertEquals(2_500.0, actor.ejecutar(m -> m.getInventario().get("A1").getPrecio()));
+        actor.ejecutar(m -> m.insertarDinero(2_000));
+        assertEquals("PROCESANDO_PAGO", actor.ejecutar(MaquinaExpendedora::getEstadoActualNombre));
+        Transaccion transaccion = actor.ejecutar(m -> m.getTransaccionActual().copiar());
+        assertEquals(2_000.0, transaccion.getPrecio());
+        actor.ejecutar(MaquinaExpendedora::cancelarTransaccion);
+
+        actor.ejecutar(m -> m.seleccionarProducto("A1"));
+        actor.ejecutar(m -> m.insertarDinero(2_000));
+        assertEquals("ESPERANDO_PAGO", actor.ejecutar(MaquinaExpendedora::getEstadoActualNombre));
+    }
+
+    @Test
+    void rechazaUnCatalogoInvalido() {
+        principal.inicializarInventario(inventario(CASILLAS));
+        gestor.establecer(porSku(catalogo(CASILLAS, 0)));
+
+        List<CargadorCatalogo.ProductoCatalogo> productos = new ArrayList<>(catalogo(CASILLAS, 0));
+        productos.remove(0);
+        productos.add(new CargadorCatalogo.ProductoCatalogo("SKU-1", "Repetido", 1_000, "Repetido"));
+        productos.add(new CargadorCatalogo.ProductoCatalogo("SKU-NUEVO", "Gratis", 0, "Sin precio"));
+
+        GestorCatalogo.PublicacionCatalogo publicacion = gestor.publicar(productos).join();
+        assertFalse(publicacion.isPublicada());
+        assertEquals(3, publicacion.getErrores().size());
+        assertEquals(1, gestor.getVigente().version());
+        assertEquals(2_000.0, principal.getInventario().get("A1").getPrecio());
+    }
+}
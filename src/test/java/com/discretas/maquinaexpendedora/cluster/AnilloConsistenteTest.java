@@ -0,0 +1,80 @@
+package com.discretas.maquinaexpendedora.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del reparto del anillo de hash consistente: equilibrio entre nodos y pocas máquinas
+ * trasladadas al cambiar la membresía.
+ */
+@Slf4j
+class AnilloConsistenteTest {
+
+    private static final int MAQUINAS = 100_000;
+
+    private static final int VIRTUALES = 128;
+
+    @Test
+    void reparteParejoYTrasladaSoloLaParteDelNodoNuevo() {
+        AnilloConsistente anillo = new AnilloConsistente(nodos(4), VIRTUALES);
+        Map<String, Integer> porNodo = new HashMap<>();
+        for (int i = 0; i < MAQUINAS; i++) {
+            porNodo.merge(anillo.propietario(idMaquina(i)), 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> nodo : porNodo.entrySet()) {
+            double proporcion = nodo.getValue() * 4.0 / MAQUINAS;
+            assertTrue(proporcion > 0.75 && proporcion < 1.25, nodo.getKey() + " recibió " + nodo.getValue() + " máquinas");
+        }
+
+        AnilloConsistente ampliado = anillo.conNodo("nodo-4", "http://localhost:5004");
+        int trasladadas = 0;
+        for (int i = 0; i < MAQUINAS; i++) {
+            String antes = anillo.propietario(idMaquina(i));
+            String despues = ampliado.propietario(idMaquina(i));
+            if (!antes.equals(despues)) {
+                assertEquals("nodo-4", despues, "Solo deben moverse máquinas hacia el nodo nuevo");
+                trasladadas++;
+            }
+        }
+        double fraccion = (double) trasladadas / MAQUINAS;
+        log.info("Al agregar un quinto nodo se trasladan {}% de las máquinas", String.format("%.1f", fraccion * 100));
+        assertTrue(fraccion > 0.15 && fraccion < 0.25, "Se trasladó el " + fraccion + " de las máquinas");
+
+        AnilloConsistente reducido = ampliado.sinNodo("nodo-4");
+        for (int i = 0; i < MAQUINAS; i += 97) {
+            assertEquals(anillo.propietario(idMaquina(i)), reducido.propietario(idMaquina(i)));
+        }
+    }
+
+    @Test
+    void todosLosNodosCoincidenSinImportarElOrdenDeLaMembresia() {
+        Map<String, String> invertidos = new LinkedHashMap<>();
+        for (int n = 3; n >= 0; n--) {
+            invertidos.put("nodo-" + n, "http://localhost:500" + n);
+        }
+        AnilloConsistente anillo = new AnilloConsistente(nodos(4), VIRTUALES);
+        AnilloConsistente otro = new AnilloConsistente(invertidos, VIRTUALES);
+        for (int i = 0; i < MAQUINAS; i += 13) {
+            assertEquals(anillo.propietario(idMaquina(i)), otro.propietario(idMaquina(i)));
+        }
+    }
+
+    private static Map<String, String> nodos(int cantidad) {
+        Map<String, String> nodos = new LinkedHashMap<>();
+        for (int n = 0; n < cantidad; n++) {
+            nodos.put("nodo-" + n, "http://localhost:500" + n);
+        }
+        return nodos;
+    }
+
+    private static String idMaquina(int i) {
+        return String.format("MAQ-%06d", i);
+    }
+}
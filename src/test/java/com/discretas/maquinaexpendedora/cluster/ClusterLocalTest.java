@@ -0,0 +1,215 @@
+package com.discretas.maquinaexpendedora.cluster;
+
+import com.discretas.maquinaexpendedora.MaquinaExpendedoraApplication;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de un clúster de dos nodos en localhost: cada nodo carga solo sus máquinas, cualquier nodo
+ * atiende las solicitudes de cualquier máquina y las máquinas se trasladan con su estado al entrar
+ * y salir un nodo.
+ */
+@Slf4j
+class ClusterLocalTest {
+
+    private static final int MAQUINAS = 40;
+
+    private static final String CONTEXTO = "/maquinaexpendedora";
+
+    private static final String SECRETO = "secreto-de-prueba";
+
+    @TempDir
+    Path directorio;
+
+    private final List<ConfigurableApplicationContext> nodos = new ArrayList<>();
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @AfterEach
+    void detener() {
+        nodos.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void reparteEnrutaYTrasladaLasMaquinasEntreNodos() throws Exception {
+        Path planograma = escribirPlanograma();
+        int puertoA = puertoLibre();
+        int puertoB = puertoLibre();
+        String urlA = "http://localhost:" + puertoA + CONTEXTO;
+        String urlB = "http://localhost:" + puertoB + CONTEXTO;
+
+        // El nodo A arranca solo y gobierna toda la flota
+        ConfigurableApplicationContext nodoA = arrancar("a", puertoA, "a=" + urlA, planograma);
+        FlotaMaquinas flotaA = nodoA.getBean(FlotaMaquinas.class);
+        assertEquals(MAQUINAS + 1, flotaA.getActores().size());
+
+        // Una compra en una máquina que pasará al nodo B, para comprobar que viaja con su estado
+        Map<String, String> dosNodos = new LinkedHashMap<>();
+        dosNodos.put("a", urlA);
+        dosNodos.put("b", urlB);
+        AnilloConsistente anillo = new AnilloConsistente(dosNodos, 128);
+        String trasladada = null;
+        for (int i = 0; i < MAQUINAS && trasladada == null; i++) {
+            if ("b".equals(anillo.propietario(idMaquina(i)))) {
+                trasladada = idMaquina(i);
+            }
+        }
+        assertNotNull(trasladada);
+        comprar(urlA, trasladada);
+        assertEquals(9, stockA1(urlA, trasladada));
+
+        // Al arrancar B, carga solo sus máquinas y A le traslada las que le pertenecen
+        ConfigurableApplicationContext nodoB = arrancar("b", puertoB, "a=" + urlA + ",b=" + urlB, planograma);
+        FlotaMaquinas flotaB = nodoB.getBean(FlotaMaquinas.class);
+        String idTrasladada = trasladada;
+        GestorCluster gestorB = nodoB.getBean(GestorCluster.class);
+        esperar(() -> flotaA.obtener(idTrasladada) == null && gestorB.obtenerEstado().getMaquinasRecibidas() > 0);
+        int enB = flotaB.getActores().size() - 1;
+        int enA = flotaA.getActores().size() - 1;
+        log.info("Reparto de {} máquinas entre dos nodos: A {}, B {}", MAQUINAS, enA, enB);
+        assertEquals(MAQUINAS, enA + enB);
+        assertTrue(enA > 0 && enB > 0);
+
+        // Cualquier nodo atiende la máquina: A reenvía a B, que conserva la compra hecha en A
+        assertEquals(9, stockA1(urlA, trasladada));
+        assertEquals(9, stockA1(urlB, trasladada));
+        comprar(urlA, trasladada);
+        assertEquals(8, stockA1(urlB, trasladada));
+
+        // Las rutas internas exigen el secreto del clúster
+        URI rutaNodoB = URI.create(urlB + Constants.Global.API_BASE_PATH + Constants.Cluster.CLUSTER_SERVICE_PATH + "/nodos/b");
+        HttpResponse<String> sinSecreto = cliente.send(HttpRequest.newBuilder(rutaNodoB)
+                .header(Constants.Global.CLUSTER_SECRET_HEADER, "otro").DELETE().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(403, sinSecreto.statusCode());
+
+        // Al retirarse B, sus máquinas vuelven a A con su estado
+        HttpResponse<String> retiro = cliente.send(HttpRequest.newBuilder(rutaNodoB)
+                .header(Constants.Global.CLUSTER_SECRET_HEADER, SECRETO).DELETE().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, retiro.statusCode());
+        esperar(() -> flotaA.getActores().size() == MAQUINAS + 1);
+        assertEquals(8, stockA1(urlA, trasladada));
+        assertEquals(1, flotaB.getActores().size());
+    }
+
+    private ConfigurableApplicationContext arrancar(String id, int puerto, String miembros, Path planograma) {
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(MaquinaExpendedoraApplication.class).run(
+                "--server.port=" + puerto,
+                "--maquina.cluster.nodo-id=" + id,
+                "--maquina.cluster.nodos=" + miembros,
+                "--maquina.cluster.reintento-ms=100",
+                "--maquina.catalogo.planograma=" + planograma,
+                "--maquina.cluster.secreto=" + SECRETO,
+                "--maquina.admision.habilitada=false",
+                "--maquina.dispensador.latencia-ms=10",
+                "--maquina.instantanea.ruta=",
+                "--maquina.diario.ruta=",
+                "--maquina.promociones.ruta=",
+                "--spring.jmx.enabled=false");
+        nodos.add(contexto);
+        MaquinaExpendedoraApplication.iniciar(contexto);
+        return contexto;
+    }
+
+    /**
+     * Compra el producto A1 de una máquina y espera a que se dispense
+     */
+    private void comprar(String url, String idMaquina) throws Exception {
+        String base = url + Constants.Global.API_BASE_PATH + Constants.Maquina.MAQUINA_SERVICE_PATH;
+        enviar(idMaquina, "POST", base + Constants.Maquina.MAQUINA_SERVICE_PATH_SELECT + "/A1");
+        enviar(idMaquina, "POST", base + Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY + "/5000");
+        enviar(idMaquina, "POST", base + Constants.Maquina.MAQUINA_SERVICE_PATH_CONFIRM_PAYMENT);
+        String ticket = enviar(idMaquina, "POST", base + Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE).path("data").path("id").asText();
+        esperar(() -> {
+            try {
+                return "COMPLETADO".equals(enviar(idMaquina, "GET", base + Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE
+                        + "/" + ticket).path("data").path("estado").asText());
+            } catch (Exception e) {
+                return false;
+            }
+        });
+    }
+
+    private int stockA1(String url, String idMaquina) throws Exception {
+        JsonNode productos = enviar(idMaquina, "GET", url + Constants.Global.API_BASE_PATH + Constants.Maquina.MAQUINA_SERVICE_PATH
+                + Constants.Maquina.MAQUINA_SERVICE_PATH_PRODUCTS).path("data");
+        for (JsonNode producto : productos) {
+            if ("A1".equals(producto.path("codigo").asText())) {
+                return producto.path("stock").asInt();
+            }
+        }
+        return -1;
+    }
+
+    private JsonNode enviar(String idMaquina, String metodo, String url) throws Exception {
+        HttpRequest solicitud = HttpRequest.newBuilder(URI.create(url))
+                .header(Constants.Global.MACHINE_ID_HEADER, idMaquina)
+                .method(metodo, HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> respuesta = cliente.send(solicitud, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, respuesta.statusCode(), respuesta.body());
+        return objectMapper.readTree(respuesta.body());
+    }
+
+    private Path escribirPlanograma() throws Exception {
+        StringBuilder contenido = new StringBuilder("idMaquina;region;casilla;sku;stock\n");
+        for (int i = 0; i < MAQUINAS; i++) {
+            contenido.append(idMaquina(i)).append(";GENERAL;A1;COCA-COLA-350;10\n");
+            contenido.append(idMaquina(i)).append(";GENERAL;A2;PEPSI-350;10\n");
+        }
+        Path planograma = directorio.resolve("planograma.csv");
+        Files.writeString(planograma, contenido, StandardCharsets.UTF_8);
+        return planograma;
+    }
+
+    private static String idMaquina(int i) {
+        return String.format("MAQ-%03d", 100 + i);
+    }
+
+    private static int puertoLibre() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void esperar(BooleanSupplier condicion) {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "La condición no se cumplió a tiempo");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.discretas.maquinaexpendedora.events;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del bus de eventos: publicar nunca bloquea ni falla; con el anillo lleno o el bus detenido
+ * el evento se descarta y se cuenta.
+ */
+class BusEventosTest {
+
+    @Test
+    void descartaSinBloquearConElAnilloLleno() throws Exception {
+        CountDownLatch enConsumidor = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        DefaultListableBeanFactory fabrica = new DefaultListableBeanFactory();
+        fabrica.registerSingleton("consumidorLento", (ConsumidorEventos) (evento, finDeLote) -> {
+            enConsumidor.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        BusEventos bus = new BusEventos(4, fabrica.getBeanProvider(ConsumidorEventos.class));
+        bus.start();
+        try {
+            assertEquals(0, bus.publicar(TipoEvento.DINERO_INSERTADO, "MAQ-001", "centro", null, 500));
+            enConsumidor.await();
+            for (int i = 1; i <= 2; i++) {
+                assertEquals(i, bus.publicar(TipoEvento.DINERO_INSERTADO, "MAQ-001", "centro", null, 500));
+            }
+            assertEquals(-1, bus.publicar(TipoEvento.DINERO_INSERTADO, "MAQ-001", "centro", null, 500));
+            assertEquals(1, bus.getDescartados());
+            assertEquals(2, bus.getUltimaSecuencia());
+        } finally {
+            liberar.countDown();
+            bus.stop();
+        }
+    }
+
+    @Test
+    void descartaConElBusDetenido() {
+        BusEventos bus = new BusEventos(4, new DefaultListableBeanFactory().getBeanProvider(ConsumidorEventos.class));
+        assertEquals(-1, bus.publicar(TipoEvento.DINERO_INSERTADO, "MAQ-001", "centro", null, 500));
+        assertEquals(1, bus.getDescartados());
+        assertTrue(bus.getUltimaSecuencia() < 0);
+    }
+}
@@ -0,0 +1,87 @@
+package com.discretas.maquinaexpendedora.events;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del motor de alertas sobre ventanas deslizantes.
+ */
+class MotorAlertasTest {
+
+    private static final long MINUTO = 60_000L;
+
+    private MotorAlertas motor;
+
+    @BeforeEach
+    void iniciar() {
+        // Ventana de 60 minutos en 12 cubetas, alerta si se agota antes de 120 minutos
+        motor = new MotorAlertas(60, 12, 120, 0.5, 5, 200, 64);
+    }
+
+    @Test
+    void proyectaElAgotamientoSegunLaVelocidadDeVenta() {
+        // Una venta cada 10 minutos con mucho stock: no hay alerta
+        for (int i = 0; i < 6; i++) {
+            motor.procesar(evento(TipoEvento.PRODUCTO_DISPENSADO, i * 10 * MINUTO, 100 - i), false);
+        }
+        assertTrue(motor.obtenerAlertas(0).isEmpty());
+
+        // Con 6 ventas por hora, 10 unidades duran ~100 minutos: se alerta una sola vez
+        motor.procesar(evento(TipoEvento.PRODUCTO_DISPENSADO, 60 * MINUTO, 10), false);
+        motor.procesar(evento(TipoEvento.PRODUCTO_DISPENSADO, 61 * MINUTO, 9), false);
+        List<MotorAlertas.Alerta> alertas = motor.obtenerAlertas(0);
+        assertEquals(1, alertas.size());
+        assertEquals(MotorAlertas.TipoAlerta.AGOTAMIENTO_PROYECTADO, alertas.get(0).getTipo());
+        assertEquals("A1", alertas.get(0).getCodigoProducto());
+        assertTrue(alertas.get(0).getMsHastaAgotamiento() < 120 * MINUTO);
+
+        motor.procesar(evento(TipoEvento.PRODUCTO_DISPENSADO, 62 * MINUTO, 0), false);
+        alertas = motor.obtenerAlertas(alertas.get(0).getSecuencia());
+        assertEquals(1, alertas.size());
+        assertEquals(MotorAlertas.TipoAlerta.PRODUCTO_AGOTADO, alertas.get(0).getTipo());
+    }
+
+    @Test
+    void lasVentasAntiguasSalenDeLaVentana() {
+        for (int i = 0; i < 30; i++) {
+            motor.procesar(evento(TipoEvento.PRODUCTO_DISPENSADO, i * MINUTO, 200), false);
+        }
+        assertEquals(0, motor.obtenerAlertas(0).size());
+
+        // Tres horas después la ventana está vacía: una venta aislada no proyecta agotamiento
+        motor.procesar(evento(TipoEvento.PRODUCTO_DISPENSADO, 240 * MINUTO, 20), false);
+        assertEquals(0, motor.obtenerAlertas(0).size());
+    }
+
+    @Test
+    void detectaTasaDeCancelacionAnomalaYFaltaDeCambio() {
+        motor.procesar(evento(TipoEvento.PRODUCTO_DISPENSADO, 0, 50), false);
+        for (int i = 1; i <= 4; i++) {
+            motor.procesar(evento(TipoEvento.TRANSACCION_CANCELADA, i * MINUTO, 50), false);
+        }
+        motor.procesar(evento(TipoEvento.TRANSACCION_CANCELADA, 5 * MINUTO, 50), false);
+        motor.procesar(evento(TipoEvento.SIN_CAMBIO, 6 * MINUTO, 50), true);
+
+        List<MotorAlertas.Alerta> alertas = motor.obtenerAlertas(0);
+        assertEquals(2, alertas.size());
+        assertEquals(MotorAlertas.TipoAlerta.TASA_CANCELACION_ANOMALA, alertas.get(0).getTipo());
+        assertTrue(alertas.get(0).getTasaCancelacion() >= 0.5);
+        assertEquals(MotorAlertas.TipoAlerta.SIN_CAMBIO, alertas.get(1).getTipo());
+    }
+
+    private static EventoMaquina evento(TipoEvento tipo, long timestamp, int stockRestante) {
+        EventoMaquina evento = new EventoMaquina();
+        evento.setTipo(tipo);
+        evento.setTimestamp(timestamp);
+        evento.setIdMaquina("MAQ-001");
+        evento.setIdTransaccion("T-" + timestamp);
+        evento.setCodigoProducto("A1");
+        evento.setStockRestante(stockRestante);
+        return evento;
+    }
+}
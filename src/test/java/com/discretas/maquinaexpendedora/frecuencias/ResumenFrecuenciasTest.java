@@ -0,0 +1,125 @@
+package com.discretas.maquinaexpendedora.frecuencias;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del resumen de frecuencias (Count-Min Sketch + Space-Saving) sobre ventas sesgadas.
+ */
+class ResumenFrecuenciasTest {
+
+    private static final int PRODUCTOS = 10_000;
+
+    private static final int VENTAS = 400_000;
+
+    private static final int REGIONES = 4;
+
+    private static final int TOP = 10;
+
+    private static final double[] PESOS = new double[PRODUCTOS];
+
+    private static final double ARMONICO;
+
+    static {
+        double suma = 0;
+        for (int k = 0; k < PRODUCTOS; k++) {
+            PESOS[k] = 1.0 / Math.pow(k + 1, 1.1);
+            suma += PESOS[k];
+        }
+        ARMONICO = suma;
+    }
+
+    @Test
+    void lasClavesConElMismoHashCodeNoCoincidenEnTodasLasFilas() {
+        // "Aa" y "BB" tienen el mismo String.hashCode(), igual que cualquier combinación de esos bloques
+        assertEquals("AaAa".hashCode(), "BBBB".hashCode());
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+        sketch.sumar("AaAa", 1_000);
+        sketch.sumar("AaBB", 1_000);
+
+        assertEquals(1_000, sketch.estimar("AaAa"));
+        assertEquals(0, sketch.estimar("BBBB"));
+        assertEquals(0, sketch.estimar("BBAa"));
+    }
+
+    @Test
+    void encuentraLosMasVendidosConCotasCorrectas() {
+        Map<String, Long> exactos = new HashMap<>();
+        ResumenFrecuencias resumen = new ResumenFrecuencias(4, 1024, 64);
+        Random aleatorio = new Random(7);
+        for (int i = 0; i < VENTAS; i++) {
+            String producto = productoZipf(aleatorio);
+            exactos.merge(producto, 1L, Long::sum);
+            resumen.sumar(producto, 1);
+        }
+
+        List<ResumenFrecuencias.Frecuente> top = resumen.top(TOP);
+        assertEquals(TOP, top.size());
+        for (int i = 0; i < TOP; i++) {
+            ResumenFrecuencias.Frecuente frecuente = top.get(i);
+            long real = exactos.get(frecuente.getClave());
+            assertEquals("P" + i, frecuente.getClave());
+            assertTrue(frecuente.getConteoMinimo() <= real && real <= frecuente.getConteoEstimado(),
+                    frecuente + " no acota " + real);
+        }
+        assertTrue(resumen.getSketch().estimar("P0") >= exactos.get("P0"));
+    }
+
+    @Test
+    void laFusionDeRegionesEquivaleAlResumenDeLaFlota() throws Exception {
+        ResumenFrecuencias flota = new ResumenFrecuencias(4, 1024, 64);
+        ResumenFrecuencias[] regiones = new ResumenFrecuencias[REGIONES];
+        for (int r = 0; r < REGIONES; r++) {
+            regiones[r] = new ResumenFrecuencias(4, 1024, 64);
+        }
+        Map<String, Long> exactos = new HashMap<>();
+        Random aleatorio = new Random(11);
+        for (int i = 0; i < VENTAS; i++) {
+            String producto = productoZipf(aleatorio);
+            exactos.merge(producto, 1L, Long::sum);
+            flota.sumar(producto, 1);
+            regiones[i % REGIONES].sumar(producto, 1);
+        }
+
+        // Los resúmenes viajan entre nodos como JSON
+        ObjectMapper objectMapper = new ObjectMapper();
+        ResumenFrecuencias fusion = new ResumenFrecuencias(4, 1024, 64);
+        for (ResumenFrecuencias region : regiones) {
+            fusion.fusionar(objectMapper.readValue(objectMapper.writeValueAsBytes(region), ResumenFrecuencias.class));
+        }
+
+        assertEquals(flota.getSketch().getTotal(), fusion.getSketch().getTotal());
+        assertEquals(flota.getSketch().estimar("P3"), fusion.getSketch().estimar("P3"));
+        List<ResumenFrecuencias.Frecuente> top = fusion.top(TOP);
+        for (int i = 0; i < TOP; i++) {
+            ResumenFrecuencias.Frecuente frecuente = top.get(i);
+            long real = exactos.get(frecuente.getClave());
+            assertEquals("P" + i, frecuente.getClave());
+            assertTrue(frecuente.getConteoMinimo() <= real && real <= frecuente.getConteoEstimado(),
+                    frecuente + " no acota " + real);
+        }
+    }
+
+    /**
+     * Elige un producto con distribución de Zipf (s = 1.1): pocos productos concentran la mayoría de ventas
+     */
+    private static String productoZipf(Random aleatorio) {
+        double u = aleatorio.nextDouble() * ARMONICO;
+        double acumulado = 0;
+        for (int k = 0; k < PRODUCTOS; k++) {
+            acumulado += PESOS[k];
+            if (acumulado >= u) {
+                return "P" + k;
+            }
+        }
+        return "P" + (PRODUCTOS - 1);
+    }
+}
@@ -0,0 +1,58 @@
+package com.discretas.maquinaexpendedora.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fábrica de máquinas e inventarios para las pruebas, para que cada prueba no repita cómo se arma su inventario.
+ */
+public final class MaquinasPrueba {
+
+    private static final double PRECIO = 2_000.0;
+
+    private static final int STOCK = 10;
+
+    private MaquinasPrueba() {
+    }
+
+    /**
+     * Crea un inventario de casillas A1, A2, A3, B1... con el mismo precio y stock, y con SKU SKU-0, SKU-1...
+     * en el mismo orden
+     * @param casillas Número de casillas
+     * @return Productos por código de casilla
+     */
+    public static Map<String, Producto> inventario(int casillas) {
+        Map<String, Producto> productos = new HashMap<>();
+        for (int i = 0; i < casillas; i++) {
+            String casilla = (char) ('A' + i / 3) + String.valueOf(i % 3 + 1);
+            productos.put(casilla, new Producto(casilla, "Producto " + i, PRECIO, STOCK, "Descripción " + i, "SKU-" + i));
+        }
+        return productos;
+    }
+
+    /**
+     * Crea el producto de una casilla
+     * @param codigo Código de la casilla
+     * @param precio Precio del producto
+     * @param stock Unidades en la casilla
+     * @return Producto sin SKU
+     */
+    public static Producto producto(String codigo, double precio, int stock) {
+        return new Producto(codigo, "Producto " + codigo, precio, stock, "Descripción " + codigo);
+    }
+
+    /**
+     * Crea una máquina sin bus de eventos con los productos indicados
+     * @param productos Productos de la máquina, cada uno en la casilla de su código
+     * @return Máquina con el inventario cargado
+     */
+    public static MaquinaExpendedora maquina(Producto... productos) {
+        Map<String, Producto> inventario = new HashMap<>();
+        for (Producto producto : productos) {
+            inventario.put(producto.getCodigo(), producto);
+        }
+        MaquinaExpendedora maquina = new MaquinaExpendedora();
+        maquina.inicializarInventario(inventario);
+        return maquina;
+    }
+}
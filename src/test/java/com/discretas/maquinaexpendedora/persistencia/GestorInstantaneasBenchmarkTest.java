@@ -0,0 +1,67 @@
+package com.discretas.maquinaexpendedora.persistencia;
+
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.inventario;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de rendimiento de la escritura de la instantánea y del arranque de una flota de 50.000 máquinas.
+ */
+@Slf4j
+class GestorInstantaneasBenchmarkTest {
+
+    private static final int MAQUINAS = 50_000;
+
+    private static final long LIMITE_ARRANQUE_MS = 5_000;
+
+    @TempDir
+    Path directorio;
+
+    private NodosPrueba nodos;
+
+    @BeforeEach
+    void crear() {
+        nodos = new NodosPrueba(directorio);
+    }
+
+    @AfterEach
+    void detener() {
+        nodos.detener();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void arrancaUnaFlotaGrandeEnPocosSegundos() throws Exception {
+        NodosPrueba.Nodo original = nodos.nuevoNodo(null);
+        for (int i = 1; i < MAQUINAS; i++) {
+            MaquinaExpendedora maquina = new MaquinaExpendedora(original.bus());
+            maquina.setId(String.format("MAQ-%06d", i));
+            maquina.inicializarInventario(inventario(NodosPrueba.CASILLAS));
+            original.flota().registrar(maquina);
+        }
+        long inicioEscritura = System.nanoTime();
+        int escritas = original.gestor().tomarInstantanea();
+        long escrituraMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioEscritura);
+
+        long inicioArranque = System.nanoTime();
+        NodosPrueba.Nodo recuperado = nodos.nuevoNodo(null);
+        long arranqueMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioArranque);
+
+        log.info("Instantánea de {} máquinas: escritura {} ms, arranque {} ms", escritas, escrituraMs, arranqueMs);
+        assertEquals(MAQUINAS, escritas);
+        assertEquals(MAQUINAS, recuperado.flota().getActores().size());
+        assertEquals(Integer.valueOf(10), recuperado.flota().obtener("MAQ-049999").ejecutar(m -> m.getInventario().get("A1").getStock()));
+        assertTrue(arranqueMs < LIMITE_ARRANQUE_MS, "El arranque tomó " + arranqueMs + " ms");
+    }
+}
@@ -0,0 +1,119 @@
+package com.discretas.maquinaexpendedora.persistencia;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la recuperación desde una instantánea binaria más la cola del diario.
+ */
+class GestorInstantaneasTest {
+
+    @TempDir
+    Path directorio;
+
+    private NodosPrueba nodos;
+
+    @BeforeEach
+    void crear() {
+        nodos = new NodosPrueba(directorio);
+    }
+
+    @AfterEach
+    void detener() {
+        nodos.detener();
+    }
+
+    @Test
+    void recuperaLaInstantaneaYLaColaDelDiario() throws Exception {
+        NodosPrueba.Nodo original = nodos.nuevoNodo(directorio.resolve("diario.log"));
+        ActorMaquina actor = original.flota().getPrincipal();
+        comprar(actor, "A1");
+        original.esperarBus();
+        original.gestor().tomarInstantanea();
+
+        // Eventos posteriores a la instantánea: una compra completa y otra a medias
+        comprar(actor, "A1");
+        actor.ejecutar(m -> m.seleccionarProducto("B1"));
+        actor.ejecutar(m -> m.insertarDinero(1_000));
+        original.esperarBus();
+        double dinero = actor.ejecutar(MaquinaExpendedora::getDineroDisponible);
+        long ultimaSecuencia = original.bus().getUltimaSecuencia();
+        original.bus().stop();
+
+        NodosPrueba.Nodo recuperado = nodos.nuevoNodo(directorio.resolve("diario.log"));
+        MaquinaExpendedora maquina = recuperado.principal();
+        assertEquals(8, maquina.getInventario().get("A1").getStock());
+        assertEquals(dinero, maquina.getDineroDisponible());
+        assertEquals(2, maquina.getHistorialTransacciones().size());
+        assertEquals("ESPERANDO_PAGO", maquina.getEstadoActualNombre());
+        Transaccion enCurso = maquina.getTransaccionActual();
+        assertNotNull(enCurso);
+        assertEquals(1_000, enCurso.getMontoPagado());
+        assertTrue(enCurso.getProducto() == maquina.getInventario().get("B1"));
+        assertEquals(2L, recuperado.agregados().obtenerResumen().getTransaccionesCompletadas());
+        assertEquals(ultimaSecuencia, recuperado.bus().getUltimaSecuencia());
+
+        // La compra en curso se completa sobre el estado recuperado y las secuencias continúan
+        ActorMaquina actorRecuperado = recuperado.flota().getPrincipal();
+        actorRecuperado.ejecutar(m -> m.insertarDinero(1_000));
+        actorRecuperado.ejecutar(MaquinaExpendedora::confirmarPago);
+        actorRecuperado.ejecutar(MaquinaExpendedora::dispensarProducto);
+        assertEquals(9, maquina.getInventario().get("B1").getStock());
+        assertTrue(maquina.getUltimaSecuenciaEvento() > ultimaSecuencia);
+    }
+
+    @Test
+    void recuperaUnCarritoAMitadDeDispensar() throws Exception {
+        NodosPrueba.Nodo original = nodos.nuevoNodo(directorio.resolve("diario.log"));
+        ActorMaquina actor = original.flota().getPrincipal();
+        actor.ejecutar(m -> m.agregarProductos(List.of("A1", "A2", "A3")));
+        original.esperarBus();
+        original.gestor().tomarInstantanea();
+
+        // Después de la instantánea se paga y se dispensan dos de los tres productos, uno con falla
+        actor.ejecutar(m -> m.insertarDinero(10_000));
+        actor.ejecutar(MaquinaExpendedora::confirmarPago);
+        actor.ejecutar(m -> m.iniciarDispensacion("T-1"));
+        actor.ejecutar(m -> m.completarDispensacion("T-1", true));
+        actor.ejecutar(m -> m.completarDispensacion("T-1", false));
+        original.esperarBus();
+        original.bus().stop();
+
+        NodosPrueba.Nodo recuperado = nodos.nuevoNodo(directorio.resolve("diario.log"));
+        MaquinaExpendedora maquina = recuperado.principal();
+        Transaccion enCurso = maquina.getTransaccionActual();
+        assertEquals("DISPENSANDO", maquina.getEstadoActualNombre());
+        assertEquals(3, enCurso.getLineas().size());
+        assertEquals(6_000.0, enCurso.getPrecio());
+        assertTrue(enCurso.getLineas().get(2).getProducto() == maquina.getInventario().get("A3"));
+        assertEquals(9, maquina.getInventario().get("A1").getStock());
+        assertEquals(10, maquina.getInventario().get("A2").getStock());
+
+        // El último producto se dispensa sobre el estado recuperado y el cambio incluye el reembolso
+        ActorMaquina actorRecuperado = recuperado.flota().getPrincipal();
+        actorRecuperado.ejecutar(m -> m.iniciarDispensacion("T-2"));
+        actorRecuperado.ejecutar(m -> m.completarDispensacion("T-2", true));
+        Transaccion completada = maquina.getHistorialTransacciones().get(maquina.getHistorialTransacciones().size() - 1);
+        assertEquals(6_000.0, completada.getCambio());
+        assertEquals(9, maquina.getInventario().get("A3").getStock());
+    }
+
+    private static void comprar(ActorMaquina actor, String codigo) {
+        actor.ejecutar(m -> m.seleccionarProducto(codigo));
+        actor.ejecutar(m -> m.insertarDinero(5_000));
+        actor.ejecutar(MaquinaExpendedora::confirmarPago);
+        actor.ejecutar(MaquinaExpendedora::dispensarProducto);
+    }
+}
@@ -0,0 +1,87 @@
+package com.discretas.maquinaexpendedora.persistencia;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.events.AgregadosVentas;
+import com.discretas.maquinaexpendedora.events.BusEventos;
+import com.discretas.maquinaexpendedora.events.ConsumidorEventos;
+import com.discretas.maquinaexpendedora.events.DiarioEventos;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.inventario;
+
+/**
+ * Nodos para las pruebas de las instantáneas: cada uno arranca sobre la misma instantánea de un directorio,
+ * como al reiniciar la aplicación.
+ */
+final class NodosPrueba {
+
+    /**
+     * Casillas del inventario de la máquina principal de cada nodo
+     */
+    static final int CASILLAS = 12;
+
+    private final Path directorio;
+
+    private final List<Nodo> nodos = new ArrayList<>();
+
+    NodosPrueba(Path directorio) {
+        this.directorio = directorio;
+    }
+
+    /**
+     * Crea los componentes de un nodo sobre los mismos archivos y recupera su estado, como al arrancar
+     * @param diario Archivo del diario de eventos, o null para arrancar sin diario
+     * @return Nodo en marcha
+     */
+    Nodo nuevoNodo(Path diario) {
+        DefaultListableBeanFactory fabrica = new DefaultListableBeanFactory();
+        DiarioEventos diarioEventos = new DiarioEventos(diario != null ? diario.toString() : "");
+        AgregadosVentas agregados = new AgregadosVentas();
+        fabrica.registerSingleton("diarioEventos", diarioEventos);
+        fabrica.registerSingleton("agregadosVentas", agregados);
+        BusEventos bus = new BusEventos(1024, fabrica.getBeanProvider(ConsumidorEventos.class));
+
+        MaquinaExpendedora principal = new MaquinaExpendedora(bus);
+        principal.inicializarInventario(inventario(CASILLAS));
+        FlotaMaquinas flota = new FlotaMaquinas(principal, 64);
+        GestorInstantaneas gestor = new GestorInstantaneas(directorio.resolve("instantanea.bin").toString(), 0,
+                flota, principal, bus, diarioEventos, agregados);
+        gestor.iniciar();
+        bus.start();
+
+        Nodo nodo = new Nodo(bus, flota, principal, gestor, agregados);
+        nodos.add(nodo);
+        return nodo;
+    }
+
+    /**
+     * Detiene el bus y la flota de todos los nodos creados
+     */
+    void detener() {
+        for (Nodo nodo : nodos) {
+            nodo.bus.stop();
+            nodo.flota.detener();
+        }
+    }
+
+    record Nodo(BusEventos bus, FlotaMaquinas flota, MaquinaExpendedora principal,
+                GestorInstantaneas gestor, AgregadosVentas agregados) {
+
+        /**
+         * Espera a que los agregados incluyan todos los eventos publicados
+         */
+        void esperarBus() {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (agregados.obtenerResumen().getUltimaSecuencia() < bus.getUltimaSecuencia() && System.nanoTime() < limite) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.discretas.maquinaexpendedora.planificacion;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static com.discretas.maquinaexpendedora.planificacion.VentasPrueba.nuevaMaquina;
+import static com.discretas.maquinaexpendedora.planificacion.VentasPrueba.nuevoPlanificador;
+import static com.discretas.maquinaexpendedora.planificacion.VentasPrueba.registrarVenta;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de rendimiento del planificador de reabastecimiento sobre una flota de decenas de miles de máquinas.
+ */
+@Slf4j
+class PlanificadorReabastecimientoBenchmarkTest {
+
+    private static final int MAQUINAS = 20_000;
+
+    private static final int CASILLAS = VentasPrueba.CASILLAS;
+
+    private static final long LIMITE_MS = 10_000;
+
+    private FlotaMaquinas flota;
+
+    @AfterEach
+    void detener() {
+        if (flota != null) {
+            flota.detener();
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void planificaLaFlotaEnPocosSegundos() {
+        flota = new FlotaMaquinas(nuevaMaquina("MAQ-000000", 50_000.0), 64);
+        for (int i = 1; i < MAQUINAS; i++) {
+            MaquinaExpendedora maquina = nuevaMaquina(String.format("MAQ-%06d", i), 50_000.0);
+            for (Producto producto : maquina.getInventario().values()) {
+                for (int v = 0; v < i % 4; v++) {
+                    registrarVenta(maquina, producto, producto.getPrecio() + 500, 12);
+                }
+            }
+            flota.registrar(maquina);
+        }
+        PlanificadorReabastecimiento planificador = nuevoPlanificador(flota);
+        planificador.planificar(24).join();
+
+        long inicio = System.nanoTime();
+        PlanificadorReabastecimiento.PlanReabastecimiento plan = planificador.planificar(24).join();
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        log.info("Plan de reabastecimiento de {} máquinas y {} casillas: {} ms", MAQUINAS, MAQUINAS * CASILLAS, duracionMs);
+        assertEquals(MAQUINAS, plan.getMaquinas().size());
+        assertTrue(plan.getUnidadesACargar() > 0);
+        assertTrue(duracionMs < LIMITE_MS, "El plan tomó " + duracionMs + " ms");
+    }
+}
@@ -0,0 +1,70 @@
+package com.discretas.maquinaexpendedora.planificacion;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.LineaCarrito;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static com.discretas.maquinaexpendedora.planificacion.VentasPrueba.nuevaMaquina;
+import static com.discretas.maquinaexpendedora.planificacion.VentasPrueba.nuevoPlanificador;
+import static com.discretas.maquinaexpendedora.planificacion.VentasPrueba.registrarVenta;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas del plan de reabastecimiento de una máquina a partir de su historial de ventas.
+ */
+class PlanificadorReabastecimientoTest {
+
+    private FlotaMaquinas flota;
+
+    @AfterEach
+    void detener() {
+        if (flota != null) {
+            flota.detener();
+        }
+    }
+
+    @Test
+    void planificaUnaMaquinaSegunSuHistorial() {
+        MaquinaExpendedora maquina = nuevaMaquina("MAQ-001", 30_000.0);
+        Producto cocaCola = maquina.getInventario().get("A1");
+        cocaCola.setStock(3);
+        // 12 ventas de A1 (precio 2.000) en 24 horas con 3.000 de cambio cada una: 0,5 unidades por hora
+        for (int i = 0; i < 12; i++) {
+            registrarVenta(maquina, cocaCola, 5_000.0, 24);
+        }
+        // Un carrito de 24 horas atrás con una A2 entregada, una A2 reembolsada y una A3 entregada
+        Transaccion carrito = new Transaccion("T", maquina.getInventario().get("A2"), 2_100.0);
+        carrito.agregarLinea(maquina.getInventario().get("A2"), 2_100.0);
+        carrito.agregarLinea(maquina.getInventario().get("A3"), 2_200.0);
+        carrito.getLineas().get(0).setEstado(LineaCarrito.EstadoLinea.DISPENSADA);
+        carrito.getLineas().get(1).setEstado(LineaCarrito.EstadoLinea.REEMBOLSADA);
+        carrito.getLineas().get(2).setEstado(LineaCarrito.EstadoLinea.DISPENSADA);
+        carrito.setEstado(Transaccion.EstadoTransaccion.COMPLETADA);
+        carrito.setFechaTransaccion(LocalDateTime.now().minusHours(24));
+        maquina.getHistorialTransacciones().add(carrito);
+        flota = new FlotaMaquinas(maquina, 64);
+
+        PlanificadorReabastecimiento.PlanReabastecimiento plan = nuevoPlanificador(flota).planificar(24).join();
+
+        PlanificadorReabastecimiento.PlanMaquina planMaquina = plan.getMaquinas().get(0);
+        PlanificadorReabastecimiento.PlanCasilla a1 = planMaquina.getCasillas().get(0);
+        assertEquals("A1", a1.getCodigoProducto());
+        // Demanda de 24 horas con margen 1,25 = 15 unidades; hay 3, se cargan 12
+        assertEquals(15.0, a1.getDemandaEsperada(), 0.5);
+        assertEquals(12, a1.getCantidadACargar());
+        // Del carrito cuentan solo las líneas entregadas: una unidad de A2 y una de A3
+        assertEquals(1.25, planMaquina.getCasillas().get(1).getDemandaEsperada(), 0.01);
+        assertEquals(1.25, planMaquina.getCasillas().get(2).getDemandaEsperada(), 0.01);
+        // Sin ventas, las demás casillas se llevan al stock mínimo
+        assertEquals(0, planMaquina.getCasillas().get(3).getCantidadACargar());
+        // Cambio esperado = 36.000 * 1,25 = 45.000; hay 30.000, se depositan 15.000
+        assertEquals(45_000.0, planMaquina.getDineroObjetivo());
+        assertEquals(15_000.0, planMaquina.getAjusteDinero());
+    }
+}
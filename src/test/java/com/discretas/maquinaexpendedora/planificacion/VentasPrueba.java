@@ -0,0 +1,54 @@
+package com.discretas.maquinaexpendedora.planificacion;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Máquinas con historial de ventas para las pruebas del planificador de reabastecimiento.
+ */
+final class VentasPrueba {
+
+    static final int CASILLAS = 12;
+
+    private VentasPrueba() {
+    }
+
+    /**
+     * Crea un planificador con un stock mínimo de 2 unidades y un margen de 1,25 sobre la demanda
+     */
+    static PlanificadorReabastecimiento nuevoPlanificador(FlotaMaquinas flota) {
+        return new PlanificadorReabastecimiento(flota, 20, 2, 1.25, 20_000, 1_000);
+    }
+
+    /**
+     * Crea una máquina con 5 unidades en cada casilla y precios de 2.000 en A1 que suben 100 por casilla
+     */
+    static MaquinaExpendedora nuevaMaquina(String id, double dinero) {
+        MaquinaExpendedora maquina = new MaquinaExpendedora();
+        maquina.setId(id);
+        maquina.setDineroDisponible(dinero);
+        Map<String, Producto> productos = new HashMap<>();
+        for (int i = 0; i < CASILLAS; i++) {
+            String codigo = (char) ('A' + i / 3) + String.valueOf(i % 3 + 1);
+            productos.put(codigo, new Producto(codigo, "Producto " + codigo, 2_000.0 + i * 100, 5, ""));
+        }
+        maquina.inicializarInventario(productos);
+        return maquina;
+    }
+
+    /**
+     * Agrega al historial una venta completada de un producto
+     */
+    static void registrarVenta(MaquinaExpendedora maquina, Producto producto, double monto, int horasAtras) {
+        Transaccion transaccion = new Transaccion("T", producto, monto);
+        transaccion.setEstado(Transaccion.EstadoTransaccion.COMPLETADA);
+        transaccion.setFechaTransaccion(LocalDateTime.now().minusHours(horasAtras));
+        maquina.getHistorialTransacciones().add(transaccion);
+    }
+}
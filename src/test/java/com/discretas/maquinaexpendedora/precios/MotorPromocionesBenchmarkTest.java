@@ -0,0 +1,133 @@
+package com.discretas.maquinaexpendedora.precios;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.precios.ReglaPrecio.TipoRegla;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.inventario;
+import static com.discretas.maquinaexpendedora.precios.ReglasPrueba.regla;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de rendimiento de las promociones compiladas: su costo frente al precio fijo del catálogo
+ * y la compilación para una flota grande.
+ */
+@Slf4j
+class MotorPromocionesBenchmarkTest {
+
+    private static final int MAQUINAS = 20_000;
+
+    private static final int CASILLAS = 12;
+
+    private static final int CONSULTAS = 20_000_000;
+
+    /**
+     * Sobrecosto máximo por consulta, generoso para no fallar en máquinas compartidas
+     */
+    private static final double LIMITE_SOBRECOSTO_NS = 100;
+
+    private final MaquinaExpendedora principal = new MaquinaExpendedora();
+
+    private final FlotaMaquinas flota = new FlotaMaquinas(principal, 64);
+
+    private final MotorPromociones motor = new MotorPromociones("", 15, "UTC", 50, flota, new ObjectMapper());
+
+    @AfterEach
+    void detener() {
+        flota.detener();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void laBusquedaEnLaTablaCuestaCasiLoMismoQueElPrecioFijo() {
+        principal.inicializarInventario(inventario(CASILLAS));
+        motor.reemplazarReglas(List.of(
+                regla("happy-hour", TipoRegla.DESCUENTO_PORCENTAJE, 20, null, null, LocalTime.of(17, 0), LocalTime.of(19, 0), 0),
+                regla("madrugada", TipoRegla.DESCUENTO_MONTO, 500, null, null, LocalTime.of(23, 0), LocalTime.of(5, 0), 0))).join();
+        Producto[] productos = principal.getInventario().values().toArray(Producto[]::new);
+
+        double fijoNs = 0;
+        double tablaNs = 0;
+        double relojNs = 0;
+        for (int ronda = 0; ronda < 5; ronda++) {
+            fijoNs = medirPrecioFijo(productos);
+            tablaNs = medirTabla(productos);
+            relojNs = medirReloj();
+        }
+
+        // La consulta de la tabla incluye la lectura del reloj, cuyo costo depende de la plataforma
+        log.info("Precio fijo: {} ns/consulta; tabla de promociones: {} ns/consulta, de ellos {} ns del reloj",
+                String.format("%.1f", fijoNs), String.format("%.1f", tablaNs), String.format("%.1f", relojNs));
+        assertTrue(tablaNs - fijoNs < LIMITE_SOBRECOSTO_NS, "La tabla costó " + tablaNs + " ns frente a " + fijoNs + " ns");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void compilaLasPromocionesDeUnaFlotaGrande() {
+        principal.inicializarInventario(inventario(CASILLAS));
+        for (int i = 1; i < MAQUINAS; i++) {
+            MaquinaExpendedora maquina = new MaquinaExpendedora();
+            maquina.setId("MAQ-" + i);
+            maquina.setRegion(i % 2 == 0 ? "NORTE" : "SUR");
+            maquina.inicializarInventario(inventario(CASILLAS));
+            flota.registrar(maquina);
+        }
+        List<ReglaPrecio> reglas = new ArrayList<>();
+        reglas.add(regla("happy-hour", TipoRegla.DESCUENTO_PORCENTAJE, 20, null, null, LocalTime.of(17, 0), LocalTime.of(19, 0), 0));
+        reglas.add(regla("norte", TipoRegla.DESCUENTO_MONTO, 100, "SKU-1", null, "NORTE", null, null, 0));
+        reglas.add(regla("maquina", TipoRegla.PRECIO_FIJO, 1_500, "SKU-2", "MAQ-7", null, null, null, 0));
+        motor.reemplazarReglas(reglas).join();
+
+        MotorPromociones.ResultadoCompilacion resultado = motor.recompilar().join();
+
+        log.info("{} reglas compiladas para {} casillas de {} máquinas en {} ms con {} filas distintas",
+
+                resultado.getReglas(), resultado.getCasillasConPromocion(), resultado.getMaquinas(), resultado.getCompilacionMs(), resultado.getFilasDistintas());
+        assertEquals((long) MAQUINAS * CASILLAS, resultado.getCasillasConPromocion());
+        assertEquals(3, resultado.getFilasDistintas());
+    }
+
+    private static double medirPrecioFijo(Producto[] productos) {
+        double suma = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < CONSULTAS; i++) {
+            suma += productos[i % productos.length].getPrecio();
+        }
+        long transcurrido = System.nanoTime() - inicio;
+        assertTrue(suma > 0);
+        return (double) transcurrido / CONSULTAS;
+    }
+
+    private double medirTabla(Producto[] productos) {
+        double suma = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < CONSULTAS; i++) {
+            suma += principal.precioVigente(productos[i % productos.length]);
+        }
+        long transcurrido = System.nanoTime() - inicio;
+        assertTrue(suma > 0);
+        return (double) transcurrido / CONSULTAS;
+    }
+
+    private static double medirReloj() {
+        long suma = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < CONSULTAS; i++) {
+            suma ^= System.currentTimeMillis();
+        }
+        long transcurrido = System.nanoTime() - inicio;
+        assertTrue(suma >= 0);
+        return (double) transcurrido / CONSULTAS;
+    }
+}
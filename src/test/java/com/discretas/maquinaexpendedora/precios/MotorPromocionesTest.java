@@ -0,0 +1,131 @@
+package com.discretas.maquinaexpendedora.precios;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.LineaCarrito;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.precios.ReglaPrecio.TipoRegla;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.inventario;
+import static com.discretas.maquinaexpendedora.precios.ReglasPrueba.combo;
+import static com.discretas.maquinaexpendedora.precios.ReglasPrueba.regla;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de las promociones compiladas: franjas horarias, precios por máquina, reglas inválidas y combos.
+ */
+class MotorPromocionesTest {
+
+    private static final int CASILLAS = 12;
+
+    private final MaquinaExpendedora principal = new MaquinaExpendedora();
+
+    private final FlotaMaquinas flota = new FlotaMaquinas(principal, 64);
+
+    private final MotorPromociones motor = new MotorPromociones("", 15, "UTC", 50, flota, new ObjectMapper());
+
+    @AfterEach
+    void detener() {
+        flota.detener();
+    }
+
+    @Test
+    void aplicaElHappyHourSoloEnSuFranja() {
+        principal.inicializarInventario(inventario(CASILLAS));
+        LocalTime ahora = LocalTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS);
+        motor.reemplazarReglas(List.of(
+                regla("happy-hour", TipoRegla.DESCUENTO_PORCENTAJE, 20, "SKU-0", null, ahora.minusHours(1), ahora.plusHours(1), 0),
+                regla("nocturna", TipoRegla.PRECIO_FIJO, 100, "SKU-0", null, ahora.plusHours(3), ahora.plusHours(4), 0))).join();
+        ActorMaquina actor = flota.getPrincipal();
+
+        assertTrue(actor.ejecutar(m -> m.seleccionarProducto("A1").mensaje()).contains("$1600"));
+        assertEquals(1_600.0, actor.ejecutar(m -> m.getTransaccionActual().getPrecio()));
+        actor.ejecutar(m -> m.insertarDinero(2_000));
+        actor.ejecutar(MaquinaExpendedora::confirmarPago);
+        assertEquals(400.0, actor.ejecutar(m -> m.getTransaccionActual().getCambio()));
+        actor.ejecutar(MaquinaExpendedora::cancelarTransaccion);
+
+        assertEquals(2_000.0, actor.ejecutar(m -> m.precioVigente(m.getInventario().get("A2"))));
+    }
+
+    @Test
+    void aplicaElPrecioDeCadaMaquinaYElMejorDescuento() {
+        principal.inicializarInventario(inventario(CASILLAS));
+        MaquinaExpendedora otra = new MaquinaExpendedora();
+        otra.setId("MAQ-1");
+        otra.inicializarInventario(inventario(CASILLAS));
+        flota.registrar(otra);
+
+        MotorPromociones.ResultadoCompilacion resultado = motor.reemplazarReglas(List.of(
+                regla("aeropuerto", TipoRegla.PRECIO_FIJO, 3_000, null, "MAQ-1", null, null, 1),
+                regla("aeropuerto-a1", TipoRegla.PRECIO_FIJO, 2_800, "SKU-0", "MAQ-1", null, null, 2),
+                regla("descuento", TipoRegla.DESCUENTO_MONTO, 330, "SKU-0", null, null, null, 0),
+                regla("porcentaje", TipoRegla.DESCUENTO_PORCENTAJE, 10, "SKU-0", null, null, null, 0))).join();
+
+        assertTrue(resultado.isCompilada());
+        assertEquals(CASILLAS + 1, resultado.getCasillasConPromocion());
+        assertEquals(1_650.0, precio(flota.getPrincipal(), "A1"));
+        assertEquals(2_000.0, precio(flota.getPrincipal(), "A2"));
+        assertEquals(2_450.0, precio(flota.obtener("MAQ-1"), "A1"));
+        assertEquals(3_000.0, precio(flota.obtener("MAQ-1"), "A2"));
+    }
+
+    @Test
+    void laTransaccionEnCursoConservaSuPrecioYSeRechazanReglasInvalidas() {
+        principal.inicializarInventario(inventario(CASILLAS));
+        motor.reemplazarReglas(List.of(regla("fijo", TipoRegla.PRECIO_FIJO, 1_000, "SKU-0", null, null, null, 0))).join();
+        ActorMaquina actor = flota.getPrincipal();
+
+        actor.ejecutar(m -> m.seleccionarProducto("A1"));
+        MotorPromociones.ResultadoCompilacion rechazado = motor.reemplazarReglas(List.of(
+                regla("fijo", TipoRegla.DESCUENTO_PORCENTAJE, 150, null, null, null, null, 0),
+                regla("fijo", TipoRegla.DESCUENTO_MONTO, 10, null, null, null, null, 0))).join();
+        assertFalse(rechazado.isCompilada());
+        assertEquals(2, rechazado.getErrores().size());
+        MotorPromociones.ResultadoCompilacion desalineado = motor.reemplazarReglas(List.of(
+                regla("tarde", TipoRegla.DESCUENTO_PORCENTAJE, 10, null, null, LocalTime.of(17, 10), LocalTime.of(17, 50), 0))).join();
+        assertFalse(desalineado.isCompilada());
+        assertEquals(1, desalineado.getErrores().size());
+
+        motor.reemplazarReglas(List.of()).join();
+        assertEquals(1_000.0, actor.ejecutar(m -> m.getTransaccionActual().getPrecio()));
+        actor.ejecutar(MaquinaExpendedora::cancelarTransaccion);
+        assertTrue(actor.ejecutar(m -> m.seleccionarProducto("A1").mensaje()).contains("$2000"));
+    }
+
+    @Test
+    void aplicaElMejorComboUnaVezAlConfirmarElCarrito() {
+        principal.inicializarInventario(inventario(CASILLAS));
+        motor.reemplazarReglas(List.of(combo("snack-bebida", 500, "SKU-0", "SKU-1"),
+                combo("dos-snacks", 300, "SKU-0", "SKU-0"))).join();
+        ActorMaquina actor = flota.getPrincipal();
+
+        actor.ejecutar(m -> m.seleccionarProducto("A1"));
+        actor.ejecutar(m -> m.agregarProductos(List.of("A2", "A1")));
+        assertEquals(6_000.0, actor.ejecutar(m -> m.getTransaccionActual().getPrecio()));
+        actor.ejecutar(m -> m.insertarDinero(6_000));
+        actor.ejecutar(MaquinaExpendedora::confirmarPago);
+
+        assertEquals(5_500.0, actor.ejecutar(m -> m.getTransaccionActual().getPrecio()));
+        assertEquals(500.0, actor.ejecutar(m -> m.getTransaccionActual().getCambio()));
+        assertEquals(5_500.0, actor.ejecutar(m -> m.getTransaccionActual().getLineas().stream()
+                .mapToDouble(LineaCarrito::getPrecio).sum()), 1e-6);
+
+        MotorPromociones.ResultadoCompilacion rechazado = motor.reemplazarReglas(List.of(combo("solo", 100, "SKU-0"))).join();
+        assertFalse(rechazado.isCompilada());
+    }
+
+    private static double precio(ActorMaquina actor, String casilla) {
+        return actor.ejecutar(m -> m.precioVigente(m.getInventario().get(casilla)));
+    }
+}
@@ -0,0 +1,38 @@
+package com.discretas.maquinaexpendedora.precios;
+
+import com.discretas.maquinaexpendedora.precios.ReglaPrecio.TipoRegla;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Reglas de precio activas para las pruebas del motor de promociones.
+ */
+final class ReglasPrueba {
+
+    private ReglasPrueba() {
+    }
+
+    /**
+     * Crea una regla de un producto o de todos, sin región
+     */
+    static ReglaPrecio regla(String id, TipoRegla tipo, double valor, String sku, String idMaquina,
+                             LocalTime inicio, LocalTime fin, int prioridad) {
+        return regla(id, tipo, valor, sku, idMaquina, null, inicio, fin, prioridad);
+    }
+
+    /**
+     * Crea una regla de un producto o de todos
+     */
+    static ReglaPrecio regla(String id, TipoRegla tipo, double valor, String sku, String idMaquina, String region,
+                             LocalTime inicio, LocalTime fin, int prioridad) {
+        return new ReglaPrecio(id, tipo, valor, sku, idMaquina, region, inicio, fin, prioridad, true, null);
+    }
+
+    /**
+     * Crea un combo de toda la flota que descuenta un monto por cada juego completo de los SKU indicados
+     */
+    static ReglaPrecio combo(String id, double valor, String... skus) {
+        return new ReglaPrecio(id, TipoRegla.DESCUENTO_COMBO, valor, null, null, null, null, null, 0, true, List.of(skus));
+    }
+}
@@ -0,0 +1,120 @@
+package com.discretas.maquinaexpendedora.presentation.controller;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comparación entre el controlador servlet bloqueante y la variante no bloqueante.
+ * Con un contenedor de pocos hilos, varios clientes esperan el resultado de una dispensación
+ * y se mide cuánto tarda otra solicitud en ser atendida mientras tanto.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=false",
+        "server.tomcat.threads.max=4",
+        "server.tomcat.threads.min-spare=4",
+        "maquina.dispensador.latencia-ms=1500",
+        "maquina.admision.habilitada=false",
+        "maquina.instantanea.ruta="
+})
+@Slf4j
+class MaquinaAsyncControllerBenchmarkTest {
+
+    private static final int ESPERAS = 16;
+
+    private static final long LATENCIA_DISPENSADOR_MS = 1500;
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private FlotaMaquinas flota;
+
+    @BeforeEach
+    void cargarInventario() {
+        // El inventario de demostración se carga en el main, que las pruebas no ejecutan
+        flota.getPrincipal().ejecutar(m -> {
+            m.inicializarInventario(Map.of("A1", new Producto("A1", "Coca Cola", 2500.0, 100, "Bebida gaseosa 350ml")));
+            return null;
+        });
+    }
+
+    @Test
+    @Tag("benchmark")
+    void esperasNoBloqueantesNoOcupanHilosDelContenedor() throws Exception {
+        long sondeoServlet = medirSondeoDuranteEsperas(Constants.Maquina.MAQUINA_SERVICE_PATH);
+        long sondeoAsync = medirSondeoDuranteEsperas(Constants.Maquina.MAQUINA_ASYNC_SERVICE_PATH);
+
+        log.info("Latencia de una consulta con {} esperas en curso: servlet {} ms, no bloqueante {} ms",
+
+                ESPERAS, sondeoServlet, sondeoAsync);
+        assertTrue(sondeoAsync < LATENCIA_DISPENSADOR_MS / 3,
+                "La variante no bloqueante debe atender la consulta sin esperar a la dispensación");
+        assertTrue(sondeoAsync < sondeoServlet);
+    }
+
+    /**
+     * Inicia una compra, deja varios clientes esperando su dispensación y mide la latencia de una consulta de estado
+     */
+    private long medirSondeoDuranteEsperas(String servicio) throws Exception {
+        String base = "http://localhost:" + puerto + "/maquinaexpendedora" + Constants.Global.API_BASE_PATH + servicio;
+        enviar(base + Constants.Maquina.MAQUINA_SERVICE_PATH_SELECT + "/A1", "POST");
+        enviar(base + Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY + "/5000", "POST");
+        enviar(base + Constants.Maquina.MAQUINA_SERVICE_PATH_CONFIRM_PAYMENT, "POST");
+        JsonNode dispensacion = objectMapper.readTree(enviar(base + Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE, "POST"));
+        String idTicket = dispensacion.path("data").path("id").asText();
+
+        String rutaEspera = base + Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE_RESULT.replace("{idTicket}", idTicket);
+        List<CompletableFuture<HttpResponse<String>>> esperas = new ArrayList<>();
+        for (int i = 0; i < ESPERAS; i++) {
+            esperas.add(cliente.sendAsync(HttpRequest.newBuilder(URI.create(rutaEspera)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        Thread.sleep(200);
+
+        long inicio = System.nanoTime();
+        enviar(base + Constants.Maquina.MAQUINA_SERVICE_PATH_STATE, "GET");
+        long sondeo = (System.nanoTime() - inicio) / 1_000_000;
+
+        for (CompletableFuture<HttpResponse<String>> espera : esperas) {
+            HttpResponse<String> respuesta = espera.join();
+            assertEquals(200, respuesta.statusCode());
+            assertEquals("COMPLETADO", objectMapper.readTree(respuesta.body()).path("data").path("estado").asText());
+        }
+        return sondeo;
+    }
+
+    private String enviar(String url, String metodo) throws Exception {
+        HttpRequest solicitud = HttpRequest.newBuilder(URI.create(url))
+                .method(metodo, HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> respuesta = cliente.send(solicitud, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, respuesta.statusCode(), respuesta.body());
+        return respuesta.body();
+    }
+}
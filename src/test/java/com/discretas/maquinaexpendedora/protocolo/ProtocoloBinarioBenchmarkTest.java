@@ -0,0 +1,120 @@
+package com.discretas.maquinaexpendedora.protocolo;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.presentation.dto.ResultadoDTO;
+import com.discretas.maquinaexpendedora.services.MaquinaService;
+import com.discretas.maquinaexpendedora.services.ServiciosPrueba;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.producto;
+import static com.discretas.maquinaexpendedora.protocolo.TramasPrueba.trama;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comparación del protocolo binario con JSON en bytes transmitidos y CPU por solicitud.
+ */
+@Slf4j
+class ProtocoloBinarioBenchmarkTest {
+
+    private static final String BASE = "/maquinaexpendedora/api/maquina";
+
+    private static final int CALENTAMIENTO = 20_000;
+
+    private static final int COMPRAS = 20_000;
+
+    private static final ThreadMXBean HILOS = ManagementFactory.getThreadMXBean();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private FlotaMaquinas flota;
+
+    private MaquinaService servicio;
+
+    private ProtocoloBinario protocolo;
+
+    @BeforeEach
+    void iniciar() {
+        MaquinaExpendedora maquina = new MaquinaExpendedora();
+        maquina.inicializarInventario(Map.of("A1", producto("A1", 2500.0, Integer.MAX_VALUE)));
+        maquina.setDineroDisponible(Double.MAX_VALUE / 2);
+        flota = new FlotaMaquinas(maquina, 64);
+        servicio = ServiciosPrueba.maquinaService(flota, ticket -> CompletableFuture.completedFuture(true));
+        protocolo = new ProtocoloBinario(servicio);
+    }
+
+    @AfterEach
+    void detener() {
+        flota.detener();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void comparaBytesYCpuConJson() throws Exception {
+        byte[] seleccionar = trama(ProtocoloBinario.OP_SELECCIONAR, "A1".getBytes(StandardCharsets.US_ASCII));
+        byte[] insertar = trama(ProtocoloBinario.OP_INSERTAR_DINERO, ByteBuffer.allocate(4).putInt(5000).array());
+        byte[] confirmar = trama(ProtocoloBinario.OP_CONFIRMAR_PAGO, new byte[0]);
+        byte[] cancelar = trama(ProtocoloBinario.OP_CANCELAR, new byte[0]);
+        int rutaBinaria = (BASE + "/binario").length();
+
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            compraJson();
+            compraBinaria(seleccionar, insertar, confirmar, cancelar, rutaBinaria);
+        }
+
+        long cpu = HILOS.getCurrentThreadCpuTime();
+        long bytesJson = 0;
+        for (int i = 0; i < COMPRAS; i++) {
+            bytesJson += compraJson();
+        }
+        long cpuJson = HILOS.getCurrentThreadCpuTime() - cpu;
+
+        cpu = HILOS.getCurrentThreadCpuTime();
+        long bytesBinario = 0;
+        for (int i = 0; i < COMPRAS; i++) {
+            bytesBinario += compraBinaria(seleccionar, insertar, confirmar, cancelar, rutaBinaria);
+        }
+        long cpuBinario = HILOS.getCurrentThreadCpuTime() - cpu;
+
+        long solicitudes = COMPRAS * 4L;
+        log.info("JSON:    {} bytes/solicitud, {} ns CPU/solicitud", bytesJson / solicitudes, cpuJson / solicitudes);
+        log.info("Binario: {} bytes/solicitud, {} ns CPU/solicitud", bytesBinario / solicitudes, cpuBinario / solicitudes);
+        assertTrue(bytesBinario * 4 < bytesJson, "El protocolo binario debe transmitir al menos 4 veces menos bytes");
+    }
+
+    /**
+     * Ciclo de compra por JSON: ruta de la solicitud más cuerpo de la respuesta, como lo escribe el controlador
+     */
+    private long compraJson() throws Exception {
+        return BASE.length() + "/seleccionar/A1".length()
+                + objectMapper.writeValueAsBytes(ResultadoDTO.envolver(servicio.seleccionarProducto("A1"))).length
+                + BASE.length() + "/insertar-dinero/5000".length()
+                + objectMapper.writeValueAsBytes(ResultadoDTO.envolver(servicio.insertarDinero(5000))).length
+                + BASE.length() + "/confirmar-pago".length()
+                + objectMapper.writeValueAsBytes(ResultadoDTO.envolver(servicio.confirmarPago())).length
+                + BASE.length() + "/cancelar".length()
+                + objectMapper.writeValueAsBytes(ResultadoDTO.envolver(servicio.cancelarTransaccion())).length;
+    }
+
+    /**
+     * Ciclo de compra por el protocolo binario, una trama por solicitud
+     */
+    private long compraBinaria(byte[] seleccionar, byte[] insertar, byte[] confirmar, byte[] cancelar, int ruta) {
+        return 4L * ruta + seleccionar.length + protocolo.procesar(seleccionar).length
+                + insertar.length + protocolo.procesar(insertar).length
+                + confirmar.length + protocolo.procesar(confirmar).length
+                + cancelar.length + protocolo.procesar(cancelar).length;
+    }
+}
@@ -0,0 +1,105 @@
+package com.discretas.maquinaexpendedora.protocolo;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.services.ServiciosPrueba;
+import com.discretas.maquinaexpendedora.state.CodigoResultado;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.maquina;
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.producto;
+import static com.discretas.maquinaexpendedora.protocolo.TramasPrueba.concatenar;
+import static com.discretas.maquinaexpendedora.protocolo.TramasPrueba.trama;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del protocolo binario: varias tramas por solicitud, solicitudes mal formadas y tamaño de la respuesta.
+ */
+class ProtocoloBinarioTest {
+
+    private FlotaMaquinas flota;
+
+    private ProtocoloBinario protocolo;
+
+    @BeforeEach
+    void iniciar() {
+        MaquinaExpendedora maquina = maquina(producto("A1", 2500.0, Integer.MAX_VALUE));
+        maquina.setDineroDisponible(Double.MAX_VALUE / 2);
+        flota = new FlotaMaquinas(maquina, 64);
+        protocolo = new ProtocoloBinario(ServiciosPrueba.maquinaService(flota, ticket -> CompletableFuture.completedFuture(true)));
+    }
+
+    @AfterEach
+    void detener() {
+        flota.detener();
+    }
+
+    @Test
+    void procesaVariasTramasEnUnaSolicitud() {
+        ByteBuffer respuesta = ByteBuffer.wrap(protocolo.procesar(concatenar(
+                trama(ProtocoloBinario.OP_SELECCIONAR, "A1".getBytes(StandardCharsets.US_ASCII)),
+                trama(ProtocoloBinario.OP_INSERTAR_DINERO, ByteBuffer.allocate(4).putInt(3000).array()),
+                trama(ProtocoloBinario.OP_CONFIRMAR_PAGO, new byte[0]),
+                trama(ProtocoloBinario.OP_DISPENSAR, new byte[0]),
+                trama((byte) 0x7F, new byte[0]))));
+
+        assertResultado(respuesta, ProtocoloBinario.OP_SELECCIONAR, CodigoResultado.PRODUCTO_SELECCIONADO, 2500);
+        assertResultado(respuesta, ProtocoloBinario.OP_INSERTAR_DINERO, CodigoResultado.DINERO_INSERTADO_SUFICIENTE, 3000);
+        assertResultado(respuesta, ProtocoloBinario.OP_CONFIRMAR_PAGO, CodigoResultado.PAGO_CONFIRMADO, 0);
+
+        assertEquals(ProtocoloBinario.OP_DISPENSAR, respuesta.get());
+        assertEquals(ProtocoloBinario.ESTADO_OK, respuesta.get());
+        respuesta.getShort();
+        respuesta.get();
+        respuesta.getShort();
+        byte[] id = new byte[respuesta.get()];
+        respuesta.get(id);
+        assertTrue(new String(id, StandardCharsets.US_ASCII).startsWith("T-"));
+
+        assertEquals((byte) 0x7F, respuesta.get());
+        assertEquals(ProtocoloBinario.ESTADO_SOLICITUD_INCORRECTA, respuesta.get());
+        assertEquals(0, respuesta.getShort());
+        assertFalse(respuesta.hasRemaining());
+    }
+
+    @Test
+    void rechazaSolicitudesMalFormadas() {
+        assertNull(protocolo.procesar(new byte[]{ProtocoloBinario.OP_SELECCIONAR, 0, 10, 'A'}));
+        assertNull(protocolo.procesar(new byte[0]));
+    }
+
+    @Test
+    void acotaLaRespuestaAlTamanyoMaximoDeCadaTrama() {
+        // Las tramas vacías desconocidas responden con 4 bytes cada una, no con el máximo de cualquier operación
+        byte[] vacias = new byte[3 * 10_000];
+        for (int i = 0; i < vacias.length; i += 3) {
+            vacias[i] = (byte) 0x7F;
+        }
+        assertEquals(4 * 10_000, protocolo.procesar(vacias).length);
+
+        // Una solicitud cuya respuesta podría superar el máximo se rechaza sin reservar memoria para ella
+        byte[] estados = new byte[3 * (ProtocoloBinario.MAX_BYTES_RESPUESTA / 200)];
+        for (int i = 0; i < estados.length; i += 3) {
+            estados[i] = ProtocoloBinario.OP_ESTADO;
+        }
+        assertNull(protocolo.procesar(estados));
+    }
+
+    private static void assertResultado(ByteBuffer respuesta, byte operacion, CodigoResultado codigo, int monto) {
+        assertEquals(operacion, respuesta.get());
+        assertEquals(ProtocoloBinario.ESTADO_OK, respuesta.get());
+        assertEquals(18, respuesta.getShort());
+        assertEquals(codigo.getNumero(), respuesta.getShort());
+        assertEquals(monto, respuesta.getInt());
+        respuesta.position(respuesta.position() + 3 * Integer.BYTES);
+    }
+}
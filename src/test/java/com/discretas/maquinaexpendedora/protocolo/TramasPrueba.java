@@ -0,0 +1,38 @@
+package com.discretas.maquinaexpendedora.protocolo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Construcción de solicitudes del protocolo binario para las pruebas.
+ */
+final class TramasPrueba {
+
+    private TramasPrueba() {
+    }
+
+    /**
+     * Crea una trama de solicitud
+     * @param operacion Código de la operación
+     * @param datos Datos de la trama
+     * @return Cabecera seguida de los datos
+     */
+    static byte[] trama(byte operacion, byte[] datos) {
+        return ByteBuffer.allocate(ProtocoloBinario.CABECERA_SOLICITUD + datos.length)
+                .put(operacion).putShort((short) datos.length).put(datos).array();
+    }
+
+    /**
+     * Concatena varias tramas en una sola solicitud
+     */
+    static byte[] concatenar(byte[]... tramas) {
+        int total = 0;
+        for (byte[] trama : tramas) {
+            total += trama.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (byte[] trama : tramas) {
+            buffer.put(trama);
+        }
+        return buffer.array();
+    }
+}
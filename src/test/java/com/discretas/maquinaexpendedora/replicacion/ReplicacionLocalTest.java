@@ -0,0 +1,254 @@
+package com.discretas.maquinaexpendedora.replicacion;
+
+import com.discretas.maquinaexpendedora.MaquinaExpendedoraApplication;
+import com.discretas.maquinaexpendedora.events.BusEventos;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.persistencia.InstantaneaBinaria.InstantaneaMaquina;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de la replicación del diario entre dos nodos en localhost: el respaldo sigue las ventas del origen
+ * y, al caer el origen, se promueve y atiende sus máquinas sin perder ninguna venta.
+ */
+@Slf4j
+class ReplicacionLocalTest {
+
+    private static final int MAQUINAS = 5;
+
+    private static final String CONTEXTO = "/maquinaexpendedora";
+
+    private static final String SECRETO = "secreto-de-prueba";
+
+    private static final String MAQUINA = "MAQ-102";
+
+    @TempDir
+    Path directorio;
+
+    private final List<ConfigurableApplicationContext> nodos = new ArrayList<>();
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @AfterEach
+    void detener() {
+        nodos.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void elRespaldoSigueLasVentasYTomaElRelevoAlPromoverse() throws Exception {
+        Path planograma = escribirPlanograma();
+        ConfigurableApplicationContext respaldo = arrancar("", planograma);
+        String urlRespaldo = url(respaldo);
+        ConfigurableApplicationContext origen = arrancar(urlRespaldo, planograma);
+        String urlOrigen = url(origen);
+        ReplicadorDiario replicador = origen.getBean(ReplicadorDiario.class);
+        BusEventos busOrigen = origen.getBean(BusEventos.class);
+        ReplicaRespaldo replica = respaldo.getBean(ReplicaRespaldo.class);
+
+        comprar(urlOrigen, MAQUINA);
+        comprar(urlOrigen, MAQUINA);
+        assertEquals(8, stockA1(urlOrigen, MAQUINA));
+
+        // El respaldo alcanza al origen y el retraso vuelve a cero
+        esperar(() -> replicador.obtenerEstado().getSecuenciaConfirmada() == busOrigen.getUltimaSecuencia());
+        ReplicadorDiario.EstadoReplicacion estado = replicador.obtenerEstado();
+        log.info("Replicación: {} lotes, {} eventos, {} copias base",
+                estado.getLotesEnviados(), estado.getEventosEnviados(), estado.getBasesEnviadas());
+        assertEquals(0, estado.getRetrasoEventos());
+        assertEquals(0, estado.getRetrasoMs());
+        assertEquals(8, stockA1(replica.obtenerReplica(MAQUINA)));
+
+        // Mientras el origen vive, el respaldo sigue atendiendo solo sus propias máquinas
+        assertEquals(10, stockA1(urlRespaldo, MAQUINA));
+
+        // El origen cae y el respaldo se promueve con todas sus ventas
+        origen.close();
+        promover(urlRespaldo);
+        assertEquals(8, stockA1(urlRespaldo, MAQUINA));
+        comprar(urlRespaldo, MAQUINA);
+        assertEquals(7, stockA1(urlRespaldo, MAQUINA));
+        assertTrue(replica.obtenerEstado().isPromovida());
+        assertNull(replica.obtenerReplica("MAQ-999"));
+    }
+
+    @Test
+    void alPromoverseElRespaldoConservaSuPropiaMaquinaPrincipal() throws Exception {
+        Path planograma = escribirPlanograma();
+        ConfigurableApplicationContext respaldo = arrancar("", planograma);
+        String urlRespaldo = url(respaldo);
+        ConfigurableApplicationContext origen = arrancar(urlRespaldo, planograma);
+        String urlOrigen = url(origen);
+        ReplicadorDiario replicador = origen.getBean(ReplicadorDiario.class);
+        BusEventos busOrigen = origen.getBean(BusEventos.class);
+
+        // Las dos principales tienen el mismo identificador y estados distintos
+        String principal = Constants.Maquina.MAQUINA_ID_DEFAULT;
+        comprar(urlOrigen, principal);
+        comprar(urlOrigen, principal);
+        comprar(urlRespaldo, principal);
+        comprar(urlOrigen, MAQUINA);
+        esperar(() -> replicador.obtenerEstado().getSecuenciaConfirmada() == busOrigen.getUltimaSecuencia());
+        assertEquals(8, stockA1(urlOrigen, principal));
+        assertNull(respaldo.getBean(ReplicaRespaldo.class).obtenerReplica(principal));
+
+        origen.close();
+        promover(urlRespaldo);
+        assertEquals(9, stockA1(urlRespaldo, principal));
+        assertEquals(9, stockA1(urlRespaldo, MAQUINA));
+    }
+
+    @Test
+    void enModoSincronoLaOperacionRespondeConElRespaldoAlDia() throws Exception {
+        Path planograma = escribirPlanograma();
+        ConfigurableApplicationContext respaldo = arrancar("", planograma);
+        ConfigurableApplicationContext origen = arrancar(url(respaldo), planograma, "--maquina.replicacion.sincrona=true");
+        String base = url(origen) + Constants.Global.API_BASE_PATH + Constants.Maquina.MAQUINA_SERVICE_PATH;
+        ReplicaRespaldo replica = respaldo.getBean(ReplicaRespaldo.class);
+        assertTrue(origen.getBean(ReplicadorDiario.class).isSincrona());
+
+        // Al responder la selección el respaldo ya tiene la transacción, sin esperar al siguiente lote
+        enviar(MAQUINA, "POST", base + Constants.Maquina.MAQUINA_SERVICE_PATH_SELECT + "/A1");
+        assertNotNull(replica.obtenerReplica(MAQUINA).transaccionActual());
+
+        enviar(MAQUINA, "POST", base + Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY + "/5000");
+        assertEquals(5000, replica.obtenerReplica(MAQUINA).transaccionActual().getMontoPagado());
+    }
+
+    private void promover(String urlRespaldo) throws Exception {
+        HttpResponse<String> promocion = cliente.send(HttpRequest.newBuilder(URI.create(urlRespaldo + Constants.Global.API_BASE_PATH
+                + Constants.Replicacion.REPLICATION_SERVICE_PATH + Constants.Replicacion.REPLICATION_SERVICE_PATH_PROMOTE))
+                .header(Constants.Global.CLUSTER_SECRET_HEADER, SECRETO)
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, promocion.statusCode(), promocion.body());
+    }
+
+    /**
+     * Arranca un nodo en un puerto libre elegido por el servidor
+     */
+    private ConfigurableApplicationContext arrancar(String destino, Path planograma, String... opciones) {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--maquina.replicacion.destino=" + destino,
+                "--maquina.replicacion.reintento-ms=50",
+                "--maquina.replicacion.resincronizacion-segundos=0",
+                "--maquina.catalogo.planograma=" + planograma,
+                "--maquina.cluster.secreto=" + SECRETO,
+                "--maquina.admision.habilitada=false",
+                "--maquina.dispensador.latencia-ms=10",
+                "--maquina.instantanea.ruta=",
+                "--maquina.diario.ruta=",
+                "--maquina.promociones.ruta=",
+                "--spring.jmx.enabled=false"));
+        argumentos.addAll(List.of(opciones));
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(MaquinaExpendedoraApplication.class)
+                .run(argumentos.toArray(String[]::new));
+        nodos.add(contexto);
+        MaquinaExpendedoraApplication.iniciar(contexto);
+        return contexto;
+    }
+
+    /**
+     * Compra el producto A1 de una máquina y espera a que se dispense
+     */
+    private void comprar(String url, String idMaquina) throws Exception {
+        String base = url + Constants.Global.API_BASE_PATH + Constants.Maquina.MAQUINA_SERVICE_PATH;
+        enviar(idMaquina, "POST", base + Constants.Maquina.MAQUINA_SERVICE_PATH_SELECT + "/A1");
+        enviar(idMaquina, "POST", base + Constants.Maquina.MAQUINA_SERVICE_PATH_INSERT_MONEY + "/5000");
+        enviar(idMaquina, "POST", base + Constants.Maquina.MAQUINA_SERVICE_PATH_CONFIRM_PAYMENT);
+        String ticket = enviar(idMaquina, "POST", base + Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE).path("data").path("id").asText();
+        esperar(() -> {
+            try {
+                return "COMPLETADO".equals(enviar(idMaquina, "GET", base + Constants.Maquina.MAQUINA_SERVICE_PATH_DISPENSE
+                        + "/" + ticket).path("data").path("estado").asText());
+            } catch (Exception e) {
+                return false;
+            }
+        });
+    }
+
+    private int stockA1(String url, String idMaquina) throws Exception {
+        JsonNode productos = enviar(idMaquina, "GET", url + Constants.Global.API_BASE_PATH + Constants.Maquina.MAQUINA_SERVICE_PATH
+                + Constants.Maquina.MAQUINA_SERVICE_PATH_PRODUCTS).path("data");
+        for (JsonNode producto : productos) {
+            if ("A1".equals(producto.path("codigo").asText())) {
+                return producto.path("stock").asInt();
+            }
+        }
+        return -1;
+    }
+
+    private static int stockA1(InstantaneaMaquina maquina) {
+        for (Producto producto : maquina.productos()) {
+            if ("A1".equals(producto.getCodigo())) {
+                return producto.getStock();
+            }
+        }
+        return -1;
+    }
+
+    private JsonNode enviar(String idMaquina, String metodo, String url) throws Exception {
+        HttpRequest solicitud = HttpRequest.newBuilder(URI.create(url))
+                .header(Constants.Global.MACHINE_ID_HEADER, idMaquina)
+                .method(metodo, HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> respuesta = cliente.send(solicitud, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, respuesta.statusCode(), respuesta.body());
+        return objectMapper.readTree(respuesta.body());
+    }
+
+    private Path escribirPlanograma() throws Exception {
+        StringBuilder contenido = new StringBuilder("idMaquina;region;casilla;sku;stock\n");
+        contenido.append(Constants.Maquina.MAQUINA_ID_DEFAULT).append(";GENERAL;A1;COCA-COLA-350;10\n");
+        for (int i = 0; i < MAQUINAS; i++) {
+            contenido.append("MAQ-").append(100 + i).append(";GENERAL;A1;COCA-COLA-350;10\n");
+            contenido.append("MAQ-").append(100 + i).append(";GENERAL;A2;PEPSI-350;10\n");
+        }
+        Path planograma = directorio.resolve("planograma.csv");
+        Files.writeString(planograma, contenido, StandardCharsets.UTF_8);
+        return planograma;
+    }
+
+    private static String url(ConfigurableApplicationContext contexto) {
+        return "http://localhost:" + ((WebServerApplicationContext) contexto).getWebServer().getPort() + CONTEXTO;
+    }
+
+    private static void esperar(BooleanSupplier condicion) {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "La condición no se cumplió a tiempo");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.discretas.maquinaexpendedora.reproduccion;
+
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.persistencia.InstantaneaBinaria;
+import com.discretas.maquinaexpendedora.persistencia.InstantaneaBinaria.InstantaneaMaquina;
+import com.discretas.maquinaexpendedora.reproduccion.ReproductorDiario.Informe;
+import com.discretas.maquinaexpendedora.reproduccion.ReproductorDiario.Operacion;
+import com.discretas.maquinaexpendedora.reproduccion.ReproductorDiario.TipoOperacion;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de regresión de rendimiento a partir de un diario grabado: una flota atiende tráfico de clientes
+ * con el diario activo, y las operaciones reconstruidas del diario se reproducen sobre una flota nueva a la
+ * máxima velocidad y al ritmo grabado, comprobando que el estado final coincide.
+ * <p>
+ * Un diario capturado en producción se reproduce con
+ * {@code -Dreproduccion.diario=<diario> -Dreproduccion.instantanea=<instantánea binaria>}.
+ * </p>
+ */
+@Slf4j
+class ReproduccionDiarioTest {
+
+    private static final int MAQUINAS = 8;
+
+    private static final int CLIENTES_POR_MAQUINA = 150;
+
+    private static final double[] DENOMINACIONES = {500, 1_000, 2_000, 5_000, 10_000};
+
+    /**
+     * Rendimiento mínimo de la reproducción a la máxima velocidad
+     */
+    private static final double MINIMO_OPERACIONES_POR_SEGUNDO = 1_000;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void reproduceElDiarioGrabadoHastaElMismoEstado() throws Exception {
+        List<InstantaneaMaquina> inicial = flotaInicial();
+        Path diario = directorio.resolve("diario.log");
+
+        Map<String, InstantaneaMaquina> grabado;
+        try (ReproductorDiario produccion = new ReproductorDiario(inicial, diario)) {
+            Informe informe = produccion.reproducir(trafico(inicial, new Random(49)), 0);
+            produccion.esperarDiario();
+            grabado = produccion.estado();
+            log.info("Tráfico grabado: {}", informe);
+            assertTrue(informe.rechazadas() > 0);
+        }
+        assertEquals(List.of(), ReproductorDiario.diferencias(ReproductorDiario.estadoEsperado(inicial, diario), grabado));
+
+        List<Operacion> operaciones = ReproductorDiario.leerOperaciones(diario, inicial);
+        assertTrue(operaciones.stream().anyMatch(o -> o.tipo() == TipoOperacion.DISPENSAR && o.resultados().contains(false)));
+        assertTrue(operaciones.stream().anyMatch(o -> o.tipo() == TipoOperacion.CANCELAR));
+
+        try (ReproductorDiario reproduccion = new ReproductorDiario(inicial, null)) {
+            Informe informe = reproduccion.reproducir(operaciones, 0);
+            log.info("Reproducción a máxima velocidad: {}", informe);
+            assertEquals(List.of(), ReproductorDiario.diferencias(reproduccion.estado(), grabado));
+            assertTrue(informe.operacionesPorSegundo() >= MINIMO_OPERACIONES_POR_SEGUNDO, informe.toString());
+        }
+
+        long duracionGrabada = operaciones.get(operaciones.size() - 1).marcaTiempo() - operaciones.get(0).marcaTiempo();
+        try (ReproductorDiario reproduccion = new ReproductorDiario(inicial, null)) {
+            Informe informe = reproduccion.reproducir(operaciones, 1);
+            log.info("Reproducción al ritmo grabado ({} ms): {}", duracionGrabada, informe);
+            assertEquals(List.of(), ReproductorDiario.diferencias(reproduccion.estado(), grabado));
+            assertTrue(informe.duracionMs() >= duracionGrabada, informe.toString());
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "reproduccion.diario", matches = ".+")
+    void reproduceUnDiarioCapturado() throws Exception {
+        Path diario = Path.of(System.getProperty("reproduccion.diario"));
+        Path instantanea = Path.of(System.getProperty("reproduccion.instantanea"));
+        double velocidad = Double.parseDouble(System.getProperty("reproduccion.velocidad", "0"));
+        assertTrue(Files.exists(diario) && Files.exists(instantanea));
+
+        List<InstantaneaMaquina> inicial = InstantaneaBinaria.leer(instantanea).maquinas();
+        List<Operacion> operaciones = ReproductorDiario.leerOperaciones(diario, inicial);
+        try (ReproductorDiario reproduccion = new ReproductorDiario(inicial, null)) {
+            Informe informe = reproduccion.reproducir(operaciones, velocidad);
+            log.info("Reproducción de {}: {}", diario, informe);
+            assertEquals(List.of(), ReproductorDiario.diferencias(reproduccion.estado(),
+                    ReproductorDiario.estadoEsperado(inicial, diario)));
+        }
+    }
+
+    /**
+     * Flota con una casilla de poco stock, para que haya productos agotados, y una máquina sin dinero
+     * para cambio, para que haya pagos sin cambio que el cliente cancela
+     */
+    private static List<InstantaneaMaquina> flotaInicial() {
+        List<InstantaneaMaquina> flota = new ArrayList<>();
+        for (int i = 0; i < MAQUINAS; i++) {
+            MaquinaExpendedora maquina = new MaquinaExpendedora();
+            maquina.setId(i == 0 ? Constants.Maquina.MAQUINA_ID_DEFAULT : String.format("MAQ-R%02d", i));
+            maquina.setDineroDisponible(i == 1 ? 0 : 50_000);
+            maquina.inicializarInventario(Map.of(
+                    "A1", new Producto("A1", "Coca Cola", 2500, 60, "Bebida gaseosa 350ml"),
+                    "A2", new Producto("A2", "Agua", 1500, 60, "Agua natural 500ml"),
+                    "B1", new Producto("B1", "Papas", 3000, 60, "Papas fritas 45g"),
+                    "B2", new Producto("B2", "Chocolatina", 2000, 4, "Chocolatina 30g")));
+            flota.add(InstantaneaMaquina.tomar(maquina));
+        }
+        return flota;
+    }
+
+    /**
+     * Genera clientes que eligen uno o dos productos, pagan con billetes y monedas hasta cubrir el precio,
+     * confirman y retiran el producto, y al final pulsan cancelar para recuperar su dinero si algo falló.
+     * Algunos clientes se arrepienten y cancelan antes de pagar.
+     */
+    private static List<Operacion> trafico(List<InstantaneaMaquina> flota, Random aleatorio) {
+        List<Operacion> operaciones = new ArrayList<>();
+        String[] codigos = {"A1", "A2", "B1", "B2"};
+        double[] precios = {2500, 1500, 3000, 2000};
+        long marca = 0;
+        for (int cliente = 0; cliente < CLIENTES_POR_MAQUINA; cliente++) {
+            for (InstantaneaMaquina maquina : flota) {
+                String id = maquina.id();
+                int elegido = aleatorio.nextInt(codigos.length);
+                double total = precios[elegido];
+                operaciones.add(Operacion.de(marca++, id, TipoOperacion.SELECCIONAR, codigos[elegido], 0));
+                if (aleatorio.nextDouble() < 0.2) {
+                    int otro = aleatorio.nextInt(codigos.length);
+                    total += precios[otro];
+                    operaciones.add(Operacion.de(marca++, id, TipoOperacion.AGREGAR, codigos[otro], 0));
+                }
+                if (aleatorio.nextDouble() < 0.1) {
+                    operaciones.add(Operacion.de(marca++, id, TipoOperacion.INSERTAR, null, 1_000));
+                    operaciones.add(Operacion.de(marca++, id, TipoOperacion.CANCELAR, null, 0));
+                    continue;
+                }
+                for (double pagado = 0; pagado < total; ) {
+                    double billete = DENOMINACIONES[aleatorio.nextInt(DENOMINACIONES.length)];
+                    pagado += billete;
+                    operaciones.add(Operacion.de(marca++, id, TipoOperacion.INSERTAR, null, billete));
+                }
+                operaciones.add(Operacion.de(marca++, id, TipoOperacion.CONFIRMAR, null, 0));
+                operaciones.add(new Operacion(-1, marca++, id, TipoOperacion.DISPENSAR, null, 0, 0,
+                        List.of(aleatorio.nextDouble() < 0.95, aleatorio.nextDouble() < 0.95)));
+                operaciones.add(Operacion.de(marca++, id, TipoOperacion.CANCELAR, null, 0));
+            }
+        }
+        return operaciones;
+    }
+}
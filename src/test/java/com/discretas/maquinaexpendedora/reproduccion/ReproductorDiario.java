@@ -0,0 +1,505 @@
+package com.discretas.maquinaexpendedora.reproduccion;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.cluster.EnrutadorCluster;
+import com.discretas.maquinaexpendedora.cluster.GestorCluster;
+import com.discretas.maquinaexpendedora.cluster.SecretoCluster;
+import com.discretas.maquinaexpendedora.events.AgregadosVentas;
+import com.discretas.maquinaexpendedora.events.BusEventos;
+import com.discretas.maquinaexpendedora.events.ConsumidorEventos;
+import com.discretas.maquinaexpendedora.events.DiarioEventos;
+import com.discretas.maquinaexpendedora.events.TipoEvento;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.models.TicketDispensacion;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+import com.discretas.maquinaexpendedora.persistencia.InstantaneaBinaria;
+import com.discretas.maquinaexpendedora.persistencia.InstantaneaBinaria.InstantaneaMaquina;
+import com.discretas.maquinaexpendedora.precios.MotorPromociones;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.services.MaquinaService;
+import com.discretas.maquinaexpendedora.services.ServiciosPrueba;
+import com.discretas.maquinaexpendedora.state.CodigoResultado;
+import com.discretas.maquinaexpendedora.state.ResultadoOperacion;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Arnés de reproducción de operaciones para pruebas de regresión de rendimiento.
+ * <p>
+ * Las operaciones de los clientes (seleccionar, agregar, insertar, confirmar, dispensar y cancelar) se
+ * reconstruyen a partir del diario de eventos, que registra cada operación aceptada con su máquina y su
+ * marca de tiempo, y se reproducen sobre una flota nueva a través del enrutador y la capa de servicio,
+ * a la máxima velocidad o al ritmo grabado. Las operaciones de cada máquina se ejecutan en orden en su
+ * propio hilo virtual, como las de un cliente frente a la máquina, y las de máquinas distintas en paralelo.
+ * El dispensador entrega o falla cada producto según lo grabado.
+ * </p>
+ */
+final class ReproductorDiario implements AutoCloseable {
+
+    private static final double TOLERANCIA_DINERO = 1e-6;
+
+    private static final long ESPERA_DIARIO_MS = 10_000;
+
+    /**
+     * Operaciones de los clientes sobre la máquina
+     */
+    enum TipoOperacion { SELECCIONAR, AGREGAR, INSERTAR, CONFIRMAR, DISPENSAR, CANCELAR }
+
+    /**
+     * Operación grabada
+     * @param secuencia Secuencia del evento que la registró
+     * @param marcaTiempo Momento en que se ejecutó (epoch en milisegundos)
+     * @param idMaquina Máquina sobre la que se ejecutó
+     * @param tipo Tipo de operación
+     * @param codigoProducto Producto seleccionado o agregado, null si no aplica
+     * @param monto Dinero insertado, 0 si no aplica
+     * @param duracionMs Tiempo que tardó el hardware en dispensar, 0 si no aplica
+     * @param resultados Resultado del hardware para cada producto dispensado, vacío si no aplica
+     */
+    record Operacion(long secuencia, long marcaTiempo, String idMaquina, TipoOperacion tipo, String codigoProducto,
+                     double monto, long duracionMs, List<Boolean> resultados) {
+
+        static Operacion de(long marcaTiempo, String idMaquina, TipoOperacion tipo, String codigoProducto, double monto) {
+            return new Operacion(-1, marcaTiempo, idMaquina, tipo, codigoProducto, monto, 0, List.of());
+        }
+    }
+
+    /**
+     * Resultado de una reproducción
+     * @param operaciones Operaciones reproducidas
+     * @param rechazadas Operaciones que la capa de servicio no aceptó
+     * @param duracionMs Tiempo total de la reproducción
+     * @param operacionesPorSegundo Rendimiento de la reproducción
+     * @param latenciaP50Us Mediana de la latencia de una operación, en microsegundos
+     * @param latenciaP99Us Percentil 99 de la latencia de una operación, en microsegundos
+     * @param latenciaMaximaUs Latencia máxima de una operación, en microsegundos
+     */
+    record Informe(int operaciones, int rechazadas, long duracionMs, double operacionesPorSegundo,
+                   long latenciaP50Us, long latenciaP99Us, long latenciaMaximaUs) {
+
+        @Override
+        public String toString() {
+            return String.format("%d operaciones (%d rechazadas) en %d ms: %.0f op/s, latencia p50 %d us, p99 %d us, máx %d us",
+                    operaciones, rechazadas, duracionMs, operacionesPorSegundo, latenciaP50Us, latenciaP99Us, latenciaMaximaUs);
+        }
+    }
+
+    private final BusEventos bus;
+
+    private final DiarioEventos diarioEventos;
+
+    private final FlotaMaquinas flota;
+
+    private final MaquinaService servicio;
+
+    private final EnrutadorCluster enrutador;
+
+    private final List<String> idsMaquinas = new ArrayList<>();
+
+    /**
+     * Resultados pendientes del hardware por máquina para la dispensación en curso
+     */
+    private final Map<String, Guion> guiones = new ConcurrentHashMap<>();
+
+    private final AtomicInteger rechazadas = new AtomicInteger();
+
+    /**
+     * Crea una flota nueva con el estado inicial de las máquinas, con su bus de eventos, su capa de servicio
+     * y su enrutador, como los de un nodo recién arrancado
+     * @param inicial Estado inicial de las máquinas
+     * @param diario Diario en el que se registran los eventos, null para no registrarlos
+     */
+    ReproductorDiario(List<InstantaneaMaquina> inicial, Path diario) {
+        DefaultListableBeanFactory fabrica = new DefaultListableBeanFactory();
+        AgregadosVentas agregados = new AgregadosVentas();
+        diarioEventos = new DiarioEventos(diario != null ? diario.toString() : "");
+        fabrica.registerSingleton("diarioEventos", diarioEventos);
+        fabrica.registerSingleton("agregadosVentas", agregados);
+        bus = new BusEventos(1024, fabrica.getBeanProvider(ConsumidorEventos.class));
+
+        MaquinaExpendedora principal = new MaquinaExpendedora(bus);
+        flota = new FlotaMaquinas(principal, 64);
+        for (InstantaneaMaquina instantanea : copiar(inicial)) {
+            MaquinaExpendedora maquina = instantanea.id().equals(principal.getId()) ? principal : new MaquinaExpendedora(bus);
+            instantanea.restaurarEn(maquina);
+            flota.registrar(maquina);
+            idsMaquinas.add(instantanea.id());
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        MotorPromociones motorPromociones = new MotorPromociones("", 15, "", 50, flota, objectMapper);
+        servicio = ServiciosPrueba.maquinaService(flota, this::dispensar);
+        SecretoCluster secreto = new SecretoCluster("", objectMapper);
+        GestorCluster gestorCluster = new GestorCluster("", "", 128, 2_000, 1_000, flota, bus, motorPromociones, secreto);
+        enrutador = new EnrutadorCluster(gestorCluster, flota, objectMapper, secreto, 30_000);
+        bus.start();
+    }
+
+    /**
+     * Reconstruye las operaciones de los clientes a partir del diario de eventos. De cada máquina solo se
+     * toman los eventos posteriores a su estado inicial. Una dispensación se registra al cerrarse, con la
+     * marca de tiempo de la confirmación del pago y el resultado del hardware para cada producto.
+     * @param diario Diario de eventos
+     * @param inicial Estado inicial de las máquinas; los eventos de otras máquinas se ignoran
+     * @return Operaciones en el orden del diario
+     * @throws IOException Si el diario no puede leerse
+     */
+    static List<Operacion> leerOperaciones(Path diario, List<InstantaneaMaquina> inicial) throws IOException {
+        Map<String, Long> desde = new HashMap<>();
+        Set<String> enDispensacion = new HashSet<>();
+        for (InstantaneaMaquina maquina : inicial) {
+            desde.put(maquina.id(), maquina.ultimaSecuenciaEvento());
+            if ("DISPENSANDO".equals(maquina.estado())) {
+                enDispensacion.add(maquina.id());
+            }
+        }
+
+        List<Operacion> operaciones = new ArrayList<>();
+        Map<String, Dispensacion> pendientes = new HashMap<>();
+        DiarioEventos.reproducir(diario, evento -> {
+            String id = evento.getIdMaquina();
+            Long ultima = desde.get(id);
+            if (ultima == null || evento.getSecuencia() <= ultima) {
+                return;
+            }
+            TipoEvento tipo = evento.getTipo();
+            switch (tipo) {
+                case PRODUCTO_SELECCIONADO -> operaciones.add(new Operacion(evento.getSecuencia(), evento.getTimestamp(), id,
+                        TipoOperacion.SELECCIONAR, evento.getCodigoProducto(), 0, 0, List.of()));
+                case ARTICULO_AGREGADO -> operaciones.add(new Operacion(evento.getSecuencia(), evento.getTimestamp(), id,
+                        TipoOperacion.AGREGAR, evento.getCodigoProducto(), 0, 0, List.of()));
+                case DINERO_INSERTADO -> operaciones.add(new Operacion(evento.getSecuencia(), evento.getTimestamp(), id,
+                        TipoOperacion.INSERTAR, null, evento.getMonto(), 0, List.of()));
+                case SIN_CAMBIO, PAGO_CONFIRMADO -> {
+                    operaciones.add(new Operacion(evento.getSecuencia(), evento.getTimestamp(), id,
+                            TipoOperacion.CONFIRMAR, null, 0, 0, List.of()));
+                    if (tipo == TipoEvento.PAGO_CONFIRMADO) {
+                        pendientes.put(id, new Dispensacion(evento.getSecuencia(), evento.getTimestamp()));
+                    }
+                }
+                case ARTICULO_DISPENSADO, ARTICULO_REEMBOLSADO -> pendientes
+                        .computeIfAbsent(id, k -> new Dispensacion(evento.getSecuencia(), evento.getTimestamp()))
+                        .resultados.add(tipo == TipoEvento.ARTICULO_DISPENSADO);
+                case PRODUCTO_DISPENSADO, TRANSACCION_CANCELADA -> {
+                    Dispensacion pendiente = pendientes.remove(id);
+                    boolean dispensacion = tipo == TipoEvento.PRODUCTO_DISPENSADO || pendiente != null || enDispensacion.contains(id);
+                    enDispensacion.remove(id);
+                    if (!dispensacion) {
+                        operaciones.add(new Operacion(evento.getSecuencia(), evento.getTimestamp(), id,
+                                TipoOperacion.CANCELAR, null, 0, 0, List.of()));
+                        return;
+                    }
+                    if (pendiente == null) {
+                        pendiente = new Dispensacion(evento.getSecuencia(), evento.getTimestamp());
+                    }
+                    // En un carrito cada producto tiene su evento; un producto suelo se cierra con el resultado
+                    if (pendiente.resultados.isEmpty()) {
+                        pendiente.resultados.add(tipo == TipoEvento.PRODUCTO_DISPENSADO);
+                    }
+                    operaciones.add(new Operacion(pendiente.secuencia, pendiente.marcaTiempo, id, TipoOperacion.DISPENSAR, null, 0,
+                            evento.getTimestamp() - pendiente.marcaTiempo, List.copyOf(pendiente.resultados)));
+                }
+            }
+        });
+        return operaciones;
+    }
+
+    /**
+     * Calcula el estado final esperado aplicando el diario sobre el estado inicial, como al recuperar un nodo
+     * @param inicial Estado inicial de las máquinas
+     * @param diario Diario de eventos
+     * @return Estado final de cada máquina, por identificador
+     * @throws IOException Si el diario no puede leerse
+     */
+    static Map<String, InstantaneaMaquina> estadoEsperado(List<InstantaneaMaquina> inicial, Path diario) throws IOException {
+        Map<String, MaquinaExpendedora> maquinas = new LinkedHashMap<>();
+        for (InstantaneaMaquina instantanea : copiar(inicial)) {
+            MaquinaExpendedora maquina = new MaquinaExpendedora();
+            instantanea.restaurarEn(maquina);
+            maquinas.put(maquina.getId(), maquina);
+        }
+        DiarioEventos.reproducir(diario, evento -> {
+            MaquinaExpendedora maquina = maquinas.get(evento.getIdMaquina());
+            if (maquina != null && evento.getSecuencia() > maquina.getUltimaSecuenciaEvento()) {
+                maquina.aplicarEvento(evento);
+            }
+        });
+        Map<String, InstantaneaMaquina> estado = new LinkedHashMap<>();
+        maquinas.forEach((id, maquina) -> estado.put(id, InstantaneaMaquina.tomar(maquina)));
+        return estado;
+    }
+
+    /**
+     * Compara el stock, el dinero, el estado y el historial de dos estados de la flota. Los identificadores
+     * y las fechas de las transacciones no se comparan, porque la reproducción genera los suyos.
+     * @param obtenido Estado obtenido
+     * @param esperado Estado esperado
+     * @return Descripción de cada diferencia; vacía si coinciden
+     */
+    static List<String> diferencias(Map<String, InstantaneaMaquina> obtenido, Map<String, InstantaneaMaquina> esperado) {
+        List<String> diferencias = new ArrayList<>();
+        for (InstantaneaMaquina esperada : esperado.values()) {
+            InstantaneaMaquina maquina = obtenido.get(esperada.id());
+            String id = esperada.id();
+            if (maquina == null) {
+                diferencias.add(id + ": no existe");
+                continue;
+            }
+            if (!esperada.estado().equals(maquina.estado())) {
+                diferencias.add(id + ": estado " + maquina.estado() + ", se esperaba " + esperada.estado());
+            }
+            if (Math.abs(esperada.dineroDisponible() - maquina.dineroDisponible()) > TOLERANCIA_DINERO) {
+                diferencias.add(id + ": dinero " + maquina.dineroDisponible() + ", se esperaba " + esperada.dineroDisponible());
+            }
+            if (!stock(esperada).equals(stock(maquina))) {
+                diferencias.add(id + ": stock " + stock(maquina) + ", se esperaba " + stock(esperada));
+            }
+            List<String> historialEsperado = esperada.historial().stream().map(ReproductorDiario::resumen).toList();
+            List<String> historial = maquina.historial().stream().map(ReproductorDiario::resumen).toList();
+            if (!historialEsperado.equals(historial)) {
+                int i = 0;
+                while (i < Math.min(historial.size(), historialEsperado.size()) && historial.get(i).equals(historialEsperado.get(i))) {
+                    i++;
+                }
+                diferencias.add(id + ": historial de " + historial.size() + " transacciones, se esperaban " + historialEsperado.size()
+                        + "; la primera diferencia en la posición " + i);
+            }
+        }
+        return diferencias;
+    }
+
+    /**
+     * Reproduce las operaciones sobre la flota
+     * @param operaciones Operaciones en orden
+     * @param velocidad Múltiplo del ritmo grabado (1 para el ritmo original), 0 para la máxima velocidad
+     * @return Rendimiento y latencia de la reproducción
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    Informe reproducir(List<Operacion> operaciones, double velocidad) throws InterruptedException {
+        Map<String, List<Operacion>> porMaquina = new LinkedHashMap<>();
+        long primera = Long.MAX_VALUE;
+        for (Operacion operacion : operaciones) {
+            porMaquina.computeIfAbsent(operacion.idMaquina(), id -> new ArrayList<>()).add(operacion);
+            primera = Math.min(primera, operacion.marcaTiempo());
+        }
+        long[] latencias = new long[operaciones.size()];
+        AtomicInteger siguiente = new AtomicInteger();
+        rechazadas.set(0);
+
+        long marcaInicial = primera;
+        long inicio = System.nanoTime();
+        List<Future<?>> tareas = new ArrayList<>();
+        try (ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<Operacion> cola : porMaquina.values()) {
+                tareas.add(ejecutor.submit(() -> {
+                    for (Operacion operacion : cola) {
+                        if (velocidad > 0) {
+                            long objetivo = inicio + (long) (TimeUnit.MILLISECONDS.toNanos(operacion.marcaTiempo() - marcaInicial) / velocidad);
+                            for (long espera = objetivo - System.nanoTime(); espera > 0; espera = objetivo - System.nanoTime()) {
+                                LockSupport.parkNanos(espera);
+                            }
+                        }
+                        latencias[siguiente.getAndIncrement()] = ejecutar(operacion, velocidad);
+                    }
+                }));
+            }
+        }
+        long duracion = System.nanoTime() - inicio;
+        for (Future<?> tarea : tareas) {
+            try {
+                tarea.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Falló la reproducción", e.getCause());
+            }
+        }
+
+        Arrays.sort(latencias);
+        int n = latencias.length;
+        return new Informe(n, rechazadas.get(), TimeUnit.NANOSECONDS.toMillis(duracion),
+                n / Math.max(1e-9, duracion / 1e9),
+                n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(latencias[(n - 1) / 2]),
+                n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(latencias[(int) Math.ceil(n * 0.99) - 1]),
+                n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(latencias[n - 1]));
+    }
+
+    /**
+     * Espera a que el diario haya volcado a disco todos los eventos publicados
+     */
+    void esperarDiario() {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ESPERA_DIARIO_MS);
+        while (diarioEventos.getConfirmado().secuencia() < bus.getUltimaSecuencia()) {
+            if (System.nanoTime() > limite) {
+                throw new IllegalStateException("El diario no alcanzó la secuencia " + bus.getUltimaSecuencia());
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Copia el estado actual de las máquinas reproducidas
+     * @return Estado de cada máquina, por identificador
+     */
+    Map<String, InstantaneaMaquina> estado() {
+        Map<String, InstantaneaMaquina> estado = new LinkedHashMap<>();
+        for (String id : idsMaquinas) {
+            ActorMaquina actor = flota.obtener(id);
+            estado.put(id, actor.ejecutar(InstantaneaMaquina::tomar));
+        }
+        return estado;
+    }
+
+    @Override
+    public void close() {
+        bus.stop();
+        flota.detener();
+    }
+
+    /**
+     * Ejecuta una operación a través del enrutador y la capa de servicio, como una solicitud con la
+     * cabecera de la máquina. Una dispensación termina cuando el ticket se completa.
+     * @return Latencia de la operación en nanosegundos
+     */
+    private long ejecutar(Operacion operacion, double velocidad) {
+        MockHttpServletRequest solicitud = new MockHttpServletRequest();
+        solicitud.addHeader(Constants.Global.MACHINE_ID_HEADER, operacion.idMaquina());
+        long inicio = System.nanoTime();
+        try {
+            if (!enrutador.preHandle(solicitud, new MockHttpServletResponse(), null)) {
+                rechazadas.incrementAndGet();
+                return System.nanoTime() - inicio;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(solicitud));
+        try {
+            ApiResponseDTO<?> respuesta = switch (operacion.tipo()) {
+                case SELECCIONAR -> servicio.seleccionarProductoAsync(operacion.codigoProducto()).join();
+                case AGREGAR -> servicio.agregarProductoAsync(operacion.codigoProducto()).join();
+                case INSERTAR -> servicio.insertarDineroAsync(operacion.monto()).join();
+                case CONFIRMAR -> servicio.confirmarPagoAsync().join();
+                case CANCELAR -> servicio.cancelarTransaccionAsync().join();
+                case DISPENSAR -> {
+                    long retardo = velocidad > 0 && !operacion.resultados().isEmpty()
+                            ? (long) (TimeUnit.MILLISECONDS.toNanos(operacion.duracionMs()) / velocidad / operacion.resultados().size()) : 0;
+                    guiones.put(operacion.idMaquina(), new Guion(operacion.resultados(), retardo));
+                    ApiResponseDTO<TicketDispensacion> dispensacion = servicio.dispensarProductoAsync().join();
+                    if (dispensacion.getData() != null) {
+                        dispensacion.getData().getFinalizacion().join();
+                    }
+                    yield dispensacion;
+                }
+            };
+            if (respuesta.getStatus() >= 400 || !esAceptada(respuesta.getData())) {
+                rechazadas.incrementAndGet();
+            }
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    private static boolean esAceptada(Object data) {
+        if (data instanceof ResultadoOperacion resultado) {
+            return resultado.getTipo() != CodigoResultado.TipoResultado.ERROR;
+        }
+        return !(data instanceof TicketDispensacion ticket) || ticket.getEstado() != TicketDispensacion.EstadoTicket.RECHAZADO;
+    }
+
+    /**
+     * Dispensador que entrega o falla cada producto según el resultado grabado
+     */
+    private CompletableFuture<Boolean> dispensar(TicketDispensacion ticket) {
+        Guion guion = guiones.get(ticket.getIdMaquina());
+        Boolean exito = guion != null ? guion.resultados.poll() : null;
+        boolean entregado = Boolean.TRUE.equals(exito);
+        if (guion == null || guion.retardoNs == 0) {
+            return CompletableFuture.completedFuture(entregado);
+        }
+        return CompletableFuture.supplyAsync(() -> entregado, CompletableFuture.delayedExecutor(guion.retardoNs, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Copia independiente del estado inicial: al restaurarse, una copia cede sus productos y transacciones a la máquina
+     */
+    private static List<InstantaneaMaquina> copiar(List<InstantaneaMaquina> maquinas) {
+        try {
+            return InstantaneaBinaria.deserializarMaquinas(InstantaneaBinaria.serializarMaquinas(maquinas));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, Integer> stock(InstantaneaMaquina maquina) {
+        Map<String, Integer> stock = new TreeMap<>();
+        for (Producto producto : maquina.productos()) {
+            stock.put(producto.getCodigo(), producto.getStock());
+        }
+        return stock;
+    }
+
+    private static String resumen(Transaccion transaccion) {
+        return transaccion.getEstado() + " " + (transaccion.getProducto() != null ? transaccion.getProducto().getCodigo() : "-")
+                + " x" + Math.max(1, transaccion.getLineas().size()) + " precio " + transaccion.getPrecio()
+                + " pagado " + transaccion.getMontoPagado() + " cambio " + transaccion.getCambio();
+    }
+
+    /**
+     * Dispensación abierta al leer el diario
+     */
+    private static final class Dispensacion {
+        private final long secuencia;
+        private final long marcaTiempo;
+        private final List<Boolean> resultados = new ArrayList<>();
+
+        private Dispensacion(long secuencia, long marcaTiempo) {
+            this.secuencia = secuencia;
+            this.marcaTiempo = marcaTiempo;
+        }
+    }
+
+    /**
+     * Resultados del hardware pendientes para la dispensación en curso de una máquina
+     */
+    private static final class Guion {
+        private final Queue<Boolean> resultados;
+        private final long retardoNs;
+
+        private Guion(List<Boolean> resultados, long retardoNs) {
+            this.resultados = new ConcurrentLinkedQueue<>(resultados);
+            this.retardoNs = retardoNs;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.discretas.maquinaexpendedora.services;
+
+import com.discretas.maquinaexpendedora.actor.ActorMaquina;
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.LineaCarrito;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.models.TicketDispensacion;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.maquina;
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.producto;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de estrés de compras concurrentes: muchos hilos intercalan selecciones, inserciones, confirmaciones,
+ * dispensaciones y cancelaciones sobre una misma máquina, directamente a través de su actor y a través de
+ * {@link MaquinaService}, y al terminar se verifican los invariantes: el stock nunca es negativo, cada unidad
+ * se dispensa una sola vez, el dinero es el inicial más las ventas menos el cambio y toda transacción termina
+ * completada o cancelada.
+ * La duración y el número de hilos se ajustan con las propiedades {@code estres.duracionMs} y {@code estres.hilos}.
+ */
+@Slf4j
+class CompraConcurrenteEstresTest {
+
+    private static final int HILOS = Integer.getInteger("estres.hilos", 16);
+
+    private static final long DURACION_MS = Long.getLong("estres.duracionMs", 1_000);
+
+    /**
+     * Poco dinero para cambio, para que haya pagos sin cambio
+     */
+    private static final double DINERO_INICIAL = 5_000;
+
+    private static final String[] CODIGOS = {"A1", "A2", "B1", "B2"};
+
+    private static final double[] DENOMINACIONES = {500, 1_000, 2_000, 5_000, 10_000};
+
+    /**
+     * Probabilidad de que el hardware no entregue un producto
+     */
+    private static final double PROBABILIDAD_FALLO = 0.1;
+
+    private final ExecutorService ejecutorActores = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicInteger contadorTickets = new AtomicInteger();
+
+    /**
+     * Unidades entregadas por el hardware, por código de producto
+     */
+    private final Map<String, LongAdder> entregadas = new ConcurrentHashMap<>();
+
+    private FlotaMaquinas flota;
+
+    @AfterEach
+    void detener() {
+        if (flota != null) {
+            flota.detener();
+        }
+        ejecutorActores.shutdown();
+    }
+
+    @Test
+    void comprasConcurrentesSobreLaMaquinaMantienenLosInvariantes() throws Exception {
+        MaquinaExpendedora maquina = nuevaMaquina();
+        Map<String, Integer> stockInicial = stock(maquina);
+        ActorMaquina actor = new ActorMaquina(maquina, ejecutorActores, 64);
+
+        estresar(actor, aleatorio -> operarMaquina(actor, aleatorio));
+        drenar(actor);
+
+        assertEquals(List.of(), actor.ejecutar(m -> violaciones(m, stockInicial)));
+    }
+
+    @Test
+    void comprasConcurrentesPorElServicioMantienenLosInvariantes() throws Exception {
+        MaquinaExpendedora maquina = nuevaMaquina();
+        Map<String, Integer> stockInicial = stock(maquina);
+        flota = new FlotaMaquinas(maquina, 64);
+        MaquinaService servicio = ServiciosPrueba.maquinaService(flota, this::dispensar);
+        ActorMaquina actor = flota.getPrincipal();
+
+        estresar(actor, aleatorio -> operarServicio(servicio, aleatorio));
+        drenar(actor);
+
+        assertEquals(List.of(), actor.ejecutar(m -> violaciones(m, stockInicial)));
+    }
+
+    /**
+     * Ejecuta operaciones aleatorias desde {@link #HILOS} hilos durante {@link #DURACION_MS}, mientras un
+     * observador comprueba que el stock de la máquina nunca es negativo
+     */
+    private void estresar(ActorMaquina actor, Operacion operacion) throws Exception {
+        AtomicBoolean activo = new AtomicBoolean(true);
+        AtomicLong operaciones = new AtomicLong();
+        AtomicInteger stockMinimo = new AtomicInteger(Integer.MAX_VALUE);
+        List<Future<?>> tareas = new ArrayList<>();
+
+        long inicio = System.nanoTime();
+        long limite = inicio + TimeUnit.MILLISECONDS.toNanos(DURACION_MS);
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < HILOS; i++) {
+                tareas.add(hilos.submit(() -> {
+                    ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+                    long propias = 0;
+                    while (System.nanoTime() < limite) {
+                        operacion.ejecutar(aleatorio);
+                        propias++;
+                    }
+                    operaciones.addAndGet(propias);
+                    return null;
+                }));
+            }
+            tareas.add(hilos.submit(() -> {
+                while (activo.get()) {
+                    int minimo = actor.ejecutar(m -> m.getInventario().values().stream().mapToInt(Producto::getStock).min().orElse(0));
+                    stockMinimo.accumulateAndGet(minimo, Math::min);
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                }
+                return null;
+            }));
+            for (Future<?> tarea : tareas.subList(0, HILOS)) {
+                tarea.get();
+            }
+            activo.set(false);
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        long nanos = System.nanoTime() - inicio;
+
+        log.info("{} hilos durante {} ms: {} operaciones, {} ops/s",
+
+                HILOS, DURACION_MS, operaciones.get(), operaciones.get() * 1_000_000_000L / nanos);
+        assertTrue(stockMinimo.get() >= 0, "El stock llegó a " + stockMinimo.get());
+    }
+
+    private void operarMaquina(ActorMaquina actor, Random aleatorio) {
+        switch (aleatorio.nextInt(10)) {
+            case 0, 1 -> actor.ejecutar(m -> m.seleccionarProducto(codigo(aleatorio)));
+            case 2 -> actor.ejecutar(m -> m.agregarProducto(codigo(aleatorio)));
+            case 3, 4, 5 -> actor.ejecutar(m -> m.insertarDinero(denominacion(aleatorio)));
+            case 6 -> actor.ejecutar(MaquinaExpendedora::confirmarPago);
+            case 7, 8 -> dispensar(actor, aleatorio);
+            default -> actor.ejecutar(MaquinaExpendedora::cancelarTransaccion);
+        }
+    }
+
+    private void operarServicio(MaquinaService servicio, Random aleatorio) {
+        switch (aleatorio.nextInt(10)) {
+            case 0, 1 -> servicio.seleccionarProductoAsync(codigo(aleatorio)).join();
+            case 2 -> servicio.agregarProductoAsync(codigo(aleatorio)).join();
+            case 3, 4, 5 -> servicio.insertarDineroAsync(denominacion(aleatorio)).join();
+            case 6 -> servicio.confirmarPagoAsync().join();
+            case 7, 8 -> {
+                ApiResponseDTO<TicketDispensacion> respuesta = servicio.dispensarProductoAsync().join();
+                if (respuesta.getData() != null) {
+                    respuesta.getData().getFinalizacion().join();
+                }
+            }
+            default -> servicio.cancelarTransaccionAsync().join();
+        }
+    }
+
+    /**
+     * Dispensa directamente sobre la máquina: inicia la dispensación y completa cada producto con el
+     * resultado del hardware en un comando aparte, para que otros hilos se intercalen entre productos
+     */
+    private void dispensar(ActorMaquina actor, Random aleatorio) {
+        TicketDispensacion ticket = actor.ejecutar(m -> m.iniciarDispensacion("T-" + contadorTickets.incrementAndGet()));
+        while (ticket.estaPendiente()) {
+            boolean exito = aleatorio.nextDouble() >= PROBABILIDAD_FALLO;
+            actor.ejecutar(m -> {
+                if (exito) {
+                    entregar(ticket.getCodigoProducto());
+                }
+                return m.completarDispensacion(ticket.getId(), exito);
+            });
+        }
+    }
+
+    /**
+     * Dispensador del servicio: falla con cierta probabilidad y responde tras un retardo aleatorio
+     */
+    private CompletableFuture<Boolean> dispensar(TicketDispensacion ticket) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        boolean exito = aleatorio.nextDouble() >= PROBABILIDAD_FALLO;
+        if (exito) {
+            entregar(ticket.getCodigoProducto());
+        }
+        return CompletableFuture.supplyAsync(() -> exito,
+                CompletableFuture.delayedExecutor(aleatorio.nextInt(100), TimeUnit.MICROSECONDS));
+    }
+
+    private void entregar(String codigo) {
+        entregadas.computeIfAbsent(codigo, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Lleva la máquina al estado inicial cuando ya no quedan hilos operando: termina la dispensación
+     * pendiente o cancela la transacción en curso
+     */
+    private void drenar(ActorMaquina actor) {
+        Random aleatorio = new Random(50);
+        for (int intento = 0; intento < 10; intento++) {
+            String estado = actor.ejecutar(MaquinaExpendedora::getEstadoActualNombre);
+            if ("SELECCIONANDO".equals(estado)) {
+                return;
+            }
+            if ("DISPENSANDO".equals(estado)) {
+                dispensar(actor, aleatorio);
+            } else {
+                actor.ejecutar(MaquinaExpendedora::cancelarTransaccion);
+            }
+        }
+    }
+
+    /**
+     * Verifica los invariantes de la máquina en reposo. Debe ejecutarse dentro del actor.
+     * @return Descripción de cada invariante violado; vacía si se cumplen todos
+     */
+    private List<String> violaciones(MaquinaExpendedora maquina, Map<String, Integer> stockInicial) {
+        List<String> violaciones = new ArrayList<>();
+        if (!"SELECCIONANDO".equals(maquina.getEstadoActualNombre()) || maquina.getTransaccionActual() != null) {
+            violaciones.add("La máquina quedó en " + maquina.getEstadoActualNombre() + " con una transacción en curso");
+        }
+
+        Map<String, Integer> vendidas = new HashMap<>();
+        Set<String> ids = new HashSet<>();
+        double ventas = 0;
+        for (Transaccion transaccion : maquina.getHistorialTransacciones()) {
+            if (!ids.add(transaccion.getId())) {
+                violaciones.add("La transacción " + transaccion.getId() + " aparece dos veces en el historial");
+            }
+            if (transaccion.getEstado() == Transaccion.EstadoTransaccion.CANCELADA) {
+                if (transaccion.contarLineas(LineaCarrito.EstadoLinea.DISPENSADA) > 0) {
+                    violaciones.add("La transacción cancelada " + transaccion.getId() + " entregó productos");
+                }
+                continue;
+            }
+            if (transaccion.getEstado() != Transaccion.EstadoTransaccion.COMPLETADA) {
+                violaciones.add("La transacción " + transaccion.getId() + " terminó en " + transaccion.getEstado());
+                continue;
+            }
+
+            double cobrado;
+            if (transaccion.esCarrito()) {
+                cobrado = transaccion.totalLineas(LineaCarrito.EstadoLinea.DISPENSADA);
+                for (LineaCarrito linea : transaccion.getLineas()) {
+                    if (linea.getEstado() == LineaCarrito.EstadoLinea.DISPENSADA) {
+                        vendidas.merge(linea.getProducto().getCodigo(), 1, Integer::sum);
+                    }
+                }
+            } else {
+                cobrado = transaccion.getPrecio();
+                vendidas.merge(transaccion.getProducto().getCodigo(), 1, Integer::sum);
+            }
+            if (transaccion.getCambio() < 0 || transaccion.getMontoPagado() - transaccion.getCambio() != cobrado) {
+                violaciones.add("La transacción " + transaccion.getId() + " cobró " + (transaccion.getMontoPagado() - transaccion.getCambio())
+                        + " por productos de " + cobrado);
+            }
+            ventas += cobrado;
+        }
+
+        for (Map.Entry<String, Integer> inicial : stockInicial.entrySet()) {
+            String codigo = inicial.getKey();
+            int stock = maquina.getInventario().get(codigo).getStock();
+            long entregadasCodigo = entregadas.containsKey(codigo) ? entregadas.get(codigo).sum() : 0;
+            int vendidasCodigo = vendidas.getOrDefault(codigo, 0);
+            if (stock < 0) {
+                violaciones.add(codigo + ": stock negativo " + stock);
+            }
+            if (inicial.getValue() - stock != entregadasCodigo || entregadasCodigo != vendidasCodigo) {
+                violaciones.add(codigo + ": salieron " + (inicial.getValue() - stock) + " unidades del stock, el hardware entregó "
+                        + entregadasCodigo + " y el historial registra " + vendidasCodigo);
+            }
+        }
+        if (vendidas.isEmpty()) {
+            violaciones.add("No se completó ninguna venta");
+        }
+        if (maquina.getDineroDisponible() != DINERO_INICIAL + ventas) {
+            violaciones.add("Dinero " + maquina.getDineroDisponible() + ", se esperaba " + (DINERO_INICIAL + ventas));
+        }
+        return violaciones;
+    }
+
+    /**
+     * Máquina con una casilla de poco stock, para que haya productos agotados bajo contención
+     */
+    private static MaquinaExpendedora nuevaMaquina() {
+        MaquinaExpendedora maquina = maquina(producto("A1", 2500, 1_000_000), producto("A2", 1500, 1_000_000),
+                producto("B1", 3000, 1_000_000), producto("B2", 2000, 5));
+        maquina.setDineroDisponible(DINERO_INICIAL);
+        return maquina;
+    }
+
+    private static Map<String, Integer> stock(MaquinaExpendedora maquina) {
+        Map<String, Integer> stock = new HashMap<>();
+        maquina.getInventario().forEach((codigo, producto) -> stock.put(codigo, producto.getStock()));
+        return stock;
+    }
+
+    private static String codigo(Random aleatorio) {
+        return CODIGOS[aleatorio.nextInt(CODIGOS.length)];
+    }
+
+    private static double denominacion(Random aleatorio) {
+        return DENOMINACIONES[aleatorio.nextInt(DENOMINACIONES.length)];
+    }
+
+    /**
+     * Operación aleatoria ejecutada por cada hilo
+     */
+    @FunctionalInterface
+    private interface Operacion {
+        void ejecutar(Random aleatorio);
+    }
+}
@@ -0,0 +1,140 @@
+package com.discretas.maquinaexpendedora.services;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.cache.CacheIdempotencia;
+import com.discretas.maquinaexpendedora.events.BusEventos;
+import com.discretas.maquinaexpendedora.events.ConsumidorEventos;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.MaquinasPrueba;
+import com.discretas.maquinaexpendedora.presentation.controller.MaquinaController;
+import com.discretas.maquinaexpendedora.protocolo.ProtocoloBinario;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de regresión del presupuesto de memoria asignada por compra.
+ * Miden los bytes asignados por el hilo que ejecuta las compras y fallan si se supera el presupuesto.
+ * Por el controlador, el servicio, el actor de la máquina y el dispensador corren en el hilo de la prueba
+ * y la máquina publica en un bus de eventos en marcha, para que la medición incluya todo el camino de
+ * compra, con la publicación de eventos, y nada del hilo consumidor del bus.
+ */
+@Slf4j
+class PresupuestoAsignacionTest {
+
+    /**
+     * Bytes máximos por compra ejecutada directamente sobre la máquina
+     */
+    private static final long PRESUPUESTO_MAQUINA = 512;
+
+    /**
+     * Bytes máximos por compra a través del controlador (incluye comandos del actor, DTOs y respuestas HTTP)
+     */
+    private static final long PRESUPUESTO_CONTROLADOR = 6_144;
+
+    private static final long EVENTOS_POR_COMPRA = 4;
+
+    private static final int CALENTAMIENTO = 20_000;
+
+    private static final int COMPRAS = 10_000;
+
+    private static final com.sun.management.ThreadMXBean HILOS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private FlotaMaquinas flota;
+
+    private BusEventos busEventos;
+
+    @AfterEach
+    void detener() {
+        if (flota != null) {
+            flota.detener();
+        }
+        if (busEventos != null) {
+            busEventos.stop();
+        }
+    }
+
+    @Test
+    void compraDirectaEnLaMaquinaRespetaElPresupuesto() {
+        MaquinaExpendedora maquina = nuevaMaquina();
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            comprar(maquina);
+        }
+
+        long antes = HILOS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < COMPRAS; i++) {
+            comprar(maquina);
+        }
+        long porCompra = (HILOS.getCurrentThreadAllocatedBytes() - antes) / COMPRAS;
+
+        log.info("Bytes asignados por compra (máquina): {}", porCompra);
+        assertTrue(porCompra <= PRESUPUESTO_MAQUINA,
+                "Se asignaron " + porCompra + " bytes por compra, presupuesto " + PRESUPUESTO_MAQUINA);
+    }
+
+    @Test
+    void compraPorElControladorRespetaElPresupuesto() {
+        busEventos = new BusEventos(1024, new DefaultListableBeanFactory().getBeanProvider(ConsumidorEventos.class));
+        busEventos.start();
+        MaquinaExpendedora maquina = nuevaMaquina(new MaquinaExpendedora(busEventos));
+        flota = new FlotaMaquinas(maquina, 64, Runnable::run);
+        MaquinaService servicio = ServiciosPrueba.maquinaService(flota, ticket -> CompletableFuture.completedFuture(true));
+        MaquinaController controlador = new MaquinaController(servicio, new CacheIdempotencia(16, 300), new ProtocoloBinario(servicio));
+
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            comprar(controlador);
+        }
+
+        long antes = HILOS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < COMPRAS; i++) {
+            comprar(controlador);
+        }
+        long porCompra = (HILOS.getCurrentThreadAllocatedBytes() - antes) / COMPRAS;
+
+        log.info("Bytes asignados por compra (controlador): {}", porCompra);
+        // Cada compra publica cuatro eventos, entregados o descartados si el consumidor se retrasa
+        assertEquals(EVENTOS_POR_COMPRA * (CALENTAMIENTO + COMPRAS),
+                busEventos.getUltimaSecuencia() + 1 + busEventos.getDescartados());
+        assertTrue(porCompra <= PRESUPUESTO_CONTROLADOR,
+                "Se asignaron " + porCompra + " bytes por compra, presupuesto " + PRESUPUESTO_CONTROLADOR);
+    }
+
+    private void comprar(MaquinaExpendedora maquina) {
+        maquina.seleccionarProducto("A1");
+        maquina.insertarDinero(5000);
+        maquina.confirmarPago();
+        maquina.dispensarProducto();
+        // El historial crece con cada compra; se vacía para medir solo el camino de compra
+        maquina.getHistorialTransacciones().clear();
+    }
+
+    private void comprar(MaquinaController controlador) {
+        controlador.seleccionarProducto("A1", false, null);
+        controlador.insertarDinero(5000, false, null);
+        controlador.confirmarPago(false, null);
+        controlador.dispensarProducto(null);
+        flota.getPrincipal().ejecutar(m -> {
+            m.getHistorialTransacciones().clear();
+            return null;
+        });
+    }
+
+    private MaquinaExpendedora nuevaMaquina() {
+        return nuevaMaquina(new MaquinaExpendedora());
+    }
+
+    private MaquinaExpendedora nuevaMaquina(MaquinaExpendedora maquina) {
+        maquina.inicializarInventario(Map.of("A1", MaquinasPrueba.producto("A1", 2500.0, Integer.MAX_VALUE)));
+        maquina.setDineroDisponible(Double.MAX_VALUE / 2);
+        return maquina;
+    }
+}
@@ -0,0 +1,37 @@
+package com.discretas.maquinaexpendedora.services;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.cache.CacheRespuestas;
+import com.discretas.maquinaexpendedora.cluster.SecretoCluster;
+import com.discretas.maquinaexpendedora.dispensador.Dispensador;
+import com.discretas.maquinaexpendedora.events.NotificadorEventos;
+import com.discretas.maquinaexpendedora.replicacion.ReplicadorDiario;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Fábrica de servicios para las pruebas, con la configuración por defecto de la aplicación,
+ * para que las pruebas no dependan de la lista de dependencias de cada servicio.
+ */
+public final class ServiciosPrueba {
+
+    private static final long TIMEOUT_DISPENSACION_MS = 10_000;
+
+    private static final long PLAZO_CONCILIACION_MS = 120_000;
+
+    private static final int TAMANYO_LOTE_INGESTA = 512;
+
+    private ServiciosPrueba() {
+    }
+
+    /**
+     * Crea el servicio de la máquina sobre una flota y un dispensador
+     */
+    public static MaquinaService maquinaService(FlotaMaquinas flota, Dispensador dispensador) {
+        return new MaquinaService(flota, new NotificadorEventos(), dispensador,
+                TIMEOUT_DISPENSACION_MS, PLAZO_CONCILIACION_MS, TAMANYO_LOTE_INGESTA, new CacheRespuestas(new ObjectMapper()), sinReplicacion(flota));
+    }
+
+    private static ReplicadorDiario sinReplicacion(FlotaMaquinas flota) {
+        return new ReplicadorDiario("", 65536, 2000, 500, 0, false, flota, new SecretoCluster("", new ObjectMapper()));
+    }
+}
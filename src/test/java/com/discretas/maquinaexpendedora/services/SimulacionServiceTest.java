@@ -0,0 +1,98 @@
+package com.discretas.maquinaexpendedora.services;
+
+import com.discretas.maquinaexpendedora.actor.FlotaMaquinas;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.presentation.dto.ApiResponseDTO;
+import com.discretas.maquinaexpendedora.presentation.dto.SimulacionDTO;
+import com.discretas.maquinaexpendedora.simulacion.EscenarioSimulacion;
+import com.discretas.maquinaexpendedora.simulacion.SimuladorMaquina;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+/**
+ * Pruebas del servicio de simulación: las corridas no usan el pool común y el número de simulaciones
+ * en curso está acotado.
+ */
+class SimulacionServiceTest {
+
+    private FlotaMaquinas flota;
+
+    private SimulacionService servicio;
+
+    @AfterEach
+    void detener() {
+        if (servicio != null) {
+            servicio.detener();
+        }
+        if (flota != null) {
+            flota.detener();
+        }
+    }
+
+    @Test
+    void simulaFueraDelPoolComun() {
+        CompletableFuture<ForkJoinPool> pool = new CompletableFuture<>();
+        servicio = nuevoServicio(new SimuladorMaquina() {
+            @Override
+            public SimuladorMaquina.ResultadoSimulacion simular(EscenarioSimulacion escenario, Map<String, Producto> catalogo) {
+                pool.complete(ForkJoinTask.getPool());
+                return super.simular(escenario, catalogo);
+            }
+        }, 1);
+
+        ApiResponseDTO<List<SimuladorMaquina.ResultadoSimulacion>> respuesta = servicio.simular(new SimulacionDTO());
+
+        assertEquals(200, respuesta.getStatus());
+        assertNotNull(pool.join());
+        assertNotSame(ForkJoinPool.commonPool(), pool.join());
+    }
+
+    @Test
+    void respondeOcupadoAlExcederLaCapacidad() throws Exception {
+        CountDownLatch iniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        servicio = nuevoServicio(new SimuladorMaquina() {
+            @Override
+            public List<SimuladorMaquina.ResultadoSimulacion> simular(List<EscenarioSimulacion> escenarios, Map<String, Producto> catalogo) {
+                iniciada.countDown();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.simular(escenarios, catalogo);
+            }
+        }, 1);
+
+        CompletableFuture<ApiResponseDTO<List<SimuladorMaquina.ResultadoSimulacion>>> primera = servicio.simularAsync(new SimulacionDTO());
+        iniciada.await();
+        assertEquals(503, servicio.simular(new SimulacionDTO()).getStatus());
+
+        liberar.countDown();
+        assertEquals(200, primera.join().getStatus());
+        assertEquals(200, servicio.simular(new SimulacionDTO()).getStatus());
+    }
+
+    private SimulacionService nuevoServicio(SimuladorMaquina simulador, int capacidad) {
+        Map<String, Producto> productos = new HashMap<>();
+        productos.put("A1", new Producto("A1", "Producto A1", 2_000.0, 5, "Descripción A1"));
+        MaquinaExpendedora maquina = new MaquinaExpendedora();
+        maquina.inicializarInventario(productos);
+        flota = new FlotaMaquinas(maquina, 64, Runnable::run);
+        MaquinaService maquinaService = ServiciosPrueba.maquinaService(flota, ticket -> CompletableFuture.completedFuture(true));
+        return new SimulacionService(maquinaService, simulador, 2, capacidad);
+    }
+}
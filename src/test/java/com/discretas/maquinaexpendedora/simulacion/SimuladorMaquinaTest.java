@@ -0,0 +1,130 @@
+package com.discretas.maquinaexpendedora.simulacion;
+
+import com.discretas.maquinaexpendedora.models.Producto;
+import com.discretas.maquinaexpendedora.simulacion.SimuladorMaquina.ResultadoCasilla;
+import com.discretas.maquinaexpendedora.simulacion.SimuladorMaquina.ResultadoSimulacion;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del simulador de eventos discretos: corridas reproducibles, efecto del dinero inicial sobre
+ * los incidentes sin cambio y efecto del reabastecimiento sobre los agotamientos.
+ */
+@Slf4j
+class SimuladorMaquinaTest {
+
+    private static final Map<String, Producto> CATALOGO = Map.of(
+            "A1", new Producto("A1", "Coca Cola", 2500, 0, "Bebida gaseosa 350ml"),
+            "A2", new Producto("A2", "Agua", 1500, 0, "Agua natural 500ml"),
+            "B1", new Producto("B1", "Papas", 3000, 0, "Papas fritas 45g"));
+
+    private final SimuladorMaquina simulador = new SimuladorMaquina();
+
+    @Test
+    void laMismaSemillaReproduceLaCorridaAunEnParalelo() {
+        EscenarioSimulacion escenario = new EscenarioSimulacion();
+        escenario.setPreferencias(Map.of("A1", 3.0, "A2", 2.0, "B1", 1.0));
+
+        List<ResultadoSimulacion> resultados = simulador.simular(SimuladorMaquina.rejilla(escenario, null, null, 8), CATALOGO);
+        ResultadoSimulacion secuencial = simulador.simular(SimuladorMaquina.rejilla(escenario, null, null, 8).get(3), CATALOGO);
+
+        assertEquals(8, resultados.size());
+        assertEquals(secuencial.getVentas(), resultados.get(3).getVentas());
+        assertEquals(secuencial.getIngresos(), resultados.get(3).getIngresos());
+        assertEquals(secuencial.getCasillas(), resultados.get(3).getCasillas());
+        assertTrue(resultados.get(3).getVentas() > 0);
+        log.info("Simulación de {} horas: {} horas virtuales por segundo",
+                String.format("%.0f", secuencial.getHoras()), String.format("%.0f", secuencial.getHorasPorSegundo()));
+    }
+
+    @Test
+    void masDineroInicialEvitaLosIncidentesSinCambio() {
+        EscenarioSimulacion escenario = new EscenarioSimulacion();
+        escenario.setLlegadasPorHora(2);
+        escenario.setDenominaciones(Map.of(500.0, 0.7, 20000.0, 0.3));
+
+        List<ResultadoSimulacion> resultados = simulador.simular(
+                SimuladorMaquina.rejilla(escenario, List.of(0.0, 50000.0), null, 1), CATALOGO);
+        ResultadoSimulacion sinDinero = resultados.get(0);
+        ResultadoSimulacion conDinero = resultados.get(1);
+
+        // Sin dinero inicial solo hay cambio para un billete de 20000 tras varias compras con monedas
+        assertTrue(sinDinero.getIncidentesSinCambio() > 0);
+        assertTrue(sinDinero.getVentas() > 0);
+        assertEquals(0, conDinero.getIncidentesSinCambio());
+        assertTrue(conDinero.getIngresos() > sinDinero.getIngresos());
+        assertEquals(conDinero.getClientes(), sinDinero.getClientes());
+    }
+
+    @Test
+    void reabastecerConMasFrecuenciaReduceLasHorasAgotadas() {
+        EscenarioSimulacion escenario = new EscenarioSimulacion();
+        escenario.setLlegadasPorHora(12);
+        escenario.setPreferencias(Map.of("A1", 8.0, "A2", 1.0, "B1", 1.0));
+        escenario.setProbabilidadSustitucion(0);
+
+        List<ResultadoSimulacion> resultados = simulador.simular(
+                SimuladorMaquina.rejilla(escenario, null, List.of(0.0, 24.0, 6.0), 1), CATALOGO);
+        ResultadoCasilla sinVisitas = casilla(resultados.get(0), "A1");
+        ResultadoCasilla diaria = casilla(resultados.get(1), "A1");
+        ResultadoCasilla cadaSeisHoras = casilla(resultados.get(2), "A1");
+
+        // Sin visitas la casilla se agota una sola vez y no se recupera
+        assertEquals(1, sinVisitas.getAgotamientos());
+        assertEquals(20, sinVisitas.getVendidas());
+        assertTrue(diaria.getAgotamientos() > 1);
+        assertTrue(cadaSeisHoras.getHorasAgotada() < diaria.getHorasAgotada());
+        assertTrue(diaria.getHorasAgotada() < sinVisitas.getHorasAgotada());
+        assertTrue(resultados.get(2).getVentas() > resultados.get(1).getVentas());
+        assertNull(casilla(resultados.get(2), "B1").getPrimerAgotamientoHoras());
+    }
+
+    @Test
+    void rechazaEscenariosInvalidos() {
+        EscenarioSimulacion escenario = new EscenarioSimulacion();
+        escenario.setPerfilHorario(new double[12]);
+        assertThrows(IllegalArgumentException.class, () -> simulador.simular(List.of(escenario), CATALOGO));
+        assertThrows(IllegalArgumentException.class, () -> simulador.simular(new EscenarioSimulacion(), Map.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> SimuladorMaquina.rejilla(new EscenarioSimulacion(), null, null, SimuladorMaquina.MAX_ESCENARIOS + 1));
+
+
+        // Una fracción de moneda obligaría a insertar miles de piezas por cliente
+        EscenarioSimulacion centavos = new EscenarioSimulacion();
+        centavos.setDenominaciones(Map.of(0.01, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> simulador.simular(centavos, CATALOGO));
+    }
+
+    @Test
+    void rechazaEscenariosQueExcedenElLimiteDeEventos() {
+        EscenarioSimulacion largo = new EscenarioSimulacion();
+        largo.setHoras(1e9);
+        assertThrows(IllegalArgumentException.class, () -> simulador.simular(largo, CATALOGO));
+
+        EscenarioSimulacion visitas = new EscenarioSimulacion();
+        visitas.setIntervaloReabastecimientoHoras(1e-9);
+        assertThrows(IllegalArgumentException.class, () -> simulador.simular(visitas, CATALOGO));
+
+        // Cada escenario cabe por separado, pero la rejilla completa no
+        EscenarioSimulacion intenso = new EscenarioSimulacion();
+        intenso.setLlegadasPorHora(EscenarioSimulacion.MAX_EVENTOS / intenso.getHoras() / 2);
+        List<EscenarioSimulacion> rejilla = SimuladorMaquina.rejilla(intenso, null, null,
+                (int) (SimuladorMaquina.MAX_EVENTOS_REJILLA / (EscenarioSimulacion.MAX_EVENTOS / 2)) + 1);
+        assertThrows(IllegalArgumentException.class, () -> simulador.simular(rejilla, CATALOGO));
+    }
+
+    private static ResultadoCasilla casilla(ResultadoSimulacion resultado, String codigo) {
+        return resultado.getCasillas().stream()
+                .filter(casilla -> casilla.getCodigoProducto().equals(codigo))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,87 @@
+package com.discretas.maquinaexpendedora.state;
+
+import com.discretas.maquinaexpendedora.models.LineaCarrito;
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.TicketDispensacion;
+import com.discretas.maquinaexpendedora.models.Transaccion;
+import com.discretas.maquinaexpendedora.utils.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.maquina;
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.producto;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de las transacciones de varios productos: reserva de existencias, dispensación
+ * secuencial bajo un mismo ticket y reembolso de los productos que fallan.
+ */
+class CarritoTest {
+
+    private final MaquinaExpendedora maquina = maquina(producto("A1", 2_000.0, 5), producto("A2", 2_000.0, 5),
+            producto("B1", 1_500.0, 1), producto("C1", 1_000.0, 20));
+
+    @Test
+    void dispensaElCarritoYReembolsaElProductoQueFalla() {
+        double dineroInicial = maquina.getDineroDisponible();
+        assertEquals(CodigoResultado.PRODUCTO_AGREGADO, maquina.agregarProductos(List.of("A1", "A2", "A1")).getCodigo());
+        assertEquals(6_000.0, maquina.getTransaccionActual().getPrecio());
+        maquina.insertarDinero(10_000);
+        maquina.confirmarPago();
+
+        TicketDispensacion ticket = maquina.iniciarDispensacion("T-1");
+        assertEquals("A1", ticket.getCodigoProducto());
+        assertEquals(CodigoResultado.ARTICULO_DISPENSADO, maquina.completarDispensacion("T-1", true).getCodigo());
+        assertTrue(ticket.estaPendiente());
+        assertEquals("A2", ticket.getCodigoProducto());
+        assertEquals(CodigoResultado.ARTICULO_REEMBOLSADO, maquina.completarDispensacion("T-1", false).getCodigo());
+        assertEquals("A1", ticket.getCodigoProducto());
+
+        ResultadoOperacion resultado = maquina.completarDispensacion("T-1", true);
+        assertEquals(CodigoResultado.CARRITO_DISPENSADO_PARCIAL, resultado.getCodigo());
+        assertEquals(2, resultado.getProductosDispensados());
+        assertTrue(resultado.mensaje().contains("2 de 3 productos"));
+        assertEquals(TicketDispensacion.EstadoTicket.COMPLETADO, ticket.getEstado());
+        assertNull(maquina.getTransaccionActual());
+        assertEquals("SELECCIONANDO", maquina.getEstadoActualNombre());
+
+        // El cambio se entrega una sola vez e incluye el reembolso del producto que falló
+        Transaccion transaccion = maquina.getHistorialTransacciones().get(maquina.getHistorialTransacciones().size() - 1);
+        assertEquals(6_000.0, transaccion.getCambio());
+        assertEquals(2, transaccion.contarLineas(LineaCarrito.EstadoLinea.DISPENSADA));
+        assertEquals(dineroInicial + 4_000, maquina.getDineroDisponible());
+        assertEquals(3, maquina.getInventario().get("A1").getStock());
+        assertEquals(5, maquina.getInventario().get("A2").getStock());
+    }
+
+    @Test
+    void cancelaElCarritoSiNingunProductoSeEntrega() {
+        double dineroInicial = maquina.getDineroDisponible();
+        maquina.agregarProductos(List.of("A1", "A2"));
+        maquina.insertarDinero(4_000);
+        maquina.confirmarPago();
+
+        TicketDispensacion ticket = maquina.iniciarDispensacion("T-1");
+        maquina.completarDispensacion("T-1", false);
+        assertEquals(CodigoResultado.DISPENSACION_FALLIDA, maquina.completarDispensacion("T-1", false).getCodigo());
+        assertEquals(TicketDispensacion.EstadoTicket.FALLIDO, ticket.getEstado());
+        assertEquals(dineroInicial, maquina.getDineroDisponible());
+        assertEquals(5, maquina.getInventario().get("A1").getStock());
+    }
+
+    @Test
+    void noReservaMasUnidadesQueLasExistentesNiSuperaElLimite() {
+        maquina.seleccionarProducto("B1");
+        assertEquals(CodigoResultado.PRODUCTO_AGOTADO, maquina.agregarProducto("B1").getCodigo());
+
+        maquina.cancelarTransaccion();
+        maquina.seleccionarProducto("A1");
+        for (int i = 1; i < Constants.Maquina.MAX_PRODUCTOS_CARRITO; i++) {
+            maquina.agregarProducto("C1");
+        }
+        assertEquals(CodigoResultado.CARRITO_LLENO, maquina.agregarProducto("A2").getCodigo());
+    }
+}
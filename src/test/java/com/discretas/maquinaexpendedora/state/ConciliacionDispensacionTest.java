@@ -0,0 +1,114 @@
+package com.discretas.maquinaexpendedora.state;
+
+import com.discretas.maquinaexpendedora.models.MaquinaExpendedora;
+import com.discretas.maquinaexpendedora.models.TicketDispensacion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.maquina;
+import static com.discretas.maquinaexpendedora.models.MaquinasPrueba.producto;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la conciliación de una dispensación con el resultado del hardware:
+ * resultados de tickets que ya no están en curso, dispensaciones que vencen sin respuesta y su conciliación.
+ */
+class ConciliacionDispensacionTest {
+
+    private final MaquinaExpendedora maquina = maquina(producto("A1", 2_000.0, 5));
+
+    @Test
+    void ignoraElResultadoDeOtroTicket() {
+        double dineroInicial = maquina.getDineroDisponible();
+        pagar("A1", 2_000);
+        TicketDispensacion ticket = maquina.iniciarDispensacion("T-2");
+
+        assertEquals(CodigoResultado.DISPENSACION_OBSOLETA, maquina.completarDispensacion("T-1", false).getCodigo());
+        assertTrue(ticket.estaPendiente());
+        assertEquals("DISPENSANDO", maquina.getEstadoActualNombre());
+
+        assertEquals(CodigoResultado.PRODUCTO_DISPENSADO, maquina.completarDispensacion("T-2", true).getCodigo());
+        assertEquals(TicketDispensacion.EstadoTicket.COMPLETADO, ticket.getEstado());
+        assertEquals(CodigoResultado.DISPENSACION_OBSOLETA, maquina.completarDispensacion("T-2", false).getCodigo());
+        assertEquals(dineroInicial + 2_000, maquina.getDineroDisponible());
+        assertEquals(4, maquina.getInventario().get("A1").getStock());
+    }
+
+    @Test
+    void unaDispensacionVencidaNoSeReembolsaHastaConocerElResultado() {
+        double dineroInicial = maquina.getDineroDisponible();
+        pagar("A1", 2_000);
+        TicketDispensacion ticket = maquina.iniciarDispensacion("T-1");
+
+        assertEquals(CodigoResultado.DISPENSACION_INCIERTA, maquina.marcarDispensacionIncierta("T-1").getCodigo());
+        assertEquals(TicketDispensacion.EstadoTicket.INCIERTO, ticket.getEstado());
+        assertTrue(ticket.getFinalizacion().isDone());
+
+        // La máquina sigue dispensando el ticket: no acepta otro ni devuelve el dinero
+        assertEquals("DISPENSANDO", maquina.getEstadoActualNombre());
+        assertEquals(CodigoResultado.DISPENSACION_EN_CURSO,
+                maquina.iniciarDispensacion("T-2").getResultado().getCodigo());
+        assertEquals(CodigoResultado.CANCELACION_NO_PERMITIDA, maquina.cancelarTransaccion().getCodigo());
+
+        // El hardware informa después que sí entregó el producto
+        assertEquals(CodigoResultado.PRODUCTO_DISPENSADO, maquina.completarDispensacion("T-1", true).getCodigo());
+        assertEquals(TicketDispensacion.EstadoTicket.COMPLETADO, ticket.getEstado());
+        assertEquals("SELECCIONANDO", maquina.getEstadoActualNombre());
+        assertEquals(dineroInicial + 2_000, maquina.getDineroDisponible());
+        assertEquals(4, maquina.getInventario().get("A1").getStock());
+    }
+
+    @Test
+    void unTicketInciertoNoSeReabreYElCarritoContinuaConOtroTicket() {
+        maquina.agregarProductos(List.of("A1", "A1"));
+        maquina.insertarDinero(4_000);
+        maquina.confirmarPago();
+        TicketDispensacion ticket = maquina.iniciarDispensacion("T-1");
+        maquina.marcarDispensacionIncierta("T-1");
+
+        // El resultado tardío del primer producto no devuelve el ticket terminado a pendiente
+        assertEquals(CodigoResultado.ARTICULO_DISPENSADO, maquina.completarDispensacion("T-1", true).getCodigo());
+        assertEquals(TicketDispensacion.EstadoTicket.INCIERTO, ticket.getEstado());
+        assertEquals("T-1-2", ticket.getIdTicketContinuacion());
+        TicketDispensacion continuacion = maquina.getTicketDispensacion();
+        assertEquals("T-1-2", continuacion.getId());
+        assertTrue(continuacion.estaPendiente());
+        assertFalse(continuacion.getFinalizacion().isDone());
+
+        assertEquals(CodigoResultado.DISPENSACION_OBSOLETA, maquina.completarDispensacion("T-1", true).getCodigo());
+        assertEquals(CodigoResultado.CARRITO_DISPENSADO, maquina.completarDispensacion("T-1-2", true).getCodigo());
+        assertEquals(TicketDispensacion.EstadoTicket.COMPLETADO, continuacion.getEstado());
+        assertEquals(TicketDispensacion.EstadoTicket.INCIERTO, ticket.getEstado());
+        assertEquals(3, maquina.getInventario().get("A1").getStock());
+    }
+
+    @Test
+    void laConciliacionSacaLaMaquinaDeDispensando() {
+        double dineroInicial = maquina.getDineroDisponible();
+        pagar("A1", 2_000);
+        TicketDispensacion ticket = maquina.iniciarDispensacion("T-1");
+
+        // Solo se concilia un ticket incierto
+        assertEquals(CodigoResultado.DISPENSACION_OBSOLETA, maquina.conciliarDispensacion("T-1", false).getCodigo());
+        maquina.marcarDispensacionIncierta("T-1");
+
+        assertEquals(CodigoResultado.DISPENSACION_FALLIDA, maquina.conciliarDispensacion("T-1", false).getCodigo());
+        assertEquals(TicketDispensacion.EstadoTicket.FALLIDO, ticket.getEstado());
+        assertEquals("SELECCIONANDO", maquina.getEstadoActualNombre());
+        assertEquals(dineroInicial, maquina.getDineroDisponible());
+        assertEquals(5, maquina.getInventario().get("A1").getStock());
+
+        // El resultado del hardware que llega después se ignora
+        assertEquals(CodigoResultado.DISPENSACION_OBSOLETA, maquina.completarDispensacion("T-1", true).getCodigo());
+        assertEquals(TicketDispensacion.EstadoTicket.FALLIDO, ticket.getEstado());
+    }
+
+    private void pagar(String codigo, double monto) {
+        maquina.seleccionarProducto(codigo);
+        maquina.insertarDinero(monto);
+        maquina.confirmarPago();
+    }
+}
@@ -0,0 +1,88 @@
+package com.discretas.maquinaexpendedora.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas del lector de denominaciones con entradas que no son ASCII, valores con signo, fraccionarios,
+ * que no son denominaciones aceptadas o que no caben en un long, y números partidos entre lecturas del flujo.
+ */
+class LectorDenominacionesTest {
+
+    private static final long INVALIDA = LectorDenominaciones.DENOMINACION_INVALIDA;
+
+    @Test
+    void losBytesNoAsciiSeparanValoresSinTerminarElFlujo() throws IOException {
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        byte[] datos = concatenar(bom, "[500,1000]\n2000 pesos señor 50".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of(500L, 1000L, 2000L, 50L), leerTodo(new ByteArrayInputStream(datos)));
+    }
+
+    @Test
+    void rechazaLosValoresConSigno() throws IOException {
+        String datos = "[-500, +200, 1000, 500-100]";
+
+        assertEquals(List.of(INVALIDA, INVALIDA, 1000L, 500L, INVALIDA), leerTodo(flujo(datos)));
+    }
+
+    @Test
+    void rechazaLosValoresQueNoCabenEnUnLongYSigueLeyendo() throws IOException {
+        String datos = "99999999999999999999 18446744073709551616 200";
+
+        assertEquals(List.of(INVALIDA, INVALIDA, 200L), leerTodo(flujo(datos)));
+    }
+
+    @Test
+    void rechazaLasFraccionesYLasDenominacionesNoAceptadas() throws IOException {
+        String datos = "500.75 500.00 1000. 0 7 " + Long.MAX_VALUE + " 100000";
+
+        assertEquals(List.of(INVALIDA, 500L, 1000L, INVALIDA, INVALIDA, INVALIDA, 100000L), leerTodo(flujo(datos)));
+    }
+
+    @Test
+    void leeNumerosPartidosEntreLecturas() throws IOException {
+        // Un byte por lectura: cada número queda partido entre varias lecturas del flujo
+        InputStream porByte = new ByteArrayInputStream("1000,-20,500".getBytes(StandardCharsets.US_ASCII)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        assertEquals(List.of(1000L, INVALIDA, 500L), leerTodo(porByte));
+
+        // Un número y su signo a ambos lados del límite del buffer interno
+        String relleno = " ".repeat(8191);
+        assertEquals(List.of(INVALIDA, 50L), leerTodo(flujo(relleno + "-123456 50")));
+        assertEquals(List.of(100000L), leerTodo(flujo(" ".repeat(8190) + "100000")));
+    }
+
+    private static List<Long> leerTodo(InputStream entrada) throws IOException {
+        LectorDenominaciones lector = new LectorDenominaciones(entrada);
+        List<Long> valores = new ArrayList<>();
+        long valor;
+        while ((valor = lector.siguiente()) != LectorDenominaciones.FIN_FLUJO) {
+            valores.add(valor);
+        }
+        return valores;
+    }
+
+    private static InputStream flujo(String datos) {
+        return new ByteArrayInputStream(datos.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] concatenar(byte[] a, byte[] b) {
+        byte[] resultado = new byte[a.length + b.length];
+        System.arraycopy(a, 0, resultado, 0, a.length);
+        System.arraycopy(b, 0, resultado, a.length, b.length);
+        return resultado;
+    }
+}